@@ -2,13 +2,18 @@ package edu.neu.ccs.prl.galette.internal.agent;
 
 import edu.neu.ccs.prl.galette.internal.runtime.*;
 import edu.neu.ccs.prl.galette.internal.runtime.frame.SpareFrameStore;
+import edu.neu.ccs.prl.galette.internal.transform.AheadOfTimeStore;
 import edu.neu.ccs.prl.galette.internal.transform.GaletteLog;
 import edu.neu.ccs.prl.galette.internal.transform.GaletteTransformer;
+import edu.neu.ccs.prl.galette.internal.transform.InstrumentationPolicy;
 import edu.neu.ccs.prl.galette.internal.transform.TransformationCache;
 import java.io.File;
 import java.io.IOException;
 import java.lang.instrument.ClassFileTransformer;
 import java.lang.instrument.Instrumentation;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
 import java.security.ProtectionDomain;
 
 public final class GaletteAgent {
@@ -31,9 +36,78 @@ public final class GaletteAgent {
         String cachePath = System.getProperty("galette.cache");
         TransformationCache cache = cachePath == null ? null : new TransformationCache(new File(cachePath));
         GaletteTransformer.setCache(cache);
+        String policyPath = System.getProperty("galette.policy");
+        if (policyPath != null) {
+            GaletteTransformer.setPolicy(InstrumentationPolicy.load(new File(policyPath)));
+        }
+        String aotPath = System.getProperty("galette.aot");
+        if (aotPath != null) {
+            loadAheadOfTimeStore(new File(aotPath));
+        }
+        if (Boolean.getBoolean("galette.profile")) {
+            enableProfiling(Integer.getInteger("galette.profile.top", 50));
+        }
+        if (Boolean.getBoolean("galette.implicit")) {
+            GaletteTransformer.setImplicitFlows(true);
+            // Methods that are entered before tags are first created still need to reserve control stack slots
+            ControlTagStack.initializeImplicitFlows();
+        }
+        if (Boolean.getBoolean("galette.context")) {
+            TaskContext.initialize();
+        }
+        String sampleRate = System.getProperty("galette.sample");
+        if (sampleRate != null) {
+            // Only track tags for the specified fraction of threads
+            TagSampler.initialize(Double.parseDouble(sampleRate));
+        }
         inst.addTransformer(new TransformerWrapper());
     }
 
+    private static void loadAheadOfTimeStore(File directory) throws IOException {
+        // The agent class is loaded by the bootstrap class loader, so its code source is not available
+        URL resource = GaletteAgent.class.getResource("GaletteAgent.class");
+        if (resource == null || !"jar".equals(resource.getProtocol())) {
+            throw new IOException("Failed to locate agent JAR from: " + resource);
+        }
+        String path = resource.getPath();
+        File agentJar;
+        try {
+            agentJar = new File(new URI(path.substring(0, path.indexOf("!/"))));
+        } catch (URISyntaxException e) {
+            throw new IOException("Failed to locate agent JAR from: " + resource, e);
+        }
+        AheadOfTimeStore store = AheadOfTimeStore.load(directory, agentJar);
+        if (store == null) {
+            GaletteLog.info("Ignoring ahead-of-time instrumented classes created by a different agent: " + directory);
+        } else {
+            GaletteTransformer.setAheadOfTimeStore(store);
+        }
+    }
+
+    private static void enableProfiling(int limit) {
+        GaletteTransformer.setProfiling(true);
+        Runtime.getRuntime().addShutdownHook(new ProfileReporter(limit));
+    }
+
+    /**
+     * Reports the profiled sites when the JVM shuts down.
+     * Classes in this package are not instrumented, so a {@link Runnable} defined here would lack the shadow of
+     * {@link Runnable#run()} that the instrumented {@link Thread#run()} calls; override {@link Thread#run()} instead.
+     */
+    private static final class ProfileReporter extends Thread {
+        private final int limit;
+
+        private ProfileReporter(int limit) {
+            super("galette-profiler");
+            this.limit = limit;
+        }
+
+        @Override
+        public void run() {
+            PropagationProfiler.dump(System.err, limit);
+        }
+    }
+
     private static final class TransformerWrapper implements ClassFileTransformer {
         private final GaletteTransformer transformer = new GaletteTransformer();
 
@@ -59,7 +133,7 @@ public final class GaletteAgent {
                 // The class is being redefined or retransformed
                 return null;
             }
-            return transformer.transform(classFileBuffer, false);
+            return transformer.transform(loader, classFileBuffer, false);
         }
     }
 }
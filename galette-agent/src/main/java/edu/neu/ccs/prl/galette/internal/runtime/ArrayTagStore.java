@@ -11,6 +11,10 @@ public final class ArrayTagStore {
      * Delay initialization to prevent circular class initialization.
      */
     private static volatile WeakDataStore<Object, ArrayWrapper> wrappers;
+    /**
+     * Incremented each time the stored tags are cleared.
+     */
+    private static volatile int generation = 0;
 
     private ArrayTagStore() {
         throw new AssertionError();
@@ -87,20 +91,20 @@ public final class ArrayTagStore {
         ArrayWrapper destWrapper = getWrapper(dest);
         if (sourceWrapper != null || destWrapper != null) {
             if (destWrapper == null) {
-                destWrapper = wrappers.computeIfAbsent(dest);
+                destWrapper = createWrapper(dest);
             }
             if (sourceWrapper == null) {
-                sourceWrapper = wrappers.computeIfAbsent(src);
+                sourceWrapper = createWrapper(src);
             }
-            System.arraycopy(sourceWrapper.getElements(), srcPos, destWrapper.getElements(), destPos, length);
+            destWrapper.copyElements(sourceWrapper, srcPos, destPos, length);
         }
     }
 
     public static ArrayWrapper getWrapper(Object array, Tag tag) {
         if (wrappers != null && array != null) {
-            ArrayWrapper wrapper = wrappers.get(array);
+            ArrayWrapper wrapper = lookup(array);
             if (wrapper == null && !Tag.isEmpty(tag)) {
-                return wrappers.computeIfAbsent(array);
+                return createWrapper(array);
             }
             return wrapper;
         }
@@ -110,29 +114,70 @@ public final class ArrayTagStore {
     public static void clear() {
         if (wrappers != null) {
             wrappers.clear();
+            generation++;
         }
     }
 
+    /**
+     * Returns a number that changes whenever the tags stored by this class are cleared.
+     * Values derived from the stored tags are only valid while the generation is unchanged.
+     *
+     * @return the current generation of the stored tags
+     */
+    public static int getGeneration() {
+        return generation;
+    }
+
+    public static boolean isInitialized() {
+        return wrappers != null;
+    }
+
     public static void initialize() {
         if (wrappers == null) {
             // Ensure that needed classes are initialized to prevent circular class initialization
-            Object[] dependencies = new Object[] {ArrayWrapper.class};
+            Object[] dependencies = new Object[] {ArrayWrapper.class, ArrayWrapperCache.class, ThreadShadow.class};
             wrappers = new WeakDataStore<>(ArrayWrapper::new);
         }
     }
 
     public static ArrayWrapper getWrapper(Object array) {
         if (wrappers != null && array != null) {
-            return wrappers.get(array);
+            return lookup(array);
         }
         return null;
     }
 
+    private static ArrayWrapper lookup(Object array) {
+        // Read the number of created wrappers before searching the store
+        int currentCreations = wrappers.getInsertions();
+        int currentGeneration = generation;
+        ThreadShadow shadow = ThreadShadow.get();
+        ArrayWrapperCache cache = shadow == null ? null : shadow.getArrayCache();
+        if (cache == null) {
+            ArrayWrapper wrapper = wrappers.get(array);
+            if (shadow == null && wrapper == null) {
+                // Do not allocate a record for a thread that has not stored state and has not read a tagged array
+                return null;
+            }
+            cache = new ArrayWrapperCache(currentGeneration);
+            (shadow == null ? ThreadShadow.getOrCreate() : shadow).setArrayCache(cache);
+            cache.put(array, wrapper, currentCreations);
+            return wrapper;
+        }
+        return cache.get(array, wrappers, currentGeneration, currentCreations);
+    }
+
+    private static ArrayWrapper createWrapper(Object array) {
+        // Cached lookups that did not find a wrapper for the array are invalidated by the store's insertion count,
+        // which only changes when a wrapper is actually created
+        return wrappers.computeIfAbsent(array);
+    }
+
     public static void updateWrapper(Object array, ArrayWrapper sourceWrapper) {
         if (wrappers != null && array != null) {
-            ArrayWrapper destWrapper = wrappers.computeIfAbsent(array);
+            ArrayWrapper destWrapper = createWrapper(array);
             destWrapper.setLength(sourceWrapper.getLength());
-            System.arraycopy(sourceWrapper.getElements(), 0, destWrapper.getElements(), 0, destWrapper.size());
+            destWrapper.copyElements(sourceWrapper, 0, 0, destWrapper.size());
         }
     }
 }
@@ -1,32 +1,309 @@
 package edu.neu.ccs.prl.galette.internal.runtime;
 
-import java.io.Serializable;
+import edu.neu.ccs.prl.galette.internal.runtime.collection.Arrays;
+import java.io.*;
 import java.lang.reflect.Array;
 
+/**
+ * Stores the taint tags associated with the length and elements of an array.
+ * <p>
+ * A wrapper starts in a "uniform" mode in which every element has the same tag and no per-element storage is
+ * allocated.
+ * The per-element tags are allocated on the first store of a tag for a subset of the elements that differs from the
+ * shared tag or when {@link #getElements()} is called.
+ * Once allocated, the per-element tags are used for the remainder of the wrapper's lifetime.
+ * <p>
+ * The tags of the elements are serialized as runs of consecutive elements with equal, non-empty tags.
+ * Elements with empty tags are not written, and each tag is replaced by its canonical instance in the stream (see
+ * {@link StreamTagDictionary}).
+ */
 public final class ArrayWrapper implements Serializable, TaggedObject {
-    private static final long serialVersionUID = -5853646824573914847L;
-    private Tag length = Tag.emptyTag();
-    private final Tag[] elements;
+    private static final long serialVersionUID = -6072291859163573024L;
+    private transient Tag length = Tag.emptyTag();
+    /**
+     * The number of elements in the wrapped array.
+     */
+    private final int size;
+    /**
+     * The tag of every element if {@link #elements} is {@code null}.
+     * Only written while holding the lock on this wrapper; volatile so that readers that do not hold the lock see the
+     * most recently stored tag.
+     */
+    private transient volatile Tag uniform = Tag.emptyTag();
+    /**
+     * The tags of the elements or {@code null} if every element has the tag {@link #uniform}.
+     * Only written while holding the lock on this wrapper.
+     */
+    private transient Elements elements;
 
     public ArrayWrapper(Object array) {
-        int length = Array.getLength(array);
-        elements = new Tag[length];
+        size = Array.getLength(array);
     }
 
     public int size() {
-        return elements.length;
+        return size;
     }
 
+    /**
+     * Returns the tags of the elements, allocating per-element storage if necessary.
+     * Changes to the returned array are reflected in this wrapper.
+     *
+     * @return the tags of the elements
+     */
     public Tag[] getElements() {
-        return elements;
+        Elements current = elements;
+        return current == null ? inflate() : current.tags;
+    }
+
+    /**
+     * Returns the tags of the elements if per-element storage has been allocated, otherwise {@code null}, in which
+     * case every element has the tag returned by {@link #getElement}.
+     * Unlike {@link #getElements()}, this method never allocates per-element storage.
+     * Changes to the returned array are reflected in this wrapper.
+     *
+     * @return the tags of the elements or {@code null} if per-element storage has not been allocated
+     */
+    public Tag[] peekElements() {
+        Elements current = elements;
+        return current == null ? null : current.tags;
     }
 
     public void setElement(Tag element, int index) {
-        elements[index] = element;
+        Elements current = elements;
+        if (current == null) {
+            checkIndex(index);
+            if (isSame(element, uniform)) {
+                return;
+            }
+            inflate()[index] = element;
+            return;
+        }
+        current.tags[index] = element;
     }
 
     public Tag getElement(int index) {
-        return elements[index];
+        Elements current = elements;
+        if (current == null) {
+            checkIndex(index);
+            return uniform;
+        }
+        return current.tags[index];
+    }
+
+    /**
+     * Returns the union of the tags of the elements in the specified range.
+     *
+     * @param start the index of the first element in the range (inclusive)
+     * @param end the index of the last element in the range (exclusive)
+     * @return the union of the tags of the elements in the range
+     * @throws ArrayIndexOutOfBoundsException if {@code start < 0} or {@code end > size()} and the range is not empty
+     */
+    public Tag unionElements(int start, int end) {
+        Elements current = elements;
+        if (current == null) {
+            if (start >= end) {
+                return Tag.emptyTag();
+            }
+            checkIndex(start);
+            checkIndex(end - 1);
+            return uniform;
+        }
+        Tag result = Tag.emptyTag();
+        for (int i = start; i < end; i++) {
+            result = Tag.union(result, current.tags[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Sets the tag of each element in the specified range to the specified tag.
+     * If the range covers every element and per-element storage has not been allocated, this operation is
+     * constant-time.
+     *
+     * @param element the tag to be set
+     * @param start the index of the first element in the range (inclusive)
+     * @param end the index of the last element in the range (exclusive)
+     * @throws IllegalArgumentException if {@code start > end}
+     * @throws ArrayIndexOutOfBoundsException if {@code start < 0} or {@code end > size()}
+     */
+    public void fillElements(Tag element, int start, int end) {
+        if (elements == null) {
+            if (start > end) {
+                throw new IllegalArgumentException("start(" + start + ") > end(" + end + ")");
+            } else if (start < 0) {
+                throw new ArrayIndexOutOfBoundsException(start);
+            } else if (end > size) {
+                throw new ArrayIndexOutOfBoundsException(end);
+            }
+            synchronized (this) {
+                if (elements == null) {
+                    if (start == 0 && end == size) {
+                        uniform = element;
+                        return;
+                    } else if (start == end || isSame(element, uniform)) {
+                        return;
+                    }
+                }
+            }
+        }
+        Arrays.fill(getElements(), start, end, element);
+    }
+
+    /**
+     * Sets the tags of the elements starting at the specified position to the tags in the specified range of the
+     * specified array.
+     * Per-element storage is not allocated if the tags in the range are all equal and can be stored as described by
+     * {@link #fillElements}.
+     *
+     * @param src the array containing the tags to be set
+     * @param srcPos the index in the source array of the first tag
+     * @param destPos the index of the first element whose tag should be set
+     * @param length the number of tags to set
+     * @throws NullPointerException if {@code src} is {@code null}
+     * @throws ArrayIndexOutOfBoundsException if either range is out of bounds
+     */
+    public void setElements(Tag[] src, int srcPos, int destPos, int length) {
+        if (elements == null && length > 0) {
+            Tag first = src[srcPos];
+            int i = srcPos + 1;
+            while (i < srcPos + length && isEqual(src[i], first)) {
+                i++;
+            }
+            if (i == srcPos + length) {
+                fillElements(first, destPos, destPos + length);
+                return;
+            }
+        }
+        System.arraycopy(src, srcPos, getElements(), destPos, length);
+    }
+
+    /**
+     * Copies the tags of the specified range of elements of the specified source wrapper to the elements of this
+     * wrapper starting at the specified position.
+     * Behaves as if the tags were copied with {@link System#arraycopy}.
+     *
+     * @param source the source wrapper
+     * @param srcPos the index of the first element in the source range
+     * @param destPos the index in this wrapper at which the first tag should be stored
+     * @param length the number of elements to copy
+     * @throws NullPointerException if {@code source} is {@code null}
+     * @throws ArrayIndexOutOfBoundsException if either range is out of bounds
+     */
+    public void copyElements(ArrayWrapper source, int srcPos, int destPos, int length) {
+        if (source.elements == null) {
+            if (length < 0 || srcPos < 0 || srcPos > source.size - length) {
+                throw new ArrayIndexOutOfBoundsException("source range out of bounds");
+            } else if (destPos < 0 || destPos > size - length) {
+                throw new ArrayIndexOutOfBoundsException("destination range out of bounds");
+            }
+            fillElements(source.uniform, destPos, destPos + length);
+        } else {
+            System.arraycopy(source.getElements(), srcPos, getElements(), destPos, length);
+        }
+    }
+
+    /**
+     * Returns {@code true} if the length and every element of the wrapped array have empty tags.
+     *
+     * @return {@code true} if every tag stored by this wrapper is empty
+     */
+    public boolean isEmpty() {
+        if (!Tag.isEmpty(length)) {
+            return false;
+        }
+        Elements current = elements;
+        if (current == null) {
+            return Tag.isEmpty(uniform);
+        }
+        for (Tag element : current.tags) {
+            if (!Tag.isEmpty(element)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the index after the last element of the run of consecutive elements that starts at the specified index
+     * and whose tags are equal to the tag of the element at that index.
+     *
+     * @param start the index of the first element in the run
+     * @return the index after the last element of the run
+     * @throws ArrayIndexOutOfBoundsException if {@code start < 0} or {@code start >= size()}
+     */
+    int findRunEnd(int start) {
+        Elements current = elements;
+        if (current == null) {
+            checkIndex(start);
+            return size;
+        }
+        Tag[] tags = current.tags;
+        int end = start + 1;
+        while (end < size && isEqual(tags[end], tags[start])) {
+            end++;
+        }
+        return end;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeObject(StreamTagDictionary.canonicalize(out, length));
+        for (int start = 0; start < size; ) {
+            int end = findRunEnd(start);
+            writeRun(out, start, end - start, getElement(start));
+            start = end;
+        }
+        out.writeInt(-1);
+    }
+
+    private static void writeRun(ObjectOutputStream out, int start, int length, Tag tag) throws IOException {
+        if (length > 0 && !Tag.isEmpty(tag)) {
+            out.writeInt(start);
+            out.writeInt(length);
+            out.writeObject(StreamTagDictionary.canonicalize(out, tag));
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        if (size < 0) {
+            throw new InvalidObjectException("Negative size: " + size);
+        }
+        length = (Tag) in.readObject();
+        for (int start = in.readInt(); start != -1; start = in.readInt()) {
+            int length = in.readInt();
+            Tag tag = (Tag) in.readObject();
+            if (start < 0 || length <= 0 || start > size - length) {
+                throw new InvalidObjectException("Invalid run of elements: " + start + ", " + length);
+            }
+            fillElements(tag, start, start + length);
+        }
+    }
+
+    private synchronized Tag[] inflate() {
+        if (elements == null) {
+            Tag[] result = new Tag[size];
+            Tag tag = uniform;
+            if (!Tag.isEmpty(tag)) {
+                Arrays.fill(result, 0, result.length, tag);
+            }
+            elements = new Elements(result);
+        }
+        return elements.tags;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+    }
+
+    private static boolean isSame(Tag t1, Tag t2) {
+        return t1 == t2 || Tag.isEmpty(t1) && Tag.isEmpty(t2);
+    }
+
+    private static boolean isEqual(Tag t1, Tag t2) {
+        return isSame(t1, t2) || t1 != null && t1.equals(t2);
     }
 
     public void setLength(Tag length) {
@@ -59,4 +336,17 @@ public final class ArrayWrapper implements Serializable, TaggedObject {
 
     @Override
     public void finalize(TagFrame frame) {}
+
+    /**
+     * Holds the per-element tags of a wrapper.
+     * The array is only reached through a final field, so a thread that reads a holder without synchronization also
+     * sees the tags that were stored in the array before the holder was published.
+     */
+    private static final class Elements {
+        private final Tag[] tags;
+
+        private Elements(Tag[] tags) {
+            this.tags = tags;
+        }
+    }
 }
@@ -0,0 +1,81 @@
+package edu.neu.ccs.prl.galette.internal.runtime;
+
+import edu.neu.ccs.prl.galette.internal.runtime.collection.WeakDataStore;
+
+/**
+ * Per-thread cache of the results of the two most recent lookups of array wrappers.
+ * <p>
+ * Collections access the same backing arrays repeatedly (e.g., the table of a hash map or the element array of an
+ * array list), and loops that compare two arrays alternate between them.
+ * Caching the last two lookups lets these accesses skip the shared weak identity map.
+ * A cached wrapper remains valid until the stored tags are cleared.
+ * A cached absence of a wrapper is only valid until the next time that a wrapper is created.
+ * The cache holds strong references to the last two arrays that were looked up, which are retained until the thread
+ * looks up other arrays or the thread's record is collected.
+ * Caches are only created for threads that already have a record or that read an array with tags, so threads that
+ * never touch tagged arrays do not allocate one.
+ * Instances are only accessed by the thread that they belong to and, therefore, are not synchronized.
+ */
+final class ArrayWrapperCache {
+    private Object array0;
+    private ArrayWrapper wrapper0;
+    private int creations0;
+    private Object array1;
+    private ArrayWrapper wrapper1;
+    private int creations1;
+    /**
+     * Generation of the stored tags when this cache was last reset.
+     */
+    private int generation;
+
+    ArrayWrapperCache(int generation) {
+        this.generation = generation;
+    }
+
+    /**
+     * Returns the wrapper for the specified array.
+     *
+     * @param array the array whose wrapper should be returned
+     * @param store the store that holds the wrappers
+     * @param generation the current generation of the stored tags
+     * @param creations the number of wrappers that had been created before this method was called
+     * @return the wrapper for the specified array or {@code null} if the array does not have a wrapper
+     */
+    ArrayWrapper get(Object array, WeakDataStore<Object, ArrayWrapper> store, int generation, int creations) {
+        if (this.generation != generation) {
+            // The cached wrappers were cleared from the store
+            array0 = array1 = null;
+            wrapper0 = wrapper1 = null;
+            this.generation = generation;
+        } else if (array == array0) {
+            if (wrapper0 != null || creations0 == creations) {
+                return wrapper0;
+            }
+        } else if (array == array1) {
+            if (wrapper1 != null || creations1 == creations) {
+                return wrapper1;
+            }
+        }
+        ArrayWrapper wrapper = store.get(array);
+        put(array, wrapper, creations);
+        return wrapper;
+    }
+
+    /**
+     * Records the result of a lookup of the wrapper for the specified array.
+     *
+     * @param array the array whose wrapper was looked up
+     * @param wrapper the wrapper for the array or {@code null} if the array does not have a wrapper
+     * @param creations the number of wrappers that had been created before the lookup
+     */
+    void put(Object array, ArrayWrapper wrapper, int creations) {
+        if (array != array0) {
+            array1 = array0;
+            wrapper1 = wrapper0;
+            creations1 = creations0;
+            array0 = array;
+        }
+        wrapper0 = wrapper;
+        creations0 = creations;
+    }
+}
@@ -0,0 +1,32 @@
+package edu.neu.ccs.prl.galette.internal.runtime;
+
+/**
+ * Captures per-thread execution state maintained outside of Galette when a task is submitted to an executor and
+ * restores it on the worker thread that runs the task.
+ * <p>
+ * Propagators are registered using {@link TaskContext#register(ContextPropagator)}.
+ * Each method is called on the thread whose state is being captured, restored, or reset.
+ */
+public interface ContextPropagator {
+    /**
+     * Returns a snapshot of the current thread's state.
+     *
+     * @return a snapshot of the current thread's state or {@code null} if there is no state to propagate
+     */
+    Object capture();
+
+    /**
+     * Installs the specified snapshot on the current thread before a task runs.
+     *
+     * @param snapshot a non-null snapshot returned by {@link #capture()} on the submitting thread
+     * @return a value that will be passed to {@link #reset(Object)} after the task runs
+     */
+    Object restore(Object snapshot);
+
+    /**
+     * Undoes the effects of a call to {@link #restore(Object)} after a task runs.
+     *
+     * @param token the value returned by the corresponding call to {@link #restore(Object)}
+     */
+    void reset(Object token);
+}
@@ -0,0 +1,270 @@
+package edu.neu.ccs.prl.galette.internal.runtime;
+
+/**
+ * Per-thread record of the tags of the branches that the current point of execution is control dependent on.
+ * <p>
+ * When implicit flows are tracked, each invocation of an instrumented method that contains conditional branches or
+ * exception handlers reserves a block of slots, one for each branch in the method.
+ * The slot for a branch holds the tag of the branch's condition from when the branch was taken until the immediate
+ * post-dominator of the branch is reached.
+ * Along with the slots, the stack maintains for each slot the union of the tags in that slot and every slot below it,
+ * so the control tag for the current point of execution can be read in constant time.
+ * Instances are only accessed by the thread that they belong to and, therefore, are not synchronized.
+ */
+public final class ControlTagStack {
+    private static final int INITIAL_CAPACITY = 16;
+    private static volatile boolean INITIALIZED = false;
+    /**
+     * {@code true} if transformed methods propagate tags along implicit flows.
+     */
+    private static volatile boolean TRACKING_IMPLICIT_FLOWS = false;
+    /**
+     * Tags held by the reserved slots; empty tags are stored as {@code null}.
+     * <p>
+     * Non-null.
+     */
+    private Tag[] tags = new Tag[INITIAL_CAPACITY];
+    /**
+     * Union of the tags held by each reserved slot and every slot below it.
+     * <p>
+     * Non-null.
+     */
+    private Tag[] unions = new Tag[INITIAL_CAPACITY];
+    /**
+     * Number of reserved slots.
+     */
+    private int size;
+
+    ControlTagStack() {}
+
+    /**
+     * Reserves the specified number of empty slots on top of this stack.
+     *
+     * @param slots the number of slots to reserve
+     * @return the index of the first reserved slot
+     */
+    int reserve(int slots) {
+        int mark = size;
+        int end = mark + slots;
+        if (end > tags.length) {
+            int capacity = Math.max(end, tags.length * 2);
+            Tag[] newTags = new Tag[capacity];
+            Tag[] newUnions = new Tag[capacity];
+            System.arraycopy(tags, 0, newTags, 0, size);
+            System.arraycopy(unions, 0, newUnions, 0, size);
+            tags = newTags;
+            unions = newUnions;
+        }
+        Tag top = getTag();
+        for (int i = mark; i < end; i++) {
+            tags[i] = null;
+            unions[i] = top;
+        }
+        size = end;
+        return mark;
+    }
+
+    /**
+     * Sets the tag held by the slot at the specified index.
+     * Slots that are no longer reserved are ignored.
+     *
+     * @param index the index of the slot
+     * @param tag the tag to be held by the slot
+     */
+    void set(int index, Tag tag) {
+        if (index < 0 || index >= size) {
+            return;
+        }
+        if (Tag.isEmpty(tag)) {
+            tag = null;
+        }
+        if (tags[index] == tag) {
+            // Common case: a slot that is already empty is cleared
+            return;
+        }
+        tags[index] = tag;
+        Tag below = index == 0 ? null : unions[index - 1];
+        for (int i = index; i < size; i++) {
+            below = unions[i] = Tag.union(below, tags[i]);
+        }
+    }
+
+    /**
+     * Releases every slot at or above the specified index.
+     *
+     * @param index the number of slots that should remain reserved
+     */
+    void truncate(int index) {
+        if (index < 0 || index >= size) {
+            return;
+        }
+        for (int i = index; i < size; i++) {
+            tags[i] = null;
+            unions[i] = null;
+        }
+        size = index;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the union of the tags held by the reserved slots.
+     *
+     * @return the union of the tags held by the reserved slots
+     */
+    Tag getTag() {
+        return size == 0 ? Tag.emptyTag() : unions[size - 1];
+    }
+
+    private static ControlTagStack getInstance() {
+        ThreadShadow shadow = ThreadShadow.get();
+        return shadow == null ? null : shadow.getControlStack();
+    }
+
+    /**
+     * Reserves slots for the branches of a method invocation on the current thread's stack.
+     *
+     * @param slots the number of branches in the method
+     * @return the index of the first slot reserved or -1 if tracking has not started
+     */
+    @InvokedViaHandle(handle = Handle.CONTROL_STACK_ENTER)
+    public static int enter(int slots) {
+        if (!INITIALIZED) {
+            return -1;
+        }
+        ThreadShadow shadow = ThreadShadow.getOrCreate();
+        ControlTagStack stack = shadow.getControlStack();
+        if (stack == null) {
+            stack = new ControlTagStack();
+            shadow.setControlStack(stack);
+        }
+        return stack.reserve(slots);
+    }
+
+    /**
+     * Records that the branch with the specified index was taken with a condition with the specified tag.
+     *
+     * @param tag the tag of the branch's condition
+     * @param mark the index of the first slot reserved for the invocation
+     * @param branch the index of the branch in its method
+     */
+    @InvokedViaHandle(handle = Handle.CONTROL_STACK_PUSH)
+    public static void push(Tag tag, int mark, int branch) {
+        if (mark >= 0) {
+            ControlTagStack stack = getInstance();
+            if (stack != null) {
+                stack.set(mark + branch, tag);
+            }
+        }
+    }
+
+    /**
+     * Records that the immediate post-dominator of the branch with the specified index was reached.
+     *
+     * @param mark the index of the first slot reserved for the invocation
+     * @param branch the index of the branch in its method
+     */
+    @InvokedViaHandle(handle = Handle.CONTROL_STACK_POP)
+    public static void pop(int mark, int branch) {
+        push(Tag.emptyTag(), mark, branch);
+    }
+
+    /**
+     * Releases the slots reserved by the invocations that were abruptly completed by an exception caught by the
+     * invocation that reserved the specified slots.
+     *
+     * @param mark the index of the first slot reserved for the invocation
+     * @param slots the number of slots reserved for the invocation
+     */
+    @InvokedViaHandle(handle = Handle.CONTROL_STACK_RESET)
+    public static void reset(int mark, int slots) {
+        if (mark >= 0) {
+            ControlTagStack stack = getInstance();
+            if (stack != null) {
+                stack.truncate(mark + slots);
+            }
+        }
+    }
+
+    /**
+     * Releases the slots reserved for a returning invocation.
+     *
+     * @param mark the index of the first slot reserved for the invocation
+     */
+    @InvokedViaHandle(handle = Handle.CONTROL_STACK_EXIT)
+    public static void exit(int mark) {
+        reset(mark, 0);
+    }
+
+    /**
+     * Reserves a slot holding the specified tag on the current thread's stack.
+     * Used to carry the control tag of a thread that submitted a task over to the worker thread that runs the task.
+     * The slot should be released by calling {@link #exit(int)} with the returned index once the task completes.
+     *
+     * @param tag the control tag of the submitting thread
+     * @return the index of the reserved slot or -1 if no slot was reserved
+     */
+    public static int enterContext(Tag tag) {
+        if (!INITIALIZED || Tag.isEmpty(tag)) {
+            return -1;
+        }
+        int mark = enter(1);
+        push(tag, mark, 0);
+        return mark;
+    }
+
+    /**
+     * Returns the union of the specified tag and the control tag of the current thread.
+     *
+     * @param tag the tag of a value being stored
+     * @return the union of the specified tag and the current control tag
+     */
+    @InvokedViaHandle(handle = Handle.CONTROL_STACK_APPLY)
+    public static Tag apply(Tag tag) {
+        if (INITIALIZED) {
+            ControlTagStack stack = getInstance();
+            if (stack != null) {
+                return Tag.union(tag, stack.getTag());
+            }
+        }
+        return tag;
+    }
+
+    /**
+     * Returns the tag of the conditions that the current point of execution on the current thread is control
+     * dependent on.
+     *
+     * @return the current control tag
+     */
+    public static Tag getControlTag() {
+        return apply(Tag.emptyTag());
+    }
+
+    /**
+     * Returns {@code true} if transformed methods propagate tags along implicit flows.
+     * Masks that replace instrumented methods should only compute control tags for their results if this method
+     * returns {@code true}.
+     *
+     * @return {@code true} if implicit flows are being tracked
+     */
+    public static boolean isTrackingImplicitFlows() {
+        return TRACKING_IMPLICIT_FLOWS;
+    }
+
+    public static synchronized void initialize() {
+        // Ensure that needed classes are initialized to prevent circular class initialization
+        // noinspection unused
+        Object[] dependencies = new Object[] {ThreadShadow.class, Thread.currentThread()};
+        INITIALIZED = true;
+    }
+
+    /**
+     * Initializes this class and records that transformed methods propagate tags along implicit flows.
+     */
+    public static synchronized void initializeImplicitFlows() {
+        initialize();
+        TRACKING_IMPLICIT_FLOWS = true;
+    }
+}
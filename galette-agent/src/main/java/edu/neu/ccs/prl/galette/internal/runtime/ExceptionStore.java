@@ -1,8 +1,5 @@
 package edu.neu.ccs.prl.galette.internal.runtime;
 
-import edu.neu.ccs.prl.galette.internal.runtime.mask.MemberAccess;
-import org.objectweb.asm.Opcodes;
-
 public final class ExceptionStore {
     private static volatile boolean INITIALIZED = false;
 
@@ -10,26 +7,18 @@ public final class ExceptionStore {
         throw new AssertionError(getClass() + " is a static utility class");
     }
 
-    @SuppressWarnings("unused")
-    @MemberAccess(owner = "java/lang/Thread", name = "$$GALETTE_$$LOCAL_exceptionInfo", opcode = Opcodes.GETFIELD)
-    private static Object getExceptionInfo(Thread thread) {
-        // Placeholder
-        return null;
-    }
-
-    @SuppressWarnings("unused")
-    @MemberAccess(owner = "java/lang/Thread", name = "$$GALETTE_$$LOCAL_exceptionInfo", opcode = Opcodes.PUTFIELD)
-    private static void setExceptionInfo(Thread thread, Object info) {
-        // Placeholder
-    }
-
     @InvokedViaHandle(handle = Handle.EXCEPTION_STORE_SET)
     public static void setThrownTag(Throwable t, Tag tag) {
         if (INITIALIZED) {
-            if (Tag.isEmpty(tag)) {
-                setExceptionInfo(Thread.currentThread(), null);
-            } else {
-                setExceptionInfo(Thread.currentThread(), new ExceptionInfo(t, tag));
+            ThreadShadow shadow = ThreadShadow.get();
+            Object info = shadow == null ? null : shadow.getExceptionInfo();
+            if (info instanceof ExceptionInfo) {
+                ((ExceptionInfo) info).set(t, tag);
+            } else if (!Tag.isEmpty(tag)) {
+                // Create the thread's record on its first tainted throw; it is reused for subsequent throws
+                ExceptionInfo ei = new ExceptionInfo();
+                ei.set(t, tag);
+                ThreadShadow.getOrCreate().setExceptionInfo(ei);
             }
         }
     }
@@ -37,14 +26,13 @@ public final class ExceptionStore {
     @InvokedViaHandle(handle = Handle.EXCEPTION_STORE_GET)
     public static Tag getThrownTag(Throwable t) {
         if (INITIALIZED) {
-            Object info = getExceptionInfo(Thread.currentThread());
-            // Clear exception info
-            setExceptionInfo(Thread.currentThread(), null);
+            ThreadShadow shadow = ThreadShadow.get();
+            Object info = shadow == null ? null : shadow.getExceptionInfo();
             if (info instanceof ExceptionInfo) {
                 ExceptionInfo ei = (ExceptionInfo) info;
-                if (ei.throwable == t) {
-                    return ei.tag;
-                }
+                Tag tag = ei.throwable == t ? ei.tag : Tag.emptyTag();
+                ei.set(null, Tag.emptyTag());
+                return tag;
             }
         }
         return Tag.emptyTag();
@@ -52,15 +40,23 @@ public final class ExceptionStore {
 
     public static synchronized void initialize() {
         // Ensure that needed classes are initialized to prevent circular class initialization
-        Object[] dependencies = new Object[] {Thread.currentThread()};
+        Object[] dependencies = new Object[] {ThreadShadow.class, Thread.currentThread()};
         INITIALIZED = true;
     }
 
+    /**
+     * Records the last exception thrown by a thread and its tag.
+     * Each thread has at most one instance, which is updated in place.
+     */
     private static final class ExceptionInfo {
-        private final Throwable throwable;
-        private final Tag tag;
+        private Throwable throwable;
+        private Tag tag;
 
-        private ExceptionInfo(Throwable throwable, Tag tag) {
+        private void set(Throwable throwable, Tag tag) {
+            if (Tag.isEmpty(tag)) {
+                // Do not retain untainted exceptions
+                throwable = null;
+            }
             this.throwable = throwable;
             this.tag = tag;
         }
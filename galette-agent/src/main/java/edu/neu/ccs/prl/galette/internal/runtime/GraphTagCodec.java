@@ -0,0 +1,708 @@
+package edu.neu.ccs.prl.galette.internal.runtime;
+
+import edu.neu.ccs.prl.galette.internal.runtime.collection.Arrays;
+import edu.neu.ccs.prl.galette.internal.runtime.collection.HashMap;
+import edu.neu.ccs.prl.galette.internal.runtime.collection.Iterator;
+import edu.neu.ccs.prl.galette.internal.runtime.collection.ObjectIntMap;
+import edu.neu.ccs.prl.galette.internal.runtime.collection.SimpleList;
+import edu.neu.ccs.prl.galette.internal.runtime.collection.Stack;
+import edu.neu.ccs.prl.galette.internal.runtime.mask.UnsafeWrapper;
+import edu.neu.ccs.prl.galette.internal.transform.GaletteTransformer;
+import edu.neu.ccs.prl.galette.internal.transform.ShadowFieldAdder;
+import java.io.*;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+
+/**
+ * Writes and reads the tags stored for the objects of an object graph in a compact format that is independent of the
+ * format used to write the graph itself.
+ * <p>
+ * The objects of a graph are visited in a depth-first order starting at the root of the graph.
+ * The children of an object are the values of its persistent reference fields and, for arrays of references, its
+ * elements.
+ * The persistent fields of an object are the non-static, non-transient fields declared by the classes in its
+ * hierarchy.
+ * Transient fields (e.g., lazily created views and caches) are not part of a serialized copy of the object, so they
+ * are neither visited nor have their tags recorded.
+ * Collections and maps store their contents in transient fields or in a layout that depends on their capacity, so
+ * their children are instead listed by a {@link ChildEnumerator}: the elements of a {@link Collection} and the keys
+ * and values of a {@link Map} are visited in iteration order.
+ * The iteration order of a hash-based set or map (one that is not sorted, linked, or keyed by an enum) depends on its
+ * capacity and, for the generated collections returned by methods like {@link Map#of}, on a per-process seed.
+ * Therefore, the elements of such a set and the entries of such a map are instead visited in the order of the hash
+ * codes of their elements or keys; elements and keys with equal hash codes are visited in iteration order.
+ * Hash codes inherited from {@link Object} differ between an object and its copy, so such a set or map cannot be
+ * matched with its copy when one of its elements or keys uses an identity hash code.
+ * Writing or reading the tags of such a set or map fails with an {@link InvalidClassException} unless an enumerator
+ * that lists its children in a stable order is registered for its type.
+ * Enumerators for other types can be added with {@link #registerChildEnumerator}.
+ * Instances of {@link Class}, {@link ClassLoader}, and Galette's internal types are not visited.
+ * The tags recorded for an object are the tags of its persistent fields, the tags of the length and elements of an
+ * array, and the tags stored for the object in the {@link FieldTagStore}.
+ * <p>
+ * An object is identified in the stream by its position in the visiting order, and only objects with non-empty tags
+ * are written.
+ * Therefore, the tags can only be read onto a graph that has the same shape as the graph that they were written for,
+ * for example, a copy produced by a serializer.
+ * The class of each written object is checked when the tags are read.
+ * Tags, labels, and strings are written once per stream and referred to by index afterwards.
+ * Labels are written with {@link ObjectOutput#writeObject(Object)}.
+ */
+public final class GraphTagCodec {
+    private static final int MAGIC = 0x47544147;
+    private static final int VERSION = 1;
+    private static final UnsafeWrapper UNSAFE = UnsafeWrapper.createInstance();
+    private static final String INTERNAL_PACKAGE_PREFIX = GaletteTransformer.INTERNAL_PACKAGE_PREFIX.replace('/', '.');
+    /**
+     * Types whose children are listed by an enumerator, most recently registered first.
+     * <p>
+     * Non-null.
+     */
+    private static volatile Class<?>[] enumeratedTypes = {Map.class, Collection.class};
+    /**
+     * Lists the keys and values of a map in iteration order.
+     */
+    private static final ChildEnumerator MAP_ENUMERATOR = GraphTagCodec::getEntries;
+    /**
+     * Lists the elements of a collection in iteration order.
+     */
+    private static final ChildEnumerator COLLECTION_ENUMERATOR = c -> ((Collection<?>) c).toArray();
+    /**
+     * The enumerators for the corresponding entries of {@link #enumeratedTypes}.
+     * <p>
+     * Non-null.
+     */
+    private static volatile ChildEnumerator[] enumerators = {MAP_ENUMERATOR, COLLECTION_ENUMERATOR};
+
+    private final Traversal traversal;
+    private final ObjectIntMap<Tag> tagIndices = new ObjectIntMap<>();
+    private final ObjectIntMap<Object> labelIndices = new ObjectIntMap<>();
+    private final ObjectIntMap<String> stringIndices = new ObjectIntMap<>();
+    private final SimpleList<Tag> tags = new SimpleList<>();
+    private final SimpleList<Object> labels = new SimpleList<>();
+    private final SimpleList<String> strings = new SimpleList<>();
+
+    private GraphTagCodec(Object root) {
+        this.traversal = new Traversal(root);
+    }
+
+    /**
+     * Writes the tags stored for the objects of the graph rooted at the specified object to the specified stream.
+     *
+     * @param root the root of the graph
+     * @param out the stream to which the tags should be written
+     * @throws IOException if an I/O error occurs
+     * @throws InvalidClassException if the order of the children of a set or map in the graph depends on identity
+     *                               hash codes
+     * @throws NullPointerException if {@code out} is {@code null}
+     */
+    public static void write(Object root, ObjectOutput out) throws IOException {
+        new GraphTagCodec(root).writeGraph(out);
+    }
+
+    /**
+     * Reads the tags for the objects of the graph rooted at the specified object from the specified stream and stores
+     * them.
+     * Tags that were not recorded in the stream are left unchanged.
+     *
+     * @param root the root of the graph
+     * @param in the stream from which the tags should be read
+     * @throws IOException if an I/O error occurs
+     * @throws InvalidObjectException if the graph does not match the graph that the tags were written for
+     * @throws InvalidClassException if the order of the children of a set or map in the graph depends on identity
+     *                               hash codes
+     * @throws StreamCorruptedException if the stream is not in the expected format
+     * @throws ClassNotFoundException if the class of a label cannot be found
+     * @throws NullPointerException if {@code in} is {@code null}
+     */
+    public static void read(Object root, ObjectInput in) throws IOException, ClassNotFoundException {
+        new GraphTagCodec(root).readGraph(in);
+    }
+
+    /**
+     * Registers an enumerator that lists the children of instances of the specified type.
+     * The enumerator replaces the children that would otherwise be read from the fields of the instances, and it takes
+     * precedence over previously registered enumerators for supertypes of the specified type.
+     * Enumerators should be registered before tags are written or read.
+     *
+     * @param type the type whose instances' children should be listed by the enumerator
+     * @param enumerator the enumerator
+     * @throws NullPointerException if {@code type} or {@code enumerator} is {@code null}
+     */
+    public static synchronized void registerChildEnumerator(Class<?> type, ChildEnumerator enumerator) {
+        if (type == null || enumerator == null) {
+            throw new NullPointerException();
+        }
+        Class<?>[] types = new Class<?>[enumeratedTypes.length + 1];
+        ChildEnumerator[] values = new ChildEnumerator[types.length];
+        types[0] = type;
+        values[0] = enumerator;
+        System.arraycopy(enumeratedTypes, 0, types, 1, enumeratedTypes.length);
+        System.arraycopy(enumerators, 0, values, 1, enumerators.length);
+        enumerators = values;
+        enumeratedTypes = types;
+    }
+
+    private static ChildEnumerator findEnumerator(Class<?> clazz) {
+        Class<?>[] types = enumeratedTypes;
+        ChildEnumerator[] values = enumerators;
+        for (int i = 0; i < types.length && i < values.length; i++) {
+            if (types[i].isAssignableFrom(clazz)) {
+                return values[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns {@code true} if the iteration order of instances of the specified class, which are listed by one of the
+     * default enumerators, depends on the hash codes of their elements or keys.
+     */
+    private static boolean isHashOrdered(Class<?> clazz) {
+        if (Map.class.isAssignableFrom(clazz)) {
+            return !SortedMap.class.isAssignableFrom(clazz)
+                    && !LinkedHashMap.class.isAssignableFrom(clazz)
+                    && !EnumMap.class.isAssignableFrom(clazz);
+        }
+        return Set.class.isAssignableFrom(clazz)
+                && !SortedSet.class.isAssignableFrom(clazz)
+                && !LinkedHashSet.class.isAssignableFrom(clazz)
+                && !EnumSet.class.isAssignableFrom(clazz);
+    }
+
+    private static Object[] getEntries(Object map) {
+        Map<?, ?> m = (Map<?, ?>) map;
+        SimpleList<Object> result = new SimpleList<>(m.size() * 2);
+        for (Map.Entry<?, ?> entry : m.entrySet()) {
+            result.add(entry.getKey());
+            result.add(entry.getValue());
+        }
+        return result.toArray(new Object[result.size()]);
+    }
+
+    private void writeGraph(ObjectOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        int previous = -1;
+        for (Object o = traversal.next(); o != null; o = traversal.next()) {
+            if (hasTags(o)) {
+                int index = traversal.getIndex();
+                // Zero marks the end of the stream
+                writeVarInt(out, index - previous);
+                previous = index;
+                writeString(out, o.getClass().getName());
+                if (o.getClass().isArray()) {
+                    writeArray(out, ArrayTagStore.getWrapper(o));
+                } else {
+                    writeFields(out, o);
+                }
+                writeMirroredTags(out, FieldTagStore.getInstanceTags(o));
+            }
+        }
+        writeVarInt(out, 0);
+    }
+
+    private void readGraph(ObjectInput in) throws IOException, ClassNotFoundException {
+        if (in.readInt() != MAGIC || in.readUnsignedByte() != VERSION) {
+            throw new StreamCorruptedException("Invalid header");
+        }
+        int previous = -1;
+        for (int gap = readVarInt(in); gap != 0; gap = readVarInt(in)) {
+            int target = previous + gap;
+            Object o;
+            do {
+                o = traversal.next();
+                if (o == null) {
+                    throw new InvalidObjectException("Graph has fewer objects than expected");
+                }
+            } while (traversal.getIndex() < target);
+            previous = target;
+            String className = readString(in);
+            if (!className.equals(o.getClass().getName())) {
+                throw new InvalidObjectException("Expected instance of " + className + " at position " + target
+                        + " but found " + o.getClass().getName());
+            }
+            if (o.getClass().isArray()) {
+                readArray(in, o);
+            } else {
+                readFields(in, o);
+            }
+            readMirroredTags(in, o);
+        }
+    }
+
+    private boolean hasTags(Object o) {
+        if (FieldTagStore.getInstanceTags(o) != null) {
+            return true;
+        } else if (o.getClass().isArray()) {
+            ArrayWrapper wrapper = ArrayTagStore.getWrapper(o);
+            return wrapper != null && !wrapper.isEmpty();
+        }
+        FieldLayout layout = traversal.getLayout(o.getClass());
+        for (int i = 0; i < layout.size; i++) {
+            if (layout.hasShadow(i) && !Tag.isEmpty(layout.getTag(o, i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void writeArray(ObjectOutput out, ArrayWrapper wrapper) throws IOException {
+        if (wrapper == null) {
+            writeTag(out, Tag.emptyTag());
+            writeVarInt(out, 0);
+            return;
+        }
+        writeTag(out, wrapper.getLength());
+        for (int start = 0; start < wrapper.size(); ) {
+            int end = wrapper.findRunEnd(start);
+            Tag tag = wrapper.getElement(start);
+            if (!Tag.isEmpty(tag)) {
+                writeVarInt(out, start + 1);
+                writeVarInt(out, end - start);
+                writeTag(out, tag);
+            }
+            start = end;
+        }
+        writeVarInt(out, 0);
+    }
+
+    private void readArray(ObjectInput in, Object array) throws IOException, ClassNotFoundException {
+        Tag lengthTag = readTag(in);
+        if (!Tag.isEmpty(lengthTag)) {
+            ArrayTagStore.setLengthTag(array, lengthTag);
+        }
+        for (int position = readVarInt(in); position != 0; position = readVarInt(in)) {
+            int start = position - 1;
+            int length = readVarInt(in);
+            Tag tag = readTag(in);
+            ArrayWrapper wrapper = ArrayTagStore.getWrapper(array, tag);
+            if (wrapper != null) {
+                if (length <= 0 || start > wrapper.size() - length) {
+                    throw new StreamCorruptedException("Invalid run of elements: " + start + ", " + length);
+                }
+                wrapper.fillElements(tag, start, start + length);
+            }
+        }
+    }
+
+    private void writeFields(ObjectOutput out, Object o) throws IOException {
+        FieldLayout layout = traversal.getLayout(o.getClass());
+        for (int i = 0; i < layout.size; i++) {
+            if (layout.hasShadow(i)) {
+                Tag tag = layout.getTag(o, i);
+                if (!Tag.isEmpty(tag)) {
+                    writeVarInt(out, i + 1);
+                    writeTag(out, tag);
+                }
+            }
+        }
+        writeVarInt(out, 0);
+    }
+
+    private void readFields(ObjectInput in, Object o) throws IOException, ClassNotFoundException {
+        FieldLayout layout = traversal.getLayout(o.getClass());
+        for (int position = readVarInt(in); position != 0; position = readVarInt(in)) {
+            int i = position - 1;
+            Tag tag = readTag(in);
+            if (i >= layout.size || !layout.hasShadow(i)) {
+                throw new InvalidObjectException(
+                        "Invalid field index for " + o.getClass().getName() + ": " + i);
+            }
+            layout.setTag(o, i, tag);
+        }
+    }
+
+    private void writeMirroredTags(ObjectOutput out, HashMap<String, Tag> mirrored) throws IOException {
+        if (mirrored == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        writeVarInt(out, mirrored.size());
+        Iterator<HashMap.Entry<String, Tag>> itr = mirrored.entryIterator();
+        while (itr.hasNext()) {
+            HashMap.Entry<String, Tag> entry = itr.next();
+            writeString(out, entry.getKey());
+            writeTag(out, entry.getValue());
+        }
+    }
+
+    private void readMirroredTags(ObjectInput in, Object o) throws IOException, ClassNotFoundException {
+        int size = readVarInt(in);
+        if (size > 0) {
+            HashMap<String, Tag> mirrored = new HashMap<>(size);
+            for (int i = 0; i < size; i++) {
+                String key = readString(in);
+                mirrored.put(key, readTag(in));
+            }
+            FieldTagStore.setInstanceTags(o, mirrored);
+        }
+    }
+
+    /**
+     * Writes an index into the table of previously written tags.
+     * Zero represents the empty tag, and the size of the table plus one represents a new tag whose labels follow.
+     */
+    private void writeTag(ObjectOutput out, Tag tag) throws IOException {
+        if (Tag.isEmpty(tag)) {
+            writeVarInt(out, 0);
+            return;
+        }
+        int index = tagIndices.getOrDefault(tag, -1);
+        if (index != -1) {
+            writeVarInt(out, index + 1);
+            return;
+        }
+        tagIndices.put(tag, tags.size());
+        tags.add(tag);
+        writeVarInt(out, tags.size());
+        Object[] tagLabels = tag.getLabels();
+        writeVarInt(out, tagLabels.length);
+        for (Object label : tagLabels) {
+            writeLabel(out, label);
+        }
+    }
+
+    private Tag readTag(ObjectInput in) throws IOException, ClassNotFoundException {
+        int index = readVarInt(in);
+        if (index == 0) {
+            return Tag.emptyTag();
+        } else if (index <= tags.size()) {
+            return tags.get(index - 1);
+        } else if (index != tags.size() + 1) {
+            throw new StreamCorruptedException("Invalid tag index: " + index);
+        }
+        Object[] tagLabels = new Object[readVarInt(in)];
+        for (int i = 0; i < tagLabels.length; i++) {
+            tagLabels[i] = readLabel(in);
+        }
+        Tag tag = Tag.of(tagLabels);
+        tags.add(tag);
+        return tag;
+    }
+
+    private void writeLabel(ObjectOutput out, Object label) throws IOException {
+        int index = labelIndices.getOrDefault(label, -1);
+        if (index != -1) {
+            writeVarInt(out, index);
+        } else {
+            labelIndices.put(label, labels.size());
+            labels.add(label);
+            writeVarInt(out, labels.size() - 1);
+            out.writeObject(label);
+        }
+    }
+
+    private Object readLabel(ObjectInput in) throws IOException, ClassNotFoundException {
+        int index = readVarInt(in);
+        if (index < labels.size()) {
+            return labels.get(index);
+        } else if (index != labels.size()) {
+            throw new StreamCorruptedException("Invalid label index: " + index);
+        }
+        Object label = in.readObject();
+        labels.add(label);
+        return label;
+    }
+
+    private void writeString(ObjectOutput out, String value) throws IOException {
+        int index = stringIndices.getOrDefault(value, -1);
+        if (index != -1) {
+            writeVarInt(out, index);
+        } else {
+            stringIndices.put(value, strings.size());
+            strings.add(value);
+            writeVarInt(out, strings.size() - 1);
+            out.writeUTF(value);
+        }
+    }
+
+    private String readString(ObjectInput in) throws IOException {
+        int index = readVarInt(in);
+        if (index < strings.size()) {
+            return strings.get(index);
+        } else if (index != strings.size()) {
+            throw new StreamCorruptedException("Invalid string index: " + index);
+        }
+        String value = in.readUTF();
+        strings.add(value);
+        return value;
+    }
+
+    private static void writeVarInt(ObjectOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(ObjectInput in) throws IOException {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            result |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new StreamCorruptedException("Malformed variable-length integer");
+    }
+
+    /**
+     * Visits the objects of a graph in a depth-first order.
+     */
+    private static final class Traversal {
+        private final Stack<Object> pending = new Stack<>();
+        private final ObjectIntMap<Object> visited = ObjectIntMap.identityMap();
+        private final HashMap<Class<?>, FieldLayout> layouts = new HashMap<>();
+        /**
+         * The position in the visiting order of the object last returned by {@link #next()}.
+         */
+        private int index = -1;
+
+        Traversal(Object root) {
+            push(root);
+        }
+
+        /**
+         * Returns the next object in the visiting order or {@code null} if every object has been visited.
+         */
+        Object next() throws InvalidClassException {
+            if (pending.isEmpty()) {
+                return null;
+            }
+            Object o = pending.pop();
+            index++;
+            Class<?> clazz = o.getClass();
+            if (o instanceof Object[]) {
+                Object[] array = (Object[]) o;
+                for (int i = array.length - 1; i >= 0; i--) {
+                    push(array[i]);
+                }
+            } else if (!clazz.isArray()) {
+                FieldLayout layout = getLayout(clazz);
+                if (layout.enumerator != null) {
+                    Object[] children = layout.enumerator.getChildren(o);
+                    if (layout.hashOrdered) {
+                        // Maps list each key followed by its value
+                        children = sortByHash(o, children, layout.enumerator == MAP_ENUMERATOR ? 2 : 1);
+                    }
+                    for (int i = children.length - 1; i >= 0; i--) {
+                        push(children[i]);
+                    }
+                } else {
+                    for (int i = layout.size - 1; i >= 0; i--) {
+                        if (layout.isReference(i)) {
+                            push(layout.getValue(o, i));
+                        }
+                    }
+                }
+            }
+            return o;
+        }
+
+        int getIndex() {
+            return index;
+        }
+
+        FieldLayout getLayout(Class<?> clazz) {
+            FieldLayout layout = layouts.get(clazz);
+            if (layout == null) {
+                layout = new FieldLayout(clazz);
+                layouts.put(clazz, layout);
+            }
+            return layout;
+        }
+
+        /**
+         * Returns the specified children ordered by the hash codes of their groups' first members.
+         * Groups whose first members have equal hash codes keep their relative order.
+         *
+         * @param parent the object whose children are being ordered
+         * @param children the children of the object
+         * @param groupSize the number of consecutive children in each group
+         * @return the ordered children
+         * @throws InvalidClassException if a group's first member uses an identity hash code
+         */
+        private Object[] sortByHash(Object parent, Object[] children, int groupSize) throws InvalidClassException {
+            int groups = children.length / groupSize;
+            // Pack each group's hash code above its original position so that ties keep iteration order
+            long[] keys = new long[groups];
+            for (int i = 0; i < groups; i++) {
+                keys[i] = ((long) getStableHash(parent, children[i * groupSize]) << 32) | i;
+            }
+            Arrays.sort(keys);
+            Object[] result = new Object[children.length];
+            for (int i = 0; i < groups; i++) {
+                int group = (int) keys[i];
+                System.arraycopy(children, group * groupSize, result, i * groupSize, groupSize);
+            }
+            return result;
+        }
+
+        private int getStableHash(Object parent, Object o) throws InvalidClassException {
+            if (o == null) {
+                return 0;
+            } else if (o instanceof Enum) {
+                return ((Enum<?>) o).ordinal();
+            } else if (getLayout(o.getClass()).identityHash) {
+                throw new InvalidClassException(
+                        parent.getClass().getName(),
+                        "order of children depends on the identity hash code of an instance of "
+                                + o.getClass().getName() + "; register a ChildEnumerator that lists them in a stable"
+                                + " order");
+            }
+            return o.hashCode();
+        }
+
+        private void push(Object o) {
+            if (o != null
+                    && !(o instanceof Class)
+                    && !(o instanceof ClassLoader)
+                    && !isInternal(o.getClass())
+                    && !visited.containsKey(o)) {
+                // Used as a set; the value is unused
+                visited.put(o, 0);
+                pending.push(o);
+            }
+        }
+    }
+
+    private static boolean isInternal(Class<?> clazz) {
+        return clazz.getName().startsWith(INTERNAL_PACKAGE_PREFIX);
+    }
+
+    /**
+     * Lists the children of objects whose fields do not reflect the objects' logical contents.
+     */
+    public interface ChildEnumerator {
+        /**
+         * Returns the children of the specified object.
+         * The children of an object and its serialized copy must be returned in the same order.
+         * In particular, the order must not depend on identity hash codes or on the capacity of a hash table.
+         *
+         * @param o the object whose children should be returned
+         * @return the children of the object
+         */
+        Object[] getChildren(Object o);
+    }
+
+    /**
+     * The persistent, non-synthetic fields of a class and its superclasses ordered from the topmost superclass down.
+     */
+    private static final class FieldLayout {
+        private final int size;
+        /**
+         * Lists the children of instances of the class or {@code null} if their children are the values of their
+         * reference fields.
+         */
+        private final ChildEnumerator enumerator;
+        /**
+         * {@code true} if instances of the class are listed by a default enumerator in an order that depends on hash
+         * codes.
+         */
+        private final boolean hashOrdered;
+        /**
+         * {@code true} if instances of the class use the identity hash code inherited from {@link Object}.
+         */
+        private final boolean identityHash;
+
+        private final long[] offsets;
+        /**
+         * Offsets of the fields' shadow tag fields or an invalid offset for fields without one.
+         */
+        private final long[] shadowOffsets;
+
+        private final boolean[] isReferences;
+
+        FieldLayout(Class<?> clazz) {
+            SimpleList<Field> fields = new SimpleList<>();
+            collectFields(clazz, fields);
+            offsets = new long[fields.size()];
+            shadowOffsets = new long[fields.size()];
+            isReferences = new boolean[fields.size()];
+            int count = 0;
+            for (int i = 0; i < fields.size(); i++) {
+                Field field = fields.get(i);
+                try {
+                    offsets[count] = UNSAFE.objectFieldOffset(field);
+                } catch (Exception e) {
+                    // The offsets of the fields of hidden classes and records are not available
+                    continue;
+                }
+                shadowOffsets[count] = getShadowOffset(field);
+                isReferences[count] = !field.getType().isPrimitive();
+                count++;
+            }
+            size = count;
+            enumerator = findEnumerator(clazz);
+            hashOrdered = (enumerator == MAP_ENUMERATOR || enumerator == COLLECTION_ENUMERATOR) && isHashOrdered(clazz);
+            identityHash = hasIdentityHash(clazz);
+        }
+
+        boolean isReference(int i) {
+            return isReferences[i];
+        }
+
+        boolean hasShadow(int i) {
+            return shadowOffsets[i] != UNSAFE.getInvalidFieldOffset();
+        }
+
+        Object getValue(Object o, int i) {
+            return UNSAFE.getObject(o, offsets[i]);
+        }
+
+        Tag getTag(Object o, int i) {
+            return (Tag) UNSAFE.getObjectVolatile(o, shadowOffsets[i]);
+        }
+
+        void setTag(Object o, int i, Tag tag) {
+            UNSAFE.putObjectVolatile(o, shadowOffsets[i], tag);
+        }
+
+        private static void collectFields(Class<?> clazz, SimpleList<Field> fields) {
+            if (clazz == null || Object.class.equals(clazz)) {
+                return;
+            }
+            collectFields(clazz.getSuperclass(), fields);
+            for (Field field : clazz.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers) && !field.isSynthetic()) {
+                    fields.add(field);
+                }
+            }
+        }
+
+        private static boolean hasIdentityHash(Class<?> clazz) {
+            try {
+                return Object.class.equals(clazz.getMethod("hashCode").getDeclaringClass());
+            } catch (NoSuchMethodException e) {
+                // Every class has a public hashCode method
+                return true;
+            }
+        }
+
+        private static long getShadowOffset(Field field) {
+            try {
+                Field shadowField = field.getDeclaringClass()
+                        .getDeclaredField(ShadowFieldAdder.getShadowFieldName(field.getName()));
+                if (Tag.class.equals(shadowField.getType())) {
+                    return UNSAFE.objectFieldOffset(shadowField);
+                }
+            } catch (Exception e) {
+                //
+            }
+            return UNSAFE.getInvalidFieldOffset();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package edu.neu.ccs.prl.galette.internal.runtime;
 
+import edu.neu.ccs.prl.galette.internal.runtime.frame.AugmentedFrame;
 import edu.neu.ccs.prl.galette.internal.runtime.frame.FrameAdjuster;
 import edu.neu.ccs.prl.galette.internal.runtime.frame.IndirectTagFrameStore;
 import edu.neu.ccs.prl.galette.internal.runtime.frame.SpareFrameStore;
@@ -38,6 +39,11 @@ public enum Handle {
     FIELD_TAG_STORE_GET_STATIC(FieldTagStore.class),
     FIELD_TAG_STORE_PUT_FIELD(FieldTagStore.class),
     FIELD_TAG_STORE_GET_FIELD(FieldTagStore.class),
+    AUGMENTED_FRAME_RECORD_INT(AugmentedFrame.class),
+    AUGMENTED_FRAME_RECORD_LONG(AugmentedFrame.class),
+    AUGMENTED_FRAME_RECORD_FLOAT(AugmentedFrame.class),
+    AUGMENTED_FRAME_RECORD_DOUBLE(AugmentedFrame.class),
+    AUGMENTED_FRAME_RECORD_OBJECT(AugmentedFrame.class),
     FRAME_ADJUSTER_CREATE_FRAME(FrameAdjuster.class),
     FRAME_ADJUSTER_PROCESS_BOOLEAN(FrameAdjuster.class),
     FRAME_ADJUSTER_PROCESS_BYTE(FrameAdjuster.class),
@@ -51,6 +57,12 @@ public enum Handle {
     FRAME_ADJUSTER_COPY_TAGS(FrameAdjuster.class),
     EXCEPTION_STORE_SET(ExceptionStore.class),
     EXCEPTION_STORE_GET(ExceptionStore.class),
+    CONTROL_STACK_ENTER(ControlTagStack.class),
+    CONTROL_STACK_PUSH(ControlTagStack.class),
+    CONTROL_STACK_POP(ControlTagStack.class),
+    CONTROL_STACK_RESET(ControlTagStack.class),
+    CONTROL_STACK_EXIT(ControlTagStack.class),
+    CONTROL_STACK_APPLY(ControlTagStack.class),
     UNBOX_BOOLEAN(PrimitiveBoxer.class),
     UNBOX_BYTE(PrimitiveBoxer.class),
     UNBOX_CHAR(PrimitiveBoxer.class),
@@ -68,7 +80,8 @@ public enum Handle {
     BOX_DOUBLE(PrimitiveBoxer.class),
     BOX_FLOAT(PrimitiveBoxer.class),
     GET_CALLER_HELPER(GetCallerHelper.class),
-    SPARE_FRAME_SET(SpareFrameStore.class);
+    SPARE_FRAME_SET(SpareFrameStore.class),
+    PROFILER_RECORD(PropagationProfiler.class);
 
     private final Class<?> owner;
 
@@ -0,0 +1,492 @@
+package edu.neu.ccs.prl.galette.internal.runtime;
+
+import edu.neu.ccs.prl.galette.internal.runtime.collection.Arrays;
+import edu.neu.ccs.prl.galette.internal.runtime.collection.HashMap;
+
+/**
+ * Maintains a "mirror-space" for storing the taint tags associated with bytes of off-heap memory.
+ * <p>
+ * Tags are stored per byte in pages of {@link #PAGE_SIZE} bytes.
+ * A page is only allocated when a non-empty tag is first stored for one of its bytes.
+ * Each page covers a disjoint, aligned interval of the address space.
+ * Pages are grouped into regions of {@link #PAGES_PER_REGION} consecutive pages, forming a two-level tree keyed by
+ * address.
+ * A region holds a slot for each of its pages and is only allocated when one of its pages is first allocated.
+ * The regions are indexed by their starting addresses in sorted order, so the region containing an address is
+ * located with a binary search.
+ * The region index is copied on write, so lookups do not acquire a lock.
+ * Only adding or removing a region copies the index, so tainting a large buffer copies the index once per region
+ * rather than once per page.
+ * <p>
+ * The sizes of blocks allocated through {@code Unsafe} are recorded so that the tags for a block can be discarded
+ * when the block is freed.
+ * The tags of memory-mapped regions are discarded when the regions are unmapped.
+ */
+public final class OffHeapTagStore {
+    /**
+     * Number of bytes covered by a page of tags.
+     */
+    public static final int PAGE_SIZE = 1 << 12;
+    /**
+     * Number of pages in a region.
+     */
+    private static final int PAGES_PER_REGION = 1 << 10;
+    /**
+     * Number of bytes covered by a region.
+     */
+    private static final long REGION_SIZE = (long) PAGE_SIZE * PAGES_PER_REGION;
+    /**
+     * Index of the allocated regions or {@code null} if this store has not been initialized.
+     * Delay initialization to prevent circular class initialization.
+     */
+    private static volatile RegionIndex index;
+    /**
+     * The number of allocated pages.
+     * Only written while holding the lock on this class.
+     */
+    private static volatile int pageCount;
+    /**
+     * Map from the addresses of blocks allocated through {@code Unsafe} to the sizes of the blocks or {@code null} if
+     * this store has not been initialized.
+     */
+    private static HashMap<Long, Long> allocations;
+
+    private OffHeapTagStore() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Returns the union of the tags of the bytes in the specified range.
+     *
+     * @param address the address of the first byte of the range
+     * @param length the number of bytes in the range
+     * @return the union of the tags of the bytes in the range
+     */
+    public static Tag getTag(long address, long length) {
+        RegionIndex current = index;
+        Tag result = Tag.emptyTag();
+        if (current == null || current.size == 0) {
+            return result;
+        }
+        long end = address + length;
+        for (long pageStart = toPageStart(address); pageStart < end; pageStart += PAGE_SIZE) {
+            Tag[] page = current.getPage(pageStart);
+            if (page != null) {
+                int start = (int) (Math.max(address, pageStart) - pageStart);
+                int stop = (int) (Math.min(end, pageStart + PAGE_SIZE) - pageStart);
+                for (int i = start; i < stop; i++) {
+                    result = Tag.union(result, page[i]);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Sets the tag of each byte in the specified range to the specified tag.
+     *
+     * @param address the address of the first byte of the range
+     * @param length the number of bytes in the range
+     * @param tag the tag to be set
+     */
+    public static void setTag(long address, long length, Tag tag) {
+        RegionIndex current = index;
+        if (current == null) {
+            return;
+        } else if (Tag.isEmpty(tag)) {
+            // Do not allocate pages to store empty tags
+            clearTags(current, address, length);
+            return;
+        }
+        long end = address + length;
+        for (long pageStart = toPageStart(address); pageStart < end; pageStart += PAGE_SIZE) {
+            Tag[] page = getOrCreatePage(pageStart);
+            int start = (int) (Math.max(address, pageStart) - pageStart);
+            int stop = (int) (Math.min(end, pageStart + PAGE_SIZE) - pageStart);
+            Arrays.fill(page, start, stop, tag);
+        }
+    }
+
+    /**
+     * Clears the tags of the bytes in the specified range that are stored in pages of the specified index.
+     * Only the regions in the index that overlap the range are visited, so clearing a large range that has few tagged
+     * pages is cheap.
+     *
+     * @param current the index of the regions
+     * @param address the address of the first byte of the range
+     * @param length the number of bytes in the range
+     */
+    private static void clearTags(RegionIndex current, long address, long length) {
+        long end = address + length;
+        int i = current.search(toRegionStart(address));
+        for (i = i < 0 ? -(i + 1) : i; i < current.size && current.starts[i] < end; i++) {
+            long regionStart = current.starts[i];
+            Tag[][] pages = current.regions[i];
+            int first = getSlot(Math.max(address, regionStart));
+            int last = getSlot(Math.min(end, regionStart + REGION_SIZE) - 1);
+            for (int slot = first; slot <= last; slot++) {
+                Tag[] page = pages[slot];
+                if (page != null) {
+                    long pageStart = regionStart + (long) slot * PAGE_SIZE;
+                    int start = (int) (Math.max(address, pageStart) - pageStart);
+                    int stop = (int) (Math.min(end, pageStart + PAGE_SIZE) - pageStart);
+                    Arrays.fill(page, start, stop, Tag.emptyTag());
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies the tags of the bytes in the specified range into the specified array.
+     *
+     * @param address the address of the first byte of the range
+     * @param dest the array into which the tags should be copied
+     * @param destPos the index in the destination array at which the first tag should be stored
+     * @param length the number of bytes in the range
+     * @throws ArrayIndexOutOfBoundsException if the destination array is too small
+     */
+    public static void getTags(long address, Tag[] dest, int destPos, int length) {
+        RegionIndex current = index;
+        if (current == null || current.size == 0) {
+            Arrays.fill(dest, destPos, destPos + length, Tag.emptyTag());
+            return;
+        }
+        long end = address + length;
+        for (long pageStart = toPageStart(address); pageStart < end; pageStart += PAGE_SIZE) {
+            long start = Math.max(address, pageStart);
+            int count = (int) (Math.min(end, pageStart + PAGE_SIZE) - start);
+            int position = destPos + (int) (start - address);
+            Tag[] page = current.getPage(pageStart);
+            if (page == null) {
+                Arrays.fill(dest, position, position + count, Tag.emptyTag());
+            } else {
+                System.arraycopy(page, (int) (start - pageStart), dest, position, count);
+            }
+        }
+    }
+
+    /**
+     * Sets the tags of the bytes in the specified range to the tags in the specified array.
+     *
+     * @param src the array containing the tags to be set
+     * @param srcPos the index in the source array of the tag of the first byte in the range
+     * @param address the address of the first byte of the range
+     * @param length the number of bytes in the range
+     * @throws ArrayIndexOutOfBoundsException if the source array is too small
+     */
+    public static void setTags(Tag[] src, int srcPos, long address, int length) {
+        RegionIndex current = index;
+        if (current == null) {
+            return;
+        }
+        long end = address + length;
+        for (long pageStart = toPageStart(address); pageStart < end; pageStart += PAGE_SIZE) {
+            long start = Math.max(address, pageStart);
+            int count = (int) (Math.min(end, pageStart + PAGE_SIZE) - start);
+            int position = srcPos + (int) (start - address);
+            Tag[] page = containsNonEmpty(src, position, count) ? getOrCreatePage(pageStart) : index.getPage(pageStart);
+            if (page != null) {
+                System.arraycopy(src, position, page, (int) (start - pageStart), count);
+            }
+        }
+    }
+
+    /**
+     * Copies the tags of the bytes in the specified source range to the bytes in the destination range of the same
+     * length.
+     * The ranges may overlap.
+     *
+     * @param srcAddress the address of the first byte of the source range
+     * @param destAddress the address of the first byte of the destination range
+     * @param length the number of bytes in each range
+     */
+    public static void copyTags(long srcAddress, long destAddress, long length) {
+        RegionIndex current = index;
+        if (current == null || current.size == 0 || length <= 0) {
+            return;
+        }
+        Tag[] buffer = new Tag[(int) Math.min(length, PAGE_SIZE)];
+        // Copy backwards if the destination follows an overlapping source
+        boolean backwards = destAddress > srcAddress && destAddress < srcAddress + length;
+        for (long copied = 0; copied < length; copied += buffer.length) {
+            int count = (int) Math.min(buffer.length, length - copied);
+            long offset = backwards ? length - copied - count : copied;
+            getTags(srcAddress + offset, buffer, 0, count);
+            setTags(buffer, 0, destAddress + offset, count);
+        }
+    }
+
+    /**
+     * Records that a block of the specified size was allocated at the specified address.
+     * The tags of the block are cleared.
+     *
+     * @param address the address of the block
+     * @param bytes the size of the block
+     */
+    public static void recordAllocation(long address, long bytes) {
+        if (index != null && address != 0) {
+            synchronized (OffHeapTagStore.class) {
+                allocations.put(address, bytes);
+            }
+            setTag(address, bytes, Tag.emptyTag());
+        }
+    }
+
+    /**
+     * Discards the tags of the block that was allocated at the specified address.
+     *
+     * @param address the address of the block
+     */
+    public static void recordFree(long address) {
+        if (index != null && address != 0) {
+            synchronized (OffHeapTagStore.class) {
+                Long bytes = allocations.get(address);
+                if (bytes != null) {
+                    allocations.remove(address);
+                    discardTags(address, bytes);
+                }
+            }
+        }
+    }
+
+    /**
+     * Discards the tags of the specified range of memory that is no longer mapped.
+     *
+     * @param address the address of the first byte of the range
+     * @param length the number of bytes in the range
+     */
+    public static void recordUnmap(long address, long length) {
+        if (index != null && address != 0 && length > 0) {
+            discardTags(address, length);
+        }
+    }
+
+    /**
+     * Records that the block that was allocated at the specified address was resized and moved to the specified new
+     * address.
+     * The tags of the block are moved with it.
+     *
+     * @param address the previous address of the block
+     * @param newAddress the new address of the block
+     * @param bytes the new size of the block
+     */
+    public static void recordReallocation(long address, long newAddress, long bytes) {
+        if (index == null) {
+            return;
+        } else if (newAddress == 0) {
+            // The block was freed
+            recordFree(address);
+            return;
+        }
+        long previousSize = 0;
+        if (address != 0) {
+            synchronized (OffHeapTagStore.class) {
+                Long size = allocations.get(address);
+                previousSize = size == null ? 0 : size;
+            }
+        }
+        if (address != newAddress) {
+            copyTags(address, newAddress, Math.min(previousSize, bytes));
+            recordFree(address);
+        }
+        if (bytes > previousSize) {
+            setTag(newAddress + previousSize, bytes - previousSize, Tag.emptyTag());
+        }
+        synchronized (OffHeapTagStore.class) {
+            allocations.put(newAddress, bytes);
+        }
+    }
+
+    /**
+     * Returns the number of allocated pages of tags.
+     *
+     * @return the number of allocated pages of tags
+     */
+    public static int getPageCount() {
+        return pageCount;
+    }
+
+    public static synchronized void clear() {
+        if (index != null) {
+            index = new RegionIndex(new long[0], new Tag[0][][], 0);
+            pageCount = 0;
+            allocations.clear();
+        }
+    }
+
+    public static synchronized void initialize() {
+        if (index == null) {
+            allocations = new HashMap<>();
+            index = new RegionIndex(new long[0], new Tag[0][][], 0);
+        }
+    }
+
+    private static long toPageStart(long address) {
+        return address & -PAGE_SIZE;
+    }
+
+    private static long toRegionStart(long address) {
+        return address & -REGION_SIZE;
+    }
+
+    /**
+     * Returns the index of the slot of the page containing the specified address in the page's region.
+     */
+    private static int getSlot(long address) {
+        return (int) ((address & (REGION_SIZE - 1)) / PAGE_SIZE);
+    }
+
+    private static boolean containsNonEmpty(Tag[] tags, int start, int length) {
+        for (int i = start; i < start + length; i++) {
+            if (!Tag.isEmpty(tags[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Tag[] getOrCreatePage(long pageStart) {
+        Tag[] page = index.getPage(pageStart);
+        if (page == null) {
+            synchronized (OffHeapTagStore.class) {
+                RegionIndex current = index;
+                long regionStart = toRegionStart(pageStart);
+                Tag[][] pages = current.get(regionStart);
+                if (pages == null) {
+                    pages = new Tag[PAGES_PER_REGION][];
+                    index = current.insert(regionStart, pages);
+                }
+                int slot = getSlot(pageStart);
+                page = pages[slot];
+                if (page == null) {
+                    // A reader that does not see the stored page treats its bytes as having empty tags
+                    page = new Tag[PAGE_SIZE];
+                    pages[slot] = page;
+                    pageCount++;
+                }
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Clears the tags of the specified range and releases the pages that are entirely contained in the range.
+     */
+    private static synchronized void discardTags(long address, long bytes) {
+        RegionIndex current = index;
+        clearTags(current, address, bytes);
+        long start = toPageStart(address + PAGE_SIZE - 1);
+        long end = toPageStart(address + bytes);
+        if (start >= end) {
+            return;
+        }
+        int i = current.search(toRegionStart(start));
+        for (i = i < 0 ? -(i + 1) : i; i < current.size && current.starts[i] < end; i++) {
+            long regionStart = current.starts[i];
+            Tag[][] pages = current.regions[i];
+            int first = getSlot(Math.max(start, regionStart));
+            int last = getSlot(Math.min(end, regionStart + REGION_SIZE) - 1);
+            for (int slot = first; slot <= last; slot++) {
+                if (pages[slot] != null) {
+                    pages[slot] = null;
+                    pageCount--;
+                }
+            }
+        }
+        // Remove the regions that are entirely contained in the range
+        long regionsStart = toRegionStart(start + REGION_SIZE - 1);
+        long regionsEnd = toRegionStart(end);
+        if (regionsStart < regionsEnd) {
+            index = current.remove(regionsStart, regionsEnd);
+        }
+    }
+
+    /**
+     * Immutable sorted index of the allocated regions.
+     * The slots of a region are mutable and are only written while holding the lock on {@link OffHeapTagStore}.
+     */
+    private static final class RegionIndex {
+        /**
+         * Starting addresses of the regions in ascending order.
+         * <p>
+         * Non-null.
+         */
+        private final long[] starts;
+        /**
+         * The region at index {@code i} starts at the address at index {@code i} in {@link #starts}.
+         * Each region contains the page for each of its slots or {@code null} if the page has not been allocated.
+         * <p>
+         * Non-null.
+         */
+        private final Tag[][][] regions;
+
+        private final int size;
+
+        private RegionIndex(long[] starts, Tag[][][] regions, int size) {
+            this.starts = starts;
+            this.regions = regions;
+            this.size = size;
+        }
+
+        Tag[][] get(long regionStart) {
+            int i = search(regionStart);
+            return i < 0 ? null : regions[i];
+        }
+
+        Tag[] getPage(long pageStart) {
+            Tag[][] pages = get(toRegionStart(pageStart));
+            return pages == null ? null : pages[getSlot(pageStart)];
+        }
+
+        RegionIndex insert(long regionStart, Tag[][] region) {
+            int position = -(search(regionStart) + 1);
+            long[] newStarts = new long[size + 1];
+            Tag[][][] newRegions = new Tag[size + 1][][];
+            System.arraycopy(starts, 0, newStarts, 0, position);
+            System.arraycopy(regions, 0, newRegions, 0, position);
+            newStarts[position] = regionStart;
+            newRegions[position] = region;
+            System.arraycopy(starts, position, newStarts, position + 1, size - position);
+            System.arraycopy(regions, position, newRegions, position + 1, size - position);
+            return new RegionIndex(newStarts, newRegions, size + 1);
+        }
+
+        /**
+         * Returns an index without the regions that start in the specified range.
+         */
+        RegionIndex remove(long start, long end) {
+            int from = search(start);
+            from = from < 0 ? -(from + 1) : from;
+            int to = search(end);
+            to = to < 0 ? -(to + 1) : to;
+            if (from >= to) {
+                return this;
+            }
+            int removed = to - from;
+            long[] newStarts = new long[size - removed];
+            Tag[][][] newRegions = new Tag[size - removed][][];
+            System.arraycopy(starts, 0, newStarts, 0, from);
+            System.arraycopy(regions, 0, newRegions, 0, from);
+            System.arraycopy(starts, to, newStarts, from, size - to);
+            System.arraycopy(regions, to, newRegions, from, size - to);
+            return new RegionIndex(newStarts, newRegions, size - removed);
+        }
+
+        private int search(long regionStart) {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                long value = starts[mid];
+                if (value < regionStart) {
+                    low = mid + 1;
+                } else if (value > regionStart) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+    }
+}
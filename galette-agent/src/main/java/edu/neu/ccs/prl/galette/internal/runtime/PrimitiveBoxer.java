@@ -1,34 +1,71 @@
 package edu.neu.ccs.prl.galette.internal.runtime;
 
+/**
+ * Boxes primitive values into instances of internal classes.
+ * <p>
+ * Boxes are immutable, so boxes for small values are shared instead of being allocated for each call.
+ * Boxes for {@code boolean} and {@code byte} values are always shared.
+ * Boxes for {@code char} values in the range [0, {@value #CACHE_HIGH}] and for {@code short}, {@code int}, and
+ * {@code long} values in the range [{@value #CACHE_LOW}, {@value #CACHE_HIGH}] are shared.
+ * Boxes for other values are allocated for each call.
+ * Since boxes may be shared, they should not be compared by identity.
+ */
 public final class PrimitiveBoxer {
+    private static final int CACHE_LOW = -128;
+    private static final int CACHE_HIGH = 127;
+    private static final BoxedBoolean TRUE = new BoxedBoolean(true);
+    private static final BoxedBoolean FALSE = new BoxedBoolean(false);
+    private static final BoxedByte[] BYTE_CACHE = new BoxedByte[CACHE_HIGH - CACHE_LOW + 1];
+    private static final BoxedChar[] CHAR_CACHE = new BoxedChar[CACHE_HIGH + 1];
+    private static final BoxedShort[] SHORT_CACHE = new BoxedShort[CACHE_HIGH - CACHE_LOW + 1];
+    private static final BoxedInt[] INT_CACHE = new BoxedInt[CACHE_HIGH - CACHE_LOW + 1];
+    private static final BoxedLong[] LONG_CACHE = new BoxedLong[CACHE_HIGH - CACHE_LOW + 1];
+
+    static {
+        for (int i = 0; i < BYTE_CACHE.length; i++) {
+            int value = i + CACHE_LOW;
+            BYTE_CACHE[i] = new BoxedByte((byte) value);
+            SHORT_CACHE[i] = new BoxedShort((short) value);
+            INT_CACHE[i] = new BoxedInt(value);
+            LONG_CACHE[i] = new BoxedLong(value);
+        }
+        for (int i = 0; i < CHAR_CACHE.length; i++) {
+            CHAR_CACHE[i] = new BoxedChar((char) i);
+        }
+    }
+
+    private PrimitiveBoxer() {
+        throw new AssertionError(getClass() + " is a static utility class");
+    }
+
     @InvokedViaHandle(handle = Handle.BOX_BOOLEAN)
     public static BoxedBoolean box(boolean value) {
-        return new BoxedBoolean(value);
+        return value ? TRUE : FALSE;
     }
 
     @InvokedViaHandle(handle = Handle.BOX_BYTE)
     public static BoxedByte box(byte value) {
-        return new BoxedByte(value);
+        return BYTE_CACHE[value - CACHE_LOW];
     }
 
     @InvokedViaHandle(handle = Handle.BOX_CHAR)
     public static BoxedChar box(char value) {
-        return new BoxedChar(value);
+        return value <= CACHE_HIGH ? CHAR_CACHE[value] : new BoxedChar(value);
     }
 
     @InvokedViaHandle(handle = Handle.BOX_SHORT)
     public static BoxedShort box(short value) {
-        return new BoxedShort(value);
+        return isCached(value) ? SHORT_CACHE[value - CACHE_LOW] : new BoxedShort(value);
     }
 
     @InvokedViaHandle(handle = Handle.BOX_INT)
     public static BoxedInt box(int value) {
-        return new BoxedInt(value);
+        return isCached(value) ? INT_CACHE[value - CACHE_LOW] : new BoxedInt(value);
     }
 
     @InvokedViaHandle(handle = Handle.BOX_LONG)
     public static BoxedLong box(long value) {
-        return new BoxedLong(value);
+        return value >= CACHE_LOW && value <= CACHE_HIGH ? LONG_CACHE[(int) value - CACHE_LOW] : new BoxedLong(value);
     }
 
     @InvokedViaHandle(handle = Handle.BOX_FLOAT)
@@ -81,6 +118,10 @@ public final class PrimitiveBoxer {
         return value.getValue();
     }
 
+    private static boolean isCached(int value) {
+        return value >= CACHE_LOW && value <= CACHE_HIGH;
+    }
+
     public static boolean isBoxed(Object o) {
         return o instanceof BoxedStackInt
                 || o instanceof BoxedLong
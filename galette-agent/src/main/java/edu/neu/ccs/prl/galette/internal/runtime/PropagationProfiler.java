@@ -0,0 +1,186 @@
+package edu.neu.ccs.prl.galette.internal.runtime;
+
+import edu.neu.ccs.prl.galette.internal.runtime.collection.Arrays;
+import edu.neu.ccs.prl.galette.internal.runtime.collection.ObjectIntMap;
+import edu.neu.ccs.prl.galette.internal.runtime.collection.SimpleList;
+import java.io.PrintStream;
+
+/**
+ * Counts the number of times that instrumented methods invoke tag propagation handles.
+ * <p>
+ * Calls to {@link #record(int, int)} are only inserted when profiling is enabled at transformation time.
+ * Each instrumented method is {@link #registerSite(String) registered} when it is transformed and identified by an
+ * integer in the inserted calls.
+ * Each thread counts its calls in its own {@link Counters record} without synchronization; the records of all threads
+ * are merged when the counts are reported.
+ * Counts recorded while a report is being created or the counts are being reset may be missed.
+ */
+public final class PropagationProfiler {
+    private static final int HANDLES = Handle.values().length;
+    /**
+     * Identifiers of registered sites.
+     * Only accessed while holding the lock on this class.
+     */
+    private static final ObjectIntMap<String> siteIds = new ObjectIntMap<>();
+    /**
+     * Registered sites indexed by their identifiers.
+     * Only accessed while holding the lock on this class.
+     */
+    private static final SimpleList<String> sites = new SimpleList<>();
+    /**
+     * Records of the threads that have recorded a call.
+     * Only accessed while holding the lock on this class.
+     */
+    private static final SimpleList<Counters> counters = new SimpleList<>();
+
+    private PropagationProfiler() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Returns the identifier for the specified method, assigning a new identifier if the method has not been
+     * registered.
+     *
+     * @param site the method that invokes handles in the form {@code owner.nameDescriptor}
+     * @return the identifier for the specified method
+     */
+    public static synchronized int registerSite(String site) {
+        if (siteIds.containsKey(site)) {
+            return siteIds.get(site);
+        }
+        int id = sites.size();
+        sites.add(site);
+        siteIds.put(site, id);
+        return id;
+    }
+
+    /**
+     * Records a single invocation of the specified handle by the specified method.
+     *
+     * @param site the identifier of the method that invoked the handle
+     * @param handle the ordinal of the invoked {@link Handle}
+     */
+    @InvokedViaHandle(handle = Handle.PROFILER_RECORD)
+    public static void record(int site, int handle) {
+        ThreadShadow shadow = ThreadShadow.getOrCreate();
+        Counters record = shadow.getProfilerCounters();
+        if (record == null) {
+            record = new Counters();
+            shadow.setProfilerCounters(record);
+            register(record);
+        }
+        record.increment(site * HANDLES + handle);
+    }
+
+    private static synchronized void register(Counters record) {
+        counters.add(record);
+    }
+
+    /**
+     * Returns the sites with the highest recorded counts ordered from highest to lowest count.
+     *
+     * @param limit the maximum number of sites to return
+     * @return the sites with the highest recorded counts
+     */
+    public static SimpleList<Site> getHotSites(int limit) {
+        long[] merged;
+        SimpleList<String> names;
+        synchronized (PropagationProfiler.class) {
+            names = new SimpleList<>(sites);
+            merged = new long[names.size() * HANDLES];
+            for (int i = 0; i < counters.size(); i++) {
+                long[] counts = counters.get(i).counts;
+                for (int j = 0; j < Math.min(counts.length, merged.length); j++) {
+                    merged[j] += counts[j];
+                }
+            }
+        }
+        // Sort without a comparator; this class is not instrumented, so the JDK cannot call back into it
+        int[] top = new int[Math.max(0, Math.min(limit, merged.length))];
+        int size = 0;
+        for (int i = 0; i < merged.length; i++) {
+            if (merged[i] > 0 && (size < top.length || size > 0 && merged[i] > merged[top[size - 1]])) {
+                int j = size < top.length ? size++ : size - 1;
+                for (; j > 0 && merged[top[j - 1]] < merged[i]; j--) {
+                    top[j] = top[j - 1];
+                }
+                top[j] = i;
+            }
+        }
+        SimpleList<Site> result = new SimpleList<>(size);
+        Handle[] handles = Handle.values();
+        for (int i = 0; i < size; i++) {
+            result.add(new Site(names.get(top[i] / HANDLES), handles[top[i] % HANDLES], merged[top[i]]));
+        }
+        return result;
+    }
+
+    /**
+     * Writes the sites with the highest recorded counts to the specified stream.
+     *
+     * @param out the stream to which the report should be written
+     * @param limit the maximum number of sites to report
+     */
+    public static void dump(PrintStream out, int limit) {
+        SimpleList<Site> sites = getHotSites(limit);
+        out.printf("[GALETTE PROFILE]: Top %d tag propagation sites%n", sites.size());
+        for (int i = 0; i < sites.size(); i++) {
+            Site site = sites.get(i);
+            out.printf("[GALETTE PROFILE]: %15d %-32s %s%n", site.count, site.handle, site.method);
+        }
+    }
+
+    /**
+     * Discards all recorded counts.
+     */
+    public static synchronized void reset() {
+        for (int i = 0; i < counters.size(); i++) {
+            Arrays.fill(counters.get(i).counts, 0L);
+        }
+    }
+
+    /**
+     * Counts recorded by a single thread.
+     */
+    static final class Counters {
+        /**
+         * Number of calls indexed by site identifier times the number of handles plus handle ordinal.
+         * Only written by the thread that owns this record; other threads may read stale counts.
+         */
+        private long[] counts = new long[0];
+
+        private void increment(int index) {
+            long[] current = counts;
+            if (index >= current.length) {
+                long[] grown = new long[Math.max(index + 1, current.length * 2)];
+                System.arraycopy(current, 0, grown, 0, current.length);
+                counts = current = grown;
+            }
+            current[index]++;
+        }
+    }
+
+    public static final class Site {
+        private final String method;
+        private final Handle handle;
+        private final long count;
+
+        private Site(String method, Handle handle, long count) {
+            this.method = method;
+            this.handle = handle;
+            this.count = count;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public Handle getHandle() {
+            return handle;
+        }
+
+        public long getCount() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package edu.neu.ccs.prl.galette.internal.runtime;
+
+import edu.neu.ccs.prl.galette.internal.runtime.collection.HashMap;
+import edu.neu.ccs.prl.galette.internal.runtime.collection.Iterator;
+import edu.neu.ccs.prl.galette.internal.runtime.collection.WeakDataStore;
+import java.io.ObjectOutputStream;
+
+/**
+ * Maps each tag written to an object output stream to a canonical instance that is equal to it.
+ * <p>
+ * An object output stream writes a back-reference instead of a repeated copy of an object that it has already
+ * written.
+ * Writing canonical instances allows tags that are equal but not identical to share a back-reference, so the labels
+ * of a tag are only written once per stream.
+ */
+public final class StreamTagDictionary {
+    /**
+     * Map from streams to the canonical instances of the tags written to the stream or {@code null} if this
+     * dictionary has not been initialized.
+     */
+    private static volatile WeakDataStore<ObjectOutputStream, HashMap<Tag, Tag>> dictionaries;
+
+    private StreamTagDictionary() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Returns the canonical instance for the specified tag in the specified stream.
+     *
+     * @param out the stream that the tag is being written to
+     * @param tag the tag being written
+     * @return an instance equal to the specified tag or {@code null} if the tag is empty
+     */
+    public static Tag canonicalize(ObjectOutputStream out, Tag tag) {
+        if (Tag.isEmpty(tag)) {
+            return Tag.emptyTag();
+        }
+        HashMap<Tag, Tag> dictionary = getDictionaries().computeIfAbsent(out);
+        synchronized (dictionary) {
+            Tag result = dictionary.get(tag);
+            if (result == null) {
+                dictionary.put(tag, tag);
+                result = tag;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Returns a map containing the non-empty tags of the specified map replaced by their canonical instances in the
+     * specified stream.
+     *
+     * @param out the stream that the tags are being written to
+     * @param tags the tags being written or {@code null}
+     * @return a map containing the canonical instances of the non-empty tags or {@code null} if every tag is empty
+     */
+    public static HashMap<String, Tag> canonicalize(ObjectOutputStream out, HashMap<String, Tag> tags) {
+        if (tags == null) {
+            return null;
+        }
+        HashMap<String, Tag> result = null;
+        Iterator<HashMap.Entry<String, Tag>> itr = tags.entryIterator();
+        while (itr.hasNext()) {
+            HashMap.Entry<String, Tag> entry = itr.next();
+            if (!Tag.isEmpty(entry.getValue())) {
+                if (result == null) {
+                    result = new HashMap<>(tags.size());
+                }
+                result.put(entry.getKey(), canonicalize(out, entry.getValue()));
+            }
+        }
+        return result;
+    }
+
+    private static WeakDataStore<ObjectOutputStream, HashMap<Tag, Tag>> getDictionaries() {
+        WeakDataStore<ObjectOutputStream, HashMap<Tag, Tag>> current = dictionaries;
+        if (current == null) {
+            synchronized (StreamTagDictionary.class) {
+                current = dictionaries;
+                if (current == null) {
+                    dictionaries = current = new WeakDataStore<>(k -> new HashMap<>());
+                }
+            }
+        }
+        return current;
+    }
+}
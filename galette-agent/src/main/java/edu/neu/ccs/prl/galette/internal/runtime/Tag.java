@@ -81,7 +81,7 @@ public final class Tag implements Serializable, TaggedObject {
     private void writeObject(ObjectOutputStream out) throws IOException {
         out.defaultWriteObject();
         Object[] labels = getLabels();
-        out.writeInt(getLabels().length);
+        out.writeInt(labels.length);
         for (Object label : labels) {
             out.writeObject(label);
         }
@@ -194,6 +194,7 @@ public final class Tag implements Serializable, TaggedObject {
             // Enable mirrored tag stores
             ArrayTagStore.initialize();
             FieldTagStore.initialize();
+            OffHeapTagStore.initialize();
             // Enable propagation through Unsafe accesses
             UnsafeFlagAccessor.initialize();
             // Enable indirect frame passing
@@ -203,6 +204,8 @@ public final class Tag implements Serializable, TaggedObject {
             ReflectionMasks.initialize();
             // Enable propagation through exceptions
             ExceptionStore.initialize();
+            // Enable propagation through control flow
+            ControlTagStack.initialize();
         }
     }
 }
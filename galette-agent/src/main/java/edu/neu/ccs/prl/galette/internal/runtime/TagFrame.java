@@ -4,6 +4,7 @@ import edu.neu.ccs.prl.galette.internal.runtime.collection.Arrays;
 
 public class TagFrame {
     private static final TagFrame DISABLED = new DisabledTagFrame();
+    private static final Tag[] EMPTY_TAGS = new Tag[0];
     private Class<?> caller;
     private Tag returnTag = Tag.emptyTag();
     private Tag[] tags = new Tag[0];
@@ -65,17 +66,38 @@ public class TagFrame {
     @InvokedViaHandle(handle = Handle.FRAME_SET_TAGS)
     public void setTags(Tag[] tags) {
         if (tags != null) {
-            this.tags = tags;
+            // Copy the specified tags instead of adopting the array so that the array can be reused by the caller
+            if (tags.length > 0) {
+                if (this.tags.length != tags.length) {
+                    this.tags = new Tag[tags.length];
+                }
+                System.arraycopy(tags, 0, this.tags, 0, tags.length);
+            }
             this.size = tags.length;
         }
     }
 
     @InvokedViaHandle(handle = Handle.FRAME_COPY_TAGS)
     public Tag[] copyTags() {
+        return copyTags(null);
+    }
+
+    /**
+     * Returns a copy of this frame's tags.
+     * The copy is stored in the specified array if it has the same length as this frame's tag array; otherwise, a
+     * new array is allocated.
+     *
+     * @param destination the array to store the copy in or {@code null} if a new array should be allocated
+     * @return a copy of this frame's tags
+     */
+    public Tag[] copyTags(Tag[] destination) {
         if (size == 0) {
-            return new Tag[0];
+            return EMPTY_TAGS;
+        } else if (destination == null || destination.length != tags.length) {
+            return tags.clone();
         }
-        return tags.clone();
+        System.arraycopy(tags, 0, destination, 0, tags.length);
+        return destination;
     }
 
     public static TagFrame emptyFrame() {
@@ -86,6 +108,17 @@ public class TagFrame {
         return DISABLED;
     }
 
+    /**
+     * Returns a new frame that discards tags.
+     * Unlike the frame returned by {@link #disabled()}, the returned frame can store the caller class for
+     * caller-sensitive methods, so it must not be shared between threads.
+     *
+     * @return a new frame that discards tags
+     */
+    public static TagFrame createDisabled() {
+        return new DisabledTagFrame();
+    }
+
     private static final class DisabledTagFrame extends TagFrame {
         @Override
         public Tag get(int index) {
@@ -107,7 +140,13 @@ public class TagFrame {
 
         @Override
         public TagFrame acquire(int size) {
+            if (getCaller() != null) {
+                setCaller(null);
+            }
             return this;
         }
+
+        @Override
+        public void setTags(Tag[] tags) {}
     }
 }
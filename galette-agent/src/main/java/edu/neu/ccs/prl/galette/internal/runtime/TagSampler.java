@@ -0,0 +1,111 @@
+package edu.neu.ccs.prl.galette.internal.runtime;
+
+/**
+ * Selects the threads for which tags are tracked when only a fraction of threads should be tracked.
+ * <p>
+ * Each thread is sampled or not the first time that it enters instrumented code from uninstrumented code (e.g., when
+ * the thread starts) after sampling is enabled, and the decision holds for the rest of the thread's life.
+ * Virtual threads have their own records, so servers that handle each request on its own virtual thread are sampled
+ * per request.
+ * Instrumented methods pass the frame that they received on to their callees.
+ * Therefore, a thread that is not sampled runs with a {@link TagFrame#disabled() disabled} frame from its entry
+ * point on: arguments and return values do not carry tags, and tags set on values by that thread are discarded.
+ * Tags that sampled threads stored on the heap can still be copied within a method by a thread that is not sampled,
+ * but they are not passed across calls by that thread.
+ * Sampling is opt-in; every thread is tracked until {@link #initialize(double)} is called.
+ */
+public final class TagSampler {
+    private static volatile boolean INITIALIZED = false;
+    /**
+     * Fraction of threads that are sampled.
+     */
+    private static double rate = 1;
+    /**
+     * Seed mixed into each decision.
+     */
+    private static long seed;
+    /**
+     * Number of decisions that have been made.
+     * Only accessed while holding the lock on this class.
+     */
+    private static long decisions;
+
+    private TagSampler() {
+        throw new AssertionError(getClass() + " is a static utility class");
+    }
+
+    /**
+     * Returns {@code true} if tags are being tracked for the current thread.
+     *
+     * @return {@code true} if tags are being tracked for the current thread
+     */
+    public static boolean isSampled() {
+        return getDisabledFrame() == null;
+    }
+
+    /**
+     * Returns the frame that should be passed to code entered from uninstrumented code on the current thread if the
+     * current thread is not sampled.
+     * Threads that are not sampled each have their own disabled frame so that the caller class stored in the frame
+     * for caller-sensitive methods is not shared between threads.
+     *
+     * @return the disabled frame for the current thread or {@code null} if the current thread is sampled or sampling
+     * is not enabled
+     */
+    public static TagFrame getDisabledFrame() {
+        if (!INITIALIZED) {
+            return null;
+        }
+        ThreadShadow shadow = ThreadShadow.getOrCreate();
+        if (!shadow.isSampleDecided()) {
+            shadow.setSampleDecided(true);
+            if (!select(seed, nextDecision(), rate)) {
+                shadow.setDisabledFrame(TagFrame.createDisabled());
+            }
+        }
+        return shadow.getDisabledFrame();
+    }
+
+    private static synchronized long nextDecision() {
+        return decisions++;
+    }
+
+    /**
+     * Returns {@code true} if the decision with the specified index should sample its thread.
+     * Decisions are spread uniformly by a SplitMix64 finalizer, so each decision samples with probability equal to the
+     * specified rate.
+     *
+     * @param seed the seed mixed into the decision
+     * @param index the index of the decision
+     * @param rate the fraction of decisions that should sample
+     * @return {@code true} if the decision should sample its thread
+     */
+    static boolean select(long seed, long index, double rate) {
+        long z = seed + (index + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+        // Use the high 53 bits to create a value uniformly distributed in [0, 1)
+        return (z >>> 11) * 0x1.0p-53 < rate;
+    }
+
+    /**
+     * Enables sampling.
+     * Each thread is sampled or not the next time that it enters instrumented code from uninstrumented code; calls
+     * that are already in progress continue to track tags.
+     *
+     * @param rate the fraction of threads that should be tracked
+     * @throws IllegalArgumentException if the specified rate is not between 0 and 1 (inclusive)
+     */
+    public static synchronized void initialize(double rate) {
+        if (!(rate >= 0 && rate <= 1)) {
+            throw new IllegalArgumentException("Invalid sampling rate: " + rate);
+        }
+        // Ensure that needed classes are initialized to prevent circular class initialization
+        // noinspection unused
+        Object[] dependencies = new Object[] {ThreadShadow.class, TagFrame.createDisabled(), Thread.currentThread()};
+        TagSampler.rate = rate;
+        TagSampler.seed = System.nanoTime();
+        INITIALIZED = true;
+    }
+}
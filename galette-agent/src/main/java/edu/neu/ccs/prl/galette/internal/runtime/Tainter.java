@@ -1,5 +1,9 @@
 package edu.neu.ccs.prl.galette.internal.runtime;
 
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
 @SuppressWarnings("unused")
 public final class Tainter {
     private Tainter() {
@@ -181,10 +185,41 @@ public final class Tainter {
         // Clear mirrored tag stores
         FieldTagStore.clear();
         ArrayTagStore.clear();
+        OffHeapTagStore.clear();
     }
 
     @SuppressWarnings("unused")
     public static void clearTags(TagFrame frame) {
         clearTags();
     }
+
+    /**
+     * Writes the tags stored for the objects of the graph rooted at the specified object to the specified stream.
+     *
+     * @see GraphTagCodec#write(Object, ObjectOutput)
+     */
+    public static void exportTags(Object root, ObjectOutput out) throws IOException {
+        GraphTagCodec.write(root, out);
+    }
+
+    @SuppressWarnings("unused")
+    public static void exportTags(Object root, ObjectOutput out, TagFrame frame) throws IOException {
+        exportTags(root, out);
+    }
+
+    /**
+     * Reads tags from the specified stream and stores them for the objects of the graph rooted at the specified
+     * object.
+     *
+     * @see GraphTagCodec#read(Object, ObjectInput)
+     */
+    public static void importTags(Object root, ObjectInput in) throws IOException, ClassNotFoundException {
+        GraphTagCodec.read(root, in);
+    }
+
+    @SuppressWarnings("unused")
+    public static void importTags(Object root, ObjectInput in, TagFrame frame)
+            throws IOException, ClassNotFoundException {
+        importTags(root, in);
+    }
 }
@@ -0,0 +1,201 @@
+package edu.neu.ccs.prl.galette.internal.runtime;
+
+import edu.neu.ccs.prl.galette.internal.runtime.collection.WeakDataStore;
+
+/**
+ * Execution context of a thread that submitted a task to an executor.
+ * <p>
+ * The context of a task consists of the control tag of the submitting thread and a snapshot from each registered
+ * {@link ContextPropagator}.
+ * It is captured when the task is submitted and restored on the worker thread for as long as the task runs.
+ * Contexts are associated with tasks by identity and are only recorded for submissions whose context is not empty,
+ * so untainted submissions do not allocate.
+ * Propagation is opt-in; contexts are neither captured nor restored until {@link #initialize()} is called.
+ * Instances are immutable.
+ */
+public final class TaskContext {
+    private static volatile boolean INITIALIZED = false;
+    /**
+     * Registered propagators.
+     * <p>
+     * Non-null.
+     */
+    private static volatile ContextPropagator[] propagators = new ContextPropagator[0];
+    /**
+     * Map from submitted tasks to the cell holding their context or {@code null} if no context has been recorded.
+     */
+    private static volatile WeakDataStore<Object, Cell> cells;
+    /**
+     * Control tag of the submitting thread.
+     * <p>
+     * Non-null.
+     */
+    private final Tag controlTag;
+    /**
+     * Propagators that were registered when this context was captured.
+     * <p>
+     * Non-null.
+     */
+    private final ContextPropagator[] capturedBy;
+    /**
+     * Snapshot from each propagator in {@link #capturedBy} or {@code null} if every snapshot was {@code null}.
+     */
+    private final Object[] snapshots;
+
+    private TaskContext(Tag controlTag, ContextPropagator[] capturedBy, Object[] snapshots) {
+        this.controlTag = controlTag;
+        this.capturedBy = capturedBy;
+        this.snapshots = snapshots;
+    }
+
+    private Scope restore() {
+        Object[] tokens = null;
+        if (snapshots != null) {
+            tokens = new Object[snapshots.length];
+            for (int i = 0; i < snapshots.length; i++) {
+                if (snapshots[i] != null) {
+                    tokens[i] = capturedBy[i].restore(snapshots[i]);
+                }
+            }
+        }
+        return new Scope(this, ControlTagStack.enterContext(controlTag), tokens);
+    }
+
+    /**
+     * Registers the specified propagator.
+     * Tasks submitted after this method returns will carry a snapshot from the propagator.
+     *
+     * @param propagator the propagator to be registered
+     * @throws NullPointerException if the specified propagator is {@code null}
+     */
+    public static synchronized void register(ContextPropagator propagator) {
+        if (propagator == null) {
+            throw new NullPointerException();
+        }
+        ContextPropagator[] current = propagators;
+        ContextPropagator[] updated = new ContextPropagator[current.length + 1];
+        System.arraycopy(current, 0, updated, 0, current.length);
+        updated[current.length] = propagator;
+        propagators = updated;
+    }
+
+    /**
+     * Records the context of the current thread for the specified task.
+     * Replaces any context previously recorded for the task.
+     *
+     * @param task the task being submitted
+     */
+    public static void capture(Object task) {
+        if (!INITIALIZED || task == null) {
+            return;
+        }
+        Tag controlTag = ControlTagStack.getControlTag();
+        ContextPropagator[] current = propagators;
+        Object[] snapshots = null;
+        for (int i = 0; i < current.length; i++) {
+            Object snapshot = current[i].capture();
+            if (snapshot != null) {
+                if (snapshots == null) {
+                    snapshots = new Object[current.length];
+                }
+                snapshots[i] = snapshot;
+            }
+        }
+        if (Tag.isEmpty(controlTag) && snapshots == null) {
+            // Common case: there is nothing to propagate
+            WeakDataStore<Object, Cell> store = cells;
+            Cell cell = store == null ? null : store.get(task);
+            if (cell != null) {
+                // Clear the context recorded for an earlier submission of the task
+                cell.context = null;
+            }
+            return;
+        }
+        getCells().computeIfAbsent(task).context = new TaskContext(controlTag, current, snapshots);
+    }
+
+    /**
+     * Restores the context recorded for the specified task on the current thread.
+     *
+     * @param task the task about to be run
+     * @return a value that must be passed to {@link #exit(Object)} once the task completes or {@code null} if no
+     * context was restored
+     */
+    public static Object enter(Object task) {
+        if (!INITIALIZED || task == null) {
+            return null;
+        }
+        WeakDataStore<Object, Cell> store = cells;
+        Cell cell = store == null ? null : store.get(task);
+        TaskContext context = cell == null ? null : cell.context;
+        return context == null ? null : context.restore();
+    }
+
+    /**
+     * Undoes a call to {@link #enter(Object)}.
+     *
+     * @param scope the value returned by {@link #enter(Object)}
+     */
+    public static void exit(Object scope) {
+        if (scope != null) {
+            ((Scope) scope).close();
+        }
+    }
+
+    public static synchronized void initialize() {
+        // Ensure that needed classes are initialized to prevent circular class initialization
+        // noinspection unused
+        Object[] dependencies = new Object[] {Cell.class, Scope.class, ControlTagStack.class};
+        WeakDataStore.ensureDependenciesLoaded();
+        INITIALIZED = true;
+    }
+
+    private static WeakDataStore<Object, Cell> getCells() {
+        WeakDataStore<Object, Cell> current = cells;
+        if (current == null) {
+            synchronized (TaskContext.class) {
+                current = cells;
+                if (current == null) {
+                    cells = current = new WeakDataStore<>(k -> new Cell());
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Holds the context most recently recorded for a task.
+     * A task can be resubmitted while an earlier submission is running, so the context is replaced rather than
+     * updated in place.
+     */
+    private static final class Cell {
+        private volatile TaskContext context;
+    }
+
+    /**
+     * Record of a context that was restored on a worker thread.
+     */
+    private static final class Scope {
+        private final TaskContext context;
+        private final int mark;
+        private final Object[] tokens;
+
+        private Scope(TaskContext context, int mark, Object[] tokens) {
+            this.context = context;
+            this.mark = mark;
+            this.tokens = tokens;
+        }
+
+        private void close() {
+            if (tokens != null) {
+                // Reset in the reverse order of restoration
+                for (int i = tokens.length - 1; i >= 0; i--) {
+                    if (context.snapshots[i] != null) {
+                        context.capturedBy[i].reset(tokens[i]);
+                    }
+                }
+            }
+            ControlTagStack.exit(mark);
+        }
+    }
+}
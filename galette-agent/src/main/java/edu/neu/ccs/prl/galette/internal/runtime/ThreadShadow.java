@@ -0,0 +1,179 @@
+package edu.neu.ccs.prl.galette.internal.runtime;
+
+import edu.neu.ccs.prl.galette.internal.runtime.frame.AugmentedFrame;
+import edu.neu.ccs.prl.galette.internal.runtime.mask.MemberAccess;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Record of the tag propagation state associated with a thread.
+ * <p>
+ * Instrumentation adds a single reference field to {@link Thread} that holds the record for the thread.
+ * Records are only allocated once a thread first needs to store state, so threads that never do only pay for that
+ * field.
+ * State is always looked up through {@link Thread#currentThread()}, which returns a virtual thread itself rather than
+ * the carrier thread that it is mounted on.
+ * As a result, the state of a virtual thread moves with it when it is unmounted from one carrier and mounted on
+ * another, and the state of a carrier is not visible to the virtual threads that it runs.
+ * A record is only accessed by the thread that it belongs to and, therefore, is not synchronized.
+ */
+public final class ThreadShadow {
+    /**
+     * Frame that can be reused by the next callee that was not passed a frame or {@code null}.
+     */
+    private TagFrame spareFrame;
+    /**
+     * Frame indirectly passed to a signature polymorphic call or {@code null}.
+     */
+    private AugmentedFrame indirectFrame;
+    /**
+     * Head of the pool of frames available for indirect passing or {@code null}.
+     */
+    private AugmentedFrame framePool;
+    /**
+     * Record of the last tainted exception thrown by the thread or {@code null}.
+     */
+    private Object exceptionInfo;
+    /**
+     * Control tag stack for the thread or {@code null}.
+     */
+    private ControlTagStack controlStack;
+    /**
+     * Cache of the thread's recent array wrapper lookups or {@code null}.
+     */
+    private ArrayWrapperCache arrayCache;
+    /**
+     * Propagation counts recorded by the thread when profiling is enabled or {@code null}.
+     */
+    private PropagationProfiler.Counters profilerCounters;
+    /**
+     * Frame passed to code entered from uninstrumented code if the thread is not sampled or {@code null}.
+     */
+    private TagFrame disabledFrame;
+    /**
+     * {@code true} if it has been decided whether the thread is sampled.
+     */
+    private boolean sampleDecided;
+    /**
+     * {@code true} if the thread is propagating tags for an unsafe access.
+     */
+    private boolean unsafeFlag;
+
+    private ThreadShadow() {}
+
+    public TagFrame getSpareFrame() {
+        return spareFrame;
+    }
+
+    public void setSpareFrame(TagFrame spareFrame) {
+        this.spareFrame = spareFrame;
+    }
+
+    public AugmentedFrame getIndirectFrame() {
+        return indirectFrame;
+    }
+
+    public void setIndirectFrame(AugmentedFrame indirectFrame) {
+        this.indirectFrame = indirectFrame;
+    }
+
+    public AugmentedFrame getFramePool() {
+        return framePool;
+    }
+
+    public void setFramePool(AugmentedFrame framePool) {
+        this.framePool = framePool;
+    }
+
+    Object getExceptionInfo() {
+        return exceptionInfo;
+    }
+
+    void setExceptionInfo(Object exceptionInfo) {
+        this.exceptionInfo = exceptionInfo;
+    }
+
+    ControlTagStack getControlStack() {
+        return controlStack;
+    }
+
+    void setControlStack(ControlTagStack controlStack) {
+        this.controlStack = controlStack;
+    }
+
+    ArrayWrapperCache getArrayCache() {
+        return arrayCache;
+    }
+
+    void setArrayCache(ArrayWrapperCache arrayCache) {
+        this.arrayCache = arrayCache;
+    }
+
+    PropagationProfiler.Counters getProfilerCounters() {
+        return profilerCounters;
+    }
+
+    void setProfilerCounters(PropagationProfiler.Counters profilerCounters) {
+        this.profilerCounters = profilerCounters;
+    }
+
+    TagFrame getDisabledFrame() {
+        return disabledFrame;
+    }
+
+    void setDisabledFrame(TagFrame disabledFrame) {
+        this.disabledFrame = disabledFrame;
+    }
+
+    boolean isSampleDecided() {
+        return sampleDecided;
+    }
+
+    void setSampleDecided(boolean sampleDecided) {
+        this.sampleDecided = sampleDecided;
+    }
+
+    public boolean getUnsafeFlag() {
+        return unsafeFlag;
+    }
+
+    public void setUnsafeFlag(boolean unsafeFlag) {
+        this.unsafeFlag = unsafeFlag;
+    }
+
+    @SuppressWarnings("unused")
+    @MemberAccess(owner = "java/lang/Thread", name = "$$GALETTE_$$LOCAL_shadow", opcode = Opcodes.GETFIELD)
+    private static ThreadShadow getShadow(Thread thread) {
+        // Placeholder
+        return null;
+    }
+
+    @SuppressWarnings("unused")
+    @MemberAccess(owner = "java/lang/Thread", name = "$$GALETTE_$$LOCAL_shadow", opcode = Opcodes.PUTFIELD)
+    private static void setShadow(Thread thread, ThreadShadow shadow) {
+        // Placeholder
+    }
+
+    /**
+     * Returns the record for the current thread.
+     *
+     * @return the record for the current thread or {@code null} if the current thread has not stored any state
+     */
+    public static ThreadShadow get() {
+        return getShadow(Thread.currentThread());
+    }
+
+    /**
+     * Returns the record for the current thread, creating it if necessary.
+     *
+     * @return the record for the current thread
+     */
+    public static ThreadShadow getOrCreate() {
+        Thread thread = Thread.currentThread();
+        ThreadShadow shadow = getShadow(thread);
+        if (shadow == null) {
+            shadow = new ThreadShadow();
+            setShadow(thread, shadow);
+        }
+        return shadow;
+    }
+}
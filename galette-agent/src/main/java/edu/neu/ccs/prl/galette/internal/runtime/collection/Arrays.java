@@ -17,6 +17,71 @@ public final class Arrays {
         return true;
     }
 
+    /**
+     * Assigns the specified value to each element of the specified range of the specified array.
+     *
+     * @param a the array to fill
+     * @param fromIndex the index of the first element (inclusive) to be filled
+     * @param toIndex the index of the last element (exclusive) to be filled
+     * @param value the value to be stored in the elements of the range
+     * @throws NullPointerException if {@code a} is {@code null}
+     * @throws ArrayIndexOutOfBoundsException if {@code fromIndex < 0} or {@code toIndex > a.length}
+     * @throws ArrayStoreException if {@code value} cannot be stored in {@code a}
+     */
+    public static void fill(Object[] a, int fromIndex, int toIndex, Object value) {
+        for (int i = fromIndex; i < toIndex; i++) {
+            a[i] = value;
+        }
+    }
+
+    /**
+     * Assigns the specified value to each element of the specified array.
+     *
+     * @param a the array to fill
+     * @param value the value to be stored in the elements of the array
+     * @throws NullPointerException if {@code a} is {@code null}
+     */
+    public static void fill(long[] a, long value) {
+        for (int i = 0; i < a.length; i++) {
+            a[i] = value;
+        }
+    }
+
+    /**
+     * Sorts the specified array into ascending numerical order.
+     * The sort is not stable.
+     *
+     * @param a the array to sort
+     * @throws NullPointerException if {@code a} is {@code null}
+     */
+    public static void sort(long[] a) {
+        // Heap sort: sorts in place without allocating
+        for (int i = a.length / 2 - 1; i >= 0; i--) {
+            siftDown(a, i, a.length);
+        }
+        for (int end = a.length - 1; end > 0; end--) {
+            long max = a[0];
+            a[0] = a[end];
+            a[end] = max;
+            siftDown(a, 0, end);
+        }
+    }
+
+    private static void siftDown(long[] a, int i, int size) {
+        long value = a[i];
+        for (int child = 2 * i + 1; child < size; child = 2 * i + 1) {
+            if (child + 1 < size && a[child + 1] > a[child]) {
+                child++;
+            }
+            if (value >= a[child]) {
+                break;
+            }
+            a[i] = a[child];
+            i = child;
+        }
+        a[i] = value;
+    }
+
     public static String toString(Object[] array) {
         return toString(array, array.length);
     }
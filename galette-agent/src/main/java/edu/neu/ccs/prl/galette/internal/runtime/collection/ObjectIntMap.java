@@ -12,6 +12,7 @@ import java.util.NoSuchElementException;
 
 /**
  * Null key values are supported.
+ * Keys are compared using {@link Object#equals(Object)} unless the map was created by {@link #identityMap()}.
  */
 public class ObjectIntMap<K> {
     /**
@@ -34,6 +35,10 @@ public class ObjectIntMap<K> {
      * The maximum number of elements that can be put in this map before having to rehash.
      */
     private int threshold;
+    /**
+     * {@code true} if keys are compared by reference and hashed with their identity hash codes.
+     */
+    private final boolean identity;
 
     /**
      * Constructs a new, empty map.
@@ -49,6 +54,11 @@ public class ObjectIntMap<K> {
      * @throws IllegalArgumentException when the capacity is less than zero.
      */
     public ObjectIntMap(int capacity) {
+        this(capacity, false);
+    }
+
+    private ObjectIntMap(int capacity, boolean identity) {
+        this.identity = identity;
         if (capacity >= 0) {
             capacity = calculateCapacity(capacity);
             size = 0;
@@ -62,15 +72,26 @@ public class ObjectIntMap<K> {
     /**
      * Constructs a new, empty map containing the entries from
      * the specified map.
+     * The constructed map compares keys in the same way as the specified map.
      *
      * @param map the map whose entries are to be added to the constructed map
      * @throws NullPointerException if the specified map is null
      */
     public ObjectIntMap(ObjectIntMap<? extends K> map) {
-        this(calculateCapacity(map.size()));
+        this(calculateCapacity(map.size()), map.identity);
         putAll(map);
     }
 
+    /**
+     * Constructs a new, empty map that compares keys by reference, like {@link java.util.IdentityHashMap}.
+     *
+     * @param <K> the type of the keys of the map
+     * @return the constructed map
+     */
+    public static <K> ObjectIntMap<K> identityMap() {
+        return new ObjectIntMap<>(16, true);
+    }
+
     /**
      * Returns true if this map contains no entries.
      *
@@ -148,11 +169,22 @@ public class ObjectIntMap<K> {
         threshold = (int) (entries.length * LOAD_FACTOR);
     }
 
+    private int hash(Object key) {
+        if (key == null) {
+            return 0;
+        }
+        return identity ? System.identityHashCode(key) : key.hashCode();
+    }
+
+    private boolean keyEquals(Object key, Object other) {
+        return identity ? key == other : objectEquals(key, other);
+    }
+
     private Entry<K> getEntry(Object key) {
-        int hash = key == null ? 0 : key.hashCode();
+        int hash = hash(key);
         int index = hash & (entries.length - 1);
         Entry<K> m = entries[index];
-        while (m != null && (m.hash != hash || !objectEquals(key, m.getKey()))) {
+        while (m != null && (m.hash != hash || !keyEquals(key, m.getKey()))) {
             m = m.next;
         }
         return m;
@@ -168,7 +200,7 @@ public class ObjectIntMap<K> {
         Entry<K> entry = getEntry(key);
         if (entry == null) {
             modCount++;
-            int hash = key == null ? 0 : key.hashCode();
+            int hash = hash(key);
             int index = hash & (entries.length - 1);
             entry = new Entry<>(key, hash, value);
             entry.next = entries[index];
@@ -227,10 +259,10 @@ public class ObjectIntMap<K> {
         Entry<K> entry;
         Entry<K> last = null;
         if (key != null) {
-            int hash = key.hashCode();
+            int hash = hash(key);
             index = hash & (entries.length - 1);
             entry = entries[index];
-            while (entry != null && !(entry.hash == hash && objectEquals(key, entry.key))) {
+            while (entry != null && !(entry.hash == hash && keyEquals(key, entry.key))) {
                 last = entry;
                 entry = entry.next;
             }
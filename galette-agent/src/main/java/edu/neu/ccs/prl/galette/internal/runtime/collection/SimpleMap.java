@@ -38,6 +38,11 @@ public class SimpleMap<K, V> {
         }
     }
 
+    public void clear() {
+        backingMap.clear();
+        values.clear();
+    }
+
     public int size() {
         return backingMap.size();
     }
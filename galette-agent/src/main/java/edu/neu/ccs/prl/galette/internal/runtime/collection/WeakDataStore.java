@@ -37,6 +37,11 @@ public final class WeakDataStore<K, V> {
      * The number of entries in this map.
      */
     private volatile int size = 0;
+    /**
+     * The number of entries that have been added to this map.
+     * Only written while holding the lock on this map.
+     */
+    private volatile int insertions = 0;
 
     private final float loadFactor = 0.75f;
     private volatile ReferenceEntry<K, V>[] table = createTable(16);
@@ -92,11 +97,24 @@ public final class WeakDataStore<K, V> {
                 tab[index] = new ReferenceEntry<>(new HashWeakReference<>(key, queue, hash), value, tab[index]);
                 // Write volatile
                 size = c;
+                insertions++;
             }
         }
         return value;
     }
 
+    /**
+     * Returns the number of entries that have been added to this map.
+     * The count is incremented after an entry is added and is not reset when this map is cleared.
+     * Therefore, if a call to {@link #get} did not find an entry for a key, the count will differ from a value read
+     * before that call once an entry for the key has been added.
+     *
+     * @return the number of entries that have been added to this map
+     */
+    public int getInsertions() {
+        return insertions;
+    }
+
     public void clear() {
         if (size != 0) {
             synchronized (this) {
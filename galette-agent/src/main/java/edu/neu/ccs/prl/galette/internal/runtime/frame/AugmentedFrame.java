@@ -1,27 +1,264 @@
 package edu.neu.ccs.prl.galette.internal.runtime.frame;
 
+import edu.neu.ccs.prl.galette.internal.runtime.Handle;
+import edu.neu.ccs.prl.galette.internal.runtime.InvokedViaHandle;
+import edu.neu.ccs.prl.galette.internal.runtime.Tag;
 import edu.neu.ccs.prl.galette.internal.runtime.TagFrame;
-import edu.neu.ccs.prl.galette.internal.runtime.collection.Arrays;
 
-public final class AugmentedFrame {
-    private final TagFrame frame;
-    private final Object[] arguments;
+/**
+ * Records a tag frame that is indirectly passed to a signature polymorphic method call along with the arguments
+ * passed to the call.
+ * <p>
+ * Primitive arguments are recorded in typed slots instead of being boxed.
+ * Instances are reused: an instance is returned to its thread's pool by {@link IndirectTagFrameStore#clear()} once
+ * the call that it was created for completes.
+ * An instance also acts as the {@link FrameAdjuster} that matches the arguments received by a callee against the
+ * recorded arguments.
+ */
+public final class AugmentedFrame implements FrameAdjuster {
+    private static final byte INT = 0;
+    private static final byte LONG = 1;
+    private static final byte FLOAT = 2;
+    private static final byte DOUBLE = 3;
+    private static final byte OBJECT = 4;
+    private static final int INITIAL_CAPACITY = 8;
+    /**
+     * The frame passed by the caller.
+     */
+    private TagFrame frame;
+    /**
+     * Kinds of the recorded arguments.
+     * <p>
+     * Non-null.
+     */
+    private byte[] kinds = new byte[INITIAL_CAPACITY];
+    /**
+     * Values of the recorded primitive arguments.
+     * {@code float} and {@code double} values are stored as raw bits.
+     * <p>
+     * Non-null.
+     */
+    private long[] primitives = new long[INITIAL_CAPACITY];
+    /**
+     * Values of the recorded reference arguments.
+     * <p>
+     * Non-null.
+     */
+    private Object[] references = new Object[INITIAL_CAPACITY];
+    /**
+     * Array reused to store copies of the tags of {@link #frame} or {@code null}.
+     */
+    private Tag[] savedTags;
+    /**
+     * The number of recorded arguments.
+     */
+    private int size;
+    /**
+     * The number of arguments received by the callee that have been checked.
+     */
+    private int index;
+    /**
+     * Next instance in the pool that this instance belongs to or {@code null}.
+     */
+    AugmentedFrame next;
 
-    public AugmentedFrame(TagFrame frame, Object[] arguments) {
+    AugmentedFrame() {}
+
+    /**
+     * Prepares this instance to record the arguments of a call that is passed the specified frame.
+     *
+     * @param frame the frame passed by the caller
+     * @return this instance
+     */
+    AugmentedFrame reset(TagFrame frame) {
         this.frame = frame;
-        this.arguments = arguments;
+        this.size = 0;
+        this.index = 0;
+        this.next = null;
+        return this;
+    }
+
+    /**
+     * Drops the references held by this instance so that this instance can be pooled.
+     */
+    void release() {
+        for (int i = 0; i < size; i++) {
+            references[i] = null;
+        }
+        frame = null;
+        size = 0;
+    }
+
+    /**
+     * Prepares this instance to match the arguments received by a callee.
+     *
+     * @return this instance
+     */
+    FrameAdjuster startMatching() {
+        index = 0;
+        return this;
     }
 
     public TagFrame getFrame() {
         return frame;
     }
 
-    public Object[] getArguments() {
-        return arguments;
+    @InvokedViaHandle(handle = Handle.AUGMENTED_FRAME_RECORD_INT)
+    public AugmentedFrame record(int value) {
+        return add(INT, value, null);
+    }
+
+    @InvokedViaHandle(handle = Handle.AUGMENTED_FRAME_RECORD_LONG)
+    public AugmentedFrame record(long value) {
+        return add(LONG, value, null);
+    }
+
+    @InvokedViaHandle(handle = Handle.AUGMENTED_FRAME_RECORD_FLOAT)
+    public AugmentedFrame record(float value) {
+        return add(FLOAT, Float.floatToRawIntBits(value), null);
+    }
+
+    @InvokedViaHandle(handle = Handle.AUGMENTED_FRAME_RECORD_DOUBLE)
+    public AugmentedFrame record(double value) {
+        return add(DOUBLE, Double.doubleToRawLongBits(value), null);
+    }
+
+    @InvokedViaHandle(handle = Handle.AUGMENTED_FRAME_RECORD_OBJECT)
+    public AugmentedFrame record(Object value) {
+        return add(OBJECT, 0, value);
+    }
+
+    private AugmentedFrame add(byte kind, long primitive, Object reference) {
+        if (size == kinds.length) {
+            int capacity = size * 2;
+            byte[] newKinds = new byte[capacity];
+            long[] newPrimitives = new long[capacity];
+            Object[] newReferences = new Object[capacity];
+            System.arraycopy(kinds, 0, newKinds, 0, size);
+            System.arraycopy(primitives, 0, newPrimitives, 0, size);
+            System.arraycopy(references, 0, newReferences, 0, size);
+            kinds = newKinds;
+            primitives = newPrimitives;
+            references = newReferences;
+        }
+        kinds[size] = kind;
+        primitives[size] = primitive;
+        references[size] = reference;
+        size++;
+        return this;
+    }
+
+    @Override
+    public FrameAdjuster process(boolean value) {
+        return process(value ? 1 : 0);
+    }
+
+    @Override
+    public FrameAdjuster process(byte value) {
+        return process((int) value);
+    }
+
+    @Override
+    public FrameAdjuster process(char value) {
+        return process((int) value);
+    }
+
+    @Override
+    public FrameAdjuster process(short value) {
+        return process((int) value);
+    }
+
+    @Override
+    public FrameAdjuster process(int value) {
+        return matches(INT) && (int) primitives[index++] == value ? this : EmptyFrameAdjuster.INSTANCE;
+    }
+
+    @Override
+    public FrameAdjuster process(long value) {
+        return matches(LONG) && primitives[index++] == value ? this : EmptyFrameAdjuster.INSTANCE;
+    }
+
+    @Override
+    public FrameAdjuster process(float value) {
+        return matches(FLOAT) && Float.intBitsToFloat((int) primitives[index++]) == value
+                ? this
+                : EmptyFrameAdjuster.INSTANCE;
+    }
+
+    @Override
+    public FrameAdjuster process(double value) {
+        return matches(DOUBLE) && Double.longBitsToDouble(primitives[index++]) == value
+                ? this
+                : EmptyFrameAdjuster.INSTANCE;
+    }
+
+    @Override
+    public FrameAdjuster process(Object value) {
+        if (index >= size) {
+            // Possible added trailing suffix
+            return this;
+        } else if (kinds[index] == OBJECT) {
+            Object expected = references[index++];
+            if (expected == value || index == 1 && value == IndirectTagFrameStore.getUninitializedThisMarker()) {
+                // Since an uninitialized value cannot be passed as an argument, a placeholder is used instead
+                return this;
+            }
+        }
+        return EmptyFrameAdjuster.INSTANCE;
+    }
+
+    @Override
+    public TagFrame createFrame() {
+        return checkRemaining() ? frame : SpareFrameStore.getAndClear();
+    }
+
+    @Override
+    public Tag[] copyTags() {
+        if (checkRemaining()) {
+            // This instance is not reused until the callee has restored the copied tags
+            return savedTags = frame.copyTags(savedTags);
+        }
+        return null;
+    }
+
+    private boolean matches(byte kind) {
+        return index < size && kinds[index] == kind;
+    }
+
+    private boolean checkRemaining() {
+        for (int i = index; i < size; i++) {
+            if (kinds[i] != OBJECT) {
+                // Unexpected trailing primitive value in caller arguments
+                return false;
+            }
+        }
+        return true;
     }
 
     @Override
     public String toString() {
-        return "(" + frame + ", " + Arrays.toString(arguments) + ")";
+        StringBuilder builder = new StringBuilder("(").append(frame).append(", [");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            switch (kinds[i]) {
+                case INT:
+                    builder.append((int) primitives[i]);
+                    break;
+                case LONG:
+                    builder.append(primitives[i]);
+                    break;
+                case FLOAT:
+                    builder.append(Float.intBitsToFloat((int) primitives[i]));
+                    break;
+                case DOUBLE:
+                    builder.append(Double.longBitsToDouble(primitives[i]));
+                    break;
+                default:
+                    builder.append(references[i]);
+            }
+        }
+        return builder.append("])").toString();
     }
 }
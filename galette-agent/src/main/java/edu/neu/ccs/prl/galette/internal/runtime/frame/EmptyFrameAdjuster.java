@@ -3,7 +3,11 @@ package edu.neu.ccs.prl.galette.internal.runtime.frame;
 import edu.neu.ccs.prl.galette.internal.runtime.Tag;
 import edu.neu.ccs.prl.galette.internal.runtime.TagFrame;
 
-class EmptyFrameAdjuster implements FrameAdjuster {
+final class EmptyFrameAdjuster implements FrameAdjuster {
+    static final EmptyFrameAdjuster INSTANCE = new EmptyFrameAdjuster();
+
+    private EmptyFrameAdjuster() {}
+
     @Override
     public FrameAdjuster process(boolean value) {
         return this;
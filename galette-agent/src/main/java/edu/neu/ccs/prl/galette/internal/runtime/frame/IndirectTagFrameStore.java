@@ -3,8 +3,7 @@ package edu.neu.ccs.prl.galette.internal.runtime.frame;
 import edu.neu.ccs.prl.galette.internal.runtime.Handle;
 import edu.neu.ccs.prl.galette.internal.runtime.InvokedViaHandle;
 import edu.neu.ccs.prl.galette.internal.runtime.TagFrame;
-import edu.neu.ccs.prl.galette.internal.runtime.mask.MemberAccess;
-import org.objectweb.asm.Opcodes;
+import edu.neu.ccs.prl.galette.internal.runtime.ThreadShadow;
 
 public final class IndirectTagFrameStore {
     private static volatile boolean INITIALIZED = false;
@@ -14,56 +13,75 @@ public final class IndirectTagFrameStore {
         throw new AssertionError(getClass() + " is a static utility class");
     }
 
-    @SuppressWarnings("unused")
-    @MemberAccess(owner = "java/lang/Thread", name = "$$GALETTE_$$LOCAL_frame", opcode = Opcodes.GETFIELD)
-    private static AugmentedFrame getFrameInfo(Thread thread) {
-        // Placeholder
-        return null;
-    }
-
-    @SuppressWarnings("unused")
-    @MemberAccess(owner = "java/lang/Thread", name = "$$GALETTE_$$LOCAL_frame", opcode = Opcodes.PUTFIELD)
-    private static void setFrameInfo(Thread thread, AugmentedFrame value) {
-        // Placeholder
-    }
-
     @InvokedViaHandle(handle = Handle.INDIRECT_FRAME_GET_AND_CLEAR)
     public static AugmentedFrame getAndClear() {
         if (INITIALIZED) {
-            AugmentedFrame aFrame = getFrameInfo(Thread.currentThread());
-            setFrameInfo(Thread.currentThread(), null);
-            return aFrame;
+            ThreadShadow shadow = ThreadShadow.get();
+            if (shadow != null) {
+                AugmentedFrame aFrame = shadow.getIndirectFrame();
+                shadow.setIndirectFrame(null);
+                return aFrame;
+            }
         }
         return null;
     }
 
     @InvokedViaHandle(handle = Handle.INDIRECT_FRAME_GET_ADJUSTER)
     public static FrameAdjuster getAdjuster(AugmentedFrame frame) {
-        if (frame != null) {
-            return new MatchingFrameAdjuster(frame.getFrame(), frame.getArguments());
-        }
-        return new EmptyFrameAdjuster();
+        return frame == null ? EmptyFrameAdjuster.INSTANCE : frame.startMatching();
     }
 
+    /**
+     * Clears the frame stored for the current thread.
+     * Called by the caller after a signature polymorphic call completes.
+     * Any callee that consumed the stored frame has restored it by this point, so the stored frame is no longer in
+     * use and is returned to the current thread's pool.
+     */
     @InvokedViaHandle(handle = Handle.INDIRECT_FRAME_CLEAR)
     public static void clear() {
         if (INITIALIZED) {
-            setFrameInfo(Thread.currentThread(), null);
+            ThreadShadow shadow = ThreadShadow.get();
+            AugmentedFrame aFrame = shadow == null ? null : shadow.getIndirectFrame();
+            if (aFrame != null) {
+                shadow.setIndirectFrame(null);
+                aFrame.release();
+                aFrame.next = shadow.getFramePool();
+                shadow.setFramePool(aFrame);
+            }
         }
     }
 
     @InvokedViaHandle(handle = Handle.INDIRECT_FRAME_SET_FRAME)
     public static void set(AugmentedFrame frame) {
         if (INITIALIZED) {
-            setFrameInfo(Thread.currentThread(), frame);
+            ThreadShadow shadow = frame == null ? ThreadShadow.get() : ThreadShadow.getOrCreate();
+            if (shadow != null) {
+                shadow.setIndirectFrame(frame);
+            }
         }
     }
 
+    /**
+     * Stores the specified frame for the current thread.
+     * The arguments of the call should then be recorded on the returned instance.
+     *
+     * @param frame the frame to be indirectly passed
+     * @return an instance on which the arguments of the call should be recorded
+     */
     @InvokedViaHandle(handle = Handle.INDIRECT_FRAME_SET)
-    public static void set(TagFrame frame, Object[] arguments) {
+    public static AugmentedFrame set(TagFrame frame) {
         if (INITIALIZED) {
-            setFrameInfo(Thread.currentThread(), new AugmentedFrame(frame, arguments));
+            ThreadShadow shadow = ThreadShadow.getOrCreate();
+            AugmentedFrame aFrame = shadow.getFramePool();
+            if (aFrame == null) {
+                aFrame = new AugmentedFrame();
+            } else {
+                shadow.setFramePool(aFrame.next);
+            }
+            shadow.setIndirectFrame(aFrame.reset(frame));
+            return aFrame;
         }
+        return new AugmentedFrame().reset(frame);
     }
 
     @InvokedViaHandle(handle = Handle.INDIRECT_FRAME_GET_UNINITIALIZED_THIS)
@@ -74,7 +92,9 @@ public final class IndirectTagFrameStore {
     public static synchronized void initialize() {
         // Ensure that the necessary classes are initialized to prevent circular class initialization
         // noinspection unused
-        Object[] dependencies = new Object[] {AugmentedFrame.class, Thread.currentThread()};
+        Object[] dependencies =
+                new Object[] {AugmentedFrame.class, EmptyFrameAdjuster.class, ThreadShadow.class, Thread.currentThread()
+                };
         INITIALIZED = true;
     }
 }
@@ -4,8 +4,8 @@ import edu.neu.ccs.prl.galette.internal.runtime.Handle;
 import edu.neu.ccs.prl.galette.internal.runtime.InvokedViaHandle;
 import edu.neu.ccs.prl.galette.internal.runtime.Tag;
 import edu.neu.ccs.prl.galette.internal.runtime.TagFrame;
-import edu.neu.ccs.prl.galette.internal.runtime.mask.MemberAccess;
-import org.objectweb.asm.Opcodes;
+import edu.neu.ccs.prl.galette.internal.runtime.TagSampler;
+import edu.neu.ccs.prl.galette.internal.runtime.ThreadShadow;
 
 public final class SpareFrameStore {
     private static volatile boolean INITIALIZED = false;
@@ -14,25 +14,17 @@ public final class SpareFrameStore {
         throw new AssertionError(getClass() + " is a static utility class");
     }
 
-    @SuppressWarnings("unused")
-    @MemberAccess(owner = "java/lang/Thread", name = "$$GALETTE_$$LOCAL_spare_frame", opcode = Opcodes.GETFIELD)
-    private static TagFrame getSpare(Thread thread) {
-        // Placeholder
-        return null;
-    }
-
-    @SuppressWarnings("unused")
-    @MemberAccess(owner = "java/lang/Thread", name = "$$GALETTE_$$LOCAL_spare_frame", opcode = Opcodes.PUTFIELD)
-    private static void setSpare(Thread thread, TagFrame frame) {
-        // Placeholder
-    }
-
     public static TagFrame getAndClear() {
         if (INITIALIZED) {
-            Thread current = Thread.currentThread();
-            TagFrame spare = getSpare(current);
+            TagFrame disabled = TagSampler.getDisabledFrame();
+            if (disabled != null) {
+                // Tags are not tracked for the current thread
+                return disabled.acquire(0);
+            }
+            ThreadShadow shadow = ThreadShadow.get();
+            TagFrame spare = shadow == null ? null : shadow.getSpareFrame();
             if (spare != null) {
-                setSpare(current, null);
+                shadow.setSpareFrame(null);
                 return spare.acquire(0);
             }
         }
@@ -43,14 +35,14 @@ public final class SpareFrameStore {
     public static void set(TagFrame frame, Tag[] tags) {
         if (INITIALIZED && tags == null) {
             // Set as spare if this frame was not from a matched signature polymorphic call
-            setSpare(Thread.currentThread(), frame);
+            ThreadShadow.getOrCreate().setSpareFrame(frame);
         }
     }
 
     public static synchronized void initialize() {
         // Ensure that needed classes are initialized to prevent circular class initialization
         // noinspection unused
-        Object[] dependencies = new Object[] {Thread.currentThread()};
+        Object[] dependencies = new Object[] {ThreadShadow.class, Thread.currentThread()};
         INITIALIZED = true;
     }
 }
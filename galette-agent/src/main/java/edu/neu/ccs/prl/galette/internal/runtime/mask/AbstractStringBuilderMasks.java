@@ -42,6 +42,9 @@ public final class AbstractStringBuilderMasks {
 
     private static Appendable append(
             Appendable receiver, String toAppend, TagFrame frame, Tag receiverTag, Tag valueTag) {
+        // setCharTags records the tag summary of the string that it creates
+        // Builders are mutable, so they do not keep a summary; strings created from them compute their summary once
+        // on first use from the tags of their backing array
         toAppend = StringAccessor.setCharTags(toAppend, valueTag, frame);
         StringAccessor.append(receiver, toAppend, TagFrameFactory.acquire(frame, receiverTag, Tag.emptyTag()));
         frame.setReturnTag(receiverTag);
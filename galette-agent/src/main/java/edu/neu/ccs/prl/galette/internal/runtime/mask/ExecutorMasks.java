@@ -0,0 +1,202 @@
+package edu.neu.ccs.prl.galette.internal.runtime.mask;
+
+import edu.neu.ccs.prl.galette.internal.runtime.TagFrame;
+import edu.neu.ccs.prl.galette.internal.runtime.TaskContext;
+import java.util.concurrent.*;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Propagates the execution context of a thread that submits a task to an executor to the worker thread that runs the
+ * task.
+ * <p>
+ * Calls that submit tasks are masked to record the context of the submitting thread for the submitted task.
+ * Calls made by the JCL to run the tasks that it was passed are masked to restore the recorded context while the task
+ * runs.
+ * Executors typically wrap submitted tasks; the context is restored when the wrapper calls the submitted task.
+ * Calls that run tasks are only masked in the JCL classes that run submitted tasks.
+ *
+ * @see TaskContext
+ */
+public final class ExecutorMasks {
+    private ExecutorMasks() {
+        throw new AssertionError(getClass() + " is a static utility class");
+    }
+
+    @Mask(owner = "java/util/concurrent/Executor", name = "execute")
+    @Mask(owner = "java/util/concurrent/ExecutorService", name = "execute")
+    @Mask(owner = "java/util/concurrent/ScheduledExecutorService", name = "execute")
+    @Mask(owner = "java/util/concurrent/AbstractExecutorService", name = "execute")
+    @Mask(owner = "java/util/concurrent/ThreadPoolExecutor", name = "execute")
+    @Mask(owner = "java/util/concurrent/ScheduledThreadPoolExecutor", name = "execute")
+    @Mask(owner = "java/util/concurrent/ForkJoinPool", name = "execute")
+    public static void execute(Executor executor, Runnable task, TagFrame frame) {
+        TaskContext.capture(task);
+        executeInternal(executor, task, frame);
+    }
+
+    @Mask(owner = "java/util/concurrent/ExecutorService", name = "submit")
+    @Mask(owner = "java/util/concurrent/ScheduledExecutorService", name = "submit")
+    @Mask(owner = "java/util/concurrent/AbstractExecutorService", name = "submit")
+    @Mask(owner = "java/util/concurrent/ThreadPoolExecutor", name = "submit")
+    @Mask(owner = "java/util/concurrent/ScheduledThreadPoolExecutor", name = "submit")
+    @Mask(
+            owner = "java/util/concurrent/ForkJoinPool",
+            name = "submit",
+            returnDescriptor = "Ljava/util/concurrent/ForkJoinTask;")
+    public static Future<?> submit(ExecutorService executor, Runnable task, TagFrame frame) {
+        TaskContext.capture(task);
+        return submitInternal(executor, task, frame);
+    }
+
+    @Mask(owner = "java/util/concurrent/ExecutorService", name = "submit")
+    @Mask(owner = "java/util/concurrent/ScheduledExecutorService", name = "submit")
+    @Mask(owner = "java/util/concurrent/AbstractExecutorService", name = "submit")
+    @Mask(owner = "java/util/concurrent/ThreadPoolExecutor", name = "submit")
+    @Mask(owner = "java/util/concurrent/ScheduledThreadPoolExecutor", name = "submit")
+    @Mask(
+            owner = "java/util/concurrent/ForkJoinPool",
+            name = "submit",
+            returnDescriptor = "Ljava/util/concurrent/ForkJoinTask;")
+    public static Future<?> submit(ExecutorService executor, Runnable task, Object result, TagFrame frame) {
+        TaskContext.capture(task);
+        return submitInternal(executor, task, result, frame);
+    }
+
+    @Mask(owner = "java/util/concurrent/ExecutorService", name = "submit")
+    @Mask(owner = "java/util/concurrent/ScheduledExecutorService", name = "submit")
+    @Mask(owner = "java/util/concurrent/AbstractExecutorService", name = "submit")
+    @Mask(owner = "java/util/concurrent/ThreadPoolExecutor", name = "submit")
+    @Mask(owner = "java/util/concurrent/ScheduledThreadPoolExecutor", name = "submit")
+    @Mask(
+            owner = "java/util/concurrent/ForkJoinPool",
+            name = "submit",
+            returnDescriptor = "Ljava/util/concurrent/ForkJoinTask;")
+    public static Future<?> submit(ExecutorService executor, Callable<?> task, TagFrame frame) {
+        TaskContext.capture(task);
+        return submitInternal(executor, task, frame);
+    }
+
+    @Mask(owner = "java/util/concurrent/ScheduledExecutorService", name = "schedule")
+    @Mask(owner = "java/util/concurrent/ScheduledThreadPoolExecutor", name = "schedule")
+    public static ScheduledFuture<?> schedule(
+            ScheduledExecutorService executor, Runnable task, long delay, TimeUnit unit, TagFrame frame) {
+        TaskContext.capture(task);
+        return scheduleInternal(executor, task, delay, unit, frame);
+    }
+
+    @Mask(owner = "java/util/concurrent/ScheduledExecutorService", name = "schedule")
+    @Mask(owner = "java/util/concurrent/ScheduledThreadPoolExecutor", name = "schedule")
+    public static ScheduledFuture<?> schedule(
+            ScheduledExecutorService executor, Callable<?> task, long delay, TimeUnit unit, TagFrame frame) {
+        TaskContext.capture(task);
+        return scheduleInternal(executor, task, delay, unit, frame);
+    }
+
+    @Mask(owner = "java/lang/Runnable", name = "run")
+    @Mask(owner = "java/util/concurrent/CompletableFuture$AsyncRun", name = "run")
+    @Mask(owner = "java/util/concurrent/CompletableFuture$AsyncSupply", name = "run")
+    public static void run(Runnable task, TagFrame frame) {
+        Object scope = TaskContext.enter(task);
+        try {
+            runInternal(task, frame);
+        } finally {
+            TaskContext.exit(scope);
+        }
+    }
+
+    @Mask(owner = "java/util/concurrent/Callable", name = "call")
+    public static Object call(Callable<?> task, TagFrame frame) throws Exception {
+        Object scope = TaskContext.enter(task);
+        try {
+            return callInternal(task, frame);
+        } finally {
+            TaskContext.exit(scope);
+        }
+    }
+
+    @SuppressWarnings("unused")
+    @MemberAccess(
+            owner = "java/util/concurrent/Executor",
+            name = "execute",
+            opcode = Opcodes.INVOKEINTERFACE,
+            isInterface = true)
+    private static void executeInternal(Executor executor, Runnable task, TagFrame frame) {
+        // Placeholder
+        executor.execute(task);
+    }
+
+    @SuppressWarnings("unused")
+    @MemberAccess(
+            owner = "java/util/concurrent/ExecutorService",
+            name = "submit",
+            opcode = Opcodes.INVOKEINTERFACE,
+            isInterface = true)
+    private static Future<?> submitInternal(ExecutorService executor, Runnable task, TagFrame frame) {
+        // Placeholder
+        return executor.submit(task);
+    }
+
+    @SuppressWarnings("unused")
+    @MemberAccess(
+            owner = "java/util/concurrent/ExecutorService",
+            name = "submit",
+            opcode = Opcodes.INVOKEINTERFACE,
+            isInterface = true)
+    private static Future<?> submitInternal(ExecutorService executor, Runnable task, Object result, TagFrame frame) {
+        // Placeholder
+        return executor.submit(task, result);
+    }
+
+    @SuppressWarnings("unused")
+    @MemberAccess(
+            owner = "java/util/concurrent/ExecutorService",
+            name = "submit",
+            opcode = Opcodes.INVOKEINTERFACE,
+            isInterface = true)
+    private static Future<?> submitInternal(ExecutorService executor, Callable<?> task, TagFrame frame) {
+        // Placeholder
+        return executor.submit(task);
+    }
+
+    @SuppressWarnings("unused")
+    @MemberAccess(
+            owner = "java/util/concurrent/ScheduledExecutorService",
+            name = "schedule",
+            opcode = Opcodes.INVOKEINTERFACE,
+            isInterface = true)
+    private static ScheduledFuture<?> scheduleInternal(
+            ScheduledExecutorService executor, Runnable task, long delay, TimeUnit unit, TagFrame frame) {
+        // Placeholder
+        return executor.schedule(task, delay, unit);
+    }
+
+    @SuppressWarnings("unused")
+    @MemberAccess(
+            owner = "java/util/concurrent/ScheduledExecutorService",
+            name = "schedule",
+            opcode = Opcodes.INVOKEINTERFACE,
+            isInterface = true)
+    private static ScheduledFuture<?> scheduleInternal(
+            ScheduledExecutorService executor, Callable<?> task, long delay, TimeUnit unit, TagFrame frame) {
+        // Placeholder
+        return executor.schedule(task, delay, unit);
+    }
+
+    @SuppressWarnings("unused")
+    @MemberAccess(owner = "java/lang/Runnable", name = "run", opcode = Opcodes.INVOKEINTERFACE, isInterface = true)
+    private static void runInternal(Runnable task, TagFrame frame) {
+        // Placeholder
+        task.run();
+    }
+
+    @SuppressWarnings("unused")
+    @MemberAccess(
+            owner = "java/util/concurrent/Callable",
+            name = "call",
+            opcode = Opcodes.INVOKEINTERFACE,
+            isInterface = true)
+    private static Object callInternal(Callable<?> task, TagFrame frame) throws Exception {
+        // Placeholder
+        return task.call();
+    }
+}
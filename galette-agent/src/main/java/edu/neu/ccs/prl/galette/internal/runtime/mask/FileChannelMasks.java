@@ -0,0 +1,21 @@
+package edu.neu.ccs.prl.galette.internal.runtime.mask;
+
+import edu.neu.ccs.prl.galette.internal.runtime.OffHeapTagStore;
+import edu.neu.ccs.prl.galette.internal.runtime.TagFrame;
+
+/**
+ * Memory that is unmapped may later be reused by another mapping or allocation.
+ * These masks discard the tags of the bytes of a mapped region when the region is unmapped, so that the memory does
+ * not inherit the stale tags of the region.
+ */
+public final class FileChannelMasks {
+    @Mask(owner = "sun/nio/ch/FileChannelImpl", name = "unmap0", isStatic = true, type = MaskType.POST_PROCESS)
+    @Mask(owner = "sun/nio/ch/FileDispatcherImpl", name = "unmap0", isStatic = true, type = MaskType.POST_PROCESS)
+    @Mask(owner = "sun/nio/ch/UnixFileDispatcherImpl", name = "unmap0", isStatic = true, type = MaskType.POST_PROCESS)
+    public static int unmap0(int result, long address, long length, TagFrame frame) {
+        if (result == 0) {
+            OffHeapTagStore.recordUnmap(address, length);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,31 @@
+package edu.neu.ccs.prl.galette.internal.runtime.mask;
+
+import edu.neu.ccs.prl.galette.internal.runtime.OffHeapTagStore;
+import edu.neu.ccs.prl.galette.internal.runtime.Tag;
+import edu.neu.ccs.prl.galette.internal.runtime.TagFrame;
+import java.io.FileDescriptor;
+
+/**
+ * Native reads into off-heap memory overwrite the values of the bytes that were read without updating their tags.
+ * Buffers used for native reads are often reused, so these masks clear the stale tags of the bytes that were read.
+ */
+public final class NativeDispatcherMasks {
+    @Mask(owner = "sun/nio/ch/NativeDispatcher", name = "read", type = MaskType.POST_PROCESS)
+    public static int read(int n, Object receiver, FileDescriptor fd, long address, int len, TagFrame frame) {
+        clear(address, n);
+        return n;
+    }
+
+    @Mask(owner = "sun/nio/ch/NativeDispatcher", name = "pread", type = MaskType.POST_PROCESS)
+    public static int pread(
+            int n, Object receiver, FileDescriptor fd, long address, int len, long position, TagFrame frame) {
+        clear(address, n);
+        return n;
+    }
+
+    private static void clear(long address, int n) {
+        if (n > 0) {
+            OffHeapTagStore.setTag(address, n, Tag.emptyTag());
+        }
+    }
+}
@@ -1,11 +1,13 @@
 package edu.neu.ccs.prl.galette.internal.runtime.mask;
 
 import edu.neu.ccs.prl.galette.internal.runtime.*;
+import edu.neu.ccs.prl.galette.internal.runtime.collection.SimpleMap;
 import edu.neu.ccs.prl.galette.internal.transform.GaletteTransformer;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Executable;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import org.objectweb.asm.Opcodes;
 
 public final class ReflectionMasks {
     private static volatile boolean initialized = false;
@@ -34,7 +36,7 @@ public final class ReflectionMasks {
             type = MaskType.FIX_ARGUMENTS)
     public static Object[] invoke0(Method m, Object obj, Object[] args, TagFrame frame) {
         if (hasShadow(m, obj)) {
-            Method shadow = getShadowMethod(m);
+            Method shadow = (Method) getShadow(m);
             if (shadow != null) {
                 fixFrame(m, args, frame.get(1), frame);
                 return new Object[] {shadow, obj, append(args, frame), frame};
@@ -63,7 +65,7 @@ public final class ReflectionMasks {
             type = MaskType.FIX_ARGUMENTS)
     public static Object[] newInstance0(Constructor<?> c, Object[] args, TagFrame frame) {
         if (hasShadow(c, null)) {
-            Constructor<?> shadow = getShadowConstructor(c);
+            Constructor<?> shadow = (Constructor<?>) getShadow(c);
             if (shadow != null) {
                 // Add tag for uninitialized this
                 fixFrame(c, args, Tag.emptyTag(), frame);
@@ -123,6 +125,48 @@ public final class ReflectionMasks {
         return Tag.emptyTag();
     }
 
+    /**
+     * Returns the shadow counterpart of the specified method or constructor or {@code null} if it does not have one.
+     * Resolved shadows are cached in a field added to the {@link Class} instance of the declaring class.
+     * Cache entries are keyed by equality, so copies of a method or constructor share an entry.
+     * A cache is discarded along with its {@link Class} instance when the class is unloaded.
+     */
+    private static Executable getShadow(Executable exec) {
+        Class<?> owner = exec.getDeclaringClass();
+        SimpleMap<Executable, Executable> cache = getShadowCache(owner);
+        if (cache == null) {
+            // Racing threads may each publish a cache; entries in the cache that is overwritten are recomputed
+            cache = new SimpleMap<>();
+            putShadowCache(owner, cache);
+        }
+        Executable shadow;
+        synchronized (cache) {
+            shadow = cache.get(exec);
+        }
+        if (shadow == null) {
+            shadow = exec instanceof Method
+                    ? getShadowMethod((Method) exec)
+                    : getShadowConstructor((Constructor<?>) exec);
+            synchronized (cache) {
+                // Store the executable itself to indicate that it does not have a shadow
+                cache.put(exec, shadow == null ? exec : shadow);
+            }
+        }
+        return shadow == exec ? null : shadow;
+    }
+
+    @SuppressWarnings("unused")
+    @MemberAccess(owner = "java/lang/Class", name = "$$GALETTE_SHADOW_CACHE", opcode = Opcodes.GETFIELD)
+    private static SimpleMap<Executable, Executable> getShadowCache(Class<?> clazz) {
+        throw new AssertionError("Placeholder method was called");
+    }
+
+    @SuppressWarnings("unused")
+    @MemberAccess(owner = "java/lang/Class", name = "$$GALETTE_SHADOW_CACHE", opcode = Opcodes.PUTFIELD)
+    private static void putShadowCache(Class<?> clazz, SimpleMap<Executable, Executable> cache) {
+        throw new AssertionError("Placeholder method was called");
+    }
+
     private static Constructor<?> getShadowConstructor(Constructor<?> c) {
         Class<?>[] shadowParameters = getShadowParameters(c);
         try {
@@ -156,7 +200,7 @@ public final class ReflectionMasks {
                     && !Modifier.isFinal(exec.getModifiers())
                     && obj instanceof TaggedObject;
         }
-        return !GaletteTransformer.isExcluded(exec.getName().replace('.', '/'));
+        return !GaletteTransformer.isExcluded(clazz.getName().replace('.', '/'));
     }
 
     private static Class<?>[] getShadowParameters(Executable exec) {
@@ -17,9 +17,10 @@ public final class SerializationMasks {
         if (Configuration.isPropagateThroughSerialization()) {
             if (obj != null && obj.getClass().isArray()) {
                 ArrayWrapper wrapper = ArrayTagStore.getWrapper(obj);
-                out.writeObject(wrapper);
+                // Write null in place of a wrapper with only empty tags
+                out.writeObject(wrapper == null || wrapper.isEmpty() ? null : wrapper);
             } else if (isMirroredType(obj)) {
-                out.writeObject(FieldTagStore.getInstanceTags(obj));
+                out.writeObject(StreamTagDictionary.canonicalize(out, FieldTagStore.getInstanceTags(obj)));
             }
         }
     }
@@ -0,0 +1,104 @@
+package edu.neu.ccs.prl.galette.internal.runtime.mask;
+
+/**
+ * Immutable mapping from the offsets of the fields of a class to the offsets of the fields' shadow tag fields.
+ * <p>
+ * Keys combine a field offset with whether the field is static and are stored in a sorted {@code long} array.
+ * Lookups perform a binary search over this array and do not allocate.
+ */
+public final class ShadowOffsetTable {
+    /**
+     * Sorted keys of the mapping.
+     * <p>
+     * Non-null.
+     */
+    private final long[] keys;
+    /**
+     * Shadow offsets of the mapping; the shadow offset at index {@code i} is associated with the key at
+     * index {@code i}.
+     * <p>
+     * Non-null.
+     */
+    private final long[] shadowOffsets;
+
+    /**
+     * Creates a new table for the specified offsets.
+     * If the same field offset is specified more than once for static fields or more than once for instance fields,
+     * the first occurrence is used.
+     *
+     * @param size the number of offsets to use
+     * @param isStatic whether each field is static
+     * @param offsets the offsets of the fields
+     * @param shadowOffsets the offsets of the fields' shadow tag fields
+     * @throws NullPointerException if any of the arrays is {@code null}
+     * @throws ArrayIndexOutOfBoundsException if any of the arrays has fewer than {@code size} elements
+     */
+    ShadowOffsetTable(int size, boolean[] isStatic, long[] offsets, long[] shadowOffsets) {
+        long[] keys = new long[size];
+        long[] values = new long[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            long key = toKey(isStatic[i], offsets[i]);
+            int index = search(keys, count, key);
+            if (index < 0) {
+                // Insert the key at the appropriate position to keep the keys sorted
+                index = -(index + 1);
+                System.arraycopy(keys, index, keys, index + 1, count - index);
+                System.arraycopy(values, index, values, index + 1, count - index);
+                keys[index] = key;
+                values[index] = shadowOffsets[i];
+                count++;
+            }
+        }
+        this.keys = trim(keys, count);
+        this.shadowOffsets = trim(values, count);
+    }
+
+    /**
+     * Returns the offset of the shadow tag field for the field with the specified offset or the specified default
+     * value if this table does not contain the field.
+     *
+     * @param isStatic {@code true} if the field is static
+     * @param offset the offset of the field
+     * @param defaultValue the value to return if this table does not contain the field
+     * @return the offset of the shadow tag field for the field or {@code defaultValue}
+     */
+    long getShadowOffset(boolean isStatic, long offset, long defaultValue) {
+        int index = search(keys, keys.length, toKey(isStatic, offset));
+        return index < 0 ? defaultValue : shadowOffsets[index];
+    }
+
+    int size() {
+        return keys.length;
+    }
+
+    private static long toKey(boolean isStatic, long offset) {
+        return (offset << 1) | (isStatic ? 1 : 0);
+    }
+
+    private static int search(long[] keys, int size, long key) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long value = keys[mid];
+            if (value < key) {
+                low = mid + 1;
+            } else if (value > key) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private static long[] trim(long[] array, int size) {
+        if (array.length == size) {
+            return array;
+        }
+        long[] result = new long[size];
+        System.arraycopy(array, 0, result, 0, size);
+        return result;
+    }
+}
@@ -32,6 +32,19 @@ public final class StringAccessor {
         return s.toCharArray();
     }
 
+    @SuppressWarnings("unused")
+    @MemberAccess(owner = "java/lang/String", name = "$$GALETTE_TAG_SUMMARY", opcode = Opcodes.GETFIELD)
+    private static Object getTagSummary(String s) {
+        // Placeholder
+        return null;
+    }
+
+    @SuppressWarnings("unused")
+    @MemberAccess(owner = "java/lang/String", name = "$$GALETTE_TAG_SUMMARY", opcode = Opcodes.PUTFIELD)
+    private static void putTagSummary(String s, Object summary) {
+        // Placeholder
+    }
+
     public static String toString(Object o, TagFrame frame) {
         if (o instanceof TaggedObject) {
             return ((TaggedObject) o).toString(frame);
@@ -52,16 +65,52 @@ public final class StringAccessor {
     }
 
     public static Tag getMergedTag(String value, Tag valueTag, TagFrame frame) {
-        return Tag.union(Tag.union(StringAccessor.getCharTags(value, frame)), valueTag);
+        return Tag.union(getCharTagsUnion(value, frame), valueTag);
+    }
+
+    /**
+     * Returns the union of the tags of the characters of the specified string.
+     * The union is cached on the string, so repeated calls for the same string do not rescan its characters.
+     *
+     * @param s the string whose character tags should be merged
+     * @param frame the frame for calls made by this method
+     * @return the union of the tags of the characters of the specified string
+     */
+    public static Tag getCharTagsUnion(String s, TagFrame frame) {
+        if (s == null || !ArrayTagStore.isInitialized()) {
+            // No tags have been created
+            return Tag.emptyTag();
+        }
+        int generation = ArrayTagStore.getGeneration();
+        Object cached = getTagSummary(s);
+        if (cached instanceof StringTagSummary && ((StringTagSummary) cached).isCurrent(generation)) {
+            return ((StringTagSummary) cached).getTag();
+        }
+        StringTagSummary summary = StringTagSummary.create(computeCharTagsUnion(s, frame), generation);
+        putTagSummary(s, summary);
+        return summary.getTag();
+    }
+
+    private static Tag computeCharTagsUnion(String s, TagFrame frame) {
+        long offset = ValueOffsetHolder.OFFSET;
+        if (offset == ValueOffsetHolder.UNSAFE.getInvalidFieldOffset()) {
+            return Tag.union(getCharTags(s, frame));
+        }
+        // Read the string's backing array directly instead of copying it
+        // The union of the tags of the array's elements is the union of the tags of the string's characters
+        ArrayWrapper wrapper = ArrayTagStore.getWrapper(ValueOffsetHolder.UNSAFE.getObject(s, offset));
+        return wrapper == null ? Tag.emptyTag() : wrapper.unionElements(0, wrapper.size());
     }
 
     public static String setCharTags(char[] values, Tag tag, TagFrame frame) {
         if (values != null && !Tag.isEmpty(tag)) {
             ArrayWrapper wrapper = new ArrayWrapper(values);
-            for (int i = 0; i < values.length; i++) {
-                wrapper.setElement(tag, i);
-            }
+            wrapper.fillElements(tag, 0, values.length);
             ArrayTagStore.updateWrapper(values, wrapper);
+            String result = newString(values, frame.acquire(0));
+            Tag summaryTag = values.length == 0 ? Tag.emptyTag() : tag;
+            putTagSummary(result, StringTagSummary.create(summaryTag, ArrayTagStore.getGeneration()));
+            return result;
         }
         return newString(values, frame.acquire(0));
     }
@@ -72,4 +121,25 @@ public final class StringAccessor {
         }
         return s;
     }
+
+    /**
+     * Lazily computes the offset of the field of {@link String} that stores its characters to prevent circular class
+     * initialization.
+     */
+    private static final class ValueOffsetHolder {
+        private static final UnsafeWrapper UNSAFE = UnsafeWrapper.createInstance();
+        /**
+         * Offset of {@code String.value} or {@link UnsafeWrapper#getInvalidFieldOffset()} if the offset could not be
+         * determined.
+         */
+        private static final long OFFSET = computeOffset();
+
+        private static long computeOffset() {
+            try {
+                return UNSAFE.objectFieldOffset(String.class.getDeclaredField("value"));
+            } catch (NoSuchFieldException | RuntimeException e) {
+                return UNSAFE.getInvalidFieldOffset();
+            }
+        }
+    }
 }
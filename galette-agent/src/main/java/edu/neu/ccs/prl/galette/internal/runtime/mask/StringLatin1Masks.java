@@ -0,0 +1,69 @@
+package edu.neu.ccs.prl.galette.internal.runtime.mask;
+
+import edu.neu.ccs.prl.galette.internal.runtime.ArrayTagStore;
+import edu.neu.ccs.prl.galette.internal.runtime.ArrayWrapper;
+import edu.neu.ccs.prl.galette.internal.runtime.ControlTagStack;
+import edu.neu.ccs.prl.galette.internal.runtime.Tag;
+import edu.neu.ccs.prl.galette.internal.runtime.TagFrame;
+
+/**
+ * Fast paths for the comparisons of string contents that are made when strings are used as keys in hash-based
+ * collections.
+ * <p>
+ * {@link String#equals(Object)} compares the backing arrays of strings with the same coder using
+ * {@code StringLatin1.equals}.
+ * The instrumented version of that method looks up the tags of both arrays for every element that it compares and then
+ * discards them, because the result of the comparison is a constant on every path.
+ * The masks in this class compare the arrays without looking up any tags unless implicit flows are being tracked.
+ */
+public final class StringLatin1Masks {
+    private StringLatin1Masks() {
+        throw new AssertionError(getClass() + " is a static utility class");
+    }
+
+    @Mask(owner = "java/lang/StringLatin1", name = "equals", isStatic = true)
+    public static boolean equals(byte[] value, byte[] other, TagFrame frame) {
+        boolean sameLength = value.length == other.length;
+        int mismatch = sameLength ? mismatch(value, other) : -1;
+        Tag tag = Tag.emptyTag();
+        if (ControlTagStack.isTrackingImplicitFlows()) {
+            // The result is control dependent on the branches taken by the original implementation:
+            // the comparison of the lengths and, if the lengths are equal, the comparisons of the elements up to and
+            // including the first differing elements
+            tag = Tag.union(
+                    ArrayTagStore.getLengthTag(value, Tag.emptyTag()),
+                    ArrayTagStore.getLengthTag(other, Tag.emptyTag()));
+            if (sameLength) {
+                int end = mismatch == -1 ? value.length : mismatch + 1;
+                tag = Tag.union(tag, getElementsTag(value, end), getElementsTag(other, end));
+            }
+            tag = ControlTagStack.apply(tag);
+        }
+        frame.setReturnTag(tag);
+        return sameLength && mismatch == -1;
+    }
+
+    /**
+     * Returns the union of the tags of the specified array's elements before the specified index.
+     */
+    private static Tag getElementsTag(byte[] array, int end) {
+        ArrayWrapper wrapper = ArrayTagStore.getWrapper(array);
+        return wrapper == null ? Tag.emptyTag() : wrapper.unionElements(0, end);
+    }
+
+    /**
+     * Returns the index of the first element at which the specified arrays, which must have the same length, differ.
+     *
+     * @param value the first array to be compared
+     * @param other the second array to be compared
+     * @return the index of the first element at which the arrays differ or -1 if the arrays are equal
+     */
+    private static int mismatch(byte[] value, byte[] other) {
+        for (int i = 0; i < value.length; i++) {
+            if (value[i] != other[i]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
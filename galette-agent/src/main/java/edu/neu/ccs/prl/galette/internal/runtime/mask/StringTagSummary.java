@@ -0,0 +1,50 @@
+package edu.neu.ccs.prl.galette.internal.runtime.mask;
+
+import edu.neu.ccs.prl.galette.internal.runtime.Tag;
+
+/**
+ * Immutable record of the union of the tags of the characters of a string.
+ * <p>
+ * Summaries are cached on the strings that they describe.
+ * Since strings are immutable, a summary remains valid until the mirrored tags of arrays are cleared.
+ * Each summary records the {@link edu.neu.ccs.prl.galette.internal.runtime.ArrayTagStore#getGeneration() generation}
+ * of the mirrored array tags that it was computed from.
+ */
+final class StringTagSummary {
+    /**
+     * Shared summary for strings whose characters are untainted.
+     * <p>
+     * Non-null.
+     */
+    private static volatile StringTagSummary untainted = new StringTagSummary(Tag.emptyTag(), 0);
+    /**
+     * Union of the tags of the characters of the string.
+     */
+    private final Tag tag;
+
+    private final int generation;
+
+    private StringTagSummary(Tag tag, int generation) {
+        this.tag = tag;
+        this.generation = generation;
+    }
+
+    Tag getTag() {
+        return tag;
+    }
+
+    boolean isCurrent(int generation) {
+        return this.generation == generation;
+    }
+
+    static StringTagSummary create(Tag tag, int generation) {
+        if (!Tag.isEmpty(tag)) {
+            return new StringTagSummary(tag, generation);
+        }
+        StringTagSummary result = untainted;
+        if (!result.isCurrent(generation)) {
+            untainted = result = new StringTagSummary(Tag.emptyTag(), generation);
+        }
+        return result;
+    }
+}
@@ -1,6 +1,6 @@
 package edu.neu.ccs.prl.galette.internal.runtime.mask;
 
-import org.objectweb.asm.Opcodes;
+import edu.neu.ccs.prl.galette.internal.runtime.ThreadShadow;
 
 /**
  * Before propagating tags through unsafe accesses, {@link UnsafeMasks} must check whether the access was triggered from
@@ -11,29 +11,23 @@ import org.objectweb.asm.Opcodes;
 public final class UnsafeFlagAccessor {
     private static volatile boolean INITIALIZED = false;
 
-    @SuppressWarnings("unused")
-    @MemberAccess(owner = "java/lang/Thread", name = "$$GALETTE_$$LOCAL_unsafeFlag", opcode = Opcodes.GETFIELD)
-    private static boolean getFlag(Thread thread) {
-        throw new AssertionError("Placeholder method was called");
-    }
-
-    @SuppressWarnings("unused")
-    @MemberAccess(owner = "java/lang/Thread", name = "$$GALETTE_$$LOCAL_unsafeFlag", opcode = Opcodes.PUTFIELD)
-    private static void setFlag(Thread thread, boolean value) {
-        throw new AssertionError("Placeholder method was called");
-    }
-
     public static void free() {
         if (INITIALIZED) {
-            setFlag(Thread.currentThread(), false);
+            ThreadShadow shadow = ThreadShadow.get();
+            if (shadow != null) {
+                shadow.setUnsafeFlag(false);
+            }
         }
     }
 
     public static boolean reserve() {
-        if (INITIALIZED && !getFlag(Thread.currentThread())) {
-            // Prevent re-entry on the same Thread
-            setFlag(Thread.currentThread(), true);
-            return true;
+        if (INITIALIZED) {
+            ThreadShadow shadow = ThreadShadow.getOrCreate();
+            if (!shadow.getUnsafeFlag()) {
+                // Prevent re-entry on the same Thread
+                shadow.setUnsafeFlag(true);
+                return true;
+            }
         }
         return false;
     }
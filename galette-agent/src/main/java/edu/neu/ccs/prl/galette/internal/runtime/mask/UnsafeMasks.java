@@ -1,5 +1,6 @@
 package edu.neu.ccs.prl.galette.internal.runtime.mask;
 
+import edu.neu.ccs.prl.galette.internal.runtime.OffHeapTagStore;
 import edu.neu.ccs.prl.galette.internal.runtime.PrimitiveBoxer;
 import edu.neu.ccs.prl.galette.internal.runtime.Tag;
 import edu.neu.ccs.prl.galette.internal.runtime.TagFrame;
@@ -386,6 +387,164 @@ public final class UnsafeMasks {
         return result;
     }
 
+    @Mask(owner = "jdk/internal/misc/Unsafe", name = "copyMemory", type = MaskType.POST_PROCESS)
+    @Mask(owner = "sun/misc/Unsafe", name = "copyMemory", type = MaskType.POST_PROCESS)
+    public static void copyMemory(
+            Object receiver,
+            Object srcBase,
+            long srcOffset,
+            Object destBase,
+            long destOffset,
+            long bytes,
+            TagFrame frame) {
+        copyTags(srcBase, srcOffset, destBase, destOffset, bytes, 1);
+    }
+
+    @Mask(owner = "jdk/internal/misc/Unsafe", name = "copySwapMemory", type = MaskType.POST_PROCESS)
+    public static void copySwapMemory(
+            Object receiver,
+            Object srcBase,
+            long srcOffset,
+            Object destBase,
+            long destOffset,
+            long bytes,
+            long elemSize,
+            TagFrame frame) {
+        copyTags(srcBase, srcOffset, destBase, destOffset, bytes, elemSize);
+    }
+
+    @Mask(owner = "jdk/internal/misc/Unsafe", name = "setMemory", type = MaskType.POST_PROCESS)
+    @Mask(owner = "sun/misc/Unsafe", name = "setMemory", type = MaskType.POST_PROCESS)
+    public static void setMemory(Object receiver, Object o, long offset, long bytes, byte value, TagFrame frame) {
+        if (UnsafeFlagAccessor.reserve()) {
+            try {
+                Tag offsetTag = frame.get(2);
+                Tag valueTag = frame.get(4);
+                UnsafeTagLocator.fillTags(o, offset, bytes, Tag.union(offsetTag, valueTag));
+            } finally {
+                UnsafeFlagAccessor.free();
+            }
+        }
+    }
+
+    @Mask(owner = "jdk/internal/misc/Unsafe", name = "allocateMemory", type = MaskType.POST_PROCESS)
+    public static long allocateMemory(long address, Object receiver, long bytes, TagFrame frame) {
+        OffHeapTagStore.recordAllocation(address, bytes);
+        return address;
+    }
+
+    @Mask(owner = "sun/misc/Unsafe", name = "allocateMemory", type = MaskType.POST_PROCESS)
+    public static long allocateMemorySun(long address, Object receiver, long bytes, TagFrame frame) {
+        // On later versions of Java, the call is delegated to jdk.internal.misc.Unsafe
+        if (Configuration.isJava8()) {
+            OffHeapTagStore.recordAllocation(address, bytes);
+        }
+        return address;
+    }
+
+    @Mask(owner = "jdk/internal/misc/Unsafe", name = "reallocateMemory", type = MaskType.POST_PROCESS)
+    public static long reallocateMemory(long newAddress, Object receiver, long address, long bytes, TagFrame frame) {
+        OffHeapTagStore.recordReallocation(address, newAddress, bytes);
+        return newAddress;
+    }
+
+    @Mask(owner = "sun/misc/Unsafe", name = "reallocateMemory", type = MaskType.POST_PROCESS)
+    public static long reallocateMemorySun(long newAddress, Object receiver, long address, long bytes, TagFrame frame) {
+        if (Configuration.isJava8()) {
+            OffHeapTagStore.recordReallocation(address, newAddress, bytes);
+        }
+        return newAddress;
+    }
+
+    @Mask(owner = "jdk/internal/misc/Unsafe", name = "freeMemory", type = MaskType.POST_PROCESS)
+    public static void freeMemory(Object receiver, long address, TagFrame frame) {
+        OffHeapTagStore.recordFree(address);
+    }
+
+    @Mask(owner = "sun/misc/Unsafe", name = "freeMemory", type = MaskType.POST_PROCESS)
+    public static void freeMemorySun(Object receiver, long address, TagFrame frame) {
+        if (Configuration.isJava8()) {
+            OffHeapTagStore.recordFree(address);
+        }
+    }
+
+    @Mask(owner = "sun/misc/Unsafe", name = "putByte", type = MaskType.POST_PROCESS)
+    public static void putByte(Object receiver, long address, byte x, TagFrame frame) {
+        putAddress(address, frame, byte[].class);
+    }
+
+    @Mask(owner = "sun/misc/Unsafe", name = "putChar", type = MaskType.POST_PROCESS)
+    public static void putChar(Object receiver, long address, char x, TagFrame frame) {
+        putAddress(address, frame, char[].class);
+    }
+
+    @Mask(owner = "sun/misc/Unsafe", name = "putDouble", type = MaskType.POST_PROCESS)
+    public static void putDouble(Object receiver, long address, double x, TagFrame frame) {
+        putAddress(address, frame, double[].class);
+    }
+
+    @Mask(owner = "sun/misc/Unsafe", name = "putFloat", type = MaskType.POST_PROCESS)
+    public static void putFloat(Object receiver, long address, float x, TagFrame frame) {
+        putAddress(address, frame, float[].class);
+    }
+
+    @Mask(owner = "sun/misc/Unsafe", name = "putInt", type = MaskType.POST_PROCESS)
+    public static void putInt(Object receiver, long address, int x, TagFrame frame) {
+        putAddress(address, frame, int[].class);
+    }
+
+    @Mask(owner = "sun/misc/Unsafe", name = "putLong", type = MaskType.POST_PROCESS)
+    public static void putLong(Object receiver, long address, long x, TagFrame frame) {
+        putAddress(address, frame, long[].class);
+    }
+
+    @Mask(owner = "sun/misc/Unsafe", name = "putShort", type = MaskType.POST_PROCESS)
+    public static void putShort(Object receiver, long address, short x, TagFrame frame) {
+        putAddress(address, frame, short[].class);
+    }
+
+    @Mask(owner = "sun/misc/Unsafe", name = "getByte", type = MaskType.POST_PROCESS)
+    public static byte getByte(byte returnValue, Object receiver, long address, TagFrame frame) {
+        getAddress(address, frame, byte[].class);
+        return returnValue;
+    }
+
+    @Mask(owner = "sun/misc/Unsafe", name = "getChar", type = MaskType.POST_PROCESS)
+    public static char getChar(char returnValue, Object receiver, long address, TagFrame frame) {
+        getAddress(address, frame, char[].class);
+        return returnValue;
+    }
+
+    @Mask(owner = "sun/misc/Unsafe", name = "getDouble", type = MaskType.POST_PROCESS)
+    public static double getDouble(double returnValue, Object receiver, long address, TagFrame frame) {
+        getAddress(address, frame, double[].class);
+        return returnValue;
+    }
+
+    @Mask(owner = "sun/misc/Unsafe", name = "getFloat", type = MaskType.POST_PROCESS)
+    public static float getFloat(float returnValue, Object receiver, long address, TagFrame frame) {
+        getAddress(address, frame, float[].class);
+        return returnValue;
+    }
+
+    @Mask(owner = "sun/misc/Unsafe", name = "getInt", type = MaskType.POST_PROCESS)
+    public static int getInt(int returnValue, Object receiver, long address, TagFrame frame) {
+        getAddress(address, frame, int[].class);
+        return returnValue;
+    }
+
+    @Mask(owner = "sun/misc/Unsafe", name = "getLong", type = MaskType.POST_PROCESS)
+    public static long getLong(long returnValue, Object receiver, long address, TagFrame frame) {
+        getAddress(address, frame, long[].class);
+        return returnValue;
+    }
+
+    @Mask(owner = "sun/misc/Unsafe", name = "getShort", type = MaskType.POST_PROCESS)
+    public static short getShort(short returnValue, Object receiver, long address, TagFrame frame) {
+        getAddress(address, frame, short[].class);
+        return returnValue;
+    }
+
     @Mask(owner = "jdk/internal/misc/Unsafe", name = "byte2bool", type = MaskType.POST_PROCESS)
     public static boolean byte2bool(boolean returnValue, Object receiver, byte b, TagFrame frame) {
         frame.setReturnTag(frame.get(1));
@@ -444,6 +603,41 @@ public final class UnsafeMasks {
         }
     }
 
+    private static void copyTags(
+            Object srcBase, long srcOffset, Object destBase, long destOffset, long bytes, long swapSize) {
+        if (UnsafeFlagAccessor.reserve()) {
+            try {
+                UnsafeTagLocator.copyTags(srcBase, srcOffset, destBase, destOffset, bytes, swapSize);
+            } finally {
+                UnsafeFlagAccessor.free();
+            }
+        }
+    }
+
+    private static void putAddress(long address, TagFrame frame, Class<?> arrayType) {
+        // On later versions of Java, the call is delegated to jdk.internal.misc.Unsafe
+        if (Configuration.isJava8() && UnsafeFlagAccessor.reserve()) {
+            try {
+                Tag addressTag = frame.get(1);
+                Tag xTag = frame.get(2);
+                UnsafeTagLocator.putTag(null, address, addressTag, xTag, arrayType);
+            } finally {
+                UnsafeFlagAccessor.free();
+            }
+        }
+    }
+
+    private static void getAddress(long address, TagFrame frame, Class<?> arrayType) {
+        if (Configuration.isJava8() && UnsafeFlagAccessor.reserve()) {
+            try {
+                Tag addressTag = frame.get(1);
+                frame.setReturnTag(UnsafeTagLocator.getTag(null, address, addressTag, arrayType));
+            } finally {
+                UnsafeFlagAccessor.free();
+            }
+        }
+    }
+
     private static boolean compareAndSwap(boolean result, Object o, long offset, TagFrame frame, Class<?> arrayType) {
         if (UnsafeFlagAccessor.reserve()) {
             try {
@@ -2,9 +2,10 @@ package edu.neu.ccs.prl.galette.internal.runtime.mask;
 
 import edu.neu.ccs.prl.galette.internal.runtime.ArrayTagStore;
 import edu.neu.ccs.prl.galette.internal.runtime.ArrayWrapper;
+import edu.neu.ccs.prl.galette.internal.runtime.OffHeapTagStore;
 import edu.neu.ccs.prl.galette.internal.runtime.Tag;
-import edu.neu.ccs.prl.galette.internal.runtime.collection.SimpleList;
 import edu.neu.ccs.prl.galette.internal.transform.ShadowFieldAdder;
+import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import org.objectweb.asm.Opcodes;
@@ -27,6 +28,8 @@ final class UnsafeTagLocator {
                     UNSAFE.putObject(o, shadowOffset, tag);
                 }
             }
+        } else {
+            putOffHeapTag(offset, offsetTag, tag, arrayType);
         }
     }
 
@@ -40,6 +43,15 @@ final class UnsafeTagLocator {
                     UNSAFE.putObjectVolatile(o, shadowOffset, tag);
                 }
             }
+        } else {
+            putOffHeapTag(offset, offsetTag, tag, arrayType);
+        }
+    }
+
+    private static void putOffHeapTag(long address, Tag addressTag, Tag tag, Class<?> arrayType) {
+        if (arrayType != Object[].class) {
+            // Propagate the address's tag
+            OffHeapTagStore.setTag(address, UNSAFE.arrayIndexScale(arrayType), Tag.union(addressTag, tag));
         }
     }
 
@@ -50,31 +62,18 @@ final class UnsafeTagLocator {
         ArrayWrapper wrapper = ArrayTagStore.getWrapper(array, tag);
         if (wrapper != null) {
             int index = computeArrayIndex(array, offset);
-            int scale = UNSAFE.arrayIndexScale(array.getClass());
-            int typeScale = UNSAFE.arrayIndexScale(arrayType);
-            if (scale >= typeScale) {
-                // Aligned access, or partial value unaligned
-                putArrayTag(wrapper, index, tag, volatileAccess);
-            } else {
-                // Unaligned access
-                int count = typeScale / scale;
-                for (int i = 0; i < count && index + i < wrapper.size(); i++) {
-                    putArrayTag(wrapper, index + i, tag, volatileAccess);
+            int end = computeAccessEnd(wrapper, array, index, arrayType);
+            // Per-element storage is only allocated if the tag differs from the tag shared by every element
+            wrapper.fillElements(tag, index, end);
+            Tag[] tags = wrapper.peekElements();
+            if (volatileAccess && tags != null) {
+                for (int i = index; i < end; i++) {
+                    UNSAFE.putObjectVolatile(tags, computeTagOffset(i), tag);
                 }
             }
         }
     }
 
-    private static void putArrayTag(ArrayWrapper wrapper, int index, Tag tag, boolean volatileAccess) {
-        if (volatileAccess) {
-            long shadowOffset =
-                    UNSAFE.arrayBaseOffset(Tag[].class) + (long) UNSAFE.arrayIndexScale(Tag[].class) * index;
-            UNSAFE.putObjectVolatile(wrapper.getElements(), shadowOffset, tag);
-        } else {
-            wrapper.setElement(tag, index);
-        }
-    }
-
     static Tag getTag(Object o, long offset, Tag offsetTag, Class<?> arrayType) {
         if (o != null) {
             if (o.getClass().isArray()) {
@@ -88,6 +87,8 @@ final class UnsafeTagLocator {
                     }
                 }
             }
+        } else {
+            return getOffHeapTag(offset, offsetTag, arrayType);
         }
         return Tag.emptyTag();
     }
@@ -105,10 +106,20 @@ final class UnsafeTagLocator {
                     }
                 }
             }
+        } else {
+            return getOffHeapTag(offset, offsetTag, arrayType);
         }
         return Tag.emptyTag();
     }
 
+    private static Tag getOffHeapTag(long address, Tag addressTag, Class<?> arrayType) {
+        if (arrayType == Object[].class) {
+            return Tag.emptyTag();
+        }
+        // Propagate the address's tag
+        return Tag.union(addressTag, OffHeapTagStore.getTag(address, UNSAFE.arrayIndexScale(arrayType)));
+    }
+
     private static Tag getArrayTag(
             Object array, long offset, Tag offsetTag, Class<?> arrayType, boolean volatileAccess) {
         ArrayWrapper wrapper = ArrayTagStore.getWrapper(array);
@@ -116,30 +127,182 @@ final class UnsafeTagLocator {
         Tag result = offsetTag;
         if (wrapper != null) {
             int index = computeArrayIndex(array, offset);
-            int scale = UNSAFE.arrayIndexScale(array.getClass());
-            int typeScale = UNSAFE.arrayIndexScale(arrayType);
-            if (scale >= typeScale) {
-                // Aligned access, or partial value unaligned
-                result = Tag.union(result, getArrayTag(wrapper, index, volatileAccess));
-            } else {
-                // Unaligned access
-                int count = typeScale / scale;
-                for (int i = 0; i < count && index + i < wrapper.size(); i++) {
-                    result = Tag.union(result, getArrayTag(wrapper, index + i, volatileAccess));
+            int end = computeAccessEnd(wrapper, array, index, arrayType);
+            Tag[] tags = volatileAccess ? wrapper.peekElements() : null;
+            if (tags != null) {
+                for (int i = index; i < end; i++) {
+                    result = Tag.union(result, (Tag) UNSAFE.getObjectVolatile(tags, computeTagOffset(i)));
                 }
+            } else {
+                result = Tag.union(result, wrapper.unionElements(index, end));
             }
         }
         return result;
     }
 
-    private static Tag getArrayTag(ArrayWrapper wrapper, int index, boolean volatileAccess) {
-        if (volatileAccess) {
-            long shadowOffset =
-                    UNSAFE.arrayBaseOffset(Tag[].class) + (long) UNSAFE.arrayIndexScale(Tag[].class) * index;
-            return (Tag) UNSAFE.getObjectVolatile(wrapper.getElements(), shadowOffset);
-        } else {
-            return wrapper.getElement(index);
+    /**
+     * Returns the index of the element after the last element of the specified array that is accessed when a value of
+     * the specified array type's component type is accessed starting at the specified index.
+     */
+    private static int computeAccessEnd(ArrayWrapper wrapper, Object array, int index, Class<?> arrayType) {
+        int scale = UNSAFE.arrayIndexScale(array.getClass());
+        int typeScale = UNSAFE.arrayIndexScale(arrayType);
+        if (scale >= typeScale) {
+            // Aligned access, or partial value unaligned
+            return index + 1;
         }
+        // Unaligned access
+        return Math.min(index + typeScale / scale, wrapper.size());
+    }
+
+    private static long computeTagOffset(int index) {
+        return UNSAFE.arrayBaseOffset(Tag[].class) + (long) UNSAFE.arrayIndexScale(Tag[].class) * index;
+    }
+
+    /**
+     * Propagates tags for a copy of the specified number of bytes from the source to the destination.
+     * Tags are tracked for arrays and for off-heap memory; other memory is treated as having empty tags.
+     * If the bytes of each unit of the specified swap size were reversed by the copy, each element of the destination
+     * that overlaps a unit is given the union of the tags of the source elements that overlap the unit.
+     *
+     * @param srcBase the base object of the source or {@code null} if the source address is absolute
+     * @param srcOffset the offset of the source
+     * @param destBase the base object of the destination or {@code null} if the destination address is absolute
+     * @param destOffset the offset of the destination
+     * @param bytes the number of bytes that were copied
+     * @param swapSize the size in bytes of the units whose bytes were reversed or 1 if no bytes were reversed
+     */
+    static void copyTags(Object srcBase, long srcOffset, Object destBase, long destOffset, long bytes, long swapSize) {
+        if (bytes <= 0 || (destBase != null && !destBase.getClass().isArray())) {
+            return;
+        }
+        ArrayWrapper source = getWrapper(srcBase);
+        ArrayWrapper destination = getWrapper(destBase);
+        int srcScale = getScale(srcBase);
+        int destScale = getScale(destBase);
+        if (srcScale == destScale && swapSize <= srcScale) {
+            // Each element is copied as a whole
+            if (srcBase == null && destBase == null) {
+                OffHeapTagStore.copyTags(srcOffset, destOffset, bytes);
+            } else if (srcBase == null) {
+                Tag union = OffHeapTagStore.getTag(srcOffset, bytes);
+                if (destination == null) {
+                    destination = ArrayTagStore.getWrapper(destBase, union);
+                }
+                if (destination != null) {
+                    int start = computeArrayIndex(destBase, destOffset);
+                    int end = computeRangeEnd(destBase, destOffset, bytes);
+                    if (Tag.isEmpty(union)) {
+                        destination.fillElements(Tag.emptyTag(), start, end);
+                    } else {
+                        Tag[] tags = new Tag[end - start];
+                        OffHeapTagStore.getTags(srcOffset, tags, 0, tags.length);
+                        destination.setElements(tags, 0, start, tags.length);
+                    }
+                }
+            } else if (destBase == null) {
+                if (source == null) {
+                    OffHeapTagStore.setTag(destOffset, bytes, Tag.emptyTag());
+                } else {
+                    int start = computeArrayIndex(srcBase, srcOffset);
+                    int end = computeRangeEnd(srcBase, srcOffset, bytes);
+                    Tag[] tags = source.peekElements();
+                    if (tags == null) {
+                        OffHeapTagStore.setTag(destOffset, end - start, source.unionElements(start, end));
+                    } else {
+                        OffHeapTagStore.setTags(tags, start, destOffset, end - start);
+                    }
+                }
+            } else if (source == null) {
+                if (destination != null) {
+                    // The copied values have empty tags
+                    int start = computeArrayIndex(destBase, destOffset);
+                    destination.fillElements(Tag.emptyTag(), start, computeRangeEnd(destBase, destOffset, bytes));
+                }
+            } else {
+                int srcStart = computeArrayIndex(srcBase, srcOffset);
+                int destStart = computeArrayIndex(destBase, destOffset);
+                int length = Math.min(
+                        computeRangeEnd(srcBase, srcOffset, bytes) - srcStart, Array.getLength(destBase) - destStart);
+                if (length > 0) {
+                    ArrayTagStore.arraycopyTags(srcBase, srcStart, destBase, destStart, length);
+                }
+            }
+            return;
+        }
+        // Propagate tags between units whose size is a multiple of the element sizes and the swap size
+        long unit = Math.max(swapSize, Math.max(srcScale, destScale));
+        Tag[] tags = new Tag[(int) ((bytes + unit - 1) / unit)];
+        for (int i = 0; i < tags.length; i++) {
+            long length = Math.min(unit, bytes - unit * i);
+            tags[i] = getRangeTag(srcBase, source, srcOffset + unit * i, length);
+        }
+        if (destBase != null && destination == null) {
+            destination = ArrayTagStore.getWrapper(destBase, Tag.union(tags));
+            if (destination == null) {
+                return;
+            }
+        }
+        for (int i = 0; i < tags.length; i++) {
+            long length = Math.min(unit, bytes - unit * i);
+            setRangeTag(destBase, destination, destOffset + unit * i, length, tags[i]);
+        }
+    }
+
+    /**
+     * Sets the tags for the specified number of bytes starting at the specified offset of the specified object.
+     *
+     * @param o the base object or {@code null} if the address is absolute
+     * @param offset the offset of the first byte
+     * @param bytes the number of bytes that were set
+     * @param tag the tag to be set
+     */
+    static void fillTags(Object o, long offset, long bytes, Tag tag) {
+        if (bytes > 0 && (o == null || o.getClass().isArray())) {
+            setRangeTag(o, o == null ? null : ArrayTagStore.getWrapper(o, tag), offset, bytes, tag);
+        }
+    }
+
+    private static Tag getRangeTag(Object base, ArrayWrapper wrapper, long offset, long bytes) {
+        if (base == null) {
+            return OffHeapTagStore.getTag(offset, bytes);
+        } else if (wrapper == null) {
+            return Tag.emptyTag();
+        }
+        return wrapper.unionElements(computeArrayIndex(base, offset), computeRangeEnd(base, offset, bytes));
+    }
+
+    private static void setRangeTag(Object base, ArrayWrapper wrapper, long offset, long bytes, Tag tag) {
+        if (base == null) {
+            OffHeapTagStore.setTag(offset, bytes, tag);
+        } else if (wrapper != null) {
+            wrapper.fillElements(tag, computeArrayIndex(base, offset), computeRangeEnd(base, offset, bytes));
+        }
+    }
+
+    /**
+     * Returns the wrapper for the specified object if it is an array, otherwise {@code null}.
+     */
+    private static ArrayWrapper getWrapper(Object o) {
+        return o != null && o.getClass().isArray() ? ArrayTagStore.getWrapper(o) : null;
+    }
+
+    /**
+     * Returns the number of bytes per element of the specified object if it is an array, otherwise {@code 1}.
+     */
+    private static int getScale(Object o) {
+        return o != null && o.getClass().isArray() ? UNSAFE.arrayIndexScale(o.getClass()) : 1;
+    }
+
+    /**
+     * Returns the index of the element after the last element of the specified array that overlaps the range of
+     * bytes of the specified length starting at the specified offset.
+     */
+    private static int computeRangeEnd(Object array, long offset, long bytes) {
+        Class<?> clazz = array.getClass();
+        long scale = UNSAFE.arrayIndexScale(clazz);
+        long end = (offset + bytes - UNSAFE.arrayBaseOffset(clazz) + scale - 1) / scale;
+        return (int) Math.min(end, Array.getLength(array));
     }
 
     private static long getShadowOffset(Object o, long offset) {
@@ -150,18 +313,12 @@ final class UnsafeTagLocator {
         // but they are also used to access instance fields of java.lang.Class
         boolean isStatic = o instanceof Class && offset > getLastInstanceOffsetInClass();
         Class<?> owner = isStatic ? (Class<?>) o : o.getClass();
-        SimpleList<OffsetEntry> shadowOffsets = getShadowOffsets(owner);
+        ShadowOffsetTable shadowOffsets = getShadowOffsets(owner);
         if (shadowOffsets == null) {
             shadowOffsets = computeShadowOffsets(owner);
             putShadowOffsets(owner, shadowOffsets);
         }
-        for (int i = 0; i < shadowOffsets.size(); i++) {
-            OffsetEntry entry = shadowOffsets.get(i);
-            if (entry.originalOffset == offset && entry.isStatic == isStatic) {
-                return entry.shadowOffset;
-            }
-        }
-        return UNSAFE.getInvalidFieldOffset();
+        return shadowOffsets.getShadowOffset(isStatic, offset, UNSAFE.getInvalidFieldOffset());
     }
 
     private static long getLastInstanceOffsetInClass() {
@@ -192,18 +349,27 @@ final class UnsafeTagLocator {
 
     @SuppressWarnings("unused")
     @MemberAccess(owner = "java/lang/Class", name = "$$GALETTE_OFFSET_CACHE", opcode = Opcodes.GETFIELD)
-    private static SimpleList<OffsetEntry> getShadowOffsets(Class<?> clazz) {
+    private static ShadowOffsetTable getShadowOffsets(Class<?> clazz) {
         throw new AssertionError("Placeholder method was called");
     }
 
     @SuppressWarnings("unused")
     @MemberAccess(owner = "java/lang/Class", name = "$$GALETTE_OFFSET_CACHE", opcode = Opcodes.PUTFIELD)
-    private static void putShadowOffsets(Class<?> clazz, SimpleList<OffsetEntry> shadowOffsets) {
+    private static void putShadowOffsets(Class<?> clazz, ShadowOffsetTable shadowOffsets) {
         throw new AssertionError("Placeholder method was called");
     }
 
-    private static SimpleList<OffsetEntry> computeShadowOffsets(Class<?> targetClazz) {
-        SimpleList<OffsetEntry> list = new SimpleList<>();
+    private static ShadowOffsetTable computeShadowOffsets(Class<?> targetClazz) {
+        int size = 0;
+        for (Class<?> clazz = targetClazz;
+                clazz != null && !Object.class.equals(clazz);
+                clazz = clazz.getSuperclass()) {
+            size += clazz.getDeclaredFields().length;
+        }
+        boolean[] isStatics = new boolean[size];
+        long[] offsets = new long[size];
+        long[] shadowOffsets = new long[size];
+        int count = 0;
         for (Class<?> clazz = targetClazz;
                 clazz != null && !Object.class.equals(clazz);
                 clazz = clazz.getSuperclass()) {
@@ -212,13 +378,16 @@ final class UnsafeTagLocator {
                     boolean isStatic = Modifier.isStatic(field.getModifiers());
                     long fieldOffset = (isStatic ? UNSAFE.staticFieldOffset(field) : UNSAFE.objectFieldOffset(field));
                     long tagOffset = getTagOffset(clazz, field, isStatic);
-                    list.add(new OffsetEntry(isStatic, fieldOffset, tagOffset));
+                    // Fields of subclasses precede those of superclasses and take precedence
+                    isStatics[count] = isStatic;
+                    offsets[count] = fieldOffset;
+                    shadowOffsets[count++] = tagOffset;
                 } catch (Exception e) {
                     //
                 }
             }
         }
-        return list;
+        return new ShadowOffsetTable(count, isStatics, offsets, shadowOffsets);
     }
 
     private static long getTagOffset(Class<?> clazz, Field field, boolean isStatic) {
@@ -232,16 +401,4 @@ final class UnsafeTagLocator {
         }
         return UNSAFE.getInvalidFieldOffset();
     }
-
-    private static final class OffsetEntry {
-        private final boolean isStatic;
-        private final long originalOffset;
-        private final long shadowOffset;
-
-        OffsetEntry(boolean isStatic, long originalOffset, long shadowOffset) {
-            this.isStatic = isStatic;
-            this.originalOffset = originalOffset;
-            this.shadowOffset = shadowOffset;
-        }
-    }
 }
@@ -0,0 +1,150 @@
+package edu.neu.ccs.prl.galette.internal.transform;
+
+import edu.neu.ccs.prl.galette.internal.runtime.collection.SimpleMap;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Class files that were instrumented ahead of time.
+ * <p>
+ * A store is a directory containing a manifest file named {@link #MANIFEST_NAME} and a directory named
+ * {@link #CLASSES_DIRECTORY_NAME} in which instrumented class files are stored by the checksum of the original class
+ * file.
+ * The first line of the manifest is {@code version <checksum>}, where {@code <checksum>} is the
+ * {@link #computeVersion(File) checksum} of the agent JAR whose classes were used to instrument the classes.
+ * Each subsequent line describes an instrumented class and has the form
+ * {@code <class name> <original checksum> <instrumented checksum>}.
+ * <p>
+ * Checksums are computed with {@link FileUtil#checksum(byte[])} and written as lowercase hexadecimal strings.
+ * A class whose name is not listed in the manifest is not hashed.
+ */
+public final class AheadOfTimeStore {
+    /**
+     * Name of the manifest file of a store.
+     * <p>
+     * Non-null.
+     */
+    public static final String MANIFEST_NAME = "galette-aot.manifest";
+    /**
+     * Name of the directory of a store in which instrumented class files are stored.
+     * <p>
+     * Non-null.
+     */
+    public static final String CLASSES_DIRECTORY_NAME = "classes";
+    /**
+     * Directory in which instrumented class files are stored.
+     * <p>
+     * Non-null.
+     */
+    private final File classesDirectory;
+    /**
+     * Map from class names to the entries for classes with that name.
+     * Not modified after construction.
+     * <p>
+     * Non-null.
+     */
+    private final SimpleMap<String, Entry> entries = new SimpleMap<>();
+
+    private AheadOfTimeStore(File directory) {
+        this.classesDirectory = new File(directory, CLASSES_DIRECTORY_NAME);
+    }
+
+    /**
+     * Returns the instrumented form of the specified class file.
+     * If the specified class file is already the output of ahead-of-time instrumentation, it is returned as is.
+     *
+     * @param className the internal name of the class
+     * @param classFileBuffer the class file to be instrumented
+     * @return the instrumented form of the class file or {@code null} if the class file is not in this store
+     * @throws IOException if an I/O error occurs reading a stored class file
+     */
+    public byte[] find(String className, byte[] classFileBuffer) throws IOException {
+        Entry entry = entries.get(className);
+        if (entry == null || !FileUtil.isInitialized()) {
+            return null;
+        }
+        String checksum = FileUtil.toHexString(FileUtil.checksum(classFileBuffer));
+        for (; entry != null; entry = entry.next) {
+            if (entry.instrumented.equals(checksum)) {
+                return classFileBuffer;
+            } else if (entry.original.equals(checksum)) {
+                return Files.readAllBytes(
+                        getClassFile(classesDirectory, checksum).toPath());
+            }
+        }
+        return null;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Loads the store located in the specified directory.
+     *
+     * @param directory the directory in which the store is located
+     * @param agentJar the JAR file whose version is compared against the version of the store
+     * @return the store or {@code null} if the store was created by a different version of the agent
+     * @throws IOException if an I/O error occurs reading the manifest or the manifest is malformed
+     */
+    public static AheadOfTimeStore load(File directory, File agentJar) throws IOException {
+        File manifest = new File(directory, MANIFEST_NAME);
+        try (BufferedReader reader = new BufferedReader(new FileReader(manifest))) {
+            String header = reader.readLine();
+            if (header == null || !header.startsWith("version ")) {
+                throw new IOException("Missing version in ahead-of-time manifest: " + manifest);
+            } else if (!header.substring("version ".length()).equals(computeVersion(agentJar))) {
+                return null;
+            }
+            AheadOfTimeStore store = new AheadOfTimeStore(directory);
+            for (String line; (line = reader.readLine()) != null; ) {
+                String[] parts = line.trim().split(" ");
+                if (parts.length != 3) {
+                    throw new IOException("Malformed ahead-of-time manifest entry: " + line);
+                }
+                store.entries.put(parts[0], new Entry(parts[1], parts[2], store.entries.get(parts[0])));
+            }
+            return store;
+        }
+    }
+
+    /**
+     * Returns the location at which the instrumented form of the class file with the specified checksum is stored.
+     *
+     * @param classesDirectory the {@link #CLASSES_DIRECTORY_NAME classes directory} of a store
+     * @param checksum the checksum of the original class file as a hexadecimal string
+     * @return the location of the instrumented class file
+     */
+    public static File getClassFile(File classesDirectory, String checksum) {
+        return new File(classesDirectory, checksum + ".class");
+    }
+
+    /**
+     * Returns the checksum of the specified agent JAR file as a hexadecimal string.
+     *
+     * @param agentJar the agent JAR file
+     * @return the version of the agent JAR file
+     * @throws IOException if an I/O error occurs reading the JAR file
+     */
+    public static String computeVersion(File agentJar) throws IOException {
+        return FileUtil.toHexString(FileUtil.checksum(Files.readAllBytes(agentJar.toPath())));
+    }
+
+    private static final class Entry {
+        private final String original;
+        private final String instrumented;
+        /**
+         * Next entry for a class with the same name or {@code null}.
+         */
+        private final Entry next;
+
+        private Entry(String original, String instrumented, Entry next) {
+            this.original = original;
+            this.instrumented = instrumented;
+            this.next = next;
+        }
+    }
+}
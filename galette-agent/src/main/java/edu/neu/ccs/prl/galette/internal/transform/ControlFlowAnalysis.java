@@ -0,0 +1,325 @@
+package edu.neu.ccs.prl.galette.internal.transform;
+
+import static org.objectweb.asm.Opcodes.*;
+
+import java.util.Arrays;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.analysis.Analyzer;
+import org.objectweb.asm.tree.analysis.AnalyzerException;
+import org.objectweb.asm.tree.analysis.BasicInterpreter;
+import org.objectweb.asm.tree.analysis.BasicValue;
+import org.objectweb.asm.tree.analysis.Frame;
+
+/**
+ * Intraprocedural analysis that finds the immediate post-dominator of each conditional branch in a method.
+ * <p>
+ * The branches of a method are its conditional jumps and switches.
+ * A value stored after a branch is taken and before the branch's immediate post-dominator is reached is control
+ * dependent on the branch's condition.
+ * Post-dominators are computed over the normal control flow edges of the method; returns and throws are treated as
+ * edges to a single exit node and exceptional edges are ignored.
+ * Post-dominators are identified by the label that precedes them, so that {@link TagPropagator} can recognize them
+ * when the method is visited.
+ */
+final class ControlFlowAnalysis {
+    /**
+     * Label of the immediate post-dominator of each branch in instruction order.
+     * An element is {@code null} if the corresponding branch is only post-dominated by the exit of the method.
+     * <p>
+     * Non-null.
+     */
+    private final LabelNode[] postDominators;
+    /**
+     * Number of operand stack slots below the operands of each branch in instruction order.
+     * Values on the operand stack above this depth when the branch's immediate post-dominator is reached were
+     * produced while the execution was control dependent on the branch.
+     * <p>
+     * Non-null.
+     */
+    private final int[] stackSlots;
+    /**
+     * Index of the branch at each index of the analyzed method's instruction list or -1 if the instruction at that
+     * index is not a branch.
+     * <p>
+     * Non-null.
+     */
+    private final int[] branches;
+
+    private ControlFlowAnalysis(LabelNode[] postDominators, int[] stackSlots, int[] branches) {
+        this.postDominators = postDominators;
+        this.stackSlots = stackSlots;
+        this.branches = branches;
+    }
+
+    /**
+     * Returns the number of branches in the analyzed method.
+     *
+     * @return the number of branches in the analyzed method
+     */
+    int getBranchCount() {
+        return postDominators.length;
+    }
+
+    /**
+     * Returns the index of the branch at the specified index of the analyzed method's instruction list.
+     *
+     * @param insnIndex the index of an instruction in the analyzed method's instruction list
+     * @return the index of the branch in instruction order or -1 if the instruction is not a branch
+     * @see org.objectweb.asm.tree.InsnList#indexOf(AbstractInsnNode)
+     */
+    int getBranch(int insnIndex) {
+        return insnIndex >= 0 && insnIndex < branches.length ? branches[insnIndex] : -1;
+    }
+
+    /**
+     * Returns the label of the immediate post-dominator of the branch with the specified index.
+     *
+     * @param branch the index of the branch in instruction order
+     * @return the label of the branch's immediate post-dominator or {@code null} if the branch is only post-dominated
+     * by the exit of the method
+     */
+    LabelNode getPostDominator(int branch) {
+        return postDominators[branch];
+    }
+
+    /**
+     * Returns the number of operand stack slots below the operands of the branch with the specified index.
+     *
+     * @param branch the index of the branch in instruction order
+     * @return the number of operand stack slots below the operands of the branch
+     */
+    int getStackSlots(int branch) {
+        return stackSlots[branch];
+    }
+
+    /**
+     * Analyzes the specified method.
+     * Returns {@code null} if the method could not be analyzed.
+     *
+     * @param owner the internal name of the class that owns the method
+     * @param mn the method to be analyzed
+     * @return the results of the analysis or {@code null}
+     */
+    static ControlFlowAnalysis analyze(String owner, MethodNode mn) {
+        InsnList instructions = mn.instructions;
+        int size = instructions.size();
+        int[] branchIndices = new int[size];
+        Arrays.fill(branchIndices, -1);
+        int branches = 0;
+        for (int i = 0; i < size; i++) {
+            if (isBranch(instructions.get(i).getOpcode())) {
+                branchIndices[i] = branches++;
+            }
+        }
+        LabelNode[] postDominators = new LabelNode[branches];
+        int[] stackSlots = new int[branches];
+        if (branches == 0) {
+            return new ControlFlowAnalysis(postDominators, stackSlots, branchIndices);
+        }
+        int[] counts = new int[size + 1];
+        int[][] successors = new int[size + 1][];
+        Analyzer<BasicValue> analyzer = new Analyzer<BasicValue>(new BasicInterpreter()) {
+            @Override
+            protected void newControlFlowEdge(int insnIndex, int successorIndex) {
+                add(successors, counts, insnIndex, successorIndex);
+            }
+        };
+        Frame<BasicValue>[] frames;
+        try {
+            frames = analyzer.analyze(owner, mn);
+        } catch (AnalyzerException e) {
+            return null;
+        }
+        for (int i = 0; i < size; i++) {
+            int opcode = instructions.get(i).getOpcode();
+            if (frames[i] != null && (opcode >= IRETURN && opcode <= RETURN || opcode == ATHROW)) {
+                // Returns and throws are treated as edges to the exit node
+                add(successors, counts, i, size);
+            }
+        }
+        int[] dominators = computePostDominators(trim(successors, counts));
+        for (int i = 0; i < size; i++) {
+            int branch = branchIndices[i];
+            if (branch != -1) {
+                int opcode = instructions.get(i).getOpcode();
+                postDominators[branch] = findLabel(instructions, dominators[i]);
+                // Frames are null for unreachable instructions
+                stackSlots[branch] = frames[i] == null ? 0 : countStackSlots(frames[i], getOperandCount(opcode));
+            }
+        }
+        return new ControlFlowAnalysis(postDominators, stackSlots, branchIndices);
+    }
+
+    private static int getOperandCount(int opcode) {
+        return opcode >= IF_ICMPEQ && opcode <= IF_ACMPNE ? 2 : 1;
+    }
+
+    private static int countStackSlots(Frame<BasicValue> frame, int operands) {
+        int slots = 0;
+        for (int i = 0; i < frame.getStackSize() - operands; i++) {
+            slots += frame.getStack(i).getSize();
+        }
+        return slots;
+    }
+
+    /**
+     * Returns {@code true} if the instruction with the specified opcode is a branch.
+     *
+     * @param opcode the opcode of the instruction
+     * @return {@code true} if the instruction is a conditional jump or a switch
+     */
+    static boolean isBranch(int opcode) {
+        return opcode >= IFEQ && opcode <= IF_ACMPNE
+                || opcode == IFNULL
+                || opcode == IFNONNULL
+                || opcode == TABLESWITCH
+                || opcode == LOOKUPSWITCH;
+    }
+
+    private static int[][] trim(int[][] lists, int[] counts) {
+        for (int i = 0; i < lists.length; i++) {
+            int[] trimmed = new int[counts[i]];
+            if (counts[i] > 0) {
+                System.arraycopy(lists[i], 0, trimmed, 0, counts[i]);
+            }
+            lists[i] = trimmed;
+        }
+        return lists;
+    }
+
+    private static void add(int[][] lists, int[] counts, int from, int to) {
+        int[] list = lists[from];
+        int count = counts[from];
+        for (int i = 0; i < count; i++) {
+            if (list[i] == to) {
+                return;
+            }
+        }
+        if (list == null) {
+            list = lists[from] = new int[2];
+        } else if (count == list.length) {
+            int[] grown = new int[count * 2];
+            System.arraycopy(list, 0, grown, 0, count);
+            list = lists[from] = grown;
+        }
+        list[count] = to;
+        counts[from]++;
+    }
+
+    /**
+     * Computes the immediate post-dominator of each node of the specified control flow graph using the iterative
+     * algorithm described by Cooper, Harvey, and Kennedy in "A Simple, Fast Dominance Algorithm" on the reverse of
+     * the graph.
+     * The last node of the graph is its exit node; the exit node of a method is given the index
+     * {@code mn.instructions.size()} and is the successor of every reachable return and throw.
+     *
+     * @return the index of the immediate post-dominator of each node or -1 if the node cannot reach the exit node
+     */
+    static int[] computePostDominators(int[][] successors) {
+        int exit = successors.length - 1;
+        int[][] predecessors = invert(successors);
+        // Number the nodes that can reach the exit node in post order with respect to the reverse graph
+        int[] order = new int[successors.length];
+        int[] postOrder = new int[successors.length];
+        Arrays.fill(postOrder, -1);
+        int count = 0;
+        int[] stack = new int[successors.length];
+        int[] next = new int[successors.length];
+        boolean[] visited = new boolean[successors.length];
+        int top = 0;
+        stack[top++] = exit;
+        visited[exit] = true;
+        while (top > 0) {
+            int node = stack[top - 1];
+            if (next[node] < predecessors[node].length) {
+                int predecessor = predecessors[node][next[node]++];
+                if (!visited[predecessor]) {
+                    visited[predecessor] = true;
+                    stack[top++] = predecessor;
+                }
+            } else {
+                top--;
+                postOrder[node] = count;
+                order[count++] = node;
+            }
+        }
+        int[] dominators = new int[successors.length];
+        Arrays.fill(dominators, -1);
+        dominators[exit] = exit;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            // Visit nodes in reverse post order skipping the exit node
+            for (int i = count - 2; i >= 0; i--) {
+                int node = order[i];
+                int dominator = -1;
+                for (int successor : successors[node]) {
+                    if (dominators[successor] != -1) {
+                        dominator =
+                                dominator == -1 ? successor : intersect(dominators, postOrder, successor, dominator);
+                    }
+                }
+                if (dominators[node] != dominator) {
+                    dominators[node] = dominator;
+                    changed = true;
+                }
+            }
+        }
+        dominators[exit] = -1;
+        return dominators;
+    }
+
+    private static int intersect(int[] dominators, int[] postOrder, int node1, int node2) {
+        while (node1 != node2) {
+            while (postOrder[node1] < postOrder[node2]) {
+                node1 = dominators[node1];
+            }
+            while (postOrder[node2] < postOrder[node1]) {
+                node2 = dominators[node2];
+            }
+        }
+        return node1;
+    }
+
+    private static int[][] invert(int[][] successors) {
+        int[] counts = new int[successors.length];
+        for (int[] list : successors) {
+            for (int successor : list) {
+                counts[successor]++;
+            }
+        }
+        int[][] predecessors = new int[successors.length][];
+        for (int i = 0; i < successors.length; i++) {
+            predecessors[i] = new int[counts[i]];
+            counts[i] = 0;
+        }
+        for (int i = 0; i < successors.length; i++) {
+            for (int successor : successors[i]) {
+                predecessors[successor][counts[successor]++] = i;
+            }
+        }
+        return predecessors;
+    }
+
+    /**
+     * Returns the label that marks the instruction at the specified index.
+     * Returns {@code null} if the index is not that of an instruction or the instruction is not preceded by a label.
+     */
+    private static LabelNode findLabel(InsnList instructions, int index) {
+        if (index < 0 || index >= instructions.size()) {
+            return null;
+        }
+        AbstractInsnNode insn = instructions.get(index);
+        // Skip over line numbers and frames between the instruction and its label
+        while (insn != null && !(insn instanceof LabelNode)) {
+            insn = insn.getPrevious();
+            if (insn != null && insn.getOpcode() != -1) {
+                return null;
+            }
+        }
+        return (LabelNode) insn;
+    }
+}
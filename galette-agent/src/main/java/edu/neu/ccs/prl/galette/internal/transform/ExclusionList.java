@@ -24,18 +24,16 @@ public final class ExclusionList {
     }
 
     public static boolean startsWith(String receiver, String prefix) {
-        char[] values = receiver.toCharArray();
-        char[] prefixValues = prefix.toCharArray();
-        if (values.length < prefixValues.length) {
+        int length = prefix.length();
+        if (receiver.length() < length) {
             return false;
-        } else {
-            for (int i = 0; i < prefixValues.length; i++) {
-                if (values[i] != prefixValues[i]) {
-                    return false;
-                }
+        }
+        for (int i = 0; i < length; i++) {
+            if (receiver.charAt(i) != prefix.charAt(i)) {
+                return false;
             }
-            return true;
         }
+        return true;
     }
 
     public static ExclusionList createFromProperty(String key) {
@@ -12,6 +12,12 @@ public final class FileUtil {
      * Non-null.
      */
     private static final MessageDigest digest;
+    /**
+     * Lowercase hexadecimal digits indexed by value.
+     * <p>
+     * Non-null.
+     */
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
 
     static {
         try {
@@ -51,4 +57,19 @@ public final class FileUtil {
             return digest.digest(input);
         }
     }
+
+    /**
+     * Returns the lowercase hexadecimal representation of the specified bytes.
+     *
+     * @param bytes the bytes to be converted
+     * @return the hexadecimal representation of the bytes
+     */
+    public static String toHexString(byte[] bytes) {
+        char[] result = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            result[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0xF];
+            result[2 * i + 1] = HEX_DIGITS[bytes[i] & 0xF];
+        }
+        return new String(result);
+    }
 }
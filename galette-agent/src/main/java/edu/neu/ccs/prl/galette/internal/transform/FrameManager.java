@@ -1,5 +1,6 @@
 package edu.neu.ccs.prl.galette.internal.transform;
 
+import edu.neu.ccs.prl.galette.internal.runtime.ControlTagStack;
 import edu.neu.ccs.prl.galette.internal.runtime.Handle;
 import edu.neu.ccs.prl.galette.internal.runtime.TagFrame;
 import edu.neu.ccs.prl.galette.internal.runtime.collection.SimpleList;
@@ -25,11 +26,23 @@ class FrameManager extends MethodVisitor {
      * Local variable index used to store the caller class for this method.
      */
     private final int callerIndex;
+    /**
+     * Number of slots reserved on the {@link ControlTagStack} by this method or -1 if this method does not reserve
+     * slots.
+     */
+    private final int controlSlots;
+    /**
+     * Local variable index used to store the index of the first slot reserved by this method on the
+     * {@link ControlTagStack} or -1 if this method does not reserve slots.
+     */
+    private final int controlIndex;
 
-    FrameManager(FrameInitializer initializer) {
+    FrameManager(FrameInitializer initializer, int controlSlots) {
         super(GaletteTransformer.ASM_VERSION, initializer);
         this.initializer = initializer;
         this.callerIndex = initializer.lastAddedLocalIndex() + 1;
+        this.controlSlots = controlSlots;
+        this.controlIndex = controlSlots < 0 ? -1 : callerIndex + 1;
     }
 
     @Override
@@ -49,6 +62,14 @@ class FrameManager extends MethodVisitor {
         loadFrame();
         Handle.FRAME_GET_CALLER.accept(mv);
         super.visitVarInsn(Opcodes.ASTORE, callerIndex);
+        if (controlIndex != -1) {
+            // Create and initialize the control stack mark local variable
+            super.visitLocalVariable(
+                    GaletteNames.getShadowVariableName("control"), "I", null, localsStart, localsEnd, controlIndex);
+            AsmUtil.pushInt(mv, controlSlots);
+            Handle.CONTROL_STACK_ENTER.accept(mv);
+            super.visitVarInsn(Opcodes.ISTORE, controlIndex);
+        }
     }
 
     @Override
@@ -96,12 +117,26 @@ class FrameManager extends MethodVisitor {
     }
 
     public int lastAddedLocalIndex() {
-        return callerIndex;
+        return controlIndex == -1 ? callerIndex : controlIndex;
     }
 
     public void appendAddedLocals(SimpleList<Object> locals) {
         initializer.appendAddedLocals(locals);
         locals.add(GaletteNames.CLASS_INTERNAL_NAME);
+        if (controlIndex != -1) {
+            locals.add(Opcodes.INTEGER);
+        }
+    }
+
+    int getControlSlots() {
+        return controlSlots;
+    }
+
+    /**
+     * stack: ... -> ..., mark
+     */
+    void loadControlMark() {
+        super.visitVarInsn(Opcodes.ILOAD, controlIndex);
     }
 
     /**
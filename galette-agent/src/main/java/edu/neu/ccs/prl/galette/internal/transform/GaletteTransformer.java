@@ -1,7 +1,13 @@
 package edu.neu.ccs.prl.galette.internal.transform;
 
+import edu.neu.ccs.prl.galette.internal.runtime.ControlTagStack;
+import edu.neu.ccs.prl.galette.internal.runtime.PropagationProfiler;
 import edu.neu.ccs.prl.galette.internal.runtime.collection.SimpleList;
+import edu.neu.ccs.prl.galette.internal.runtime.collection.SimpleMap;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
 import org.objectweb.asm.*;
 import org.objectweb.asm.tree.*;
 
@@ -47,22 +53,88 @@ public class GaletteTransformer {
      */
     private static final ExclusionList exclusions = new ExclusionList("java/lang/Object", INTERNAL_PACKAGE_PREFIX);
 
+    /**
+     * User-specified rules determining which classes should be instrumented and how.
+     * <p>
+     * Non-null.
+     */
+    private static volatile InstrumentationPolicy policy = InstrumentationPolicy.EMPTY;
+
+    /**
+     * Cache of the excluded classes in the superclass chain of each class whose chain has been walked.
+     * <p>
+     * Non-null.
+     */
+    private static final SimpleMap<String, SimpleList<ClassNode>> excludedAncestors = new SimpleMap<>();
+
     private static TransformationCache cache;
+    /**
+     * Class files instrumented ahead of time or {@code null} if no classes were instrumented ahead of time.
+     */
+    private static volatile AheadOfTimeStore aheadOfTimeStore;
+    /**
+     * {@code true} if calls to {@link PropagationProfiler} should be inserted into transformed methods.
+     */
+    private static volatile boolean profiling = false;
+    /**
+     * {@code true} if tags should be propagated along implicit flows in transformed methods.
+     */
+    private static volatile boolean implicitFlows = false;
 
     public byte[] transform(byte[] classFileBuffer, boolean isHostedAnonymous) {
+        return transform(null, classFileBuffer, isHostedAnonymous);
+    }
+
+    /**
+     * Transforms the specified class file.
+     *
+     * @param loader the class loader used to locate the class files of the class's superclasses or {@code null} if
+     *               they should be located using the system class loader
+     * @param classFileBuffer the class file to transform
+     * @param isHostedAnonymous {@code true} if the class will be defined as a hosted anonymous class
+     * @return the transformed class file or {@code null} if the class file was not changed
+     */
+    public byte[] transform(ClassLoader loader, byte[] classFileBuffer, boolean isHostedAnonymous) {
         ClassReader cr = new ClassReader(classFileBuffer);
         String className = cr.getClassName();
-        TransformationCache currentCache = getCache();
+        InstrumentationPolicy currentPolicy = policy;
+        InstrumentationPolicy.Action action = currentPolicy.getAction(className);
         if (exclusions.isExcluded(className) || AsmUtil.isSet(cr.getAccess(), Opcodes.ACC_MODULE)) {
             // Skip excluded classes and module info
             return null;
+        } else if (action == InstrumentationPolicy.Action.EXCLUDE) {
+            // Calls dispatched through an instrumented supertype need to reach the overrides of excluded classes
+            return hasInstrumentedSupertype(cr.getSuperName(), Arrays.asList(cr.getInterfaces()))
+                    ? addDelegatingShadows(cr, isHostedAnonymous)
+                    : null;
         }
+        SimpleList<ClassNode> ancestors =
+                currentPolicy.hasExclusions() ? findExcludedAncestors(loader, cr.getSuperName()) : new SimpleList<>();
+        if (!ancestors.isEmpty()) {
+            // Methods inherited from an excluded superclass have no shadows; exclude the class
+            return addInheritedDelegatingShadows(cr, ancestors, isHostedAnonymous);
+        }
+        boolean propagate = action != InstrumentationPolicy.Action.SHADOW_ONLY;
+        // Cached and stored entries may have been created with a different profiling setting, implicit flow setting,
+        // or policy; a rule for any class can change how calls into that class are instrumented
+        boolean standard = !profiling && !implicitFlows && currentPolicy.isEmpty();
+        TransformationCache currentCache = !standard || !propagate ? null : getCache();
         try {
+            AheadOfTimeStore store = aheadOfTimeStore;
+            byte[] stored = store == null ? null : store.find(className, classFileBuffer);
+            if (stored == classFileBuffer) {
+                // The class file was instrumented ahead of time
+                return null;
+            } else if (stored != null && propagate && standard) {
+                // Stored class files were created with full propagation, without profiling or implicit flows, and
+                // without a policy
+                return stored;
+            }
             // Only cache dynamically instrumented files that are not synthetic
             if (currentCache != null && currentCache.hasEntry(className, classFileBuffer)) {
                 return currentCache.loadEntry(className);
             }
-            byte[] result = transformInternal(cr, isHostedAnonymous);
+            byte[] result = transformInternal(cr, propagate, isHostedAnonymous);
             if (!className.contains("$$Lambda")
                     && !AsmUtil.isSet(cr.getAccess(), Opcodes.ACC_SYNTHETIC)
                     && currentCache != null
@@ -79,10 +151,13 @@ public class GaletteTransformer {
         }
     }
 
-    private byte[] transformInternal(ClassReader cr, boolean isHostedAnonymous) {
+    private byte[] transformInternal(ClassReader cr, boolean propagate, boolean isHostedAnonymous) {
         try {
-            return transform(cr, true, isHostedAnonymous);
+            return transform(cr, propagate, isHostedAnonymous);
         } catch (ClassTooLargeException | MethodTooLargeException e) {
+            if (!propagate) {
+                throw e;
+            }
             // Try to just add shadow fields and methods
             return transform(cr, false, isHostedAnonymous);
         }
@@ -126,6 +201,14 @@ public class GaletteTransformer {
         if (OffsetCacheAdder.isApplicable(cn.name)) {
             cv = new OffsetCacheAdder(cv);
         }
+        // Add a field to java.lang.Class to store resolved shadow methods used in masking of reflective calls
+        if (ShadowCacheAdder.isApplicable(cn.name)) {
+            cv = new ShadowCacheAdder(cv);
+        }
+        // Add a field to java.lang.String to store summaries of the tags of its characters
+        if (TagSummaryAdder.isApplicable(cn.name)) {
+            cv = new TagSummaryAdder(cv);
+        }
         // Add a field to java.lang.Thread to store frame stacks
         if (ThreadLocalAdder.isApplicable(cn.name)) {
             cv = new ThreadLocalAdder(cv);
@@ -134,6 +217,125 @@ public class GaletteTransformer {
         return cw.toByteArray();
     }
 
+    static boolean hasInstrumentedSupertype(String superName, List<String> interfaces) {
+        if (superName != null && !superName.equals("java/lang/Object") && !isExcluded(superName)) {
+            return true;
+        }
+        for (String name : interfaces) {
+            if (!isExcluded(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds shadows to an excluded class that call the class's uninstrumented methods.
+     * The original methods of the class are not changed.
+     */
+    private static byte[] addDelegatingShadows(ClassReader cr, boolean isHostedAnonymous) {
+        ClassNode cn = new ClassNode(ASM_VERSION);
+        cr.accept(cn, 0);
+        if (hasShadowInstrumentation(cn)) {
+            return null;
+        }
+        SimpleList<MethodNode> shadows =
+                new ShadowMethodCreator(cn, false, isHostedAnonymous).createDelegatingShadows();
+        if (shadows.isEmpty()) {
+            return null;
+        }
+        for (int i = 0; i < shadows.size(); i++) {
+            cn.methods.add(shadows.get(i));
+        }
+        ClassWriter cw = new ClassWriter(cr, ClassWriter.COMPUTE_MAXS);
+        cn.accept(cw);
+        return cw.toByteArray();
+    }
+
+    /**
+     * Adds shadows to a class that extends an excluded class that call the class's uninstrumented methods and the
+     * uninstrumented methods that it inherits from its excluded superclasses.
+     * Shadow fields are added for the class's fields and the fields that it inherits from its excluded superclasses.
+     * The original methods of the class are not changed.
+     */
+    private static byte[] addInheritedDelegatingShadows(
+            ClassReader cr, SimpleList<ClassNode> ancestors, boolean isHostedAnonymous) {
+        ClassNode cn = new ClassNode(ASM_VERSION);
+        cr.accept(cn, 0);
+        if (hasShadowInstrumentation(cn)) {
+            return null;
+        }
+        new ShadowFieldAdder().process(cn, ancestors);
+        SimpleList<MethodNode> shadows =
+                new ShadowMethodCreator(cn, false, isHostedAnonymous).createInheritedDelegatingShadows(ancestors);
+        for (int i = 0; i < shadows.size(); i++) {
+            cn.methods.add(shadows.get(i));
+        }
+        ClassWriter cw = new ClassWriter(cr, ClassWriter.COMPUTE_MAXS);
+        cn.accept(cw);
+        return cw.toByteArray();
+    }
+
+    /**
+     * Returns the classes in the superclass chain starting at the specified class that are excluded by the policy
+     * ordered from nearest to farthest.
+     * The class files of the chain are read using the specified class loader; the walk stops at a class whose class
+     * file cannot be found.
+     * Results are cached by class name because the policy only considers class names.
+     *
+     * @param loader the class loader used to locate class files or {@code null} to use the system class loader
+     * @param className the internal name of the first class in the chain or {@code null}
+     * @return the excluded classes in the chain with their members but without their code
+     */
+    private static SimpleList<ClassNode> findExcludedAncestors(ClassLoader loader, String className) {
+        if (className == null || className.equals("java/lang/Object") || exclusions.isExcluded(className)) {
+            return new SimpleList<>();
+        }
+        synchronized (excludedAncestors) {
+            SimpleList<ClassNode> cached = excludedAncestors.get(className);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        ClassNode cn = readMembers(loader, className);
+        SimpleList<ClassNode> result;
+        if (cn == null) {
+            result = new SimpleList<>();
+        } else {
+            SimpleList<ClassNode> parent = findExcludedAncestors(loader, cn.superName);
+            if (policy.getAction(className) == InstrumentationPolicy.Action.EXCLUDE) {
+                result = new SimpleList<>(parent.size() + 1);
+                result.add(cn);
+                for (int i = 0; i < parent.size(); i++) {
+                    result.add(parent.get(i));
+                }
+            } else {
+                result = parent;
+            }
+        }
+        synchronized (excludedAncestors) {
+            excludedAncestors.put(className, result);
+        }
+        return result;
+    }
+
+    private static ClassNode readMembers(ClassLoader loader, String className) {
+        String resource = className + ".class";
+        try (InputStream in = loader == null
+                ? ClassLoader.getSystemResourceAsStream(resource)
+                : loader.getResourceAsStream(resource)) {
+            if (in == null) {
+                return null;
+            }
+            ClassNode cn = new ClassNode(ASM_VERSION);
+            new ClassReader(in).accept(cn, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+            return cn;
+        } catch (IOException e) {
+            GaletteLog.error("Failed to read class file of " + className, e);
+            return null;
+        }
+    }
+
     private static ClassNode preprocess(ClassNode cn, boolean hasFrames) {
         // Inline subroutines and compute naive frames if necessary
         int flags = ClassWriter.COMPUTE_MAXS;
@@ -178,8 +380,40 @@ public class GaletteTransformer {
         return result == null ? classFileBuffer : result;
     }
 
+    /**
+     * Returns {@code true} if the class with the specified name is not instrumented.
+     * Calls from instrumented code to methods whose owner is excluded invoke the original, uninstrumented method.
+     * An excluded class only declares shadows that delegate to its overrides of methods of instrumented supertypes.
+     * A class that extends an excluded class is excluded as well, but this method returns {@code false} for it
+     * unless the policy excludes it: it declares shadows that delegate to every method that instrumented callers
+     * could call on it.
+     * Therefore, checking the owner of a call is sufficient to determine whether the call should pass a frame.
+     *
+     * @param className the internal name of the class
+     * @return {@code true} if the class with the specified name is not instrumented
+     */
     public static boolean isExcluded(String className) {
-        return exclusions.isExcluded(className);
+        return exclusions.isExcluded(className) || policy.getAction(className) == InstrumentationPolicy.Action.EXCLUDE;
+    }
+
+    /**
+     * Sets the policy used to determine which classes should be instrumented and how.
+     * Classes that are always excluded from instrumentation, such as Galette's internal classes, cannot be included
+     * by the policy.
+     * The policy should be set before any classes are transformed; otherwise, calls from previously transformed
+     * classes may not match the instrumentation of the classes that they call.
+     *
+     * @param policy the policy to use
+     * @throws NullPointerException if {@code policy} is {@code null}
+     */
+    public static void setPolicy(InstrumentationPolicy policy) {
+        if (policy == null) {
+            throw new NullPointerException();
+        }
+        GaletteTransformer.policy = policy;
+        synchronized (excludedAncestors) {
+            excludedAncestors.clear();
+        }
     }
 
     public static synchronized void setCache(TransformationCache cache) {
@@ -190,6 +424,49 @@ public class GaletteTransformer {
         return cache;
     }
 
+    /**
+     * Sets the store of class files instrumented ahead of time.
+     * Class files that are the output of ahead-of-time instrumentation are not transformed again.
+     * Class files whose instrumented form is in the store are replaced with that form, unless profiling or implicit
+     * flow tracking is enabled or an {@link InstrumentationPolicy instrumentation policy} with rules is set.
+     *
+     * @param store the store or {@code null} if no classes were instrumented ahead of time
+     */
+    public static void setAheadOfTimeStore(AheadOfTimeStore store) {
+        GaletteTransformer.aheadOfTimeStore = store;
+    }
+
+    /**
+     * Sets whether calls to {@link PropagationProfiler} should be inserted into subsequently transformed methods.
+     * Enabling profiling disables the transformation cache.
+     *
+     * @param profiling {@code true} if tag propagation handle calls should be counted
+     */
+    public static void setProfiling(boolean profiling) {
+        GaletteTransformer.profiling = profiling;
+    }
+
+    public static boolean isProfiling() {
+        return profiling;
+    }
+
+    /**
+     * Sets whether tags should be propagated along implicit flows in subsequently transformed methods.
+     * When enabled, values stored while the execution is control dependent on a branch are tagged with the tag of the
+     * branch's condition.
+     * Enabling implicit flow tracking disables the transformation cache.
+     *
+     * @param implicitFlows {@code true} if tags should be propagated along implicit flows
+     * @see ControlTagStack
+     */
+    public static void setImplicitFlows(boolean implicitFlows) {
+        GaletteTransformer.implicitFlows = implicitFlows;
+    }
+
+    public static boolean isImplicitFlows() {
+        return implicitFlows;
+    }
+
     private static boolean containsFrames(ClassNode cn) {
         for (MethodNode mn : cn.methods) {
             for (AbstractInsnNode in : mn.instructions) {
@@ -17,21 +17,27 @@ import org.objectweb.asm.commons.AnalyzerAdapter;
  * <p>
  * Due to the invocation semantics of signature polymorphic methods, a tag frame cannot be directly passed to
  * a signature polymorphic method call as an extra argument.
- * Instead, Galette will indirectly pass the frame by temporarily storing it on the {@link Thread} instance
- * representing the calling thread of execution.
- * This storage location is added by {@link ThreadLocalAdder}.
+ * Instead, Galette will indirectly pass the frame by temporarily storing it in the per-thread record of the
+ * {@link Thread} instance representing the calling thread of execution.
+ * The field that holds this record is added by {@link ThreadLocalAdder}.
  */
 class IndirectFramePasser extends MethodVisitor {
     private final ShadowLocals shadowLocals;
     private final AnalyzerAdapter analyzer;
+    /**
+     * Identifier of the method reported to the profiler for handle calls made by the method being visited or -1 if
+     * profiling is disabled.
+     */
+    private final int site;
 
-    IndirectFramePasser(ShadowLocals shadowLocals, AnalyzerAdapter analyzer, MethodVisitor mv) {
+    IndirectFramePasser(ShadowLocals shadowLocals, AnalyzerAdapter analyzer, MethodVisitor mv, int site) {
         super(GaletteTransformer.ASM_VERSION, mv);
         if (shadowLocals == null || analyzer == null) {
             throw new NullPointerException();
         }
         this.shadowLocals = shadowLocals;
         this.analyzer = analyzer;
+        this.site = site;
     }
 
     @Override
@@ -71,15 +77,49 @@ class IndirectFramePasser extends MethodVisitor {
         AsmUtil.storeReceiverAndArguments(shadowLocals, isStatic, descriptor, varIndex);
         // Consume tags from the shadow stack for the arguments of the call and create a frame
         shadowLocals.prepareForCall(isStatic, descriptor, true);
-        // Create an array of argument values
-        AsmUtil.loadReceiverAndArguments(shadowLocals, isStatic, descriptor, varIndex);
-        AsmUtil.collectArguments(shadowLocals, isStatic, descriptor);
-        // Store the frame and arguments in the indirect frame store
+        // Store the frame in the indirect frame store
+        TagPropagator.profile(shadowLocals, site, Handle.INDIRECT_FRAME_SET);
         Handle.INDIRECT_FRAME_SET.accept(shadowLocals);
+        // Record the argument values without boxing them
+        recordReceiverAndArguments(isStatic, descriptor, varIndex);
         // Load the arguments from the local variables
         AsmUtil.loadReceiverAndArguments(shadowLocals, isStatic, descriptor, varIndex);
     }
 
+    private void recordReceiverAndArguments(boolean isStatic, String descriptor, int varIndex) {
+        // stack: ..., augmented-frame
+        if (!isStatic) {
+            shadowLocals.visitVarInsn(ALOAD, varIndex++);
+            Handle.AUGMENTED_FRAME_RECORD_OBJECT.accept(shadowLocals);
+        }
+        for (Type argument : Type.getArgumentTypes(descriptor)) {
+            shadowLocals.visitVarInsn(argument.getOpcode(ILOAD), varIndex);
+            varIndex += argument.getSize();
+            getRecordHandle(argument).accept(shadowLocals);
+        }
+        shadowLocals.visitInsn(POP);
+        // stack: ...
+    }
+
+    private static Handle getRecordHandle(Type type) {
+        switch (type.getSort()) {
+            case Type.BOOLEAN:
+            case Type.BYTE:
+            case Type.CHAR:
+            case Type.SHORT:
+            case Type.INT:
+                return Handle.AUGMENTED_FRAME_RECORD_INT;
+            case Type.LONG:
+                return Handle.AUGMENTED_FRAME_RECORD_LONG;
+            case Type.FLOAT:
+                return Handle.AUGMENTED_FRAME_RECORD_FLOAT;
+            case Type.DOUBLE:
+                return Handle.AUGMENTED_FRAME_RECORD_DOUBLE;
+            default:
+                return Handle.AUGMENTED_FRAME_RECORD_OBJECT;
+        }
+    }
+
     @Override
     public void visitInvokeDynamicInsn(
             String name,
@@ -108,6 +148,7 @@ class IndirectFramePasser extends MethodVisitor {
         // Record the locals for the handle we will later add
         Object[] handleLocals = getFrameElements(analyzer.locals);
         // Clear the tag frame
+        TagPropagator.profile(mv, site, Handle.INDIRECT_FRAME_CLEAR);
         Handle.INDIRECT_FRAME_CLEAR.accept(mv);
         // Record the current frame
         Object[] locals = getFrameElements(analyzer.locals);
@@ -119,6 +160,7 @@ class IndirectFramePasser extends MethodVisitor {
         mv.visitLabel(handler);
         mv.visitFrame(F_NEW, handleLocals.length, handleLocals, 1, new Object[] {"java/lang/Throwable"});
         // Clear the tag frame
+        TagPropagator.profile(mv, site, Handle.INDIRECT_FRAME_CLEAR);
         Handle.INDIRECT_FRAME_CLEAR.accept(mv);
         // Rethrow the exception
         mv.visitInsn(ATHROW);
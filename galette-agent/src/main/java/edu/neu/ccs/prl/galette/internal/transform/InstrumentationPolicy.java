@@ -0,0 +1,226 @@
+package edu.neu.ccs.prl.galette.internal.transform;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+
+/**
+ * Determines how classes should be instrumented based on rules associated with class name prefixes.
+ * <p>
+ * Rules are compiled into a prefix trie. The action for a class is determined by the rule with the longest prefix
+ * that matches the class's internal name; classes that are not matched by any rule are
+ * {@link Action#INCLUDE included}.
+ * This allows a narrow rule to override a broader one, for example, to include a single package of an
+ * otherwise excluded library.
+ * <p>
+ * Policy files contain one rule per line of the form {@code <action> <prefix>}, where the action is one of
+ * {@code include}, {@code exclude}, or {@code shadow-only} and the prefix is a binary or internal class name prefix.
+ * Blank lines and lines starting with {@code #} are ignored.
+ * <p>
+ * A class whose superclass chain contains an excluded class is also excluded, regardless of the rule that matches
+ * it, because the methods that it inherits from the excluded class have no shadows.
+ * Such a class is given shadows that delegate to its original methods and to the methods that it inherits from its
+ * excluded superclasses, so that instrumented callers can still call it.
+ * Excluded classes may extend instrumented classes and implement instrumented interfaces.
+ * For example:
+ * <pre>
+ * # Do not propagate tags through the internals of Jackson
+ * shadow-only com.fasterxml.jackson.
+ * exclude com/example/generated/
+ * </pre>
+ */
+public final class InstrumentationPolicy {
+    /**
+     * Policy that includes all classes.
+     * <p>
+     * Non-null.
+     */
+    public static final InstrumentationPolicy EMPTY = new InstrumentationPolicy();
+    /**
+     * Root of the prefix trie.
+     * <p>
+     * Non-null.
+     */
+    private final Node root = new Node();
+    /**
+     * {@code true} if this policy contains no rules.
+     */
+    private boolean empty = true;
+    /**
+     * {@code true} if this policy contains an {@link Action#EXCLUDE} rule.
+     */
+    private boolean excludes = false;
+
+    public enum Action {
+        /**
+         * Shadow members are added and tags are propagated through the class's methods.
+         */
+        INCLUDE,
+        /**
+         * The class is not instrumented.
+         * Calls to the class's methods from instrumented classes are treated as calls to uninstrumented code.
+         * If the class has an instrumented supertype, shadows that call the class's original methods are added so that
+         * calls dispatched through the supertype reach the class's overrides.
+         */
+        EXCLUDE,
+        /**
+         * Shadow members are added, but tags are not propagated through the class's methods.
+         * This matches the fallback used for classes whose instrumented methods would be too large.
+         */
+        SHADOW_ONLY
+    }
+
+    /**
+     * Adds a rule to this policy.
+     * If this policy already contains a rule for the specified prefix, that rule is replaced.
+     *
+     * @param action the action that should be applied to classes whose names start with the specified prefix
+     * @param prefix the class name prefix in internal or binary form
+     * @return this policy
+     * @throws NullPointerException if {@code action} or {@code prefix} is {@code null}
+     * @throws UnsupportedOperationException if this policy is {@link #EMPTY}
+     */
+    public InstrumentationPolicy addRule(Action action, String prefix) {
+        if (action == null) {
+            throw new NullPointerException();
+        } else if (this == EMPTY) {
+            throw new UnsupportedOperationException();
+        }
+        Node node = root;
+        for (int i = 0; i < prefix.length(); i++) {
+            char c = prefix.charAt(i);
+            node = node.getOrCreateChild(c == '.' ? '/' : c);
+        }
+        node.action = action;
+        empty = false;
+        excludes |= action == Action.EXCLUDE;
+        return this;
+    }
+
+    /**
+     * Returns the action that should be applied to the class with the specified name.
+     *
+     * @param className the internal name of the class
+     * @return the action that should be applied to the class
+     * @see org.objectweb.asm.Type#getInternalName()
+     */
+    public Action getAction(String className) {
+        if (empty) {
+            return Action.INCLUDE;
+        }
+        Action result = root.action;
+        Node node = root;
+        for (int i = 0; i < className.length() && node != null; i++) {
+            node = node.getChild(className.charAt(i));
+            if (node != null && node.action != null) {
+                result = node.action;
+            }
+        }
+        return result == null ? Action.INCLUDE : result;
+    }
+
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    public boolean hasExclusions() {
+        return excludes;
+    }
+
+    /**
+     * Reads rules from the specified policy file.
+     *
+     * @param file the policy file to read
+     * @return a policy containing the rules in the specified file
+     * @throws IOException if an I/O error occurs reading the file
+     * @throws IllegalArgumentException if the file contains a malformed rule
+     */
+    public static InstrumentationPolicy load(File file) throws IOException {
+        InstrumentationPolicy policy = new InstrumentationPolicy();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            int lineNumber = 0;
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split("\\s+");
+                Action action = parts.length == 2 ? parseAction(parts[0]) : null;
+                if (action == null) {
+                    throw new IllegalArgumentException(
+                            String.format("Malformed policy rule at %s:%d: %s", file, lineNumber, line));
+                }
+                policy.addRule(action, parts[1]);
+            }
+        }
+        return policy;
+    }
+
+    private static Action parseAction(String value) {
+        switch (value) {
+            case "include":
+                return Action.INCLUDE;
+            case "exclude":
+                return Action.EXCLUDE;
+            case "shadow-only":
+                return Action.SHADOW_ONLY;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Node in the prefix trie. Children are kept sorted by their character to allow binary search.
+     */
+    private static final class Node {
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        /**
+         * Action for the prefix ending at this node or {@code null} if no rule ends at this node.
+         */
+        private Action action;
+
+        Node getChild(char c) {
+            int index = indexOf(c);
+            return index < 0 ? null : children[index];
+        }
+
+        Node getOrCreateChild(char c) {
+            int index = indexOf(c);
+            if (index >= 0) {
+                return children[index];
+            }
+            int insertion = -(index + 1);
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, insertion);
+            System.arraycopy(children, 0, newChildren, 0, insertion);
+            System.arraycopy(keys, insertion, newKeys, insertion + 1, keys.length - insertion);
+            System.arraycopy(children, insertion, newChildren, insertion + 1, children.length - insertion);
+            Node child = new Node();
+            newKeys[insertion] = c;
+            newChildren[insertion] = child;
+            keys = newKeys;
+            children = newChildren;
+            return child;
+        }
+
+        private int indexOf(char c) {
+            int low = 0;
+            int high = keys.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (keys[mid] < c) {
+                    low = mid + 1;
+                } else if (keys[mid] > c) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+    }
+}
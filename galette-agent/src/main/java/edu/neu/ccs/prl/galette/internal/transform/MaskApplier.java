@@ -4,6 +4,7 @@ import static org.objectweb.asm.Opcodes.*;
 
 import edu.neu.ccs.prl.galette.internal.runtime.Handle;
 import edu.neu.ccs.prl.galette.internal.runtime.mask.ClassMasks;
+import edu.neu.ccs.prl.galette.internal.runtime.mask.ExecutorMasks;
 import edu.neu.ccs.prl.galette.internal.runtime.mask.UnsafeMasks;
 import edu.neu.ccs.prl.galette.internal.transform.MaskRegistry.MaskInfo;
 import java.io.ObjectStreamClass;
@@ -37,6 +38,26 @@ class MaskApplier extends MethodVisitor {
      * Non-null.
      */
     static final String UNSAFE_MASKS_INTERNAL_NAME = Type.getInternalName(UnsafeMasks.class);
+    /**
+     * Internal name for {@link ExecutorMasks}.
+     * <p>
+     * Non-null.
+     */
+    static final String EXECUTOR_MASKS_INTERNAL_NAME = Type.getInternalName(ExecutorMasks.class);
+    /**
+     * Internal names of the JCL classes that run tasks submitted to executors.
+     * <p>
+     * Non-null.
+     */
+    private static final String[] TASK_RUNNER_INTERNAL_NAMES = new String[] {
+        // Runs tasks submitted to thread-per-task executors
+        "java/lang/Thread",
+        "java/util/concurrent/ThreadPoolExecutor",
+        "java/util/concurrent/FutureTask",
+        "java/util/concurrent/Executors$RunnableAdapter",
+        "java/util/concurrent/CompletableFuture$AsyncRun",
+        "java/util/concurrent/CompletableFuture$AsyncSupply"
+    };
     /**
      * Internal name of the class being visited.
      * <p>
@@ -66,7 +87,7 @@ class MaskApplier extends MethodVisitor {
     @Override
     public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
         MaskInfo mask = MaskRegistry.getMask(owner, name, descriptor);
-        if (mask != null && allowMask(mask)) {
+        if (mask != null && allowMask(opcode, owner, mask)) {
             switch (mask.getType()) {
                 case REPLACE:
                     mask.getRecord().accept(getDelegate());
@@ -140,13 +161,44 @@ class MaskApplier extends MethodVisitor {
         return -1;
     }
 
-    private boolean allowMask(MaskInfo mask) {
+    private boolean allowMask(int opcode, String owner, MaskInfo mask) {
+        if (EXECUTOR_MASKS_INTERNAL_NAME.equals(mask.getRecord().getOwner())) {
+            return isEnabledForExecutor(opcode, owner, mask);
+        }
         if (Configuration.isPropagateThroughSerialization()) {
             return !isDisabledForObjectStreamClass(mask) && !isDisabledForFieldReflector(mask);
         }
         return true;
     }
 
+    private boolean isEnabledForExecutor(int opcode, String owner, MaskInfo mask) {
+        if (opcode == INVOKESPECIAL) {
+            // Masking a super call would dispatch back to the overriding method
+            return false;
+        }
+        String name = mask.getRecord().getName();
+        if (name.equals("run") || name.equals("call")) {
+            // Only mask calls that run submitted tasks
+            return isTaskRunner(className);
+        }
+        // Do not mask calls that an executor makes to its own submission methods (e.g., from bridge methods)
+        // The context was captured when the task was submitted to the executor
+        return !owner.equals(className);
+    }
+
+    private static boolean isTaskRunner(String className) {
+        if (className.startsWith("java/util/concurrent/ForkJoinTask$")) {
+            // Adapters for runnables and callables submitted to a ForkJoinPool
+            return true;
+        }
+        for (String name : TASK_RUNNER_INTERNAL_NAMES) {
+            if (name.equals(className)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private boolean isDisabledForFieldReflector(MaskInfo mask) {
         return className.equals(FIELD_REFLECTOR_INTERNAL_NAME)
                 && UNSAFE_MASKS_INTERNAL_NAME.equals(mask.getRecord().getOwner());
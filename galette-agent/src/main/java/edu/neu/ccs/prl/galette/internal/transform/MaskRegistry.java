@@ -36,7 +36,11 @@ public final class MaskRegistry {
         IntegerMasks.class,
         LongMasks.class,
         ShortMasks.class,
-        SecurityManagerMasks.class
+        SecurityManagerMasks.class,
+        NativeDispatcherMasks.class,
+        FileChannelMasks.class,
+        ExecutorMasks.class,
+        StringLatin1Masks.class
     };
     private static final SimpleMap<String, MaskInfo> masks = new SimpleMap<>();
 
@@ -0,0 +1,27 @@
+package edu.neu.ccs.prl.galette.internal.transform;
+
+import edu.neu.ccs.prl.galette.internal.runtime.collection.SimpleMap;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+class ShadowCacheAdder extends ClassVisitor {
+    private static final int SHADOW_CACHE_FIELD_ACCESS =
+            Opcodes.ACC_PUBLIC | Opcodes.ACC_SYNTHETIC | Opcodes.ACC_VOLATILE | Opcodes.ACC_TRANSIENT;
+    private static final String SHADOW_CACHE_FIELD_NAME = GaletteTransformer.ADDED_MEMBER_PREFIX + "SHADOW_CACHE";
+    private static final String SHADOW_CACHE_FIELD_DESCRIPTOR = Type.getDescriptor(SimpleMap.class);
+
+    ShadowCacheAdder(ClassVisitor classVisitor) {
+        super(GaletteTransformer.ASM_VERSION, classVisitor);
+    }
+
+    @Override
+    public void visitEnd() {
+        super.visitField(SHADOW_CACHE_FIELD_ACCESS, SHADOW_CACHE_FIELD_NAME, SHADOW_CACHE_FIELD_DESCRIPTOR, null, null);
+        super.visitEnd();
+    }
+
+    public static boolean isApplicable(String className) {
+        return "java/lang/Class".equals(className);
+    }
+}
@@ -1,6 +1,8 @@
 package edu.neu.ccs.prl.galette.internal.transform;
 
 import edu.neu.ccs.prl.galette.internal.runtime.Tag;
+import edu.neu.ccs.prl.galette.internal.runtime.collection.ObjectIntMap;
+import edu.neu.ccs.prl.galette.internal.runtime.collection.SimpleList;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.tree.ClassNode;
@@ -22,6 +24,33 @@ public class ShadowFieldAdder {
         }
     }
 
+    /**
+     * Adds shadow fields to a class that is excluded because it extends an excluded class.
+     * Instrumented callers treat the class as though it were instrumented, so shadows are added for the fields declared
+     * by the class and the non-private fields that it inherits from the specified excluded superclasses.
+     *
+     * @param cn the class to which shadow fields should be added
+     * @param ancestors the excluded superclasses of the class ordered from nearest to farthest
+     */
+    public void process(ClassNode cn, SimpleList<ClassNode> ancestors) {
+        if (!hasShadowFields(cn.name)) {
+            return;
+        }
+        ObjectIntMap<String> declared = new ObjectIntMap<>();
+        for (FieldNode fn : cn.fields.toArray(new FieldNode[0])) {
+            declared.put(fn.name, 0);
+            cn.fields.add(createShadowField(cn.access, fn.access, fn.name));
+        }
+        for (int i = 0; i < ancestors.size(); i++) {
+            for (FieldNode fn : ancestors.get(i).fields) {
+                if (!AsmUtil.isSet(fn.access, Opcodes.ACC_PRIVATE) && !declared.containsKey(fn.name)) {
+                    declared.put(fn.name, 0);
+                    cn.fields.add(createShadowField(cn.access, fn.access, fn.name));
+                }
+            }
+        }
+    }
+
     private static FieldNode createShadowField(int classAccess, int access, String name) {
         int shadowAccess = Opcodes.ACC_PUBLIC | Opcodes.ACC_SYNTHETIC;
         if (AsmUtil.isSet(classAccess, Opcodes.ACC_INTERFACE)) {
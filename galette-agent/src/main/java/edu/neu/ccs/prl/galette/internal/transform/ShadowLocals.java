@@ -220,6 +220,21 @@ class ShadowLocals extends MethodVisitor {
         super.visitVarInsn(Opcodes.ALOAD, getShadowStackIndex(n));
     }
 
+    /**
+     * Replaces the n<sup>th</sup> element from the top of the shadow stack with the top element of the runtime stack.
+     * When {@code n == 0}, the top element of the shadow stack is replaced.
+     */
+    public void set(int n) {
+        if (n >= shadowStackSize) {
+            throw new NoSuchElementException();
+        }
+        super.visitVarInsn(Opcodes.ASTORE, getShadowStackIndex(n));
+    }
+
+    int getShadowStackSize() {
+        return shadowStackSize;
+    }
+
     FrameManager getFrameManager() {
         return frameManager;
     }
@@ -266,7 +281,7 @@ class ShadowLocals extends MethodVisitor {
         return getShadowStackIndex(0) + 1;
     }
 
-    static ShadowLocals newInstance(MethodVisitor mv, MethodNode original, boolean isShadow) {
+    static ShadowLocals newInstance(MethodVisitor mv, MethodNode original, boolean isShadow, int controlSlots) {
         int frameIndex = original.maxLocals;
         FrameInitializer initializer;
         if (!isShadow) {
@@ -276,6 +291,6 @@ class ShadowLocals extends MethodVisitor {
         } else {
             initializer = new DirectFrameInitializer(mv, frameIndex, original.access, original.desc);
         }
-        return new ShadowLocals(new FrameManager(initializer), original);
+        return new ShadowLocals(new FrameManager(initializer, controlSlots), original);
     }
 }
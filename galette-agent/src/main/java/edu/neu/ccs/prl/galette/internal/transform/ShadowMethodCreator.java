@@ -1,6 +1,7 @@
 package edu.neu.ccs.prl.galette.internal.transform;
 
 import edu.neu.ccs.prl.galette.internal.runtime.TagFrame;
+import edu.neu.ccs.prl.galette.internal.runtime.collection.ObjectIntMap;
 import edu.neu.ccs.prl.galette.internal.runtime.collection.SimpleList;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
@@ -59,7 +60,103 @@ public final class ShadowMethodCreator {
         return shadows;
     }
 
+    /**
+     * Creates shadows for the instance methods of an excluded class that could override a method of an instrumented
+     * supertype. Each shadow calls the uninstrumented original method, so calls dispatched through the shadow of an
+     * instrumented supertype reach the excluded override.
+     *
+     * @return the created shadows
+     */
+    public SimpleList<MethodNode> createDelegatingShadows() {
+        SimpleList<MethodNode> shadows = new SimpleList<>();
+        for (MethodNode mn : classNode.methods) {
+            if (AsmUtil.hasMethodBody(mn.access)
+                    && !AsmUtil.isSet(mn.access, Opcodes.ACC_STATIC | Opcodes.ACC_PRIVATE)
+                    && !mn.name.equals("<init>")
+                    && shouldShadow(mn.name)) {
+                shadows.add(createShadow(mn, true));
+            }
+        }
+        return shadows;
+    }
+
+    /**
+     * Creates shadows for a class that is excluded because it extends an excluded class.
+     * Instrumented callers treat the class as though it were instrumented, so a shadow is created for each method that
+     * they could call on the class: the methods declared by the class, the methods that it inherits from the specified
+     * excluded superclasses, and the non-final methods of {@link Object}.
+     * Each shadow calls the uninstrumented original method.
+     * Shadows are not final because they may be redeclared by subclasses that inherit the same excluded methods.
+     *
+     * @param ancestors the excluded superclasses of the class ordered from nearest to farthest
+     * @return the created shadows
+     */
+    public SimpleList<MethodNode> createInheritedDelegatingShadows(SimpleList<ClassNode> ancestors) {
+        SimpleList<MethodNode> shadows = new SimpleList<>();
+        ObjectIntMap<String> covered = new ObjectIntMap<>();
+        for (MethodNode mn : classNode.methods) {
+            if (shouldShadow(mn.name)) {
+                covered.put(mn.name + mn.desc, 0);
+                shadows.add(createNonFinalDelegatingShadow(mn));
+            }
+        }
+        for (int i = 0; i < ancestors.size(); i++) {
+            ClassNode ancestor = ancestors.get(i);
+            for (MethodNode mn : ancestor.methods) {
+                if (isInheritedFrom(ancestor, mn)
+                        && !covered.containsKey(mn.name + mn.desc)
+                        && !hasFinalDelegatingShadow(ancestor, mn)) {
+                    covered.put(mn.name + mn.desc, 0);
+                    shadows.add(createNonFinalDelegatingShadow(mn));
+                }
+            }
+        }
+        for (ObjectMethod m : ObjectMethod.values()) {
+            MethodRecord record = m.getRecord();
+            if (!m.isFinal() && !covered.containsKey(record.getName() + record.getDescriptor())) {
+                shadows.add(createObjectShadow(m));
+            }
+        }
+        return shadows;
+    }
+
+    private MethodNode createNonFinalDelegatingShadow(MethodNode mn) {
+        MethodNode shadow = createShadow(mn, !AsmUtil.isSet(mn.access, Opcodes.ACC_ABSTRACT));
+        shadow.access &= ~Opcodes.ACC_FINAL;
+        return shadow;
+    }
+
+    private boolean isInheritedFrom(ClassNode ancestor, MethodNode mn) {
+        if (!shouldShadow(mn.name) || mn.name.equals("<init>") || AsmUtil.isSet(mn.access, Opcodes.ACC_PRIVATE)) {
+            return false;
+        } else if (AsmUtil.isSet(mn.access, Opcodes.ACC_PUBLIC | Opcodes.ACC_PROTECTED)) {
+            return true;
+        }
+        // Package-private methods are only inherited by classes in the same package
+        return getPackageName(ancestor.name).equals(getPackageName(classNode.name));
+    }
+
+    /**
+     * Returns {@code true} if the specified method is a final method for which the specified excluded class declares a
+     * delegating shadow that cannot be redeclared.
+     */
+    private static boolean hasFinalDelegatingShadow(ClassNode ancestor, MethodNode mn) {
+        return AsmUtil.isSet(mn.access, Opcodes.ACC_FINAL)
+                && !AsmUtil.isSet(mn.access, Opcodes.ACC_STATIC)
+                && AsmUtil.hasMethodBody(mn.access)
+                && GaletteTransformer.hasInstrumentedSupertype(ancestor.superName, ancestor.interfaces);
+    }
+
+    private static String getPackageName(String className) {
+        int index = className.lastIndexOf('/');
+        return index == -1 ? "" : className.substring(0, index);
+    }
+
     private MethodNode createShadow(MethodNode mn) {
+        return createShadow(mn, AsmUtil.isSet(mn.access, Opcodes.ACC_NATIVE));
+    }
+
+    private MethodNode createShadow(MethodNode mn, boolean wrap) {
         int shadowAccess = (mn.access & ~Opcodes.ACC_NATIVE) | Opcodes.ACC_SYNTHETIC;
         MethodNode shadow = new MethodNode(
                 GaletteTransformer.ASM_VERSION,
@@ -70,7 +167,7 @@ public final class ShadowMethodCreator {
                 AsmUtil.copyExceptions(mn));
         MethodVisitor mv = new MaskApplier(classNode.name, shadow);
         mv = new HotSpotAnnotationRemover(mv);
-        if (AsmUtil.isSet(mn.access, Opcodes.ACC_NATIVE)) {
+        if (wrap) {
             mv = NativeWrapperCreator.newInstance(classNode.name, isInterface, mv, shadow, isHostedAnonymous, false);
         } else if (propagate) {
             mv = TagPropagator.newInstance(mv, mn, true, classNode.name);
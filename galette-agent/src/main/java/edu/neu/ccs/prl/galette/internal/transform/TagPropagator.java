@@ -2,28 +2,284 @@ package edu.neu.ccs.prl.galette.internal.transform;
 
 import static org.objectweb.asm.Opcodes.*;
 
+import edu.neu.ccs.prl.galette.internal.runtime.ControlTagStack;
 import edu.neu.ccs.prl.galette.internal.runtime.Handle;
+import edu.neu.ccs.prl.galette.internal.runtime.PropagationProfiler;
 import edu.neu.ccs.prl.galette.internal.runtime.Tag;
+import edu.neu.ccs.prl.galette.internal.runtime.collection.ObjectIntMap;
+import edu.neu.ccs.prl.galette.internal.runtime.collection.SimpleList;
 import org.objectweb.asm.Label;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.commons.AnalyzerAdapter;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.LookupSwitchInsnNode;
 import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TableSwitchInsnNode;
 
 class TagPropagator extends MethodVisitor {
     private final ShadowLocals shadowLocals;
+    /**
+     * {@link PropagationProfiler#registerSite(String) Identifier} of the method reported to the profiler for handle
+     * calls made by the method being visited or -1 if profiling is disabled.
+     */
+    private final int site;
+    /**
+     * Indicates for each instruction of the original method whether it is a union or store site whose operands are
+     * guaranteed to have empty tags or {@code null} if this information is not available.
+     *
+     * @see TaintFlowAnalysis
+     */
+    private final boolean[] emptyTagSites;
+    /**
+     * The instruction of the original method that is being visited or {@code null} if the instruction being visited
+     * was added by another visitor or has already been {@link #claimOriginal(int) claimed}.
+     */
+    private AbstractInsnNode currentOriginal;
+    /**
+     * {@code true} if the tags of stored values should include the tags of the branches that the store is control
+     * dependent on.
+     */
+    private final boolean implicitFlows;
+    /**
+     * The original method being visited.
+     * <p>
+     * Non-null.
+     */
+    private final MethodNode original;
+    /**
+     * Post-dominators of the branches of the method being visited or {@code null} if the method does not reserve
+     * slots on the {@link ControlTagStack}.
+     */
+    private final ControlFlowAnalysis controlFlow;
+    /**
+     * Map from labels to the index of the first branch whose immediate post-dominator is marked by the label.
+     * <p>
+     * Non-null.
+     */
+    private final ObjectIntMap<Label> postDominatedBranches = new ObjectIntMap<>();
+    /**
+     * Index of the next branch whose immediate post-dominator is marked by the same label as the branch at each
+     * index or -1.
+     */
+    private int[] nextPostDominatedBranch;
+    /**
+     * Set of labels that mark the beginning of exception handlers.
+     * <p>
+     * Non-null.
+     */
+    private final ObjectIntMap<Label> handlers = new ObjectIntMap<>();
+    /**
+     * Labels visited since the last instruction that mark a post-dominator or the start of an exception handler.
+     * <p>
+     * Non-null.
+     */
+    private final SimpleList<Label> pendingLabels = new SimpleList<>();
 
-    private TagPropagator(ShadowLocals shadowLocals, MethodVisitor mv) {
+    private TagPropagator(
+            ShadowLocals shadowLocals,
+            MethodVisitor mv,
+            int site,
+            boolean[] emptyTagSites,
+            MethodNode original,
+            ControlFlowAnalysis controlFlow) {
         super(GaletteTransformer.ASM_VERSION, mv);
-        if (shadowLocals == null) {
+        if (shadowLocals == null || original == null) {
             throw new NullPointerException();
         }
         this.shadowLocals = shadowLocals;
+        this.site = site;
+        this.emptyTagSites = emptyTagSites;
+        this.original = original;
+        this.implicitFlows = GaletteTransformer.isImplicitFlows();
+        this.controlFlow = controlFlow;
+    }
+
+    @Override
+    public void visitCode() {
+        super.visitCode();
+        if (controlFlow != null) {
+            // Labels are only assigned once the original method starts being visited
+            nextPostDominatedBranch = new int[controlFlow.getBranchCount()];
+            for (int i = 0; i < controlFlow.getBranchCount(); i++) {
+                LabelNode postDominator = controlFlow.getPostDominator(i);
+                nextPostDominatedBranch[i] = -1;
+                if (postDominator != null) {
+                    Label label = postDominator.getLabel();
+                    nextPostDominatedBranch[i] = postDominatedBranches.getOrDefault(label, -1);
+                    postDominatedBranches.put(label, i);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void visitTryCatchBlock(Label start, Label end, Label handler, String type) {
+        super.visitTryCatchBlock(start, end, handler, type);
+        handlers.put(handler, 1);
+    }
+
+    @Override
+    public void visitLabel(Label label) {
+        super.visitLabel(label);
+        if (controlFlow != null && (handlers.containsKey(label) || postDominatedBranches.containsKey(label))) {
+            pendingLabels.add(label);
+        }
+    }
+
+    /**
+     * Updates the {@link ControlTagStack} for the labels visited since the last instruction.
+     * The updates are deferred until the next instruction so that they are placed after the stack map frame for the
+     * labels.
+     */
+    private void updateControlStack() {
+        for (int i = 0; i < pendingLabels.size(); i++) {
+            Label label = pendingLabels.get(i);
+            FrameManager frameManager = shadowLocals.getFrameManager();
+            if (handlers.containsKey(label)) {
+                // Release the slots reserved by invocations that were abruptly completed by the caught exception
+                frameManager.loadControlMark();
+                AsmUtil.pushInt(mv, frameManager.getControlSlots());
+                invoke(Handle.CONTROL_STACK_RESET);
+            }
+            int stackSlots = shadowLocals.getShadowStackSize();
+            for (int branch = postDominatedBranches.getOrDefault(label, -1);
+                    branch != -1;
+                    branch = nextPostDominatedBranch[branch]) {
+                stackSlots = Math.min(stackSlots, controlFlow.getStackSlots(branch));
+            }
+            // Values pushed onto the stack after a branch was taken are control dependent on the branch
+            for (int n = shadowLocals.getShadowStackSize() - stackSlots - 1; n >= 0; n--) {
+                shadowLocals.peek(n);
+                applyControlTag();
+                shadowLocals.set(n);
+            }
+            for (int branch = postDominatedBranches.getOrDefault(label, -1);
+                    branch != -1;
+                    branch = nextPostDominatedBranch[branch]) {
+                frameManager.loadControlMark();
+                AsmUtil.pushInt(mv, branch);
+                invoke(Handle.CONTROL_STACK_POP);
+            }
+        }
+        pendingLabels.clear();
+    }
+
+    /**
+     * Returns the index of the branch being visited if it is a branch of the original method whose control tags are
+     * tracked, otherwise -1.
+     * Jumps and switches added by other visitors are not branches of the original method.
+     *
+     * @param opcode the opcode of the branch being visited
+     * @param target the label of the branch's jump target or, for a switch, its default target
+     * @throws IllegalStateException if the branch is a branch of the original method but was not found by the
+     *     {@link ControlFlowAnalysis}
+     */
+    private int claimOriginalBranch(int opcode, Label target) {
+        AbstractInsnNode insn = currentOriginal;
+        if (controlFlow == null || insn == null || insn.getOpcode() != opcode || getTarget(insn) != target) {
+            return -1;
+        }
+        currentOriginal = null;
+        int index = original.instructions.indexOf(insn);
+        int branch = controlFlow.getBranch(index);
+        if (branch == -1) {
+            throw new IllegalStateException(
+                    "Missing control flow information for branch " + index + " of " + original.name + original.desc);
+        }
+        return branch;
+    }
+
+    private static Label getTarget(AbstractInsnNode insn) {
+        if (insn instanceof JumpInsnNode) {
+            return ((JumpInsnNode) insn).label.getLabel();
+        } else if (insn instanceof TableSwitchInsnNode) {
+            return ((TableSwitchInsnNode) insn).dflt.getLabel();
+        } else if (insn instanceof LookupSwitchInsnNode) {
+            return ((LookupSwitchInsnNode) insn).dflt.getLabel();
+        }
+        return null;
+    }
+
+    /**
+     * stack: ..., tag -> ...
+     */
+    private void pushControlTag(int branch) {
+        FrameManager frameManager = shadowLocals.getFrameManager();
+        frameManager.loadControlMark();
+        AsmUtil.pushInt(mv, branch);
+        invoke(Handle.CONTROL_STACK_PUSH);
+    }
+
+    /**
+     * stack: ..., tag -> ..., tag'
+     * <p>
+     * Adds the current control tag to the tag of a value that is being stored if implicit flows are being tracked.
+     */
+    private void applyControlTag() {
+        if (implicitFlows) {
+            invoke(Handle.CONTROL_STACK_APPLY);
+        }
+    }
+
+    /**
+     * Releases the slots reserved on the {@link ControlTagStack} by the method being visited before it returns.
+     */
+    private void exitControlStack() {
+        if (controlFlow != null) {
+            shadowLocals.getFrameManager().loadControlMark();
+            invoke(Handle.CONTROL_STACK_EXIT);
+        }
+    }
+
+    /**
+     * Pushes the union of the tags at the specified positions of the shadow stack onto the runtime stack.
+     */
+    private void union(int n1, int n2) {
+        shadowLocals.peek(n1);
+        shadowLocals.peek(n2);
+        invoke(Handle.TAG_UNION);
+    }
+
+    /**
+     * Returns the instruction of the original method that is being visited if it has the specified opcode and has
+     * not already been claimed, otherwise {@code null}.
+     * An instruction can only be claimed once, so that instructions with the same opcode that are added by other
+     * visitors are not mistaken for the original instruction.
+     */
+    private AbstractInsnNode claimOriginal(int opcode) {
+        AbstractInsnNode insn = currentOriginal;
+        if (insn == null || insn.getOpcode() != opcode) {
+            return null;
+        }
+        currentOriginal = null;
+        return insn;
+    }
+
+    /**
+     * Returns {@code true} if the instruction being visited is a union or store site of the original method whose
+     * operands are guaranteed to have empty tags.
+     * The tag of the result of such a union site is empty.
+     * The result's tag would be stored in the shadow stack slot that holds the tag of the site's first operand, so
+     * that slot already holds the result's tag.
+     * Such a store site would store an empty tag in a shadow variable that already holds an empty tag.
+     */
+    private boolean isEmptyTagSite(int opcode) {
+        AbstractInsnNode insn = claimOriginal(opcode);
+        return insn != null && emptyTagSites != null && emptyTagSites[original.instructions.indexOf(insn)];
+    }
+
+    private void invoke(Handle handle) {
+        profile(mv, site, handle);
+        handle.accept(mv);
     }
 
     @Override
     public void visitInsn(int opcode) {
+        updateControlStack();
         switch (opcode) {
             case Opcodes.NOP:
                 break;
@@ -62,7 +318,7 @@ class TagPropagator extends MethodVisitor {
                 shadowLocals.peek(1);
                 shadowLocals.peek(0);
                 // arrayref, index, arrayref, index, arrayref-tag, index-tag
-                Handle.ARRAY_TAG_STORE_GET_TAG.accept(mv);
+                invoke(Handle.ARRAY_TAG_STORE_GET_TAG);
                 // arrayref, index, value-tag
                 shadowLocals.pop(2);
                 shadowLocals.push();
@@ -75,7 +331,7 @@ class TagPropagator extends MethodVisitor {
                 shadowLocals.peek(1);
                 shadowLocals.peek(0);
                 // arrayref, index, arrayref, index, arrayref-tag, index-tag
-                Handle.ARRAY_TAG_STORE_GET_TAG.accept(mv);
+                invoke(Handle.ARRAY_TAG_STORE_GET_TAG);
                 // arrayref, index, value-tag
                 shadowLocals.pop(2);
                 shadowLocals.pushWide();
@@ -96,8 +352,9 @@ class TagPropagator extends MethodVisitor {
                 shadowLocals.peek(2);
                 shadowLocals.peek(1);
                 shadowLocals.peek(0);
+                applyControlTag();
                 // arrayref, index, value, arrayref, index, arrayref-tag, index-tag, value-tag
-                Handle.ARRAY_TAG_STORE_SET_TAG.accept(mv);
+                invoke(Handle.ARRAY_TAG_STORE_SET_TAG);
                 // arrayref, index, value
                 shadowLocals.pop(3);
                 break;
@@ -113,8 +370,9 @@ class TagPropagator extends MethodVisitor {
                 shadowLocals.peek(3);
                 shadowLocals.peek(2);
                 shadowLocals.peek(1);
+                applyControlTag();
                 // arrayref, index, value, top, arrayref, index, arrayref-tag, index-tag, value-tag
-                Handle.ARRAY_TAG_STORE_SET_TAG.accept(mv);
+                invoke(Handle.ARRAY_TAG_STORE_SET_TAG);
                 // arrayref, index, value, top
                 shadowLocals.pop(4);
                 break;
@@ -173,12 +431,13 @@ class TagPropagator extends MethodVisitor {
             case FCMPL:
             case FCMPG:
                 // ..., value1, value2 -> ..., result
-                shadowLocals.peek(1);
-                shadowLocals.peek(0);
-                // ..., value1, value2, tag1, tag2
-                Handle.TAG_UNION.accept(mv);
-                shadowLocals.pop(2);
-                shadowLocals.push();
+                if (isEmptyTagSite(opcode)) {
+                    shadowLocals.pop(1);
+                } else {
+                    union(1, 0);
+                    shadowLocals.pop(2);
+                    shadowLocals.push();
+                }
                 break;
             case LADD:
             case DADD:
@@ -194,31 +453,37 @@ class TagPropagator extends MethodVisitor {
             case LOR:
             case LXOR:
                 // ..., value1, top, value2, top -> ..., result, top
-                shadowLocals.peek(3);
-                shadowLocals.peek(1);
-                Handle.TAG_UNION.accept(mv);
-                shadowLocals.pop(4);
-                shadowLocals.pushWide();
+                if (isEmptyTagSite(opcode)) {
+                    shadowLocals.pop(2);
+                } else {
+                    union(3, 1);
+                    shadowLocals.pop(4);
+                    shadowLocals.pushWide();
+                }
                 break;
             case LSHL:
             case LUSHR:
             case LSHR:
                 // ..., value1, top, value2 -> ..., result, top
-                shadowLocals.peek(2);
-                shadowLocals.peek(0);
-                Handle.TAG_UNION.accept(mv);
-                shadowLocals.pop(3);
-                shadowLocals.pushWide();
+                if (isEmptyTagSite(opcode)) {
+                    shadowLocals.pop(1);
+                } else {
+                    union(2, 0);
+                    shadowLocals.pop(3);
+                    shadowLocals.pushWide();
+                }
                 break;
             case LCMP:
             case DCMPL:
             case DCMPG:
                 // ..., value1, top, value2, top -> ..., result
-                shadowLocals.peek(3);
-                shadowLocals.peek(1);
-                Handle.TAG_UNION.accept(mv);
-                shadowLocals.pop(4);
-                shadowLocals.push();
+                if (isEmptyTagSite(opcode)) {
+                    shadowLocals.pop(3);
+                } else {
+                    union(3, 1);
+                    shadowLocals.pop(4);
+                    shadowLocals.push();
+                }
                 break;
             case Opcodes.INEG:
             case Opcodes.FNEG:
@@ -258,25 +523,30 @@ class TagPropagator extends MethodVisitor {
             case Opcodes.ARETURN:
                 // ..., value -> ...
                 shadowLocals.peek(0);
+                applyControlTag();
                 shadowLocals.getFrameManager().setReturnTag();
                 shadowLocals.pop(1);
+                exitControlStack();
                 break;
             case Opcodes.DRETURN:
             case Opcodes.LRETURN:
                 // ..., value, top -> ...
                 shadowLocals.peek(1);
+                applyControlTag();
                 shadowLocals.getFrameManager().setReturnTag();
                 shadowLocals.pop(2);
+                exitControlStack();
                 break;
             case Opcodes.RETURN:
                 // ..., -> []
+                exitControlStack();
                 break;
             case Opcodes.ARRAYLENGTH:
                 // ..., arrayref -> ..., length
                 super.visitInsn(DUP);
                 shadowLocals.peek(0);
                 // arrayref, arrayref, arrayref-tag
-                Handle.ARRAY_TAG_STORE_GET_LENGTH_TAG.accept(mv);
+                invoke(Handle.ARRAY_TAG_STORE_GET_LENGTH_TAG);
                 // arrayref
                 shadowLocals.pop(1);
                 shadowLocals.push();
@@ -285,6 +555,7 @@ class TagPropagator extends MethodVisitor {
                 // ..., objectref -> []
                 super.visitInsn(DUP);
                 shadowLocals.peek(0);
+                applyControlTag();
                 // objectref, objectref, objectref-tag
                 Handle.EXCEPTION_STORE_SET.accept(mv);
                 // objectref
@@ -303,6 +574,7 @@ class TagPropagator extends MethodVisitor {
 
     @Override
     public void visitIntInsn(int opcode, int operand) {
+        updateControlStack();
         switch (opcode) {
             case BIPUSH:
             case SIPUSH:
@@ -318,7 +590,7 @@ class TagPropagator extends MethodVisitor {
                 super.visitInsn(DUP);
                 shadowLocals.peek(0);
                 // arrayref, arrayref, count-tag
-                Handle.ARRAY_TAG_STORE_SET_LENGTH_TAG.accept(mv);
+                invoke(Handle.ARRAY_TAG_STORE_SET_LENGTH_TAG);
                 // arrayref
                 Handle.TAG_GET_EMPTY.accept(mv);
                 shadowLocals.pop(1);
@@ -331,6 +603,7 @@ class TagPropagator extends MethodVisitor {
 
     @Override
     public void visitVarInsn(int opcode, int varIndex) {
+        updateControlStack();
         switch (opcode) {
             case ILOAD:
             case FLOAD:
@@ -349,15 +622,21 @@ class TagPropagator extends MethodVisitor {
             case FSTORE:
             case ASTORE:
                 // ..., value -> ...
-                shadowLocals.peek(0);
-                shadowLocals.storeShadowVar(varIndex);
+                if (!isEmptyTagSite(opcode)) {
+                    shadowLocals.peek(0);
+                    applyControlTag();
+                    shadowLocals.storeShadowVar(varIndex);
+                }
                 shadowLocals.pop(1);
                 break;
             case LSTORE:
             case DSTORE:
                 // ..., value, top -> ...
-                shadowLocals.peek(1);
-                shadowLocals.storeShadowVar(varIndex);
+                if (!isEmptyTagSite(opcode)) {
+                    shadowLocals.peek(1);
+                    applyControlTag();
+                    shadowLocals.storeShadowVar(varIndex);
+                }
                 shadowLocals.pop(2);
                 break;
             case RET:
@@ -370,6 +649,9 @@ class TagPropagator extends MethodVisitor {
 
     @Override
     public void visitTypeInsn(int opcode, String type) {
+        if (opcode != NEW) {
+            updateControlStack();
+        }
         switch (opcode) {
             case NEW:
                 visitNew(type);
@@ -407,7 +689,7 @@ class TagPropagator extends MethodVisitor {
         super.visitInsn(DUP);
         shadowLocals.peek(0);
         // arrayref, arrayref, count-tag
-        Handle.ARRAY_TAG_STORE_SET_LENGTH_TAG.accept(mv);
+        invoke(Handle.ARRAY_TAG_STORE_SET_LENGTH_TAG);
         // arrayref
         Handle.TAG_GET_EMPTY.accept(mv);
         shadowLocals.pop(1);
@@ -419,12 +701,14 @@ class TagPropagator extends MethodVisitor {
         // Must visit the original NEW instruction first to keep it next to the label used to represent
         // it in stack frames
         super.visitTypeInsn(NEW, type);
+        updateControlStack();
         Handle.TAG_GET_EMPTY.accept(mv);
         shadowLocals.push();
     }
 
     @Override
     public void visitFieldInsn(int opcode, String owner, String name, String descriptor) {
+        updateControlStack();
         switch (opcode) {
             case GETSTATIC:
                 visitGetStatic(owner, name, descriptor);
@@ -453,7 +737,7 @@ class TagPropagator extends MethodVisitor {
         } else if (isMirroredField(owner, name, false)) {
             prepareForPutField(valueSize);
             super.visitLdcInsn(owner + '#' + name + '#' + descriptor);
-            Handle.FIELD_TAG_STORE_PUT_FIELD.accept(mv);
+            invoke(Handle.FIELD_TAG_STORE_PUT_FIELD);
         }
         // Remove the tags on the shadow stack for the slots consumed by this instruction
         shadowLocals.pop(valueSize + 1);
@@ -480,6 +764,7 @@ class TagPropagator extends MethodVisitor {
             shadowLocals.peek(0);
             // objectref, value, objectref, value-tag
         }
+        applyControlTag();
     }
 
     private void visitGetField(String owner, String name, String descriptor) {
@@ -494,7 +779,7 @@ class TagPropagator extends MethodVisitor {
             super.visitInsn(DUP);
             // objectref, objectref
             super.visitLdcInsn(owner + '#' + name + '#' + descriptor);
-            Handle.FIELD_TAG_STORE_GET_FIELD.accept(mv);
+            invoke(Handle.FIELD_TAG_STORE_GET_FIELD);
             // objectref, value-tag
         } else {
             Handle.TAG_GET_EMPTY.accept(mv);
@@ -502,7 +787,7 @@ class TagPropagator extends MethodVisitor {
         if (ShadowFieldAdder.isBoxedType(owner) && "value".equals(name)) {
             // Propagate from boxed type to its value
             shadowLocals.peek(0);
-            Handle.TAG_UNION.accept(mv);
+            invoke(Handle.TAG_UNION);
         }
         // Remove the tags on the shadow stack for the slot consumed by this instruction
         shadowLocals.pop(1);
@@ -520,12 +805,14 @@ class TagPropagator extends MethodVisitor {
         // value OR value, top
         if (isShadowedField(owner)) {
             shadowLocals.peek(valueSize - 1);
+            applyControlTag();
             super.visitFieldInsn(
                     PUTSTATIC, owner, ShadowFieldAdder.getShadowFieldName(name), ShadowFieldAdder.TAG_DESCRIPTOR);
         } else if (isMirroredField(owner, name, true)) {
             shadowLocals.peek(valueSize - 1);
+            applyControlTag();
             super.visitLdcInsn(owner + '#' + name + '#' + descriptor);
-            Handle.FIELD_TAG_STORE_PUT_STATIC.accept(mv);
+            invoke(Handle.FIELD_TAG_STORE_PUT_STATIC);
         }
         // value or value, top
         // Remove the tags on the shadow stack for the slots consumed by this instruction
@@ -540,7 +827,7 @@ class TagPropagator extends MethodVisitor {
                     GETSTATIC, owner, ShadowFieldAdder.getShadowFieldName(name), ShadowFieldAdder.TAG_DESCRIPTOR);
         } else if (isMirroredField(owner, name, true)) {
             super.visitLdcInsn(owner + '#' + name + '#' + descriptor);
-            Handle.FIELD_TAG_STORE_GET_STATIC.accept(mv);
+            invoke(Handle.FIELD_TAG_STORE_GET_STATIC);
         } else {
             Handle.TAG_GET_EMPTY.accept(mv);
         }
@@ -558,12 +845,15 @@ class TagPropagator extends MethodVisitor {
             String descriptor,
             org.objectweb.asm.Handle bootstrapMethodHandle,
             Object... bootstrapMethodArguments) {
+        updateControlStack();
         // Handled by IndirectFramePasser
         super.visitInvokeDynamicInsn(name, descriptor, bootstrapMethodHandle, bootstrapMethodArguments);
     }
 
     @Override
     public void visitJumpInsn(int opcode, Label label) {
+        updateControlStack();
+        int branch;
         switch (opcode) {
             case IFEQ:
             case IFNE:
@@ -574,6 +864,11 @@ class TagPropagator extends MethodVisitor {
             case IFNULL:
             case IFNONNULL:
                 // ..., value -> ...
+                branch = claimOriginalBranch(opcode, label);
+                if (branch != -1) {
+                    shadowLocals.peek(0);
+                    pushControlTag(branch);
+                }
                 shadowLocals.pop(1);
                 break;
             case IF_ICMPEQ:
@@ -585,6 +880,13 @@ class TagPropagator extends MethodVisitor {
             case IF_ACMPEQ:
             case IF_ACMPNE:
                 // ..., value1, value2 -> ...
+                branch = claimOriginalBranch(opcode, label);
+                if (branch != -1) {
+                    shadowLocals.peek(1);
+                    shadowLocals.peek(0);
+                    invoke(Handle.TAG_UNION);
+                    pushControlTag(branch);
+                }
                 shadowLocals.pop(2);
                 break;
             case GOTO:
@@ -603,6 +905,7 @@ class TagPropagator extends MethodVisitor {
 
     @Override
     public void visitLdcInsn(Object value) {
+        updateControlStack();
         Handle.TAG_GET_EMPTY.accept(mv);
         if (value instanceof Double || value instanceof Long) {
             // ... -> ..., value, top
@@ -616,26 +919,45 @@ class TagPropagator extends MethodVisitor {
 
     @Override
     public void visitIincInsn(int varIndex, int increment) {
+        updateControlStack();
         // No need to do anything for data flow propagation
+        if (implicitFlows) {
+            shadowLocals.loadShadowVar(varIndex);
+            applyControlTag();
+            shadowLocals.storeShadowVar(varIndex);
+        }
         super.visitIincInsn(varIndex, increment);
     }
 
     @Override
     public void visitTableSwitchInsn(int min, int max, Label dflt, Label... labels) {
+        updateControlStack();
         // ..., index -> ...
+        int branch = claimOriginalBranch(TABLESWITCH, dflt);
+        if (branch != -1) {
+            shadowLocals.peek(0);
+            pushControlTag(branch);
+        }
         shadowLocals.pop(1);
         super.visitTableSwitchInsn(min, max, dflt, labels);
     }
 
     @Override
     public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] labels) {
+        updateControlStack();
         // ..., key -> ...
+        int branch = claimOriginalBranch(LOOKUPSWITCH, dflt);
+        if (branch != -1) {
+            shadowLocals.peek(0);
+            pushControlTag(branch);
+        }
         shadowLocals.pop(1);
         super.visitLookupSwitchInsn(dflt, keys, labels);
     }
 
     @Override
     public void visitMultiANewArrayInsn(String descriptor, int numDimensions) {
+        updateControlStack();
         // ..., count1, [count2, ...] -> ..., arrayref
         super.visitMultiANewArrayInsn(descriptor, numDimensions);
         // arrayref
@@ -654,7 +976,7 @@ class TagPropagator extends MethodVisitor {
             // arrayref, arrayref, tag-array
         }
         // arrayref, arrayref, tag-array
-        Handle.ARRAY_TAG_STORE_SET_LENGTH_TAGS.accept(mv);
+        invoke(Handle.ARRAY_TAG_STORE_SET_LENGTH_TAGS);
         // arrayref
         // Set the tag for the newly created array in the shadow stack
         Handle.TAG_GET_EMPTY.accept(mv);
@@ -664,6 +986,7 @@ class TagPropagator extends MethodVisitor {
 
     @Override
     public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+        updateControlStack();
         if (IndirectFramePasser.isSignaturePolymorphic(owner, name)) {
             // Handled by IndirectFramePasser
             super.visitMethodInsn(opcode, owner, name, descriptor, isInterface);
@@ -714,6 +1037,8 @@ class TagPropagator extends MethodVisitor {
             return true;
         }
         // Shadows are not created for classes explicitly excluded
+        // Checking the owner is sufficient: excluded classes add shadows that delegate to their overrides of
+        // instrumented methods and classes that extend excluded classes add shadows for every callable method
         return GaletteTransformer.isExcluded(owner);
     }
 
@@ -730,12 +1055,163 @@ class TagPropagator extends MethodVisitor {
         return !ShadowFieldAdder.hasShadowFields(owner) && !owner.equals("java/lang/ref/Reference");
     }
 
+    /**
+     * Inserts a call that records an invocation of the specified handle by the specified site if profiling is
+     * enabled.
+     * The inserted instructions have no net effect on the operand stack.
+     *
+     * @param mv the visitor to which the call should be passed
+     * @param site the identifier of the method reported to the profiler or -1 if profiling is disabled
+     * @param handle the handle whose invocation should be recorded
+     */
+    static void profile(MethodVisitor mv, int site, Handle handle) {
+        if (site != -1) {
+            AsmUtil.pushInt(mv, site);
+            AsmUtil.pushInt(mv, handle.ordinal());
+            Handle.PROFILER_RECORD.accept(mv);
+        }
+    }
+
     static MethodVisitor newInstance(MethodVisitor mv, MethodNode original, boolean isShadow, String owner) {
-        ShadowLocals shadowLocals = ShadowLocals.newInstance(mv, original, isShadow);
-        TagPropagator propagator = new TagPropagator(shadowLocals, shadowLocals);
+        ControlFlowAnalysis controlFlow = null;
+        if (GaletteTransformer.isImplicitFlows()) {
+            controlFlow = ControlFlowAnalysis.analyze(owner, original);
+            boolean hasHandlers = original.tryCatchBlocks != null && !original.tryCatchBlocks.isEmpty();
+            if (controlFlow != null && controlFlow.getBranchCount() == 0 && !hasHandlers) {
+                // The method does not need to reserve slots on the control stack
+                controlFlow = null;
+            }
+        }
+        int controlSlots = controlFlow == null ? -1 : controlFlow.getBranchCount();
+        ShadowLocals shadowLocals = ShadowLocals.newInstance(mv, original, isShadow, controlSlots);
+        int site = GaletteTransformer.isProfiling()
+                ? PropagationProfiler.registerSite(owner + '.' + original.name + original.desc)
+                : -1;
+        // The taint flow analysis does not account for control dependence, so it cannot find empty tag sites when
+        // implicit flows are tracked
+        boolean[] emptyTagSites =
+                GaletteTransformer.isImplicitFlows() ? null : TaintFlowAnalysis.findEmptyTagSites(owner, original);
+        TagPropagator propagator =
+                new TagPropagator(shadowLocals, shadowLocals, site, emptyTagSites, original, controlFlow);
         AnalyzerAdapter analyzer =
                 new AnalyzerAdapter(owner, original.access, original.name, original.desc, propagator);
-        IndirectFramePasser iPasser = new IndirectFramePasser(shadowLocals, analyzer, analyzer);
-        return new ObjectShadowCaller(owner, original.access, original.name, original.desc, iPasser);
+        IndirectFramePasser iPasser = new IndirectFramePasser(shadowLocals, analyzer, analyzer, site);
+        ObjectShadowCaller caller =
+                new ObjectShadowCaller(owner, original.access, original.name, original.desc, iPasser);
+        return new OriginalInstructionTracker(caller, propagator);
+    }
+
+    /**
+     * Records the instruction of the original method that is being visited for a {@link TagPropagator}.
+     * This visitor must be the first visitor in the chain, so that the instructions added by the other visitors in
+     * the chain are visited while the original instruction that they were added for is being visited.
+     */
+    private static final class OriginalInstructionTracker extends MethodVisitor {
+        private final TagPropagator propagator;
+        /**
+         * The node of the original method after the last instruction that was visited or {@code null} if every
+         * instruction has been visited.
+         */
+        private AbstractInsnNode next;
+
+        private OriginalInstructionTracker(MethodVisitor mv, TagPropagator propagator) {
+            super(GaletteTransformer.ASM_VERSION, mv);
+            this.propagator = propagator;
+            this.next = propagator.original.instructions.getFirst();
+        }
+
+        private void advance() {
+            // Skip labels, line numbers, and frames
+            while (next != null && next.getOpcode() == -1) {
+                next = next.getNext();
+            }
+            if (next == null) {
+                throw new IllegalStateException("Visited instruction is not in " + propagator.original.name);
+            }
+            propagator.currentOriginal = next;
+            next = next.getNext();
+        }
+
+        @Override
+        public void visitInsn(int opcode) {
+            advance();
+            super.visitInsn(opcode);
+        }
+
+        @Override
+        public void visitIntInsn(int opcode, int operand) {
+            advance();
+            super.visitIntInsn(opcode, operand);
+        }
+
+        @Override
+        public void visitVarInsn(int opcode, int varIndex) {
+            advance();
+            super.visitVarInsn(opcode, varIndex);
+        }
+
+        @Override
+        public void visitTypeInsn(int opcode, String type) {
+            advance();
+            super.visitTypeInsn(opcode, type);
+        }
+
+        @Override
+        public void visitFieldInsn(int opcode, String owner, String name, String descriptor) {
+            advance();
+            super.visitFieldInsn(opcode, owner, name, descriptor);
+        }
+
+        @Override
+        public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+            advance();
+            super.visitMethodInsn(opcode, owner, name, descriptor, isInterface);
+        }
+
+        @Override
+        public void visitInvokeDynamicInsn(
+                String name,
+                String descriptor,
+                org.objectweb.asm.Handle bootstrapMethodHandle,
+                Object... bootstrapMethodArguments) {
+            advance();
+            super.visitInvokeDynamicInsn(name, descriptor, bootstrapMethodHandle, bootstrapMethodArguments);
+        }
+
+        @Override
+        public void visitJumpInsn(int opcode, Label label) {
+            advance();
+            super.visitJumpInsn(opcode, label);
+        }
+
+        @Override
+        public void visitLdcInsn(Object value) {
+            advance();
+            super.visitLdcInsn(value);
+        }
+
+        @Override
+        public void visitIincInsn(int varIndex, int increment) {
+            advance();
+            super.visitIincInsn(varIndex, increment);
+        }
+
+        @Override
+        public void visitTableSwitchInsn(int min, int max, Label dflt, Label... labels) {
+            advance();
+            super.visitTableSwitchInsn(min, max, dflt, labels);
+        }
+
+        @Override
+        public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] labels) {
+            advance();
+            super.visitLookupSwitchInsn(dflt, keys, labels);
+        }
+
+        @Override
+        public void visitMultiANewArrayInsn(String descriptor, int numDimensions) {
+            advance();
+            super.visitMultiANewArrayInsn(descriptor, numDimensions);
+        }
     }
 }
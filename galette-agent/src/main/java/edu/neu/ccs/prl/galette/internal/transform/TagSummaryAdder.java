@@ -0,0 +1,26 @@
+package edu.neu.ccs.prl.galette.internal.transform;
+
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+class TagSummaryAdder extends ClassVisitor {
+    private static final int TAG_SUMMARY_FIELD_ACCESS =
+            Opcodes.ACC_PUBLIC | Opcodes.ACC_SYNTHETIC | Opcodes.ACC_VOLATILE | Opcodes.ACC_TRANSIENT;
+    private static final String TAG_SUMMARY_FIELD_NAME = GaletteTransformer.ADDED_MEMBER_PREFIX + "TAG_SUMMARY";
+    private static final String TAG_SUMMARY_FIELD_DESCRIPTOR = Type.getDescriptor(Object.class);
+
+    TagSummaryAdder(ClassVisitor classVisitor) {
+        super(GaletteTransformer.ASM_VERSION, classVisitor);
+    }
+
+    @Override
+    public void visitEnd() {
+        super.visitField(TAG_SUMMARY_FIELD_ACCESS, TAG_SUMMARY_FIELD_NAME, TAG_SUMMARY_FIELD_DESCRIPTOR, null, null);
+        super.visitEnd();
+    }
+
+    public static boolean isApplicable(String className) {
+        return "java/lang/String".equals(className);
+    }
+}
@@ -0,0 +1,348 @@
+package edu.neu.ccs.prl.galette.internal.transform;
+
+import static org.objectweb.asm.Opcodes.*;
+
+import java.util.List;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.FieldInsnNode;
+import org.objectweb.asm.tree.InvokeDynamicInsnNode;
+import org.objectweb.asm.tree.LdcInsnNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TryCatchBlockNode;
+import org.objectweb.asm.tree.VarInsnNode;
+import org.objectweb.asm.tree.analysis.Analyzer;
+import org.objectweb.asm.tree.analysis.AnalyzerException;
+import org.objectweb.asm.tree.analysis.Frame;
+import org.objectweb.asm.tree.analysis.Interpreter;
+import org.objectweb.asm.tree.analysis.Value;
+
+/**
+ * Intraprocedural analysis that identifies binary operations whose operands are guaranteed to have empty tags and
+ * stores to local variables that are guaranteed not to change the tag of the local variable.
+ * <p>
+ * A value may have a non-empty tag if it is derived from an argument, the receiver, a field, an array element,
+ * an array length, the return value of a call, or a caught exception.
+ * Constants, newly allocated objects and arrays, and uninitialized local variables always have empty tags.
+ * For the operations recognized by {@link #isUnionSite(int)}, {@link TagPropagator} can reuse the empty tag of the
+ * first operand as the tag of the result instead of loading the operand tags from the shadow stack and computing
+ * their union.
+ * For the stores recognized by {@link #isStoreSite(int)}, {@link TagPropagator} can skip copying the tag of the stored
+ * value to the shadow variable of the local variable if both the stored value and the local variable's current value
+ * have empty tags.
+ * Shadow variables are initialized with empty tags, except those of parameters, and are only written by stores.
+ * A local variable that is invalidated by a store to an overlapping wide local variable is considered to have a
+ * non-empty tag because its shadow variable is not updated by that store.
+ */
+final class TaintFlowAnalysis {
+    private TaintFlowAnalysis() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Returns an array indicating for each instruction in the specified method, by the instruction's index in the
+     * method's instruction list, whether the instruction is a union site whose operands are guaranteed to have empty
+     * tags or a store site whose stored value and local variable are guaranteed to have empty tags.
+     * Returns {@code null} if the method could not be analyzed.
+     *
+     * @param owner the internal name of the class that owns the method
+     * @param mn the method to be analyzed
+     * @return an array indicating whether each instruction is a union or store site whose operands have empty tags
+     * or {@code null}
+     * @see org.objectweb.asm.tree.InsnList#indexOf(AbstractInsnNode)
+     */
+    static boolean[] findEmptyTagSites(String owner, MethodNode mn) {
+        boolean[] result = new boolean[mn.instructions.size()];
+        boolean hasSites = false;
+        for (AbstractInsnNode insn : mn.instructions) {
+            hasSites |= isUnionSite(insn.getOpcode()) || isStoreSite(insn.getOpcode());
+        }
+        if (!hasSites) {
+            return result;
+        }
+        TaintInterpreter interpreter = new TaintInterpreter();
+        Frame<TaintValue>[] frames;
+        try {
+            frames = new Analyzer<TaintValue>(interpreter) {
+                @Override
+                protected void init(String owner, MethodNode method) {
+                    // Called once the initial frame has been computed
+                    interpreter.invalidating = true;
+                }
+            }.analyze(owner, mn);
+        } catch (AnalyzerException e) {
+            return null;
+        }
+        for (int i = 0; i < mn.instructions.size(); i++) {
+            AbstractInsnNode insn = mn.instructions.get(i);
+            Frame<TaintValue> frame = frames[i];
+            // Frames are null for unreachable instructions
+            if (frame == null) {
+                continue;
+            }
+            if (isUnionSite(insn.getOpcode())) {
+                result[i] = !frame.getStack(frame.getStackSize() - 1).tainted
+                        && !frame.getStack(frame.getStackSize() - 2).tainted;
+            } else if (isStoreSite(insn.getOpcode())) {
+                result[i] = !frame.getStack(frame.getStackSize() - 1).tainted
+                        && !frame.getLocal(((VarInsnNode) insn).var).tainted;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns {@code true} if {@link TagPropagator} copies the tag of the value stored by the instruction with the
+     * specified opcode to the shadow variable of a local variable.
+     *
+     * @param opcode the opcode of the instruction
+     * @return {@code true} if the instruction is a store site
+     */
+    static boolean isStoreSite(int opcode) {
+        switch (opcode) {
+            case ISTORE:
+            case LSTORE:
+            case FSTORE:
+            case DSTORE:
+            case ASTORE:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Returns {@code true} if {@link TagPropagator} computes the union of the tags of the two operands of the
+     * instruction with the specified opcode.
+     *
+     * @param opcode the opcode of the instruction
+     * @return {@code true} if the instruction is a union site
+     */
+    static boolean isUnionSite(int opcode) {
+        switch (opcode) {
+            case IADD:
+            case FADD:
+            case ISUB:
+            case FSUB:
+            case IMUL:
+            case FMUL:
+            case IDIV:
+            case FDIV:
+            case IREM:
+            case FREM:
+            case ISHL:
+            case ISHR:
+            case IUSHR:
+            case IAND:
+            case IOR:
+            case IXOR:
+            case FCMPL:
+            case FCMPG:
+            case LADD:
+            case DADD:
+            case LSUB:
+            case DSUB:
+            case LMUL:
+            case DMUL:
+            case LDIV:
+            case DDIV:
+            case LREM:
+            case DREM:
+            case LAND:
+            case LOR:
+            case LXOR:
+            case LSHL:
+            case LUSHR:
+            case LSHR:
+            case LCMP:
+            case DCMPL:
+            case DCMPG:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    static final class TaintValue implements Value {
+        private static final TaintValue EMPTY = new TaintValue(1, false);
+        private static final TaintValue WIDE_EMPTY = new TaintValue(2, false);
+        private static final TaintValue TAINTED = new TaintValue(1, true);
+        private static final TaintValue WIDE_TAINTED = new TaintValue(2, true);
+        private final int size;
+        private final boolean tainted;
+
+        private TaintValue(int size, boolean tainted) {
+            this.size = size;
+            this.tainted = tainted;
+        }
+
+        @Override
+        public int getSize() {
+            return size;
+        }
+
+        static TaintValue of(int size, boolean tainted) {
+            if (size == 2) {
+                return tainted ? WIDE_TAINTED : WIDE_EMPTY;
+            }
+            return tainted ? TAINTED : EMPTY;
+        }
+    }
+
+    private static final class TaintInterpreter extends Interpreter<TaintValue> {
+        /**
+         * {@code true} if empty values are being created for local variables that are invalidated by stores to
+         * overlapping wide local variables rather than for the initial frame.
+         */
+        private boolean invalidating = false;
+
+        TaintInterpreter() {
+            super(GaletteTransformer.ASM_VERSION);
+        }
+
+        @Override
+        public TaintValue newEmptyValue(int local) {
+            // The shadow variable of an invalidated local variable keeps its previous tag
+            return invalidating ? TaintValue.TAINTED : TaintValue.EMPTY;
+        }
+
+        @Override
+        public TaintValue newValue(Type type) {
+            if (type == Type.VOID_TYPE) {
+                return null;
+            }
+            return TaintValue.of(type == null ? 1 : type.getSize(), false);
+        }
+
+        @Override
+        public TaintValue newParameterValue(boolean isInstanceMethod, int local, Type type) {
+            return TaintValue.of(type.getSize(), true);
+        }
+
+        @Override
+        public TaintValue newExceptionValue(
+                TryCatchBlockNode tryCatchBlockNode, Frame<TaintValue> handlerFrame, Type exceptionType) {
+            return TaintValue.TAINTED;
+        }
+
+        @Override
+        public TaintValue newOperation(AbstractInsnNode insn) {
+            switch (insn.getOpcode()) {
+                case LCONST_0:
+                case LCONST_1:
+                case DCONST_0:
+                case DCONST_1:
+                    return TaintValue.WIDE_EMPTY;
+                case LDC:
+                    Object value = ((LdcInsnNode) insn).cst;
+                    return TaintValue.of(value instanceof Long || value instanceof Double ? 2 : 1, false);
+                case GETSTATIC:
+                    return TaintValue.of(
+                            Type.getType(((FieldInsnNode) insn).desc).getSize(), true);
+                default:
+                    return TaintValue.EMPTY;
+            }
+        }
+
+        @Override
+        public TaintValue copyOperation(AbstractInsnNode insn, TaintValue value) {
+            return value;
+        }
+
+        @Override
+        public TaintValue unaryOperation(AbstractInsnNode insn, TaintValue value) {
+            switch (insn.getOpcode()) {
+                case GETFIELD:
+                    return TaintValue.of(
+                            Type.getType(((FieldInsnNode) insn).desc).getSize(), true);
+                case ARRAYLENGTH:
+                    return TaintValue.TAINTED;
+                case NEWARRAY:
+                case ANEWARRAY:
+                    return TaintValue.EMPTY;
+                case LNEG:
+                case DNEG:
+                case I2L:
+                case I2D:
+                case L2D:
+                case F2L:
+                case F2D:
+                case D2L:
+                    return TaintValue.of(2, value.tainted);
+                default:
+                    return TaintValue.of(1, value.tainted);
+            }
+        }
+
+        @Override
+        public TaintValue binaryOperation(AbstractInsnNode insn, TaintValue value1, TaintValue value2) {
+            switch (insn.getOpcode()) {
+                case LALOAD:
+                case DALOAD:
+                    return TaintValue.WIDE_TAINTED;
+                case IALOAD:
+                case FALOAD:
+                case AALOAD:
+                case BALOAD:
+                case CALOAD:
+                case SALOAD:
+                    return TaintValue.TAINTED;
+                case LADD:
+                case DADD:
+                case LSUB:
+                case DSUB:
+                case LMUL:
+                case DMUL:
+                case LDIV:
+                case DDIV:
+                case LREM:
+                case DREM:
+                case LAND:
+                case LOR:
+                case LXOR:
+                case LSHL:
+                case LUSHR:
+                case LSHR:
+                    return TaintValue.of(2, value1.tainted || value2.tainted);
+                default:
+                    return TaintValue.of(1, value1.tainted || value2.tainted);
+            }
+        }
+
+        @Override
+        public TaintValue ternaryOperation(
+                AbstractInsnNode insn, TaintValue value1, TaintValue value2, TaintValue value3) {
+            return null;
+        }
+
+        @Override
+        public TaintValue naryOperation(AbstractInsnNode insn, List<? extends TaintValue> values) {
+            switch (insn.getOpcode()) {
+                case MULTIANEWARRAY:
+                    return TaintValue.EMPTY;
+                case INVOKEDYNAMIC:
+                    return newReturnValue(Type.getReturnType(((InvokeDynamicInsnNode) insn).desc));
+                default:
+                    return newReturnValue(Type.getReturnType(((MethodInsnNode) insn).desc));
+            }
+        }
+
+        private static TaintValue newReturnValue(Type returnType) {
+            return returnType == Type.VOID_TYPE ? null : TaintValue.of(returnType.getSize(), true);
+        }
+
+        @Override
+        public void returnOperation(AbstractInsnNode insn, TaintValue value, TaintValue expected) {}
+
+        @Override
+        public TaintValue merge(TaintValue value1, TaintValue value2) {
+            if (value1 == value2) {
+                return value1;
+            }
+            // Values of different sizes cannot be used after the merge
+            int size = value1.size == value2.size ? value1.size : 1;
+            return TaintValue.of(size, value1.tainted || value2.tainted);
+        }
+    }
+}
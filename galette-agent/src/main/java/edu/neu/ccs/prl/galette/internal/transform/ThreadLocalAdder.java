@@ -1,21 +1,20 @@
 package edu.neu.ccs.prl.galette.internal.transform;
 
+import edu.neu.ccs.prl.galette.internal.runtime.ThreadShadow;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 
+/**
+ * Adds the field that holds the {@link ThreadShadow} record of a thread to {@link Thread}.
+ * All the per-thread state used by the runtime is stored in that record, so that only one reference is added to
+ * each thread, including each virtual thread.
+ */
 class ThreadLocalAdder extends ClassVisitor {
     private static final int LOCAL_FIELD_ACCESS =
             Opcodes.ACC_PUBLIC | Opcodes.ACC_SYNTHETIC | Opcodes.ACC_VOLATILE | Opcodes.ACC_TRANSIENT;
-    private static final String LOCAL_SPARE_FRAME_FIELD_NAME =
-            GaletteTransformer.ADDED_MEMBER_PREFIX + "$$LOCAL_spare_frame";
-    private static final String LOCAL_FRAME_FIELD_NAME = GaletteTransformer.ADDED_MEMBER_PREFIX + "$$LOCAL_frame";
-    private static final String LOCAL_EXCEPTION_INFO_FIELD_NAME =
-            GaletteTransformer.ADDED_MEMBER_PREFIX + "$$LOCAL_exceptionInfo";
-    private static final String LOCAL_EXCEPTION_INFO_DESCRIPTOR = Type.getDescriptor(Object.class);
-    private static final String LOCAL_FLAG_DESCRIPTOR = Type.getDescriptor(boolean.class);
-    private static final String LOCAL_UNSAFE_FLAG_FIELD_NAME =
-            GaletteTransformer.ADDED_MEMBER_PREFIX + "$$LOCAL_unsafeFlag";
+    private static final String LOCAL_SHADOW_FIELD_NAME = GaletteTransformer.ADDED_MEMBER_PREFIX + "$$LOCAL_shadow";
+    private static final String LOCAL_SHADOW_DESCRIPTOR = Type.getDescriptor(ThreadShadow.class);
 
     ThreadLocalAdder(ClassVisitor classVisitor) {
         super(GaletteTransformer.ASM_VERSION, classVisitor);
@@ -23,11 +22,7 @@ class ThreadLocalAdder extends ClassVisitor {
 
     @Override
     public void visitEnd() {
-        super.visitField(LOCAL_FIELD_ACCESS, LOCAL_SPARE_FRAME_FIELD_NAME, GaletteNames.FRAME_DESCRIPTOR, null, null);
-        super.visitField(LOCAL_FIELD_ACCESS, LOCAL_FRAME_FIELD_NAME, GaletteNames.A_FRAME_DESCRIPTOR, null, null);
-        super.visitField(
-                LOCAL_FIELD_ACCESS, LOCAL_EXCEPTION_INFO_FIELD_NAME, LOCAL_EXCEPTION_INFO_DESCRIPTOR, null, null);
-        super.visitField(LOCAL_FIELD_ACCESS, LOCAL_UNSAFE_FLAG_FIELD_NAME, LOCAL_FLAG_DESCRIPTOR, null, false);
+        super.visitField(LOCAL_FIELD_ACCESS, LOCAL_SHADOW_FIELD_NAME, LOCAL_SHADOW_DESCRIPTOR, null, null);
         super.visitEnd();
     }
 
@@ -0,0 +1,9 @@
+package edu.neu.ccs.prl.galette.example;
+
+public class GraphBox {
+    public transient Object[] contents;
+
+    public GraphBox(Object value) {
+        contents = new Object[] {value};
+    }
+}
@@ -0,0 +1,10 @@
+package edu.neu.ccs.prl.galette.example;
+
+import java.io.Serializable;
+
+public class GraphNode implements Serializable {
+    private static final long serialVersionUID = 6620317513843064233L;
+    public int value;
+    public GraphNode next;
+    public transient Object cache;
+}
@@ -0,0 +1,15 @@
+package edu.neu.ccs.prl.galette.example;
+
+import java.io.Serializable;
+
+/**
+ * A key that uses its identity hash code.
+ */
+public final class IdentityKey implements Serializable {
+    private static final long serialVersionUID = 1L;
+    public final int id;
+
+    public IdentityKey(int id) {
+        this.id = id;
+    }
+}
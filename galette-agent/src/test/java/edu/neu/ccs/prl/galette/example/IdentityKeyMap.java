@@ -0,0 +1,7 @@
+package edu.neu.ccs.prl.galette.example;
+
+import java.util.HashMap;
+
+public final class IdentityKeyMap extends HashMap<IdentityKey, Object> {
+    private static final long serialVersionUID = 1L;
+}
@@ -95,4 +95,53 @@ public class InstructionExamples {
             return 7;
         }
     }
+
+    public static int conditionalBranches() {
+        int sum = 0;
+        for (int i = 0; i < 10; i++) {
+            if (i % 3 == 0) {
+                sum += i;
+            } else if (i > 7) {
+                sum -= 1;
+            }
+        }
+        return sum;
+    }
+
+    public static int switchBranches() {
+        int sum = 0;
+        for (int i = 0; i < 5; i++) {
+            switch (i) {
+                case 0:
+                    sum += 2;
+                    break;
+                case 3:
+                    sum *= 3;
+                    break;
+                default:
+                    sum++;
+            }
+        }
+        return sum;
+    }
+
+    public static boolean conditionalConstruction() {
+        Object[] values = new Object[3];
+        Object value = values.length > 2 ? new Object() : values;
+        return value != values;
+    }
+
+    public static int branchingExceptionHandler() {
+        Object[] values = new Object[0];
+        int result = 0;
+        for (int i = 0; i < 3; i++) {
+            try {
+                Object x = i == 1 ? null : values;
+                result += x.hashCode() == 0 ? i : i;
+            } catch (NullPointerException e) {
+                result += 10;
+            }
+        }
+        return result;
+    }
 }
@@ -0,0 +1,11 @@
+package edu.neu.ccs.prl.galette.example;
+
+public class PolicyBase {
+    public int getValue() {
+        return 1;
+    }
+
+    public int getBaseValue() {
+        return 3;
+    }
+}
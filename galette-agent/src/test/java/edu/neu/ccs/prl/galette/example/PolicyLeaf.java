@@ -0,0 +1,7 @@
+package edu.neu.ccs.prl.galette.example;
+
+public class PolicyLeaf extends PolicySubclass {
+    public int getLeafValue() {
+        return getValue() + getBaseValue();
+    }
+}
@@ -0,0 +1,8 @@
+package edu.neu.ccs.prl.galette.example;
+
+public class PolicySubclass extends PolicyBase {
+    @Override
+    public int getValue() {
+        return 2;
+    }
+}
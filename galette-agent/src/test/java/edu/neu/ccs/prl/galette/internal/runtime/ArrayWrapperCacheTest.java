@@ -0,0 +1,86 @@
+package edu.neu.ccs.prl.galette.internal.runtime;
+
+import edu.neu.ccs.prl.galette.internal.runtime.collection.WeakDataStore;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class ArrayWrapperCacheTest {
+    @Test
+    void cachedWrapperReturnedWithoutLookup() {
+        WeakDataStore<Object, ArrayWrapper> store = new WeakDataStore<>(ArrayWrapper::new);
+        int[] array = new int[4];
+        ArrayWrapper wrapper = store.computeIfAbsent(array);
+        ArrayWrapperCache cache = new ArrayWrapperCache(0);
+        Assertions.assertSame(wrapper, cache.get(array, store, 0, 0));
+        store.clear();
+        // The wrapper is still cached because the generation did not change
+        Assertions.assertSame(wrapper, cache.get(array, store, 0, 0));
+    }
+
+    @Test
+    void generationChangeResetsCache() {
+        WeakDataStore<Object, ArrayWrapper> store = new WeakDataStore<>(ArrayWrapper::new);
+        int[] array = new int[4];
+        store.computeIfAbsent(array);
+        ArrayWrapperCache cache = new ArrayWrapperCache(0);
+        Assertions.assertNotNull(cache.get(array, store, 0, 0));
+        store.clear();
+        Assertions.assertNull(cache.get(array, store, 1, 0));
+    }
+
+    @Test
+    void missingWrapperInvalidatedByCreation() {
+        WeakDataStore<Object, ArrayWrapper> store = new WeakDataStore<>(ArrayWrapper::new);
+        int[] array = new int[4];
+        ArrayWrapperCache cache = new ArrayWrapperCache(0);
+        Assertions.assertNull(cache.get(array, store, 0, 0));
+        ArrayWrapper wrapper = store.computeIfAbsent(array);
+        Assertions.assertNull(cache.get(array, store, 0, 0));
+        Assertions.assertSame(wrapper, cache.get(array, store, 0, 1));
+    }
+
+    @Test
+    void insertionsOnlyCountCreatedWrappers() {
+        WeakDataStore<Object, ArrayWrapper> store = new WeakDataStore<>(ArrayWrapper::new);
+        int[] tagged = new int[4];
+        int[] untagged = new int[4];
+        store.computeIfAbsent(tagged);
+        ArrayWrapperCache cache = new ArrayWrapperCache(0);
+        Assertions.assertNull(cache.get(untagged, store, 0, store.getInsertions()));
+        // Finding an existing wrapper does not invalidate cached lookups that did not find a wrapper
+        store.computeIfAbsent(tagged);
+        Assertions.assertEquals(1, store.getInsertions());
+        ArrayWrapper wrapper = store.computeIfAbsent(untagged);
+        Assertions.assertEquals(2, store.getInsertions());
+        Assertions.assertSame(wrapper, cache.get(untagged, store, 0, store.getInsertions()));
+    }
+
+    @Test
+    void recordedLookupReturnedWithoutLookup() {
+        WeakDataStore<Object, ArrayWrapper> store = new WeakDataStore<>(ArrayWrapper::new);
+        int[] array = new int[4];
+        ArrayWrapper wrapper = new ArrayWrapper(array);
+        ArrayWrapperCache cache = new ArrayWrapperCache(0);
+        cache.put(array, wrapper, 0);
+        Assertions.assertSame(wrapper, cache.get(array, store, 0, 0));
+    }
+
+    @Test
+    void alternatingArraysRemainCached() {
+        WeakDataStore<Object, ArrayWrapper> store = new WeakDataStore<>(ArrayWrapper::new);
+        byte[] first = new byte[2];
+        byte[] second = new byte[2];
+        byte[] third = new byte[2];
+        ArrayWrapper firstWrapper = store.computeIfAbsent(first);
+        ArrayWrapper secondWrapper = store.computeIfAbsent(second);
+        ArrayWrapperCache cache = new ArrayWrapperCache(0);
+        cache.get(first, store, 0, 0);
+        cache.get(second, store, 0, 0);
+        store.clear();
+        Assertions.assertSame(firstWrapper, cache.get(first, store, 0, 0));
+        Assertions.assertSame(secondWrapper, cache.get(second, store, 0, 0));
+        // Looking up a third array evicts the least recently added entry
+        Assertions.assertNull(cache.get(third, store, 0, 0));
+        Assertions.assertNull(cache.get(first, store, 0, 0));
+    }
+}
@@ -0,0 +1,167 @@
+package edu.neu.ccs.prl.galette.internal.runtime;
+
+import java.io.*;
+import java.util.Arrays;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class ArrayWrapperTest {
+    @Test
+    void fillAllElementsIsUniform() {
+        Tag tag = Tag.of("a");
+        ArrayWrapper wrapper = new ArrayWrapper(new char[1000]);
+        wrapper.fillElements(tag, 0, 1000);
+        Assertions.assertSame(tag, wrapper.getElement(999));
+        Assertions.assertSame(tag, wrapper.unionElements(10, 20));
+        Assertions.assertTrue(Tag.isEmpty(wrapper.unionElements(20, 20)));
+    }
+
+    @Test
+    void divergentStoreCopiesUniformTag() {
+        Tag a = Tag.of("a");
+        Tag b = Tag.of("b");
+        ArrayWrapper wrapper = new ArrayWrapper(new int[4]);
+        wrapper.fillElements(a, 0, 4);
+        wrapper.setElement(b, 2);
+        Assertions.assertSame(a, wrapper.getElement(1));
+        Assertions.assertSame(b, wrapper.getElement(2));
+        Assertions.assertSame(a, wrapper.getElement(3));
+        Assertions.assertArrayEquals(new Object[] {"a", "b"}, sortedLabels(wrapper.unionElements(0, 4)));
+    }
+
+    @Test
+    void partialFillOfUniformWrapper() {
+        Tag a = Tag.of("a");
+        ArrayWrapper wrapper = new ArrayWrapper(new byte[8]);
+        wrapper.fillElements(a, 2, 4);
+        Assertions.assertTrue(Tag.isEmpty(wrapper.getElement(1)));
+        Assertions.assertSame(a, wrapper.getElement(2));
+        Assertions.assertSame(a, wrapper.getElement(3));
+        Assertions.assertTrue(Tag.isEmpty(wrapper.getElement(4)));
+    }
+
+    @Test
+    void getElementsReflectsUniformTag() {
+        Tag a = Tag.of("a");
+        ArrayWrapper wrapper = new ArrayWrapper(new long[3]);
+        wrapper.fillElements(a, 0, 3);
+        Tag[] elements = wrapper.getElements();
+        Assertions.assertArrayEquals(new Tag[] {a, a, a}, elements);
+        elements[0] = null;
+        Assertions.assertNull(wrapper.getElement(0));
+    }
+
+    @Test
+    void peekElementsDoesNotAllocate() {
+        Tag a = Tag.of("a");
+        ArrayWrapper wrapper = new ArrayWrapper(new int[3]);
+        wrapper.fillElements(a, 0, 3);
+        Assertions.assertNull(wrapper.peekElements());
+        Assertions.assertSame(a, wrapper.getElement(1));
+        wrapper.setElement(Tag.of("b"), 1);
+        Assertions.assertSame(a, wrapper.peekElements()[0]);
+    }
+
+    @Test
+    void setElementsWithEqualTagsIsUniform() {
+        Tag a = Tag.of("a");
+        Tag b = Tag.of("b");
+        ArrayWrapper wrapper = new ArrayWrapper(new byte[4]);
+        wrapper.setElements(new Tag[] {null, a, a, a, a}, 1, 0, 4);
+        Assertions.assertNull(wrapper.peekElements());
+        Assertions.assertSame(a, wrapper.getElement(3));
+        wrapper.setElements(new Tag[] {a, b}, 0, 2, 2);
+        Assertions.assertArrayEquals(new Tag[] {a, a, a, b}, wrapper.peekElements());
+    }
+
+    @Test
+    void copyElementsFromUniformSource() {
+        Tag a = Tag.of("a");
+        ArrayWrapper source = new ArrayWrapper(new char[4]);
+        source.fillElements(a, 0, 4);
+        ArrayWrapper whole = new ArrayWrapper(new char[4]);
+        whole.copyElements(source, 0, 0, 4);
+        Assertions.assertSame(a, whole.unionElements(0, 4));
+        ArrayWrapper part = new ArrayWrapper(new char[6]);
+        part.copyElements(source, 1, 3, 3);
+        Assertions.assertTrue(Tag.isEmpty(part.getElement(2)));
+        Assertions.assertSame(a, part.getElement(3));
+        Assertions.assertSame(a, part.getElement(5));
+    }
+
+    @Test
+    void outOfBoundsAccessesThrow() {
+        ArrayWrapper wrapper = new ArrayWrapper(new int[2]);
+        Assertions.assertThrows(ArrayIndexOutOfBoundsException.class, () -> wrapper.getElement(2));
+        Assertions.assertThrows(ArrayIndexOutOfBoundsException.class, () -> wrapper.setElement(null, -1));
+        Assertions.assertThrows(ArrayIndexOutOfBoundsException.class, () -> wrapper.fillElements(null, 0, 3));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> wrapper.fillElements(null, 2, 1));
+        Assertions.assertThrows(
+                ArrayIndexOutOfBoundsException.class,
+                () -> wrapper.copyElements(new ArrayWrapper(new int[1]), 0, 0, 2));
+    }
+
+    @Test
+    void serializationPreservesRuns() throws Exception {
+        Tag a = Tag.of("a");
+        ArrayWrapper wrapper = new ArrayWrapper(new int[6]);
+        wrapper.setLength(Tag.of("length"));
+        wrapper.fillElements(a, 1, 3);
+        wrapper.setElement(Tag.of("b"), 4);
+        ArrayWrapper copy = roundTrip(wrapper);
+        Assertions.assertEquals(6, copy.size());
+        Assertions.assertArrayEquals(new Object[] {"length"}, Tag.getLabels(copy.getLength()));
+        Assertions.assertTrue(Tag.isEmpty(copy.getElement(0)));
+        Assertions.assertSame(copy.getElement(1), copy.getElement(2));
+        Assertions.assertArrayEquals(new Object[] {"a"}, Tag.getLabels(copy.getElement(2)));
+        Assertions.assertTrue(Tag.isEmpty(copy.getElement(3)));
+        Assertions.assertArrayEquals(new Object[] {"b"}, Tag.getLabels(copy.getElement(4)));
+        Assertions.assertTrue(Tag.isEmpty(copy.getElement(5)));
+    }
+
+    @Test
+    void serializationOfUniformWrapperIsCompact() throws Exception {
+        ArrayWrapper uniform = new ArrayWrapper(new byte[10_000]);
+        uniform.fillElements(Tag.of("a"), 0, 10_000);
+        ArrayWrapper inflated = new ArrayWrapper(new byte[10_000]);
+        Tag[] elements = inflated.getElements();
+        for (int i = 0; i < elements.length; i++) {
+            // Equal but distinct tags
+            elements[i] = Tag.of("a");
+        }
+        Assertions.assertTrue(serialize(uniform).length < 200);
+        Assertions.assertTrue(serialize(inflated).length < 200);
+        ArrayWrapper copy = roundTrip(inflated);
+        Assertions.assertSame(copy.getElement(0), copy.getElement(9_999));
+    }
+
+    @Test
+    void isEmpty() {
+        ArrayWrapper wrapper = new ArrayWrapper(new int[3]);
+        Assertions.assertTrue(wrapper.isEmpty());
+        wrapper.getElements();
+        Assertions.assertTrue(wrapper.isEmpty());
+        wrapper.setElement(Tag.of("a"), 2);
+        Assertions.assertFalse(wrapper.isEmpty());
+    }
+
+    private static byte[] serialize(Object o) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(o);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static ArrayWrapper roundTrip(ArrayWrapper wrapper) throws Exception {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialize(wrapper)))) {
+            return (ArrayWrapper) in.readObject();
+        }
+    }
+
+    private static Object[] sortedLabels(Tag tag) {
+        Object[] labels = Tag.getLabels(tag);
+        Arrays.sort(labels);
+        return labels;
+    }
+}
@@ -0,0 +1,63 @@
+package edu.neu.ccs.prl.galette.internal.runtime;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class ControlTagStackTest {
+    @Test
+    void emptyStackHasEmptyTag() {
+        ControlTagStack stack = new ControlTagStack();
+        Assertions.assertTrue(Tag.isEmpty(stack.getTag()));
+        stack.reserve(3);
+        Assertions.assertTrue(Tag.isEmpty(stack.getTag()));
+    }
+
+    @Test
+    void tagIsUnionOfSlots() {
+        ControlTagStack stack = new ControlTagStack();
+        int caller = stack.reserve(2);
+        stack.set(caller + 1, Tag.of("a"));
+        int callee = stack.reserve(1);
+        Assertions.assertEquals(Tag.of("a"), stack.getTag());
+        stack.set(callee, Tag.of("b"));
+        Assertions.assertEquals(Tag.of("a", "b"), stack.getTag());
+        stack.set(callee, null);
+        Assertions.assertEquals(Tag.of("a"), stack.getTag());
+        stack.truncate(callee);
+        stack.set(caller + 1, null);
+        Assertions.assertTrue(Tag.isEmpty(stack.getTag()));
+    }
+
+    @Test
+    void settingLowerSlotUpdatesUnionsAbove() {
+        ControlTagStack stack = new ControlTagStack();
+        int caller = stack.reserve(1);
+        int callee = stack.reserve(1);
+        stack.set(callee, Tag.of("b"));
+        stack.set(caller, Tag.of("a"));
+        Assertions.assertEquals(Tag.of("a", "b"), stack.getTag());
+        stack.truncate(callee);
+        Assertions.assertEquals(Tag.of("a"), stack.getTag());
+    }
+
+    @Test
+    void releasedSlotsAreIgnored() {
+        ControlTagStack stack = new ControlTagStack();
+        int mark = stack.reserve(1);
+        stack.truncate(mark);
+        stack.set(mark, Tag.of("a"));
+        Assertions.assertEquals(0, stack.size());
+        Assertions.assertTrue(Tag.isEmpty(stack.getTag()));
+    }
+
+    @Test
+    void reserveGrowsStack() {
+        ControlTagStack stack = new ControlTagStack();
+        stack.set(stack.reserve(1), Tag.of("a"));
+        for (int i = 0; i < 100; i++) {
+            stack.reserve(3);
+        }
+        Assertions.assertEquals(301, stack.size());
+        Assertions.assertEquals(Tag.of("a"), stack.getTag());
+    }
+}
@@ -0,0 +1,241 @@
+package edu.neu.ccs.prl.galette.internal.runtime;
+
+import edu.neu.ccs.prl.galette.example.GraphBox;
+import edu.neu.ccs.prl.galette.example.GraphNode;
+import edu.neu.ccs.prl.galette.example.IdentityKey;
+import edu.neu.ccs.prl.galette.example.IdentityKeyMap;
+import edu.neu.ccs.prl.galette.internal.runtime.collection.HashMap;
+import edu.neu.ccs.prl.galette.internal.transform.AsmTestUtil;
+import edu.neu.ccs.prl.galette.internal.transform.GaletteTransformer;
+import edu.neu.ccs.prl.galette.internal.transform.ShadowFieldAdder;
+import java.io.*;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class GraphTagCodecTest {
+    @Test
+    void roundTripArrayTags() throws Exception {
+        int[] values = new int[100];
+        Tag a = Tag.of("a");
+        Tag b = Tag.of("a", "b");
+        ArrayTagStore.setLengthTag(values, b);
+        ArrayTagStore.getWrapper(values, a).fillElements(a, 10, 60);
+        ArrayTagStore.getWrapper(values).setElement(b, 80);
+        char[] untainted = new char[10];
+        // The same array is reachable twice
+        Object[] root = new Object[] {untainted, values, new Object[] {values}};
+        Object[] copy = new Object[] {new char[10], new int[100], null};
+        copy[2] = new Object[] {copy[1]};
+        readTags(copy, writeTags(root));
+        ArrayWrapper wrapper = ArrayTagStore.getWrapper(copy[1]);
+        Assertions.assertEquals(b, wrapper.getLength());
+        Assertions.assertTrue(Tag.isEmpty(wrapper.getElement(9)));
+        Assertions.assertEquals(a, wrapper.getElement(10));
+        Assertions.assertSame(wrapper.getElement(10), wrapper.getElement(59));
+        Assertions.assertTrue(Tag.isEmpty(wrapper.getElement(60)));
+        Assertions.assertEquals(b, wrapper.getElement(80));
+        Assertions.assertNull(ArrayTagStore.getWrapper(copy[0]));
+    }
+
+    @Test
+    void roundTripMirroredTags() throws Exception {
+        Integer value = 700;
+        HashMap<String, Tag> tags = new HashMap<>();
+        tags.put("java/lang/Integer.value", Tag.of("i"));
+        FieldTagStore.setInstanceTags(value, tags);
+        Integer copy = Integer.valueOf(700);
+        readTags(new Object[] {copy}, writeTags(new Object[] {value}));
+        Assertions.assertEquals(Tag.of("i"), FieldTagStore.getField(copy, "java/lang/Integer.value"));
+    }
+
+    @Test
+    void roundTripFieldTags() throws Exception {
+        Class<?> clazz = AsmTestUtil.instrumentAndLoad(
+                GraphNode.class, b -> GaletteTransformer.getInstanceAndTransform(b, false));
+        Object root = clazz.getDeclaredConstructor().newInstance();
+        Object second = clazz.getDeclaredConstructor().newInstance();
+        setField(root, "next", second);
+        setShadow(root, "next", Tag.of("n"));
+        setShadow(second, "value", Tag.of("v"));
+        // Transient state is not part of a serialized copy
+        int[] cache = new int[4];
+        ArrayTagStore.setLengthTag(cache, Tag.of("c"));
+        setField(root, "cache", new Object[] {cache});
+        setField(second, "cache", cache);
+        Object copy = clazz.getDeclaredConstructor().newInstance();
+        Object copySecond = clazz.getDeclaredConstructor().newInstance();
+        setField(copy, "next", copySecond);
+        readTags(copy, writeTags(root));
+        Assertions.assertEquals(Tag.of("n"), getShadow(copy, "next"));
+        Assertions.assertEquals(Tag.of("v"), getShadow(copySecond, "value"));
+        Assertions.assertTrue(Tag.isEmpty(getShadow(copy, "value")));
+    }
+
+    @Test
+    void roundTripCollectionContents() throws Exception {
+        int[] element = new int[8];
+        ArrayTagStore.getWrapper(element, Tag.of("e")).setElement(Tag.of("e"), 3);
+        Integer value = 900;
+        HashMap<String, Tag> tags = new HashMap<>();
+        tags.put("java/lang/Integer.value", Tag.of("v"));
+        FieldTagStore.setInstanceTags(value, tags);
+        List<Object> list = new ArrayList<>();
+        list.add("first");
+        list.add(element);
+        Map<String, Object> map = new java.util.HashMap<>();
+        map.put("key", value);
+        map.put("other", new int[2]);
+        Object[] root = new Object[] {list, map};
+        // Serialization does not preserve the capacity of the list or the table of the map
+        Object[] copy = (Object[]) serialize(root);
+        readTags(copy, writeTags(root));
+        Object copiedElement = ((List<?>) copy[0]).get(1);
+        Assertions.assertEquals(
+                Tag.of("e"), ArrayTagStore.getWrapper(copiedElement).getElement(3));
+        Assertions.assertTrue(
+                Tag.isEmpty(ArrayTagStore.getWrapper(copiedElement).getElement(2)));
+        Object copiedValue = ((Map<?, ?>) copy[1]).get("key");
+        Assertions.assertEquals(Tag.of("v"), FieldTagStore.getField(copiedValue, "java/lang/Integer.value"));
+    }
+
+    @Test
+    void hashOrderedMapMatchesCopyWithDifferentCapacity() throws Exception {
+        Map<String, Object> map = new java.util.HashMap<>();
+        for (int i = 0; i < 64; i++) {
+            map.put("key" + i, new int[1]);
+        }
+        ArrayTagStore.setLengthTag(map.get("key7"), Tag.of("k"));
+        // Entries are inserted in a different order into a larger table
+        Map<String, Object> copy = new java.util.HashMap<>(1 << 12);
+        for (int i = 63; i >= 0; i--) {
+            copy.put("key" + i, new int[1]);
+        }
+        readTags(copy, writeTags(map));
+        for (Map.Entry<String, Object> entry : copy.entrySet()) {
+            ArrayWrapper wrapper = ArrayTagStore.getWrapper(entry.getValue());
+            if (entry.getKey().equals("key7")) {
+                Assertions.assertEquals(Tag.of("k"), wrapper.getLength());
+            } else {
+                Assertions.assertNull(wrapper);
+            }
+        }
+    }
+
+    @Test
+    void identityHashKeysAreRejected() throws Exception {
+        Map<Object, Object> map = new java.util.HashMap<>();
+        for (int i = 0; i < 8; i++) {
+            map.put(new IdentityKey(i), new int[1]);
+        }
+        Assertions.assertThrows(InvalidClassException.class, () -> writeTags(map));
+    }
+
+    @Test
+    void identityHashKeysWithRegisteredEnumerator() throws Exception {
+        GraphTagCodec.registerChildEnumerator(IdentityKeyMap.class, GraphTagCodecTest::getEntriesById);
+        IdentityKeyMap map = new IdentityKeyMap();
+        for (int i = 0; i < 8; i++) {
+            int[] value = new int[1];
+            if (i == 5) {
+                ArrayTagStore.setLengthTag(value, Tag.of("i"));
+            }
+            map.put(new IdentityKey(i), value);
+        }
+        IdentityKeyMap copy = (IdentityKeyMap) serialize(map);
+        readTags(copy, writeTags(map));
+        for (Map.Entry<IdentityKey, Object> entry : copy.entrySet()) {
+            ArrayWrapper wrapper = ArrayTagStore.getWrapper(entry.getValue());
+            if (entry.getKey().id == 5) {
+                Assertions.assertEquals(Tag.of("i"), wrapper.getLength());
+            } else {
+                Assertions.assertNull(wrapper);
+            }
+        }
+    }
+
+    @Test
+    void registeredEnumeratorListsChildren() throws Exception {
+        GraphTagCodec.registerChildEnumerator(GraphBox.class, o -> ((GraphBox) o).contents);
+        int[] array = new int[2];
+        ArrayTagStore.setLengthTag(array, Tag.of("h"));
+        int[] copiedArray = new int[2];
+        readTags(new GraphBox(copiedArray), writeTags(new GraphBox(array)));
+        Assertions.assertEquals(
+                Tag.of("h"), ArrayTagStore.getWrapper(copiedArray).getLength());
+    }
+
+    @Test
+    void untaintedGraphIsSmall() throws Exception {
+        Object[] root = new Object[1000];
+        for (int i = 0; i < root.length; i++) {
+            root[i] = new long[100];
+        }
+        Assertions.assertTrue(writeTags(root).length < 20);
+    }
+
+    @Test
+    void mismatchedGraphIsRejected() throws Exception {
+        byte[] array = new byte[4];
+        ArrayTagStore.getWrapper(array, Tag.of("a")).fillElements(Tag.of("a"), 0, 4);
+        byte[] data = writeTags(new Object[] {array});
+        Assertions.assertThrows(InvalidObjectException.class, () -> readTags(new Object[] {new char[4]}, data));
+        Assertions.assertThrows(InvalidObjectException.class, () -> readTags(new Object[0], data));
+    }
+
+    private static Object[] getEntriesById(Object map) {
+        List<Map.Entry<IdentityKey, Object>> entries = new ArrayList<>(((IdentityKeyMap) map).entrySet());
+        entries.sort(Comparator.comparingInt(e -> e.getKey().id));
+        List<Object> children = new ArrayList<>();
+        for (Map.Entry<IdentityKey, Object> entry : entries) {
+            children.add(entry.getKey());
+            children.add(entry.getValue());
+        }
+        return children.toArray();
+    }
+
+    private static Object serialize(Object o) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(o);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return in.readObject();
+        }
+    }
+
+    private static void setField(Object o, String name, Object value) throws ReflectiveOperationException {
+        Field field = o.getClass().getField(name);
+        field.set(o, value);
+    }
+
+    private static void setShadow(Object o, String name, Tag tag) throws ReflectiveOperationException {
+        Field field = o.getClass().getDeclaredField(ShadowFieldAdder.getShadowFieldName(name));
+        field.setAccessible(true);
+        field.set(o, tag);
+    }
+
+    private static Tag getShadow(Object o, String name) throws ReflectiveOperationException {
+        Field field = o.getClass().getDeclaredField(ShadowFieldAdder.getShadowFieldName(name));
+        field.setAccessible(true);
+        return (Tag) field.get(o);
+    }
+
+    private static byte[] writeTags(Object root) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            GraphTagCodec.write(root, out);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void readTags(Object root, byte[] data) throws Exception {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data))) {
+            GraphTagCodec.read(root, in);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package edu.neu.ccs.prl.galette.internal.runtime;
+
+import java.time.Duration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class OffHeapTagStoreTest {
+    private static final long BASE = 0x7f0000000000L;
+
+    @BeforeEach
+    void initialize() {
+        OffHeapTagStore.initialize();
+        OffHeapTagStore.clear();
+    }
+
+    @AfterEach
+    void clear() {
+        OffHeapTagStore.clear();
+    }
+
+    @Test
+    void emptyTagsDoNotAllocatePages() {
+        OffHeapTagStore.setTag(BASE, 3 * OffHeapTagStore.PAGE_SIZE, Tag.emptyTag());
+        Assertions.assertEquals(0, OffHeapTagStore.getPageCount());
+        Assertions.assertTrue(Tag.isEmpty(OffHeapTagStore.getTag(BASE, 16)));
+    }
+
+    @Test
+    void setTagAcrossPageBoundary() {
+        Tag tag = Tag.of("a");
+        long address = BASE + OffHeapTagStore.PAGE_SIZE - 2;
+        OffHeapTagStore.setTag(address, 4, tag);
+        Assertions.assertEquals(2, OffHeapTagStore.getPageCount());
+        Assertions.assertSame(tag, OffHeapTagStore.getTag(address + 3, 1));
+        Assertions.assertTrue(Tag.isEmpty(OffHeapTagStore.getTag(address - 1, 1)));
+        Assertions.assertTrue(Tag.isEmpty(OffHeapTagStore.getTag(address + 4, 1)));
+    }
+
+    @Test
+    void getTagReturnsUnionOfRange() {
+        OffHeapTagStore.setTag(BASE, 1, Tag.of("a"));
+        OffHeapTagStore.setTag(BASE + 7, 1, Tag.of("b"));
+        Object[] labels = Tag.getLabels(OffHeapTagStore.getTag(BASE, 8));
+        Assertions.assertEquals(2, labels.length);
+    }
+
+    @Test
+    void setTagsGetTagsRoundTrip() {
+        Tag a = Tag.of("a");
+        Tag b = Tag.of("b");
+        Tag[] source = new Tag[] {a, null, b};
+        long address = BASE + OffHeapTagStore.PAGE_SIZE - 1;
+        OffHeapTagStore.setTags(source, 0, address, source.length);
+        Tag[] actual = new Tag[] {a, a, a, a};
+        OffHeapTagStore.getTags(address, actual, 1, 3);
+        Assertions.assertArrayEquals(new Tag[] {a, a, null, b}, actual);
+    }
+
+    @Test
+    void copyTagsOverlapping() {
+        Tag a = Tag.of("a");
+        Tag b = Tag.of("b");
+        OffHeapTagStore.setTag(BASE, 1, a);
+        OffHeapTagStore.setTag(BASE + 1, 1, b);
+        OffHeapTagStore.copyTags(BASE, BASE + 1, 2);
+        Assertions.assertSame(a, OffHeapTagStore.getTag(BASE + 1, 1));
+        Assertions.assertSame(b, OffHeapTagStore.getTag(BASE + 2, 1));
+    }
+
+    @Test
+    void freeDiscardsTags() {
+        long size = 2L * OffHeapTagStore.PAGE_SIZE;
+        OffHeapTagStore.recordAllocation(BASE, size);
+        OffHeapTagStore.setTag(BASE, size, Tag.of("a"));
+        Assertions.assertEquals(2, OffHeapTagStore.getPageCount());
+        OffHeapTagStore.recordFree(BASE);
+        Assertions.assertEquals(0, OffHeapTagStore.getPageCount());
+        Assertions.assertTrue(Tag.isEmpty(OffHeapTagStore.getTag(BASE, size)));
+    }
+
+    @Test
+    void allocationClearsOnlyStoredPages() {
+        Tag tag = Tag.of("a");
+        long size = 1L << 40;
+        long last = BASE + size - 1;
+        OffHeapTagStore.setTag(BASE - 1, 2, tag);
+        OffHeapTagStore.setTag(last, 2, tag);
+        // Visiting every page of the block would not finish in a reasonable time
+        Assertions.assertTimeoutPreemptively(
+                Duration.ofSeconds(10), () -> OffHeapTagStore.recordAllocation(BASE, size));
+        Assertions.assertEquals(4, OffHeapTagStore.getPageCount());
+        Assertions.assertSame(tag, OffHeapTagStore.getTag(BASE - 1, 1));
+        Assertions.assertTrue(Tag.isEmpty(OffHeapTagStore.getTag(BASE, 1)));
+        Assertions.assertTrue(Tag.isEmpty(OffHeapTagStore.getTag(last, 1)));
+        Assertions.assertSame(tag, OffHeapTagStore.getTag(last + 1, 1));
+    }
+
+    @Test
+    void setTagOnLargeRange() {
+        Tag tag = Tag.of("a");
+        int pages = 1 << 11;
+        long size = (long) pages * OffHeapTagStore.PAGE_SIZE;
+        long address = BASE + size / 4;
+        OffHeapTagStore.setTag(address, size, tag);
+        Assertions.assertEquals(pages, OffHeapTagStore.getPageCount());
+        Assertions.assertSame(tag, OffHeapTagStore.getTag(address + size - 1, 1));
+        Assertions.assertTrue(Tag.isEmpty(OffHeapTagStore.getTag(address + size, 1)));
+        OffHeapTagStore.recordUnmap(address, size);
+        Assertions.assertEquals(0, OffHeapTagStore.getPageCount());
+        Assertions.assertTrue(Tag.isEmpty(OffHeapTagStore.getTag(address, size)));
+    }
+
+    @Test
+    void unmapDiscardsTags() {
+        Tag tag = Tag.of("a");
+        long size = 3L * OffHeapTagStore.PAGE_SIZE;
+        OffHeapTagStore.setTag(BASE - 1, size + 2, tag);
+        OffHeapTagStore.recordUnmap(BASE, size);
+        // Only the pages that partially overlap the range are kept
+        Assertions.assertEquals(2, OffHeapTagStore.getPageCount());
+        Assertions.assertTrue(Tag.isEmpty(OffHeapTagStore.getTag(BASE, size)));
+        Assertions.assertSame(tag, OffHeapTagStore.getTag(BASE - 1, 1));
+        Assertions.assertSame(tag, OffHeapTagStore.getTag(BASE + size, 1));
+        // A later mapping of the same memory does not inherit the stale tags
+        OffHeapTagStore.setTag(BASE, 1, Tag.of("b"));
+        Assertions.assertEquals(1, Tag.getLabels(OffHeapTagStore.getTag(BASE, size)).length);
+    }
+
+    @Test
+    void reallocationMovesTags() {
+        Tag tag = Tag.of("a");
+        long newAddress = BASE + 16L * OffHeapTagStore.PAGE_SIZE;
+        OffHeapTagStore.recordAllocation(BASE, 8);
+        OffHeapTagStore.setTag(BASE, 8, tag);
+        OffHeapTagStore.recordReallocation(BASE, newAddress, 16);
+        Assertions.assertTrue(Tag.isEmpty(OffHeapTagStore.getTag(BASE, 8)));
+        Assertions.assertSame(tag, OffHeapTagStore.getTag(newAddress + 7, 1));
+        Assertions.assertTrue(Tag.isEmpty(OffHeapTagStore.getTag(newAddress + 8, 8)));
+    }
+}
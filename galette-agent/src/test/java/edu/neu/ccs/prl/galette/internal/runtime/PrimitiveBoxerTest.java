@@ -0,0 +1,29 @@
+package edu.neu.ccs.prl.galette.internal.runtime;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class PrimitiveBoxerTest {
+    @Test
+    void smallValuesAreShared() {
+        Assertions.assertSame(PrimitiveBoxer.box(true), PrimitiveBoxer.box(true));
+        Assertions.assertSame(PrimitiveBoxer.box((byte) -128), PrimitiveBoxer.box((byte) -128));
+        Assertions.assertSame(PrimitiveBoxer.box('a'), PrimitiveBoxer.box('a'));
+        Assertions.assertSame(PrimitiveBoxer.box((short) 127), PrimitiveBoxer.box((short) 127));
+        Assertions.assertSame(PrimitiveBoxer.box(-1), PrimitiveBoxer.box(-1));
+        Assertions.assertSame(PrimitiveBoxer.box(0L), PrimitiveBoxer.box(0L));
+    }
+
+    @Test
+    void boxedValuesRoundTrip() {
+        Assertions.assertFalse(PrimitiveBoxer.unbox(PrimitiveBoxer.box(false)));
+        Assertions.assertEquals(Byte.MAX_VALUE, PrimitiveBoxer.unbox(PrimitiveBoxer.box(Byte.MAX_VALUE)));
+        Assertions.assertEquals(Character.MAX_VALUE, PrimitiveBoxer.unbox(PrimitiveBoxer.box(Character.MAX_VALUE)));
+        Assertions.assertEquals(Short.MIN_VALUE, PrimitiveBoxer.unbox(PrimitiveBoxer.box(Short.MIN_VALUE)));
+        Assertions.assertEquals(128, PrimitiveBoxer.unbox(PrimitiveBoxer.box(128)));
+        Assertions.assertEquals(-129L, PrimitiveBoxer.unbox(PrimitiveBoxer.box(-129L)));
+        Assertions.assertEquals(Long.MAX_VALUE, PrimitiveBoxer.unbox(PrimitiveBoxer.box(Long.MAX_VALUE)));
+        Assertions.assertEquals(1.5f, PrimitiveBoxer.unbox(PrimitiveBoxer.box(1.5f)));
+        Assertions.assertEquals(2.5, PrimitiveBoxer.unbox(PrimitiveBoxer.box(2.5)));
+    }
+}
@@ -0,0 +1,54 @@
+package edu.neu.ccs.prl.galette.internal.runtime;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class TagSamplerTest {
+    private static final int DECISIONS = 100_000;
+
+    @Test
+    void zeroRateNeverSamples() {
+        for (long i = 0; i < DECISIONS; i++) {
+            Assertions.assertFalse(TagSampler.select(7, i, 0));
+        }
+    }
+
+    @Test
+    void fullRateAlwaysSamples() {
+        for (long i = 0; i < DECISIONS; i++) {
+            Assertions.assertTrue(TagSampler.select(7, i, 1));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(doubles = {0.01, 0.1, 0.5})
+    void fractionSampledMatchesRate(double rate) {
+        int sampled = 0;
+        for (long i = 0; i < DECISIONS; i++) {
+            if (TagSampler.select(42, i, rate)) {
+                sampled++;
+            }
+        }
+        Assertions.assertEquals(rate, (double) sampled / DECISIONS, 0.005);
+    }
+
+    @Test
+    void decisionsDependOnSeed() {
+        int differences = 0;
+        for (long i = 0; i < 1000; i++) {
+            Assertions.assertEquals(TagSampler.select(1, i, 0.5), TagSampler.select(1, i, 0.5));
+            if (TagSampler.select(1, i, 0.5) != TagSampler.select(2, i, 0.5)) {
+                differences++;
+            }
+        }
+        Assertions.assertTrue(differences > 0);
+    }
+
+    @Test
+    void invalidRateRejected() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> TagSampler.initialize(1.5));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> TagSampler.initialize(Double.NaN));
+    }
+}
@@ -0,0 +1,84 @@
+package edu.neu.ccs.prl.galette.internal.runtime;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class TaskContextTest {
+    /**
+     * State propagated by {@link #PROPAGATOR}.
+     */
+    private static final ThreadLocal<Object> STATE = new ThreadLocal<>();
+
+    private static final ContextPropagator PROPAGATOR = new ContextPropagator() {
+        @Override
+        public Object capture() {
+            return STATE.get();
+        }
+
+        @Override
+        public Object restore(Object snapshot) {
+            Object previous = STATE.get();
+            STATE.set(snapshot);
+            return previous;
+        }
+
+        @Override
+        public void reset(Object token) {
+            STATE.set(token);
+        }
+    };
+
+    @BeforeAll
+    static void initialize() {
+        TaskContext.register(PROPAGATOR);
+        TaskContext.initialize();
+    }
+
+    @Test
+    void contextRestoredWhileTaskRuns() {
+        Object task = new Object();
+        STATE.set("submitter");
+        TaskContext.capture(task);
+        STATE.set("worker");
+        Object scope = TaskContext.enter(task);
+        Assertions.assertNotNull(scope);
+        Assertions.assertEquals("submitter", STATE.get());
+        TaskContext.exit(scope);
+        Assertions.assertEquals("worker", STATE.get());
+        STATE.remove();
+    }
+
+    @Test
+    void emptyContextNotRecorded() {
+        Object task = new Object();
+        STATE.remove();
+        TaskContext.capture(task);
+        Assertions.assertNull(TaskContext.enter(task));
+    }
+
+    @Test
+    void resubmissionReplacesContext() {
+        Object task = new Object();
+        STATE.set("first");
+        TaskContext.capture(task);
+        STATE.remove();
+        TaskContext.capture(task);
+        Assertions.assertNull(TaskContext.enter(task));
+        STATE.set("second");
+        TaskContext.capture(task);
+        STATE.remove();
+        Object scope = TaskContext.enter(task);
+        Assertions.assertEquals("second", STATE.get());
+        TaskContext.exit(scope);
+        Assertions.assertNull(STATE.get());
+    }
+
+    @Test
+    void unknownTaskHasNoContext() {
+        Assertions.assertNull(TaskContext.enter(new Object()));
+        Assertions.assertNull(TaskContext.enter(null));
+        // Exiting without a restored context is a no-op
+        TaskContext.exit(null);
+    }
+}
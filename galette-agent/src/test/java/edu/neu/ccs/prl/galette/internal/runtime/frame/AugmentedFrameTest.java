@@ -0,0 +1,78 @@
+package edu.neu.ccs.prl.galette.internal.runtime.frame;
+
+import edu.neu.ccs.prl.galette.internal.runtime.Tag;
+import edu.neu.ccs.prl.galette.internal.runtime.TagFrame;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class AugmentedFrameTest {
+    @Test
+    void matchingArgumentsUseRecordedFrame() {
+        TagFrame frame = new TagFrame().acquire(1).set(0, Tag.of("a"));
+        Object receiver = new Object();
+        AugmentedFrame aFrame = new AugmentedFrame()
+                .reset(frame)
+                .record(receiver)
+                .record((int) 'c')
+                .record(7L)
+                .record(1.5f)
+                .record(2.5);
+        FrameAdjuster adjuster = aFrame.startMatching()
+                .process(receiver)
+                .process('c')
+                .process(7L)
+                .process(1.5f)
+                .process(2.5);
+        Assertions.assertSame(aFrame, adjuster);
+        Assertions.assertSame(frame, adjuster.createFrame());
+        Assertions.assertNotNull(adjuster.copyTags());
+    }
+
+    @Test
+    void mismatchedPrimitiveUsesEmptyAdjuster() {
+        AugmentedFrame aFrame = new AugmentedFrame().reset(new TagFrame()).record(3);
+        Assertions.assertSame(
+                EmptyFrameAdjuster.INSTANCE, aFrame.startMatching().process(4));
+        Assertions.assertSame(
+                EmptyFrameAdjuster.INSTANCE, aFrame.startMatching().process(3L));
+    }
+
+    @Test
+    void trailingPrimitiveArgumentPreventsMatch() {
+        TagFrame frame = new TagFrame();
+        AugmentedFrame aFrame = new AugmentedFrame().reset(frame).record("x").record(1);
+        FrameAdjuster adjuster = aFrame.startMatching().process("x");
+        Assertions.assertSame(aFrame, adjuster);
+        Assertions.assertNull(adjuster.copyTags());
+        Assertions.assertNotSame(frame, adjuster.createFrame());
+    }
+
+    @Test
+    void trailingReferenceArgumentIsIgnored() {
+        TagFrame frame = new TagFrame();
+        AugmentedFrame aFrame = new AugmentedFrame().reset(frame).record(1).record("y");
+        Assertions.assertSame(frame, aFrame.startMatching().process(1).createFrame());
+    }
+
+    @Test
+    void recordGrowsBeyondInitialCapacity() {
+        TagFrame frame = new TagFrame();
+        AugmentedFrame aFrame = new AugmentedFrame().reset(frame);
+        for (int i = 0; i < 20; i++) {
+            aFrame.record((long) i);
+        }
+        FrameAdjuster adjuster = aFrame.startMatching();
+        for (int i = 0; i < 20; i++) {
+            adjuster = adjuster.process((long) i);
+        }
+        Assertions.assertSame(frame, adjuster.createFrame());
+    }
+
+    @Test
+    void releaseDropsReferences() {
+        AugmentedFrame aFrame = new AugmentedFrame().reset(new TagFrame()).record("z");
+        aFrame.release();
+        Assertions.assertNull(aFrame.getFrame());
+        Assertions.assertEquals("(null, [])", aFrame.toString());
+    }
+}
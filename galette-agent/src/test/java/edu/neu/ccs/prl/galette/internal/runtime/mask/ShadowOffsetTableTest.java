@@ -0,0 +1,41 @@
+package edu.neu.ccs.prl.galette.internal.runtime.mask;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class ShadowOffsetTableTest {
+    @Test
+    void staticAndInstanceOffsetsDistinguished() {
+        ShadowOffsetTable table =
+                new ShadowOffsetTable(2, new boolean[] {false, true}, new long[] {16, 16}, new long[] {24, 32});
+        Assertions.assertEquals(24, table.getShadowOffset(false, 16, -1));
+        Assertions.assertEquals(32, table.getShadowOffset(true, 16, -1));
+    }
+
+    @Test
+    void missingOffsetReturnsDefault() {
+        ShadowOffsetTable table = new ShadowOffsetTable(
+                3, new boolean[] {false, false, false}, new long[] {40, 12, 28}, new long[] {48, 20, 36});
+        Assertions.assertEquals(20, table.getShadowOffset(false, 12, -1));
+        Assertions.assertEquals(36, table.getShadowOffset(false, 28, -1));
+        Assertions.assertEquals(48, table.getShadowOffset(false, 40, -1));
+        Assertions.assertEquals(-1, table.getShadowOffset(false, 16, -1));
+        Assertions.assertEquals(-1, table.getShadowOffset(true, 12, -1));
+        Assertions.assertEquals(-1, table.getShadowOffset(false, 100, -1));
+    }
+
+    @Test
+    void firstOccurrenceUsedForDuplicateOffsets() {
+        ShadowOffsetTable table = new ShadowOffsetTable(
+                3, new boolean[] {false, false, false}, new long[] {12, 12, 16}, new long[] {20, 24, 28});
+        Assertions.assertEquals(2, table.size());
+        Assertions.assertEquals(20, table.getShadowOffset(false, 12, -1));
+    }
+
+    @Test
+    void emptyTable() {
+        ShadowOffsetTable table = new ShadowOffsetTable(0, new boolean[0], new long[0], new long[0]);
+        Assertions.assertEquals(0, table.size());
+        Assertions.assertEquals(-1, table.getShadowOffset(false, 12, -1));
+    }
+}
@@ -0,0 +1,32 @@
+package edu.neu.ccs.prl.galette.internal.runtime.mask;
+
+import edu.neu.ccs.prl.galette.internal.runtime.Tag;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class StringTagSummaryTest {
+    @Test
+    void summaryCurrentOnlyForItsGeneration() {
+        Tag tag = Tag.of("label");
+        StringTagSummary summary = StringTagSummary.create(tag, 3);
+        Assertions.assertSame(tag, summary.getTag());
+        Assertions.assertTrue(summary.isCurrent(3));
+        Assertions.assertFalse(summary.isCurrent(4));
+    }
+
+    @Test
+    void untaintedSummaryShared() {
+        StringTagSummary first = StringTagSummary.create(Tag.emptyTag(), 5);
+        Assertions.assertSame(first, StringTagSummary.create(Tag.emptyTag(), 5));
+        Assertions.assertTrue(Tag.isEmpty(first.getTag()));
+    }
+
+    @Test
+    void untaintedSummaryReplacedForNewGeneration() {
+        StringTagSummary first = StringTagSummary.create(Tag.emptyTag(), 6);
+        StringTagSummary second = StringTagSummary.create(Tag.emptyTag(), 7);
+        Assertions.assertNotSame(first, second);
+        Assertions.assertFalse(first.isCurrent(7));
+        Assertions.assertTrue(second.isCurrent(7));
+    }
+}
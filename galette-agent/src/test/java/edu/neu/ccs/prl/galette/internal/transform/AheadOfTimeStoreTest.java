@@ -0,0 +1,76 @@
+package edu.neu.ccs.prl.galette.internal.transform;
+
+import edu.neu.ccs.prl.galette.example.InstructionExamples;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.Type;
+
+class AheadOfTimeStoreTest {
+    private static final String CLASS_NAME = Type.getInternalName(InstructionExamples.class);
+
+    @TempDir
+    File directory;
+
+    @Test
+    void storeIgnoredForDifferentAgent() throws IOException {
+        File agentJar = createAgentJar(new byte[] {1, 2, 3});
+        writeStore(agentJar, new byte[0], new byte[0]);
+        createAgentJar(new byte[] {4, 5, 6});
+        Assertions.assertNull(AheadOfTimeStore.load(directory, agentJar));
+    }
+
+    @Test
+    void unlistedClassNotFound() throws IOException {
+        byte[] original = AsmTestUtil.toBytes(AsmTestUtil.getClassNode(InstructionExamples.class));
+        File agentJar = createAgentJar();
+        writeStore(agentJar, new byte[] {1}, new byte[] {2});
+        AheadOfTimeStore store = AheadOfTimeStore.load(directory, agentJar);
+        Assertions.assertEquals(1, store.size());
+        Assertions.assertNull(store.find("org/example/Missing", original));
+        Assertions.assertNull(store.find(CLASS_NAME, original));
+    }
+
+    @Test
+    void storedClassesNotTransformed() throws IOException {
+        byte[] original = AsmTestUtil.toBytes(AsmTestUtil.getClassNode(InstructionExamples.class));
+        byte[] instrumented = GaletteTransformer.getInstanceAndTransform(original, false);
+        File agentJar = createAgentJar();
+        writeStore(agentJar, original, instrumented);
+        GaletteTransformer.setAheadOfTimeStore(AheadOfTimeStore.load(directory, agentJar));
+        try {
+            Assertions.assertNull(new GaletteTransformer().transform(instrumented, false));
+            byte[] stored = new GaletteTransformer().transform(original, false);
+            Assertions.assertArrayEquals(instrumented, stored);
+            Assertions.assertNotSame(instrumented, stored);
+        } finally {
+            GaletteTransformer.setAheadOfTimeStore(null);
+        }
+    }
+
+    private File createAgentJar() throws IOException {
+        return createAgentJar(new byte[] {1, 2, 3});
+    }
+
+    private File createAgentJar(byte[] content) throws IOException {
+        File agentJar = new File(directory, "agent.jar");
+        Files.write(agentJar.toPath(), content);
+        return agentJar;
+    }
+
+    private void writeStore(File agentJar, byte[] original, byte[] instrumented) throws IOException {
+        String version = AheadOfTimeStore.computeVersion(agentJar);
+        String originalChecksum = FileUtil.toHexString(FileUtil.checksum(original));
+        String instrumentedChecksum = FileUtil.toHexString(FileUtil.checksum(instrumented));
+        File classes = new File(directory, AheadOfTimeStore.CLASSES_DIRECTORY_NAME);
+        Files.createDirectories(classes.toPath());
+        Files.write(AheadOfTimeStore.getClassFile(classes, originalChecksum).toPath(), instrumented);
+        Files.write(
+                new File(directory, AheadOfTimeStore.MANIFEST_NAME).toPath(),
+                Arrays.asList("version " + version, CLASS_NAME + " " + originalChecksum + " " + instrumentedChecksum));
+    }
+}
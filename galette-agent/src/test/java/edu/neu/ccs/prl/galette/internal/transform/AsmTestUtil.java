@@ -49,6 +49,19 @@ public final class AsmTestUtil {
         return new ByteClassLoader().createClass(buffer);
     }
 
+    /**
+     * Instruments the specified classes and defines them in a single class loader in the specified order, so that
+     * each class can extend a class that precedes it.
+     */
+    public static Class<?>[] instrumentAndLoad(Function<byte[], byte[]> f, Class<?>... originals) {
+        ByteClassLoader loader = new ByteClassLoader();
+        Class<?>[] result = new Class<?>[originals.length];
+        for (int i = 0; i < originals.length; i++) {
+            result[i] = loader.createClass(f.apply(toBytes(getClassNode(originals[i]))));
+        }
+        return result;
+    }
+
     public static Class<?> load(ClassNode cn) {
         return new ByteClassLoader().createClass(toBytes(cn));
     }
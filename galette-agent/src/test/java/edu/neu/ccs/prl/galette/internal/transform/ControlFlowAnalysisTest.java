@@ -0,0 +1,176 @@
+package edu.neu.ccs.prl.galette.internal.transform;
+
+import static org.objectweb.asm.Opcodes.*;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.tree.*;
+
+class ControlFlowAnalysisTest {
+    @Test
+    void noBranches() {
+        MethodNode mn = new MethodNode(ACC_STATIC, "example", "()I", null, null);
+        mn.instructions.add(new InsnNode(ICONST_0));
+        mn.instructions.add(new InsnNode(IRETURN));
+        mn.maxStack = 1;
+        ControlFlowAnalysis analysis = ControlFlowAnalysis.analyze("Example", mn);
+        Assertions.assertNotNull(analysis);
+        Assertions.assertEquals(0, analysis.getBranchCount());
+    }
+
+    @Test
+    void ifElseJoin() {
+        // int x; if (arg == 0) { x = 1; } else { x = 2; } return x;
+        MethodNode mn = new MethodNode(ACC_STATIC, "example", "(I)I", null, null);
+        LabelNode otherwise = new LabelNode();
+        LabelNode join = new LabelNode();
+        InsnList insns = mn.instructions;
+        JumpInsnNode branch = new JumpInsnNode(IFNE, otherwise);
+        JumpInsnNode jump = new JumpInsnNode(GOTO, join);
+        insns.add(new VarInsnNode(ILOAD, 0));
+        insns.add(branch);
+        insns.add(new InsnNode(ICONST_1));
+        insns.add(new VarInsnNode(ISTORE, 1));
+        insns.add(jump);
+        insns.add(otherwise);
+        insns.add(new InsnNode(ICONST_2));
+        insns.add(new VarInsnNode(ISTORE, 1));
+        insns.add(join);
+        insns.add(new VarInsnNode(ILOAD, 1));
+        insns.add(new InsnNode(IRETURN));
+        mn.maxStack = 1;
+        mn.maxLocals = 2;
+        ControlFlowAnalysis analysis = ControlFlowAnalysis.analyze("Example", mn);
+        Assertions.assertEquals(1, analysis.getBranchCount());
+        Assertions.assertSame(join, analysis.getPostDominator(0));
+        Assertions.assertEquals(0, analysis.getBranch(insns.indexOf(branch)));
+        Assertions.assertEquals(-1, analysis.getBranch(insns.indexOf(jump)));
+    }
+
+    @Test
+    void conditionalOperandStackSlots() {
+        // return arg + (arg > 5 ? 1L : 0L);
+        MethodNode mn = new MethodNode(ACC_STATIC, "example", "(J)J", null, null);
+        LabelNode otherwise = new LabelNode();
+        LabelNode join = new LabelNode();
+        InsnList insns = mn.instructions;
+        insns.add(new VarInsnNode(LLOAD, 0));
+        insns.add(new VarInsnNode(LLOAD, 0));
+        insns.add(new LdcInsnNode(5L));
+        insns.add(new InsnNode(LCMP));
+        insns.add(new JumpInsnNode(IFLE, otherwise));
+        insns.add(new InsnNode(LCONST_1));
+        insns.add(new JumpInsnNode(GOTO, join));
+        insns.add(otherwise);
+        insns.add(new InsnNode(LCONST_0));
+        insns.add(join);
+        insns.add(new InsnNode(LADD));
+        insns.add(new InsnNode(LRETURN));
+        mn.maxStack = 6;
+        mn.maxLocals = 2;
+        ControlFlowAnalysis analysis = ControlFlowAnalysis.analyze("Example", mn);
+        Assertions.assertEquals(1, analysis.getBranchCount());
+        Assertions.assertSame(join, analysis.getPostDominator(0));
+        Assertions.assertEquals(2, analysis.getStackSlots(0));
+    }
+
+    @Test
+    void loopExit() {
+        // int i = 0; while (i < arg) { i++; } return i;
+        MethodNode mn = new MethodNode(ACC_STATIC, "example", "(I)I", null, null);
+        LabelNode header = new LabelNode();
+        LabelNode exit = new LabelNode();
+        InsnList insns = mn.instructions;
+        insns.add(new InsnNode(ICONST_0));
+        insns.add(new VarInsnNode(ISTORE, 1));
+        insns.add(header);
+        insns.add(new VarInsnNode(ILOAD, 1));
+        insns.add(new VarInsnNode(ILOAD, 0));
+        insns.add(new JumpInsnNode(IF_ICMPGE, exit));
+        insns.add(new IincInsnNode(1, 1));
+        insns.add(new JumpInsnNode(GOTO, header));
+        insns.add(exit);
+        insns.add(new VarInsnNode(ILOAD, 1));
+        insns.add(new InsnNode(IRETURN));
+        mn.maxStack = 2;
+        mn.maxLocals = 2;
+        ControlFlowAnalysis analysis = ControlFlowAnalysis.analyze("Example", mn);
+        Assertions.assertEquals(1, analysis.getBranchCount());
+        Assertions.assertSame(exit, analysis.getPostDominator(0));
+    }
+
+    @Test
+    void switchJoin() {
+        // int x = 0; switch (arg) { case 0: x = 1; break; case 1: x = 2; break; default: } return x;
+        MethodNode mn = new MethodNode(ACC_STATIC, "example", "(I)I", null, null);
+        LabelNode case0 = new LabelNode();
+        LabelNode case1 = new LabelNode();
+        LabelNode join = new LabelNode();
+        InsnList insns = mn.instructions;
+        insns.add(new InsnNode(ICONST_0));
+        insns.add(new VarInsnNode(ISTORE, 1));
+        insns.add(new VarInsnNode(ILOAD, 0));
+        insns.add(new TableSwitchInsnNode(0, 1, join, case0, case1));
+        insns.add(case0);
+        insns.add(new InsnNode(ICONST_1));
+        insns.add(new VarInsnNode(ISTORE, 1));
+        insns.add(new JumpInsnNode(GOTO, join));
+        insns.add(case1);
+        insns.add(new InsnNode(ICONST_2));
+        insns.add(new VarInsnNode(ISTORE, 1));
+        insns.add(join);
+        insns.add(new VarInsnNode(ILOAD, 1));
+        insns.add(new InsnNode(IRETURN));
+        mn.maxStack = 1;
+        mn.maxLocals = 2;
+        ControlFlowAnalysis analysis = ControlFlowAnalysis.analyze("Example", mn);
+        Assertions.assertEquals(1, analysis.getBranchCount());
+        Assertions.assertSame(join, analysis.getPostDominator(0));
+    }
+
+    @Test
+    void branchesToExitHaveNoPostDominator() {
+        // if (arg == 0) { throw null; } return 0;
+        MethodNode mn = new MethodNode(ACC_STATIC, "example", "(I)I", null, null);
+        LabelNode skip = new LabelNode();
+        InsnList insns = mn.instructions;
+        insns.add(new VarInsnNode(ILOAD, 0));
+        insns.add(new JumpInsnNode(IFNE, skip));
+        insns.add(new InsnNode(ACONST_NULL));
+        insns.add(new InsnNode(ATHROW));
+        insns.add(skip);
+        insns.add(new InsnNode(ICONST_0));
+        insns.add(new InsnNode(IRETURN));
+        mn.maxStack = 1;
+        mn.maxLocals = 1;
+        ControlFlowAnalysis analysis = ControlFlowAnalysis.analyze("Example", mn);
+        Assertions.assertEquals(1, analysis.getBranchCount());
+        Assertions.assertNull(analysis.getPostDominator(0));
+    }
+
+    @Test
+    void nestedBranchesShareJoin() {
+        // int x = 0; if (arg > 0) { if (arg > 5) { x = 1; } } return x;
+        MethodNode mn = new MethodNode(ACC_STATIC, "example", "(I)I", null, null);
+        LabelNode join = new LabelNode();
+        InsnList insns = mn.instructions;
+        insns.add(new InsnNode(ICONST_0));
+        insns.add(new VarInsnNode(ISTORE, 1));
+        insns.add(new VarInsnNode(ILOAD, 0));
+        insns.add(new JumpInsnNode(IFLE, join));
+        insns.add(new VarInsnNode(ILOAD, 0));
+        insns.add(new IntInsnNode(BIPUSH, 5));
+        insns.add(new JumpInsnNode(IF_ICMPLE, join));
+        insns.add(new InsnNode(ICONST_1));
+        insns.add(new VarInsnNode(ISTORE, 1));
+        insns.add(join);
+        insns.add(new VarInsnNode(ILOAD, 1));
+        insns.add(new InsnNode(IRETURN));
+        mn.maxStack = 2;
+        mn.maxLocals = 2;
+        ControlFlowAnalysis analysis = ControlFlowAnalysis.analyze("Example", mn);
+        Assertions.assertEquals(2, analysis.getBranchCount());
+        Assertions.assertSame(join, analysis.getPostDominator(0));
+        Assertions.assertSame(join, analysis.getPostDominator(1));
+    }
+}
@@ -3,14 +3,20 @@ package edu.neu.ccs.prl.galette.internal.transform;
 import static org.objectweb.asm.Opcodes.*;
 
 import edu.neu.ccs.prl.galette.example.*;
+import edu.neu.ccs.prl.galette.internal.runtime.Handle;
+import edu.neu.ccs.prl.galette.internal.runtime.PropagationProfiler;
 import edu.neu.ccs.prl.galette.internal.runtime.TagFrame;
+import edu.neu.ccs.prl.galette.internal.runtime.collection.SimpleList;
 import edu.neu.ccs.prl.galette.internal.transform.TagCheckingMethodBuilder.TagRecorder;
+import java.io.File;
+import java.io.IOException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.Arrays;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.objectweb.asm.Type;
@@ -31,6 +37,22 @@ class GaletteTransformerTest {
         Assertions.assertEquals(expected, actual);
     }
 
+    @ParameterizedTest(name = "returnValueUnaffectedByImplicitFlows: {0}")
+    @MethodSource("executionArguments")
+    void returnValueUnaffectedByImplicitFlows(String name) throws ReflectiveOperationException {
+        Class<?> original = InstructionExamples.class;
+        Class<?> instrumented;
+        GaletteTransformer.setImplicitFlows(true);
+        try {
+            instrumented = AsmTestUtil.instrumentAndLoad(original, name, GaletteTransformerTest::instrument);
+        } finally {
+            GaletteTransformer.setImplicitFlows(false);
+        }
+        Object expected = original.getDeclaredMethod(name).invoke(null);
+        Object actual = instrumented.getDeclaredMethod(name, TagFrame.class).invoke(null, TagFrame.emptyFrame());
+        Assertions.assertEquals(expected, actual);
+    }
+
     @ParameterizedTest(name = "passesVerification: {0}")
     @MethodSource("verificationArguments")
     void passesVerification(String name) throws ReflectiveOperationException, AnalyzerException {
@@ -346,6 +368,56 @@ class GaletteTransformerTest {
         Assertions.assertEquals(Arrays.asList("10", "20"), recorder.getFirstLabels());
     }
 
+    @Test
+    void profilingCountsHandleCalls() throws ReflectiveOperationException {
+        Class<?> instrumented;
+        GaletteTransformer.setProfiling(true);
+        try {
+            instrumented = AsmTestUtil.instrumentAndLoad(
+                    InstructionExamples.class, "intArrayLoad", GaletteTransformerTest::instrument);
+        } finally {
+            GaletteTransformer.setProfiling(false);
+        }
+        PropagationProfiler.reset();
+        Method method = instrumented.getDeclaredMethod("intArrayLoad", TagFrame.class);
+        for (int i = 0; i < 3; i++) {
+            method.invoke(null, TagFrame.emptyFrame());
+        }
+        SimpleList<PropagationProfiler.Site> sites = PropagationProfiler.getHotSites(10);
+        boolean found = false;
+        for (int i = 0; i < sites.size(); i++) {
+            PropagationProfiler.Site s = sites.get(i);
+            found |= s.getMethod().endsWith(".intArrayLoad()I")
+                    && s.getHandle() == Handle.ARRAY_TAG_STORE_GET_TAG
+                    && s.getCount() == 3;
+        }
+        Assertions.assertTrue(found);
+    }
+
+    @Test
+    void policyBypassesCache(@TempDir File directory) throws IOException {
+        byte[] original = AsmTestUtil.toBytes(AsmTestUtil.getClassNode(MethodCallExamples.class));
+        String className = Type.getInternalName(MethodCallExamples.class);
+        TransformationCache cache = new TransformationCache(directory);
+        GaletteTransformer.setCache(cache);
+        try {
+            Assertions.assertNotNull(instrument(original));
+            Assertions.assertTrue(cache.hasEntry(className, original));
+            // Replace the cached entry with a marker to detect cache hits
+            byte[] marker = new byte[] {0x47};
+            cache.storeEntry(className, original, marker);
+            Assertions.assertArrayEquals(marker, instrument(original));
+            GaletteTransformer.setPolicy(new InstrumentationPolicy()
+                    .addRule(InstrumentationPolicy.Action.EXCLUDE, Type.getInternalName(FieldExamples.class)));
+            byte[] result = instrument(original);
+            Assertions.assertNotNull(result);
+            Assertions.assertFalse(Arrays.equals(marker, result));
+        } finally {
+            GaletteTransformer.setPolicy(InstrumentationPolicy.EMPTY);
+            GaletteTransformer.setCache(null);
+        }
+    }
+
     private static Stream<String> executionArguments() {
         return Arrays.stream(InstructionExamples.class.getDeclaredMethods())
                 .filter(m -> Modifier.isStatic(m.getModifiers()))
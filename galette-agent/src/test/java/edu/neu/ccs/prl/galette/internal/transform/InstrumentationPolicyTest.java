@@ -0,0 +1,161 @@
+package edu.neu.ccs.prl.galette.internal.transform;
+
+import edu.neu.ccs.prl.galette.example.InstructionExamples;
+import edu.neu.ccs.prl.galette.example.PolicyBase;
+import edu.neu.ccs.prl.galette.example.PolicyLeaf;
+import edu.neu.ccs.prl.galette.example.PolicySubclass;
+import edu.neu.ccs.prl.galette.internal.runtime.TagFrame;
+import edu.neu.ccs.prl.galette.internal.transform.InstrumentationPolicy.Action;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.Type;
+
+class InstrumentationPolicyTest {
+    @TempDir
+    File directory;
+
+    @Test
+    void unmatchedClassIncluded() {
+        InstrumentationPolicy policy = new InstrumentationPolicy().addRule(Action.EXCLUDE, "com/example/");
+        Assertions.assertEquals(Action.INCLUDE, policy.getAction("org/example/Foo"));
+        Assertions.assertEquals(Action.INCLUDE, InstrumentationPolicy.EMPTY.getAction("org/example/Foo"));
+    }
+
+    @Test
+    void longestPrefixWins() {
+        InstrumentationPolicy policy = new InstrumentationPolicy()
+                .addRule(Action.EXCLUDE, "com/example/")
+                .addRule(Action.INCLUDE, "com/example/keep/")
+                .addRule(Action.SHADOW_ONLY, "com/example/keep/Fast");
+        Assertions.assertEquals(Action.EXCLUDE, policy.getAction("com/example/Foo"));
+        Assertions.assertEquals(Action.INCLUDE, policy.getAction("com/example/keep/Foo"));
+        Assertions.assertEquals(Action.SHADOW_ONLY, policy.getAction("com/example/keep/FastPath"));
+        Assertions.assertEquals(Action.EXCLUDE, policy.getAction("com/example/kee"));
+    }
+
+    @Test
+    void loadFromFile() throws IOException {
+        File file = new File(directory, "policy.txt");
+        Files.write(
+                file.toPath(),
+                Arrays.asList("# comment", "", "shadow-only com.fasterxml.jackson.", "  exclude   com/example/  "));
+        InstrumentationPolicy policy = InstrumentationPolicy.load(file);
+        Assertions.assertEquals(Action.SHADOW_ONLY, policy.getAction("com/fasterxml/jackson/core/JsonParser"));
+        Assertions.assertEquals(Action.EXCLUDE, policy.getAction("com/example/Foo"));
+    }
+
+    @Test
+    void loadRejectsMalformedRule() throws IOException {
+        File file = new File(directory, "policy.txt");
+        Files.write(file.toPath(), Arrays.asList("skip com/example/"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> InstrumentationPolicy.load(file));
+    }
+
+    @Test
+    void shadowOnlyClassHasNoPropagation() {
+        byte[] original = AsmTestUtil.toBytes(AsmTestUtil.getClassNode(InstructionExamples.class));
+        byte[] full = GaletteTransformer.getInstanceAndTransform(original, false);
+        GaletteTransformer.setPolicy(new InstrumentationPolicy()
+                .addRule(Action.SHADOW_ONLY, Type.getInternalName(InstructionExamples.class)));
+        try {
+            byte[] shadowOnly = GaletteTransformer.getInstanceAndTransform(original, false);
+            Assertions.assertTrue(shadowOnly.length < full.length);
+            Assertions.assertFalse(GaletteTransformer.isExcluded(Type.getInternalName(InstructionExamples.class)));
+        } finally {
+            GaletteTransformer.setPolicy(InstrumentationPolicy.EMPTY);
+        }
+    }
+
+    @Test
+    void excludedClassNotTransformed() {
+        byte[] original = AsmTestUtil.toBytes(AsmTestUtil.getClassNode(InstructionExamples.class));
+        GaletteTransformer.setPolicy(
+                new InstrumentationPolicy().addRule(Action.EXCLUDE, "edu.neu.ccs.prl.galette.example."));
+        try {
+            Assertions.assertNull(new GaletteTransformer().transform(original, false));
+            Assertions.assertTrue(GaletteTransformer.isExcluded(Type.getInternalName(InstructionExamples.class)));
+        } finally {
+            GaletteTransformer.setPolicy(InstrumentationPolicy.EMPTY);
+        }
+    }
+
+    @Test
+    void excludedOverrideCalledThroughInstrumentedSupertype() throws ReflectiveOperationException {
+        GaletteTransformer.setPolicy(
+                new InstrumentationPolicy().addRule(Action.EXCLUDE, Type.getInternalName(PolicySubclass.class)));
+        try {
+            Class<?>[] classes = AsmTestUtil.instrumentAndLoad(
+                    b -> GaletteTransformer.getInstanceAndTransform(b, false), PolicyBase.class, PolicySubclass.class);
+            Object instance = classes[1].getConstructor().newInstance();
+            // Instrumented callers invoke the shadow declared by the owner of the call
+            Object value = classes[0].getMethod("getValue", TagFrame.class).invoke(instance, TagFrame.emptyFrame());
+            Assertions.assertEquals(2, value);
+            Object baseValue =
+                    classes[0].getMethod("getBaseValue", TagFrame.class).invoke(instance, TagFrame.emptyFrame());
+            Assertions.assertEquals(3, baseValue);
+            // Excluded classes do not propagate tags through their own methods
+            Assertions.assertEquals(2, classes[1].getMethod("getValue").invoke(instance));
+        } finally {
+            GaletteTransformer.setPolicy(InstrumentationPolicy.EMPTY);
+        }
+    }
+
+    @Test
+    void includedSubclassOfExcludedClassExcluded() throws ReflectiveOperationException {
+        GaletteTransformer.setPolicy(
+                new InstrumentationPolicy().addRule(Action.EXCLUDE, Type.getInternalName(PolicyBase.class)));
+        try {
+            Class<?>[] classes = AsmTestUtil.instrumentAndLoad(
+                    b -> GaletteTransformer.getInstanceAndTransform(b, false),
+                    PolicyBase.class,
+                    PolicySubclass.class,
+                    PolicyLeaf.class);
+            // The subclass is not instrumented
+            Assertions.assertFalse(classes[1].isAnnotationPresent(GaletteInstrumented.class));
+            Assertions.assertFalse(classes[2].isAnnotationPresent(GaletteInstrumented.class));
+            // Instrumented callers can call the shadows of declared and inherited methods on the subclass
+            Object instance = classes[1].getConstructor(TagFrame.class).newInstance(TagFrame.emptyFrame());
+            Object value =
+                    classes[1].getDeclaredMethod("getValue", TagFrame.class).invoke(instance, TagFrame.emptyFrame());
+            Assertions.assertEquals(2, value);
+            Object baseValue = classes[1]
+                    .getDeclaredMethod("getBaseValue", TagFrame.class)
+                    .invoke(instance, TagFrame.emptyFrame());
+            Assertions.assertEquals(3, baseValue);
+            Assertions.assertNotNull(classes[1].getDeclaredMethod("hashCode", TagFrame.class));
+        } finally {
+            GaletteTransformer.setPolicy(InstrumentationPolicy.EMPTY);
+        }
+    }
+
+    @Test
+    void classWithExcludedIndirectSuperclassExcluded() throws ReflectiveOperationException {
+        GaletteTransformer.setPolicy(
+                new InstrumentationPolicy().addRule(Action.EXCLUDE, Type.getInternalName(PolicyBase.class)));
+        try {
+            Class<?>[] classes = AsmTestUtil.instrumentAndLoad(
+                    b -> GaletteTransformer.getInstanceAndTransform(b, false),
+                    PolicyBase.class,
+                    PolicySubclass.class,
+                    PolicyLeaf.class);
+            Object instance = classes[2].getConstructor().newInstance();
+            Object value = classes[2]
+                    .getDeclaredMethod("getLeafValue", TagFrame.class)
+                    .invoke(instance, TagFrame.emptyFrame());
+            Assertions.assertEquals(5, value);
+            Object baseValue = classes[2]
+                    .getDeclaredMethod("getBaseValue", TagFrame.class)
+                    .invoke(instance, TagFrame.emptyFrame());
+            Assertions.assertEquals(3, baseValue);
+            // The leaf's original methods are not instrumented
+            Assertions.assertEquals(5, classes[2].getMethod("getLeafValue").invoke(instance));
+        } finally {
+            GaletteTransformer.setPolicy(InstrumentationPolicy.EMPTY);
+        }
+    }
+}
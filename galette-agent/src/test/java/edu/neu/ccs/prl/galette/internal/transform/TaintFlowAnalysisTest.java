@@ -0,0 +1,265 @@
+package edu.neu.ccs.prl.galette.internal.transform;
+
+import static org.objectweb.asm.Opcodes.*;
+
+import edu.neu.ccs.prl.galette.example.NodeInstructionExamples;
+import edu.neu.ccs.prl.galette.internal.runtime.Handle;
+import edu.neu.ccs.prl.galette.internal.runtime.Tag;
+import edu.neu.ccs.prl.galette.internal.runtime.TagFrame;
+import java.lang.reflect.Method;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+
+class TaintFlowAnalysisTest {
+    @Test
+    void constantOperandsEmpty() {
+        MethodNode mn = new MethodNode(ACC_STATIC, "example", "()J", null, null);
+        mn.visitCode();
+        mn.visitInsn(ICONST_5);
+        mn.visitInsn(ICONST_3);
+        mn.visitInsn(IADD);
+        mn.visitInsn(I2L);
+        mn.visitLdcInsn(8L);
+        mn.visitInsn(LMUL);
+        mn.visitInsn(LRETURN);
+        mn.visitMaxs(4, 0);
+        Assertions.assertArrayEquals(new boolean[] {true, true}, analyze(mn));
+    }
+
+    @Test
+    void argumentOperandNotEmpty() {
+        MethodNode mn = new MethodNode(ACC_STATIC, "example", "(I)I", null, null);
+        mn.visitCode();
+        mn.visitVarInsn(ILOAD, 0);
+        mn.visitInsn(ICONST_3);
+        mn.visitInsn(IADD);
+        mn.visitInsn(IRETURN);
+        mn.visitMaxs(2, 1);
+        Assertions.assertArrayEquals(new boolean[] {false}, analyze(mn));
+    }
+
+    @Test
+    void callResultNotEmpty() {
+        MethodNode mn = new MethodNode(ACC_STATIC, "example", "()I", null, null);
+        mn.visitCode();
+        mn.visitMethodInsn(INVOKESTATIC, "java/lang/Integer", "rotateLeft", "()I", false);
+        mn.visitInsn(ICONST_3);
+        mn.visitInsn(ISHL);
+        mn.visitInsn(IRETURN);
+        mn.visitMaxs(2, 0);
+        Assertions.assertArrayEquals(new boolean[] {false}, analyze(mn));
+    }
+
+    @Test
+    void mergedLocalNotEmpty() {
+        // int x = 0; if (arg != 0) { x = arg; } return x + 1;
+        MethodNode mn = new MethodNode(ACC_STATIC, "example", "(I)I", null, null);
+        Label join = new Label();
+        mn.visitCode();
+        mn.visitInsn(ICONST_0);
+        mn.visitVarInsn(ISTORE, 1);
+        mn.visitVarInsn(ILOAD, 0);
+        mn.visitJumpInsn(IFEQ, join);
+        mn.visitVarInsn(ILOAD, 0);
+        mn.visitVarInsn(ISTORE, 1);
+        mn.visitLabel(join);
+        mn.visitFrame(F_NEW, 2, new Object[] {INTEGER, INTEGER}, 0, new Object[0]);
+        mn.visitVarInsn(ILOAD, 1);
+        mn.visitInsn(ICONST_1);
+        mn.visitInsn(IADD);
+        mn.visitIincInsn(1, 1);
+        mn.visitVarInsn(ILOAD, 1);
+        mn.visitInsn(ICONST_1);
+        mn.visitInsn(ISUB);
+        mn.visitInsn(IADD);
+        mn.visitInsn(IRETURN);
+        mn.visitMaxs(3, 2);
+        Assertions.assertArrayEquals(new boolean[] {false, false, false}, analyze(mn));
+    }
+
+    @Test
+    void emptyUnionSitesElided() throws ReflectiveOperationException {
+        // int sum = 0; for (int i = 0; i < 10; i++) { sum += i * 2; } return sum;
+        MethodNode mn = new MethodNode(ACC_PUBLIC | ACC_STATIC, "kernel", "()I", null, null);
+        Label condition = new Label();
+        Label body = new Label();
+        mn.visitCode();
+        mn.visitInsn(ICONST_0);
+        mn.visitVarInsn(ISTORE, 0);
+        mn.visitInsn(ICONST_0);
+        mn.visitVarInsn(ISTORE, 1);
+        mn.visitJumpInsn(GOTO, condition);
+        mn.visitLabel(body);
+        mn.visitFrame(F_NEW, 2, new Object[] {INTEGER, INTEGER}, 0, new Object[0]);
+        mn.visitVarInsn(ILOAD, 0);
+        mn.visitVarInsn(ILOAD, 1);
+        mn.visitInsn(ICONST_2);
+        mn.visitInsn(IMUL);
+        mn.visitInsn(IADD);
+        mn.visitVarInsn(ISTORE, 0);
+        mn.visitIincInsn(1, 1);
+        mn.visitLabel(condition);
+        mn.visitFrame(F_NEW, 2, new Object[] {INTEGER, INTEGER}, 0, new Object[0]);
+        mn.visitVarInsn(ILOAD, 1);
+        mn.visitIntInsn(BIPUSH, 10);
+        mn.visitJumpInsn(IF_ICMPLT, body);
+        mn.visitVarInsn(ILOAD, 0);
+        mn.visitInsn(IRETURN);
+        mn.visitMaxs(3, 2);
+        Assertions.assertArrayEquals(new boolean[] {true, true}, analyze(mn));
+        ClassNode cn = AsmTestUtil.getClassNode(NodeInstructionExamples.class);
+        cn.methods.clear();
+        cn.methods.add(mn);
+        MethodRecord union = Handle.TAG_UNION.getRecord();
+        for (MethodNode instrumented : AsmTestUtil.instrument(cn, GaletteTransformerTest::instrument).methods) {
+            for (AbstractInsnNode insn : instrumented.instructions) {
+                if (insn instanceof MethodInsnNode) {
+                    MethodInsnNode call = (MethodInsnNode) insn;
+                    Assertions.assertFalse(union.matches(call.owner, call.name, call.desc));
+                }
+            }
+        }
+        Method method = AsmTestUtil.instrumentAndLoad(mn, GaletteTransformerTest::instrument)
+                .getDeclaredMethod("kernel", TagFrame.class);
+        Assertions.assertEquals(90, method.invoke(null, TagFrame.emptyFrame()));
+    }
+
+    @Test
+    void emptyUnionSiteAddsNoInstructions() {
+        // The result of an empty union site reuses the tag of its first operand, so the site is instrumented like a
+        // POP of its second operand
+        Assertions.assertEquals(countInstrumentedInstructions(POP), countInstrumentedInstructions(IADD));
+        Assertions.assertEquals(countInstrumentedInstructions(POP2), countInstrumentedInstructions(LMUL));
+    }
+
+    @Test
+    void emptyStoreSiteAddsNoInstructions() {
+        // A store of an empty tag into a shadow variable that already holds an empty tag is instrumented like a POP
+        Assertions.assertEquals(countInstrumentedStoreInstructions(POP), countInstrumentedStoreInstructions(ISTORE));
+        Assertions.assertEquals(countInstrumentedStoreInstructions(POP2), countInstrumentedStoreInstructions(LSTORE));
+    }
+
+    @Test
+    void storeSites() {
+        // long x = 5; int y = 3; y = 1; x's second half = 3; x = 7; int z = arg; z = 1; arg = 1;
+        MethodNode mn = new MethodNode(ACC_STATIC, "example", "(I)V", null, null);
+        mn.visitCode();
+        mn.visitLdcInsn(5L);
+        mn.visitVarInsn(LSTORE, 1);
+        mn.visitInsn(ICONST_3);
+        mn.visitVarInsn(ISTORE, 3);
+        mn.visitInsn(ICONST_1);
+        mn.visitVarInsn(ISTORE, 3);
+        // The shadow variable of the second half of x is not updated by stores to x
+        mn.visitInsn(ICONST_3);
+        mn.visitVarInsn(ISTORE, 2);
+        // The shadow variable of x is not updated by stores to its second half
+        mn.visitLdcInsn(7L);
+        mn.visitVarInsn(LSTORE, 1);
+        mn.visitVarInsn(ILOAD, 0);
+        mn.visitVarInsn(ISTORE, 4);
+        mn.visitInsn(ICONST_1);
+        mn.visitVarInsn(ISTORE, 4);
+        mn.visitInsn(ICONST_1);
+        mn.visitVarInsn(ISTORE, 0);
+        mn.visitInsn(RETURN);
+        mn.visitMaxs(2, 5);
+        boolean[] emptySites = TaintFlowAnalysis.findEmptyTagSites("Example", mn);
+        int sites = 0;
+        for (AbstractInsnNode insn : mn.instructions) {
+            if (TaintFlowAnalysis.isStoreSite(insn.getOpcode())) {
+                sites++;
+            }
+        }
+        boolean[] result = new boolean[sites];
+        for (int i = 0, j = 0; i < emptySites.length; i++) {
+            if (TaintFlowAnalysis.isStoreSite(mn.instructions.get(i).getOpcode())) {
+                result[j++] = emptySites[i];
+            }
+        }
+        Assertions.assertArrayEquals(new boolean[] {true, true, true, false, false, false, false, false}, result);
+    }
+
+    @Test
+    void taintedLocalOverwrittenByEmptyStore() throws ReflectiveOperationException {
+        // int x = arg; x = 3; return x;
+        MethodNode mn = new MethodNode(ACC_PUBLIC | ACC_STATIC, "example", "(I)I", null, null);
+        mn.visitCode();
+        mn.visitVarInsn(ILOAD, 0);
+        mn.visitVarInsn(ISTORE, 1);
+        mn.visitInsn(ICONST_3);
+        mn.visitVarInsn(ISTORE, 1);
+        mn.visitVarInsn(ILOAD, 1);
+        mn.visitInsn(IRETURN);
+        mn.visitMaxs(1, 2);
+        Method method = AsmTestUtil.instrumentAndLoad(mn, GaletteTransformerTest::instrument)
+                .getDeclaredMethod("example", int.class, TagFrame.class);
+        TagFrame frame = new TagFrame().acquire(1).set(0, Tag.of("a"));
+        Assertions.assertEquals(3, method.invoke(null, 7, frame));
+        Assertions.assertTrue(Tag.isEmpty(frame.getReturnTag()));
+    }
+
+    private static int countInstrumentedStoreInstructions(int opcode) {
+        boolean wide = opcode == POP2 || opcode == LSTORE;
+        MethodNode mn = new MethodNode(ACC_PUBLIC | ACC_STATIC, "example", "()V", null, null);
+        mn.visitCode();
+        // Use the local variable in both methods so that both initialize its shadow variable
+        mn.visitInsn(wide ? LCONST_0 : ICONST_0);
+        mn.visitVarInsn(wide ? LSTORE : ISTORE, 0);
+        mn.visitLdcInsn(wide ? (Object) 5L : (Object) 5);
+        if (opcode == POP || opcode == POP2) {
+            mn.visitInsn(opcode);
+        } else {
+            mn.visitVarInsn(opcode, 0);
+        }
+        mn.visitInsn(RETURN);
+        mn.visitMaxs(2, 2);
+        return countInstrumentedInstructions(mn);
+    }
+
+    private static int countInstrumentedInstructions(int opcode) {
+        boolean wide = opcode == POP2 || opcode == LMUL;
+        MethodNode mn = new MethodNode(ACC_PUBLIC | ACC_STATIC, "example", wide ? "()J" : "()I", null, null);
+        mn.visitCode();
+        mn.visitLdcInsn(wide ? (Object) 5L : (Object) 5);
+        mn.visitLdcInsn(wide ? (Object) 3L : (Object) 3);
+        mn.visitInsn(opcode);
+        mn.visitInsn(wide ? LRETURN : IRETURN);
+        mn.visitMaxs(4, 0);
+        return countInstrumentedInstructions(mn);
+    }
+
+    private static int countInstrumentedInstructions(MethodNode mn) {
+        ClassNode cn = AsmTestUtil.getClassNode(NodeInstructionExamples.class);
+        cn.methods.clear();
+        cn.methods.add(mn);
+        int count = 0;
+        for (MethodNode instrumented : AsmTestUtil.instrument(cn, GaletteTransformerTest::instrument).methods) {
+            count += instrumented.instructions.size();
+        }
+        return count;
+    }
+
+    private static boolean[] analyze(MethodNode mn) {
+        boolean[] emptySites = TaintFlowAnalysis.findEmptyTagSites("Example", mn);
+        // Only report the union sites
+        int sites = 0;
+        for (AbstractInsnNode insn : mn.instructions) {
+            if (TaintFlowAnalysis.isUnionSite(insn.getOpcode())) {
+                sites++;
+            }
+        }
+        boolean[] result = new boolean[sites];
+        for (int i = 0, j = 0; i < emptySites.length; i++) {
+            if (TaintFlowAnalysis.isUnionSite(mn.instructions.get(i).getOpcode())) {
+                result[j++] = emptySites[i];
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,156 @@
+package edu.neu.ccs.prl.galette.bench;
+
+import edu.neu.ccs.prl.galette.bench.extension.FlowBench;
+import edu.neu.ccs.prl.galette.bench.extension.FlowChecker;
+import edu.neu.ccs.prl.galette.bench.extension.TagManager;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@FlowBench
+public class ByteBufferITCase {
+    @Test
+    void bulkPutHeapBuffer(TagManager manager, FlowChecker checker) {
+        byte[] source = createTaintedBytes(manager, 64);
+        ByteBuffer destination = ByteBuffer.allocate(64);
+        destination.put(ByteBuffer.wrap(source));
+        byte[] actual = destination.array();
+        for (int i = 0; i < actual.length; i++) {
+            Assertions.assertEquals(source[i], actual[i]);
+            checker.check(new Object[] {String.valueOf(i)}, manager.getLabels(actual[i]));
+        }
+    }
+
+    @Test
+    void bulkPutDirectBufferClearsTags(TagManager manager, FlowChecker checker) {
+        byte[] array = createTaintedBytes(manager, 64);
+        ByteBuffer.wrap(array).put(ByteBuffer.allocateDirect(64));
+        for (byte b : array) {
+            checker.checkEmpty(manager.getLabels(b));
+        }
+    }
+
+    @Test
+    void putGetDirectBuffer(TagManager manager, FlowChecker checker) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(64);
+        for (int i = 0; i < buffer.capacity(); i++) {
+            buffer.put(i, manager.setLabel((byte) i, String.valueOf(i)));
+        }
+        for (int i = 0; i < buffer.capacity(); i++) {
+            byte actual = buffer.get(i);
+            Assertions.assertEquals((byte) i, actual);
+            checker.check(new Object[] {String.valueOf(i)}, manager.getLabels(actual));
+        }
+    }
+
+    @Test
+    void putGetMappedBuffer(TagManager manager, FlowChecker checker, @TempDir Path directory) throws IOException {
+        Path file = directory.resolve("mapped.bin");
+        try (FileChannel channel = FileChannel.open(
+                file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, 64);
+            buffer.put(createTaintedBytes(manager, 64));
+            for (int i = 0; i < buffer.capacity(); i++) {
+                byte actual = buffer.get(i);
+                Assertions.assertEquals((byte) i, actual);
+                checker.check(new Object[] {String.valueOf(i)}, manager.getLabels(actual));
+            }
+        }
+    }
+
+    @Test
+    void fileChannelReadClearsTags(TagManager manager, FlowChecker checker, @TempDir Path directory)
+            throws IOException {
+        Path file = directory.resolve("read.bin");
+        Files.write(file, new byte[64]);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(64);
+        buffer.put(createTaintedBytes(manager, 64));
+        buffer.clear();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Assertions.assertEquals(64, channel.read(buffer));
+        }
+        for (int i = 0; i < buffer.capacity(); i++) {
+            checker.checkEmpty(manager.getLabels(buffer.get(i)));
+        }
+    }
+
+    @Test
+    void fileChannelPositionalReadClearsTags(TagManager manager, FlowChecker checker, @TempDir Path directory)
+            throws IOException {
+        Path file = directory.resolve("pread.bin");
+        Files.write(file, new byte[64]);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(64);
+        buffer.put(createTaintedBytes(manager, 64));
+        buffer.position(16);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Assertions.assertEquals(48, channel.read(buffer, 0));
+        }
+        for (int i = 0; i < buffer.capacity(); i++) {
+            if (i < 16) {
+                checker.check(new Object[] {String.valueOf(i)}, manager.getLabels(buffer.get(i)));
+            } else {
+                checker.checkEmpty(manager.getLabels(buffer.get(i)));
+            }
+        }
+    }
+
+    @Test
+    void getLongHeapBuffer(TagManager manager, FlowChecker checker) {
+        byte[] source = createTaintedBytes(manager, 16);
+        long actual = ByteBuffer.wrap(source).getLong(8);
+        checker.check(new Object[] {"8", "9", "10", "11", "12", "13", "14", "15"}, manager.getLabels(actual));
+    }
+
+    @Test
+    void putLongHeapBuffer(TagManager manager, FlowChecker checker) {
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        buffer.putLong(4, manager.setLabel(42L, "label"));
+        byte[] actual = buffer.array();
+        for (int i = 0; i < actual.length; i++) {
+            if (i >= 4 && i < 12) {
+                checker.check(new Object[] {"label"}, manager.getLabels(actual[i]));
+            } else {
+                checker.checkEmpty(manager.getLabels(actual[i]));
+            }
+        }
+    }
+
+    @Test
+    void bulkGetIntViewBigEndian(TagManager manager, FlowChecker checker) {
+        bulkGetIntView(manager, checker, ByteOrder.BIG_ENDIAN);
+    }
+
+    @Test
+    void bulkGetIntViewLittleEndian(TagManager manager, FlowChecker checker) {
+        bulkGetIntView(manager, checker, ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static void bulkGetIntView(TagManager manager, FlowChecker checker, ByteOrder order) {
+        byte[] source = createTaintedBytes(manager, 16);
+        int[] actual = new int[4];
+        ByteBuffer.wrap(source).order(order).asIntBuffer().get(actual);
+        for (int i = 0; i < actual.length; i++) {
+            Object[] expected = new Object[4];
+            for (int j = 0; j < expected.length; j++) {
+                expected[j] = String.valueOf(i * 4 + j);
+            }
+            checker.check(expected, manager.getLabels(actual[i]));
+        }
+    }
+
+    private static byte[] createTaintedBytes(TagManager manager, int length) {
+        byte[] result = new byte[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = manager.setLabel((byte) i, String.valueOf(i));
+        }
+        return result;
+    }
+}
@@ -9,6 +9,15 @@ import org.junit.jupiter.api.Test;
 
 @FlowBench
 public class CollectionITCase {
+    /**
+     * Number of elements in the collections used to measure the throughput of common operations.
+     */
+    private static final int SIZE = 10_000;
+    /**
+     * Number of times each element is accessed when measuring throughput.
+     */
+    private static final int PASSES = 20;
+
     @Test
     void addGetTaintedElementArrayList(TagManager manager, FlowChecker checker) {
         addGetTaintedElementCollection(manager, checker, new ArrayList<>());
@@ -38,6 +47,44 @@ public class CollectionITCase {
         checker.checkEmpty(manager.getLabels(map.get("x")));
     }
 
+    @Test
+    void getTaintedValuesByEqualKeysHashMap(TagManager manager, FlowChecker checker) {
+        Map<String, Object> map = new HashMap<>();
+        String[] probes = new String[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            String id = "org.example.model.Element#" + i;
+            // Look up entries using equal but distinct keys, as an index of identifiers would
+            probes[i] = new String(id.toCharArray());
+            String key = i % 2 == 0 ? manager.setLabels(id, new Object[] {"key"}) : id;
+            Object value = new Object();
+            map.put(key, i % 2 == 0 ? manager.setLabels(value, new Object[] {"value"}) : value);
+        }
+        for (int pass = 0; pass < PASSES; pass++) {
+            for (String probe : probes) {
+                Assertions.assertNotNull(map.get(probe));
+            }
+        }
+        Assertions.assertNull(map.get("org.example.model.Element#" + SIZE));
+        checker.check(new Object[] {"value"}, manager.getLabels(map.get(probes[0])));
+        checker.checkEmpty(manager.getLabels(map.get(probes[1])));
+    }
+
+    @Test
+    void getTaintedElementsArrayList(TagManager manager, FlowChecker checker) {
+        List<Object> list = new ArrayList<>();
+        for (int i = 0; i < SIZE; i++) {
+            Object element = new Object();
+            list.add(i % 2 == 0 ? manager.setLabels(element, new Object[] {"element"}) : element);
+        }
+        for (int pass = 0; pass < PASSES; pass++) {
+            for (int i = 0; i < SIZE; i++) {
+                Assertions.assertNotNull(list.get(i));
+            }
+        }
+        checker.check(new Object[] {"element"}, manager.getLabels(list.get(0)));
+        checker.checkEmpty(manager.getLabels(list.get(1)));
+    }
+
     @Test
     void sortTaintedArrayList(TagManager manager, FlowChecker checker) {
         sortList(manager, checker, new ArrayList<>());
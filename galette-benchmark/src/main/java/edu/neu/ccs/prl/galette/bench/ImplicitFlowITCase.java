@@ -0,0 +1,67 @@
+package edu.neu.ccs.prl.galette.bench;
+
+import edu.neu.ccs.prl.galette.bench.extension.FlowBench;
+import edu.neu.ccs.prl.galette.bench.extension.FlowChecker;
+import edu.neu.ccs.prl.galette.bench.extension.TagManager;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+/**
+ * Checks that values assigned under a tainted branch condition are tagged with the condition's tag.
+ * Implicit flows are only tracked when requested, so these checks only run when implicit flow tracking is enabled.
+ */
+@FlowBench
+@EnabledIfSystemProperty(named = "galette.implicit", matches = "true")
+public class ImplicitFlowITCase {
+    @Test
+    void implicitFlowToLocal(TagManager manager, FlowChecker checker) {
+        int secret = manager.setLabels(5, new Object[] {"secret"});
+        int x = 0;
+        if (secret > 0) {
+            x = 1;
+        }
+        int y = x + 1;
+        Assertions.assertEquals(2, y);
+        checker.check(new Object[] {"secret"}, manager.getLabels(y));
+    }
+
+    @Test
+    void implicitFlowToField(TagManager manager, FlowChecker checker) {
+        int secret = manager.setLabels(5, new Object[] {"secret"});
+        Holder holder = new Holder(false);
+        if (secret > 0) {
+            holder.i = 1;
+        }
+        Assertions.assertEquals(1, holder.i);
+        checker.check(new Object[] {"secret"}, manager.getLabels(holder.i));
+    }
+
+    @Test
+    void implicitFlowToReturnValue(TagManager manager, FlowChecker checker) {
+        int secret = manager.setLabels(5, new Object[] {"secret"});
+        int result = select(secret);
+        Assertions.assertEquals(2, result);
+        checker.check(new Object[] {"secret"}, manager.getLabels(result));
+    }
+
+    @Test
+    void noImplicitFlowAfterBranch(TagManager manager, FlowChecker checker) {
+        int secret = manager.setLabels(5, new Object[] {"secret"});
+        int x = 0;
+        if (secret > 0) {
+            x = 1;
+        }
+        int z = 3;
+        Assertions.assertEquals(1, x);
+        checker.checkEmpty(manager.getLabels(z));
+    }
+
+    private static int select(int secret) {
+        int x = 0;
+        if (secret > 0) {
+            x = 1;
+        }
+        return x + 1;
+    }
+}
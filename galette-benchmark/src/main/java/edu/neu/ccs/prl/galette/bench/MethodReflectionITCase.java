@@ -36,6 +36,24 @@ public class MethodReflectionITCase {
         checker.check(new Object[] {"labels1"}, manager.getLabels(actual));
     }
 
+    @Test
+    void invokeRepeatedly() throws ReflectiveOperationException {
+        // Repeatedly resolve the shadow of the same method through both a single Method instance and fresh copies
+        Method cached = MethodReflectionITCase.class.getDeclaredMethod("increment", int.class);
+        int value = manager.setLabels(0, new Object[] {"labels1"});
+        for (int i = 0; i < 1_000; i++) {
+            Method m = i % 2 == 0 ? cached : MethodReflectionITCase.class.getDeclaredMethod("increment", int.class);
+            value = (int) m.invoke(null, value);
+        }
+        Assertions.assertEquals(1_000, value);
+        checker.check(new Object[] {"labels1"}, manager.getLabels(value));
+    }
+
+    @SuppressWarnings("unused")
+    private static int increment(int x) {
+        return x + 1;
+    }
+
     @ParameterizedTest(name = "getValue(baseType={0}, taintValue={1}, category={2})")
     @MethodSource("arguments")
     void getValue(Class<?> baseType, boolean taintValue, HolderValueCategory category)
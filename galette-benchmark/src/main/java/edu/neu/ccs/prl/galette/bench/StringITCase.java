@@ -4,6 +4,7 @@ import edu.neu.ccs.prl.galette.bench.extension.FlowBench;
 import edu.neu.ccs.prl.galette.bench.extension.FlowChecker;
 import edu.neu.ccs.prl.galette.bench.extension.TagManager;
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
@@ -252,6 +253,69 @@ public class StringITCase {
         }
     }
 
+    @ParameterizedTest(name = "parseIntRepeated(taintValue={0})")
+    @ValueSource(booleans = {true, false})
+    void parseIntRepeated(boolean taintValue) {
+        String s = "123";
+        if (taintValue) {
+            s = BenchUtil.taintWithIndices(manager, s);
+        }
+        // The second parse is answered by the merged character tags cached on the string
+        for (int i = 0; i < 2; i++) {
+            int actual = Integer.parseInt(s);
+            Assertions.assertEquals(123, actual);
+            if (taintValue) {
+                checker.check(new Object[] {"0", "1", "2"}, manager.getLabels(actual));
+            } else {
+                checker.checkEmpty(manager.getLabels(actual));
+            }
+        }
+    }
+
+    @Test
+    void parseIntAfterClearingTags() {
+        String s = BenchUtil.taintCharacters(manager, "42", "label");
+        int before = Integer.parseInt(s);
+        Assertions.assertEquals(42, before);
+        checker.check(new Object[] {"label"}, manager.getLabels(before));
+        // Clearing tags must invalidate the merged character tags cached on the string
+        manager.tearDown();
+        int after = Integer.parseInt(s);
+        Assertions.assertEquals(42, after);
+        checker.checkEmpty(manager.getLabels(after));
+    }
+
+    @ParameterizedTest(name = "parseIntOfToString(taintValue={0})")
+    @ValueSource(booleans = {true, false})
+    void parseIntOfToString(boolean taintValue) {
+        int value = taintValue ? manager.setLabel(42, "label") : 42;
+        // Only the characters of the string should carry the tag
+        String s = manager.setLabels(Integer.toString(value), new Object[0]);
+        for (int i = 0; i < 2; i++) {
+            int actual = Integer.parseInt(s);
+            Assertions.assertEquals(42, actual);
+            if (taintValue) {
+                checker.check(new Object[] {"label"}, manager.getLabels(actual));
+            } else {
+                checker.checkEmpty(manager.getLabels(actual));
+            }
+        }
+    }
+
+    @ParameterizedTest(name = "parseIntOfStringBuilder(taintValue={0})")
+    @ValueSource(booleans = {true, false})
+    void parseIntOfStringBuilder(boolean taintValue) {
+        int value = taintValue ? manager.setLabel(42, "label") : 42;
+        String s = new StringBuilder().append(value).append(7).toString();
+        int actual = Integer.parseInt(s);
+        Assertions.assertEquals(427, actual);
+        if (taintValue) {
+            checker.check(new Object[] {"label"}, manager.getLabels(actual));
+        } else {
+            checker.checkEmpty(manager.getLabels(actual));
+        }
+    }
+
     private void checkLabels(String s, boolean taintValue, int start, int end, Object[] labels) {
         for (int i = start; i < end; i++) {
             char c = s.charAt(i);
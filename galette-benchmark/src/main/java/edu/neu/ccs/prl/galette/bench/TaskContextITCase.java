@@ -0,0 +1,137 @@
+package edu.neu.ccs.prl.galette.bench;
+
+import edu.neu.ccs.prl.galette.bench.extension.FlowBench;
+import edu.neu.ccs.prl.galette.bench.extension.FlowChecker;
+import edu.neu.ccs.prl.galette.bench.extension.TagManager;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+/**
+ * Checks that a task submitted to an executor under a tainted branch condition runs on the worker thread with the
+ * condition's tag as its control tag.
+ * Values stored by the task are only tagged when implicit flows are tracked, so these checks only run when both
+ * implicit flow tracking and task context propagation are enabled.
+ */
+@FlowBench
+@EnabledIfSystemProperty(named = "galette.implicit", matches = "true")
+@EnabledIfSystemProperty(named = "galette.context", matches = "true")
+public class TaskContextITCase {
+    private static final long TIMEOUT_SECONDS = 10;
+    private ScheduledExecutorService executor;
+    private ForkJoinPool forkJoinPool;
+
+    @BeforeEach
+    void createExecutors() {
+        executor = Executors.newSingleThreadScheduledExecutor();
+        forkJoinPool = new ForkJoinPool(1);
+    }
+
+    @AfterEach
+    void shutdownExecutors() {
+        executor.shutdownNow();
+        forkJoinPool.shutdownNow();
+    }
+
+    @Test
+    void execute(TagManager manager, FlowChecker checker) throws Exception {
+        int secret = manager.setLabels(5, new Object[] {"secret"});
+        Holder holder = new Holder(false);
+        if (secret > 0) {
+            executor.execute(() -> holder.i = 1);
+        }
+        executor.shutdown();
+        Assertions.assertTrue(executor.awaitTermination(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        check(manager, checker, holder);
+    }
+
+    @Test
+    void submitRunnable(TagManager manager, FlowChecker checker) throws Exception {
+        int secret = manager.setLabels(5, new Object[] {"secret"});
+        Holder holder = new Holder(false);
+        Future<?> future = null;
+        if (secret > 0) {
+            future = executor.submit(() -> {
+                holder.i = 1;
+            });
+        }
+        await(future);
+        check(manager, checker, holder);
+    }
+
+    @Test
+    void submitCallable(TagManager manager, FlowChecker checker) throws Exception {
+        int secret = manager.setLabels(5, new Object[] {"secret"});
+        Holder holder = new Holder(false);
+        Future<?> future = null;
+        if (secret > 0) {
+            future = executor.submit(() -> {
+                holder.i = 1;
+                return null;
+            });
+        }
+        await(future);
+        check(manager, checker, holder);
+    }
+
+    @Test
+    void schedule(TagManager manager, FlowChecker checker) throws Exception {
+        int secret = manager.setLabels(5, new Object[] {"secret"});
+        Holder holder = new Holder(false);
+        Future<?> future = null;
+        if (secret > 0) {
+            future = executor.schedule(() -> holder.i = 1, 1, TimeUnit.MILLISECONDS);
+        }
+        await(future);
+        check(manager, checker, holder);
+    }
+
+    @Test
+    void forkJoinPool(TagManager manager, FlowChecker checker) throws Exception {
+        int secret = manager.setLabels(5, new Object[] {"secret"});
+        Holder holder = new Holder(false);
+        Future<?> future = null;
+        if (secret > 0) {
+            future = forkJoinPool.submit(() -> {
+                holder.i = 1;
+            });
+        }
+        await(future);
+        check(manager, checker, holder);
+    }
+
+    @Test
+    void supplyAsync(TagManager manager, FlowChecker checker) throws Exception {
+        int secret = manager.setLabels(5, new Object[] {"secret"});
+        Holder holder = new Holder(false);
+        Future<?> future = null;
+        if (secret > 0) {
+            future = CompletableFuture.supplyAsync(
+                    () -> {
+                        holder.i = 1;
+                        return holder;
+                    },
+                    forkJoinPool);
+        }
+        await(future);
+        check(manager, checker, holder);
+    }
+
+    private static void await(Future<?> future) throws Exception {
+        Assertions.assertNotNull(future);
+        future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private static void check(TagManager manager, FlowChecker checker, Holder holder) {
+        Assertions.assertEquals(1, holder.i);
+        checker.check(new Object[] {"secret"}, manager.getLabels(holder.i));
+    }
+}
@@ -63,6 +63,24 @@ public class ThrowableITCase {
         }
     }
 
+    @Test
+    void repeatedlyCaughtExceptions() {
+        RuntimeException tainted = manager.setLabel(new RuntimeException(), "exception");
+        RuntimeException untainted = new RuntimeException();
+        for (int i = 0; i < 10_000; i++) {
+            boolean taintValue = i % 3 != 0;
+            try {
+                throw taintValue ? tainted : untainted;
+            } catch (RuntimeException e) {
+                if (taintValue) {
+                    checker.check(new Object[] {"exception"}, manager.getLabels(e));
+                } else {
+                    checker.checkEmpty(manager.getLabels(e));
+                }
+            }
+        }
+    }
+
     @Test
     void throwCausesNullPointerException() {
         RuntimeException e = manager.setLabel(null, "exception");
@@ -0,0 +1,203 @@
+package edu.neu.ccs.prl.galette.instrument;
+
+import edu.neu.ccs.prl.galette.internal.transform.AheadOfTimeStore;
+import edu.neu.ccs.prl.galette.internal.transform.FileUtil;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import org.objectweb.asm.ClassReader;
+
+/**
+ * Instruments the elements of an application class path ahead of time.
+ * <p>
+ * Each class path element is instrumented into the destination directory using {@link GenericInstrumenter}.
+ * Instrumented class files are also written to an {@link AheadOfTimeStore} in the destination directory.
+ * When the Galette agent is run with {@code -Dgalette.aot=<destination>}, it does not transform classes loaded from
+ * the instrumented class path elements.
+ * It also replaces classes loaded from the original class path elements with their stored instrumented forms
+ * instead of transforming them.
+ * The store is only used by the agent JAR specified when it was created.
+ * The classes of the instrumentation must be the same as those of that agent JAR.
+ */
+public final class AheadOfTimeInstrumenter {
+    private AheadOfTimeInstrumenter() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Usage: {@code AheadOfTimeInstrumenter <agent JAR> <destination> <class path element>...}
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            throw new IllegalArgumentException("Usage: AheadOfTimeInstrumenter <agent JAR> <destination> <element>...");
+        }
+        GaletteInstrumentation instrumentation = new GaletteInstrumentation();
+        instrumentation.configure(new Properties());
+        File agentJar = new File(args[0]);
+        File destination = new File(args[1]);
+        List<File> classPath = new ArrayList<>();
+        for (int i = 2; i < args.length; i++) {
+            classPath.add(new File(args[i]));
+        }
+        boolean verbose = Boolean.getBoolean("galette.instrument.verbose");
+        String cachePath = System.getProperty("galette.instrument.cache");
+        File cacheDirectory = cachePath == null ? null : new File(cachePath);
+        System.out.printf("Instrumenting %s to %s%n", classPath, destination);
+        long elapsedTime = instrument(classPath, destination, agentJar, instrumentation, verbose, cacheDirectory);
+        System.out.printf("Finished instrumentation after %dms%n", elapsedTime);
+    }
+
+    /**
+     * Instruments the specified class path elements.
+     * Each element is written to the destination directory under its original file name.
+     *
+     * @param classPath the class path elements to be instrumented
+     * @param destination the directory to which instrumented elements and the store should be written
+     * @param agentJar the Galette agent JAR with which the instrumented classes will be run
+     * @param instrumentation the instrumentation to apply
+     * @param verbose true if information about instrumentation progress should be logged
+     * @param cacheDirectory directory in which instrumented class files are cached across runs or {@code null} if
+     *     instrumented class files should not be cached
+     * @return the elapsed time in milliseconds
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalArgumentException if the destination already exists, the agent JAR or an element does not
+     *     exist, or two elements have the same file name
+     */
+    public static long instrument(
+            List<File> classPath,
+            File destination,
+            File agentJar,
+            Instrumentation instrumentation,
+            boolean verbose,
+            File cacheDirectory)
+            throws IOException {
+        if (destination.exists()) {
+            throw new IllegalArgumentException("Destination location already exists: " + destination);
+        }
+        if (!agentJar.isFile()) {
+            throw new IllegalArgumentException("Agent JAR not found: " + agentJar);
+        }
+        Set<String> names = new HashSet<>();
+        for (File element : classPath) {
+            if (!element.exists()) {
+                throw new IllegalArgumentException("Source location not found: " + element);
+            } else if (!names.add(element.getName())) {
+                throw new IllegalArgumentException("Duplicate class path element name: " + element.getName());
+            }
+        }
+        long startTime = System.currentTimeMillis();
+        ClassFileCache cache = cacheDirectory == null ? null : new ClassFileCache(cacheDirectory, instrumentation);
+        File classesDirectory = new File(destination, AheadOfTimeStore.CLASSES_DIRECTORY_NAME);
+        Files.createDirectories(classesDirectory.toPath());
+        RecordingInstrumentation recorder = new RecordingInstrumentation(instrumentation, cache, classesDirectory);
+        try {
+            for (File element : classPath) {
+                GenericInstrumenter.process(element, new File(destination, element.getName()), recorder, verbose);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while instrumenting class path", e);
+        }
+        String version = AheadOfTimeStore.computeVersion(agentJar);
+        writeManifest(new File(destination, AheadOfTimeStore.MANIFEST_NAME), version, recorder);
+        return System.currentTimeMillis() - startTime;
+    }
+
+    private static void writeManifest(File manifest, String version, RecordingInstrumentation recorder)
+            throws IOException {
+        // Sort the entries to make the manifest independent of the order in which classes were instrumented
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(manifest.toPath(), StandardCharsets.UTF_8))) {
+            writer.println("version " + version);
+            for (String entry : new TreeSet<>(recorder.entries)) {
+                writer.println(entry);
+            }
+        }
+    }
+
+    /**
+     * Applies an instrumentation and records the class files that it changed.
+     */
+    private static final class RecordingInstrumentation implements Instrumentation {
+        private final Instrumentation delegate;
+        private final ClassFileCache cache;
+        private final File classesDirectory;
+        private final Set<String> entries = ConcurrentHashMap.newKeySet();
+
+        private RecordingInstrumentation(Instrumentation delegate, ClassFileCache cache, File classesDirectory) {
+            this.delegate = delegate;
+            this.cache = cache;
+            this.classesDirectory = classesDirectory;
+        }
+
+        @Override
+        public byte[] apply(byte[] classFileBuffer) {
+            byte[] result = cache == null ? delegate.apply(classFileBuffer) : cache.apply(delegate, classFileBuffer);
+            if (result != null) {
+                String className = new ClassReader(classFileBuffer).getClassName();
+                String original = FileUtil.toHexString(FileUtil.checksum(classFileBuffer));
+                String instrumented = FileUtil.toHexString(FileUtil.checksum(result));
+                try {
+                    store(AheadOfTimeStore.getClassFile(classesDirectory, original), result);
+                } catch (IOException e) {
+                    throw new RuntimeException("Failed to store instrumented class: " + className, e);
+                }
+                entries.add(className + " " + original + " " + instrumented);
+            }
+            return result;
+        }
+
+        private static void store(File file, byte[] content) throws IOException {
+            // Identical class files may appear in multiple elements and be instrumented concurrently
+            Path temp = Files.createTempFile(file.getParentFile().toPath(), "entry-", ".tmp");
+            try {
+                Files.write(temp, content);
+                Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+
+        @Override
+        public void configure(Properties options) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Properties getOptions() {
+            return delegate.getOptions();
+        }
+
+        @Override
+        public Set<File> getClassPathElements() {
+            return delegate.getClassPathElements();
+        }
+
+        @Override
+        public boolean shouldPack(String classFileName) {
+            return delegate.shouldPack(classFileName);
+        }
+
+        @Override
+        public Set<File> getElementsToPack() {
+            return delegate.getElementsToPack();
+        }
+
+        @Override
+        public BiFunction<String, byte[], byte[]> createPatcher(Function<String, byte[]> entryLocator) {
+            return delegate.createPatcher(entryLocator);
+        }
+
+        @Override
+        public Set<String> getRequiredModules() {
+            return delegate.getRequiredModules();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package edu.neu.ccs.prl.galette.instrument;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Creates class data sharing (CDS) archives for instrumented Java installations.
+ * <p>
+ * Without an archive, the instrumented classes of the Java installation must be parsed and verified every time a
+ * JVM is launched.
+ * The default archive is created by running the instrumented installation with {@code -Xshare:dump}.
+ * It is stored where the JVM looks for it by default and is used by every JVM launched from the installation.
+ * If training arguments are specified, a dynamic archive is also created by running the instrumented installation
+ * with those arguments and {@code -XX:ArchiveClassesAtExit}.
+ * The dynamic archive additionally covers the classes loaded by the training run, for example, the classes of the
+ * Galette agent and the application.
+ * It is only used when a JVM is launched with {@code -XX:SharedArchiveFile=<archive>}, where {@code <archive>} is
+ * the file returned by {@link #getDynamicArchive(File)}.
+ * The class path of the training run must consist only of JAR files, and the same class path must be used when
+ * the dynamic archive is used.
+ * <p>
+ * The JVM rejects an archive that does not match the installation's runtime image.
+ * Archives should still be recreated whenever the installation is recreated.
+ */
+public final class ClassDataSharing {
+    private ClassDataSharing() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Returns the location of the dynamic archive for the specified Java installation.
+     *
+     * @param javaHome the Java installation
+     * @return the location of the dynamic archive for the Java installation
+     */
+    public static File getDynamicArchive(File javaHome) {
+        return new File(new File(javaHome, "lib"), "galette.jsa");
+    }
+
+    /**
+     * Creates class data sharing archives for the specified instrumented Java installation.
+     *
+     * @param javaHome the instrumented Java installation
+     * @param trainingArguments arguments passed to the JVM for the training run used to create the dynamic archive,
+     *     for example, the Galette agent and a main class, or an empty list if no dynamic archive should be created
+     * @return the elapsed time in milliseconds
+     * @throws IOException if an archive could not be created
+     * @throws NullPointerException if {@code trainingArguments} is {@code null}
+     */
+    public static long createArchives(File javaHome, List<String> trainingArguments) throws IOException {
+        if (!InstrumentUtil.isJavaHome(javaHome)) {
+            throw new IllegalArgumentException("Expected Java installation at: " + javaHome);
+        }
+        long startTime = System.currentTimeMillis();
+        run(javaHome, Collections.singletonList("-Xshare:dump"));
+        File dynamicArchive = getDynamicArchive(javaHome);
+        Files.deleteIfExists(dynamicArchive.toPath());
+        if (!trainingArguments.isEmpty()) {
+            List<String> arguments = new ArrayList<>();
+            // Java agents are disabled during archive dumping unless explicitly allowed
+            arguments.add("-XX:+UnlockDiagnosticVMOptions");
+            arguments.add("-XX:+AllowArchivingWithJavaAgent");
+            arguments.add("-XX:ArchiveClassesAtExit=" + dynamicArchive.getAbsolutePath());
+            arguments.addAll(trainingArguments);
+            run(javaHome, arguments);
+            if (!dynamicArchive.isFile()) {
+                throw new IOException("Training run did not create dynamic archive: " + dynamicArchive);
+            }
+        }
+        return System.currentTimeMillis() - startTime;
+    }
+
+    private static void run(File javaHome, List<String> arguments) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(InstrumentUtil.javaHomeToJavaExec(javaHome).getAbsolutePath());
+        command.addAll(arguments);
+        ProcessBuilder builder = new ProcessBuilder(command);
+        System.out.println(String.join(" ", builder.command()));
+        try {
+            Process process = builder.inheritIO().start();
+            if (process.waitFor() != 0) {
+                throw new IOException("Failed to create class data sharing archive: " + String.join(" ", command));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while creating class data sharing archive", e);
+        }
+    }
+}
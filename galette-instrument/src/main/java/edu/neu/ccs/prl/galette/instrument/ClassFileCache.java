@@ -0,0 +1,167 @@
+package edu.neu.ccs.prl.galette.instrument;
+
+import edu.neu.ccs.prl.galette.internal.transform.FileUtil;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed store of instrumented class files that persists across instrumentation runs.
+ * <p>
+ * Entries are keyed by a hash of the original class file and a version hash of the instrumentation.
+ * The version hash covers the class path elements of the instrumentation and its options.
+ * Archives on the class path are hashed by content; class path directories are hashed by the paths, sizes, and
+ * modification times of the files that they contain.
+ * Changing the instrumentation therefore misses every existing entry and never returns stale bytes.
+ * Classes left unchanged by the instrumentation are recorded as empty entries so that they are not reprocessed.
+ * Entries are written to a temporary file and then moved into place, so a cache can be shared by concurrent
+ * instrumentation tasks.
+ */
+public final class ClassFileCache {
+    private final File directory;
+    private final byte[] version;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Creates a cache for the specified instrumentation stored in the specified directory.
+     *
+     * @param directory the directory in which entries should be stored
+     * @param instrumentation the instrumentation whose results should be cached
+     * @throws IOException if the directory could not be created or the version of the instrumentation could not
+     *     be computed
+     */
+    public ClassFileCache(File directory, Instrumentation instrumentation) throws IOException {
+        Files.createDirectories(directory.toPath());
+        this.directory = directory;
+        this.version = computeVersion(instrumentation);
+    }
+
+    /**
+     * Returns the result of applying the specified instrumentation to the specified class file, reusing a
+     * previously stored result if one exists.
+     *
+     * @param instrumentation the instrumentation to apply; must be the instrumentation used to create this cache
+     * @param classFileBuffer the original class file
+     * @return the instrumented class file or {@code null} if the instrumentation left the class unchanged
+     * @throws UncheckedIOException if an I/O error occurs reading or writing an entry
+     */
+    public byte[] apply(Instrumentation instrumentation, byte[] classFileBuffer) {
+        Path entry = getEntry(classFileBuffer);
+        try {
+            if (Files.isRegularFile(entry)) {
+                hits.incrementAndGet();
+                byte[] content = Files.readAllBytes(entry);
+                return content.length == 0 ? null : content;
+            }
+            misses.incrementAndGet();
+            byte[] result = instrumentation.apply(classFileBuffer);
+            store(entry, result == null ? new byte[0] : result);
+            return result;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to access class file cache entry: " + entry, e);
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    private void store(Path entry, byte[] content) throws IOException {
+        Files.createDirectories(entry.getParent());
+        Path temp = Files.createTempFile(entry.getParent(), "entry-", ".tmp");
+        try {
+            Files.write(temp, content);
+            Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private Path getEntry(byte[] classFileBuffer) {
+        MessageDigest digest = createDigest();
+        digest.update(version);
+        String key = FileUtil.toHexString(digest.digest(classFileBuffer));
+        // Spread entries across subdirectories to keep directory sizes manageable
+        return new File(new File(directory, key.substring(0, 2)), key.substring(2) + ".class").toPath();
+    }
+
+    private static byte[] computeVersion(Instrumentation instrumentation) throws IOException {
+        MessageDigest digest = createDigest();
+        for (File f : getSortedClassPath(instrumentation).values()) {
+            if (f.isFile()) {
+                digest.update(Files.readAllBytes(f.toPath()));
+            } else if (f.isDirectory()) {
+                updateDirectory(digest, f.toPath());
+            }
+        }
+        // Sort the options to make the version independent of their iteration order
+        Properties options = instrumentation.getOptions();
+        StringWriter writer = new StringWriter();
+        new TreeMap<>(options)
+                .forEach((k, v) -> writer.append(k.toString()).append('=').append(v.toString()));
+        digest.update(writer.toString().getBytes(StandardCharsets.UTF_8));
+        digest.update(instrumentation.getClass().getName().getBytes(StandardCharsets.UTF_8));
+        return digest.digest();
+    }
+
+    /**
+     * Updates the specified digest with the relative path, size, and modification time of each file in the specified
+     * directory and its subdirectories.
+     * Reading every file in a directory of compiled classes would cost as much as instrumenting them.
+     */
+    private static void updateDirectory(MessageDigest digest, Path directory) throws IOException {
+        TreeMap<String, Path> files = new TreeMap<>();
+        try (Stream<Path> stream = Files.walk(directory)) {
+            stream.filter(Files::isRegularFile)
+                    .forEach(p -> files.put(directory.relativize(p).toString(), p));
+        }
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, Path> entry : files.entrySet()) {
+            Path file = entry.getValue();
+            builder.append(entry.getKey())
+                    .append('|')
+                    .append(Files.size(file))
+                    .append('|')
+                    .append(Files.getLastModifiedTime(file).toMillis())
+                    .append('\n');
+        }
+        digest.update(builder.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static TreeMap<String, File> getSortedClassPath(Instrumentation instrumentation) {
+        TreeMap<String, File> elements = new TreeMap<>();
+        for (File f : instrumentation.getClassPathElements()) {
+            elements.put(f.getAbsolutePath(), f);
+        }
+        return elements;
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError("SHA-256 is a required MessageDigest algorithm", e);
+        }
+    }
+}
@@ -2,6 +2,9 @@ package edu.neu.ccs.prl.galette.instrument;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Properties;
 
 public final class GaletteInstrumenter {
@@ -16,14 +19,43 @@ public final class GaletteInstrumenter {
         File destination = new File(args[1]);
         boolean verbose = Boolean.getBoolean("galette.instrument.verbose");
         String modules = System.getProperty("galette.instrument.modules", "ALL-MODULE-PATH");
+        String cachePath = System.getProperty("galette.instrument.cache");
+        File cacheDirectory = cachePath == null ? null : new File(cachePath);
         System.out.printf("Instrumenting %s to %s%n", source, destination);
-        long elapsedTime = instrument(source, destination, instrumentation, verbose, modules);
+        long elapsedTime = instrument(source, destination, instrumentation, verbose, modules, cacheDirectory);
         System.out.printf("Finished instrumentation after %dms%n", elapsedTime);
+        if (Boolean.getBoolean("galette.instrument.cds")) {
+            String training =
+                    System.getProperty("galette.instrument.cds.training", "").trim();
+            List<String> trainingArguments =
+                    training.isEmpty() ? Collections.emptyList() : Arrays.asList(training.split("\\s+"));
+            elapsedTime = ClassDataSharing.createArchives(destination, trainingArguments);
+            System.out.printf("Created class data sharing archives after %dms%n", elapsedTime);
+        }
     }
 
     public static long instrument(
             File source, File destination, Instrumentation instrumentation, boolean verbose, String modules)
             throws IOException {
+        return instrument(source, destination, instrumentation, verbose, modules, null);
+    }
+
+    /**
+     * Instruments the specified source location, reusing previously instrumented class files stored in the
+     * specified cache directory.
+     *
+     * @param cacheDirectory directory in which instrumented class files are cached across runs or {@code null} if
+     *     instrumented class files should not be cached
+     * @return the elapsed time in milliseconds
+     */
+    public static long instrument(
+            File source,
+            File destination,
+            Instrumentation instrumentation,
+            boolean verbose,
+            String modules,
+            File cacheDirectory)
+            throws IOException {
         if (!source.exists()) {
             throw new IllegalArgumentException("Source location not found: " + source);
         } else if (destination.exists()) {
@@ -32,9 +64,11 @@ public final class GaletteInstrumenter {
         long startTime = System.currentTimeMillis();
         try {
             if (InstrumentUtil.isModularJvm(source)) {
-                JLinkInvoker.invoke(source, destination, instrumentation, modules);
+                JLinkInvoker.invoke(source, destination, instrumentation, modules, cacheDirectory);
             } else {
-                GenericInstrumenter.process(source, destination, instrumentation, verbose);
+                ClassFileCache cache =
+                        cacheDirectory == null ? null : new ClassFileCache(cacheDirectory, instrumentation);
+                GenericInstrumenter.process(source, destination, instrumentation, verbose, cache);
             }
             return System.currentTimeMillis() - startTime;
         } catch (IOException | InterruptedException e) {
@@ -1,5 +1,6 @@
 package edu.neu.ccs.prl.galette.instrument;
 
+import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.Map;
@@ -12,6 +13,10 @@ import jdk.tools.jlink.plugin.ResourcePoolEntry;
 public abstract class GaletteJLinkPlugin implements Plugin {
     protected Instrumentation instrumentation;
     protected ResourcePoolPacker packer;
+    /**
+     * Cache of instrumented class files or {@code null} if instrumented class files should not be cached.
+     */
+    protected ClassFileCache cache;
 
     @Override
     public boolean hasArguments() {
@@ -24,6 +29,9 @@ public abstract class GaletteJLinkPlugin implements Plugin {
             Properties options = new Properties();
             options.load(reader);
             instrumentation = Instrumentation.create(config.get("type"), options);
+            if (config.containsKey("cache")) {
+                cache = new ClassFileCache(new File(config.get("cache")), instrumentation);
+            }
         } catch (IOException | ReflectiveOperationException e) {
             throw new RuntimeException("Failed to process configuration", e);
         }
@@ -18,18 +18,22 @@ public class GenericInstrumenter extends Instrumenter {
     private final Instrumentation instrumentation;
     private final AtomicInteger count = new AtomicInteger(0);
     private final boolean verbose;
+    private final ClassFileCache cache;
 
-    private GenericInstrumenter(Instrumentation instrumentation, boolean verbose) {
+    private GenericInstrumenter(Instrumentation instrumentation, boolean verbose, ClassFileCache cache) {
         super(null);
         this.instrumentation = instrumentation;
         this.verbose = verbose;
+        this.cache = cache;
     }
 
     @Override
     public byte[] instrument(byte[] classFileBuffer, String name) throws IOException {
         byte[] result = null;
         try {
-            result = instrumentation.apply(classFileBuffer);
+            result = cache == null
+                    ? instrumentation.apply(classFileBuffer)
+                    : cache.apply(instrumentation, classFileBuffer);
         } catch (IllegalArgumentException e) {
             // Ignore issues probably caused by attempted to instrument a fat binary
             if (!e.getMessage().contains("Unsupported class file major version")) {
@@ -91,10 +95,16 @@ public class GenericInstrumenter extends Instrumenter {
 
     public static void process(File source, File destination, Instrumentation instrumentation, boolean verbose)
             throws IOException, InterruptedException {
+        process(source, destination, instrumentation, verbose, null);
+    }
+
+    public static void process(
+            File source, File destination, Instrumentation instrumentation, boolean verbose, ClassFileCache cache)
+            throws IOException, InterruptedException {
         if (!source.isDirectory() && getType(source) == ContentTypeDetector.UNKNOWN) {
             throw new IllegalArgumentException("Unknown source file type: " + source);
         }
-        GenericInstrumenter instrumenter = new GenericInstrumenter(instrumentation, verbose);
+        GenericInstrumenter instrumenter = new GenericInstrumenter(instrumentation, verbose, cache);
         ExecutorService executor =
                 Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
         try {
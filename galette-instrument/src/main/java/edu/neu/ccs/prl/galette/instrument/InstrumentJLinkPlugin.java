@@ -1,8 +1,24 @@
 package edu.neu.ccs.prl.galette.instrument;
 
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import jdk.tools.jlink.plugin.ResourcePool;
+import jdk.tools.jlink.plugin.ResourcePoolBuilder;
 import jdk.tools.jlink.plugin.ResourcePoolEntry;
 
 public class InstrumentJLinkPlugin extends GaletteJLinkPlugin {
+    /**
+     * Instrumented class files keyed by the path of their original entry.
+     * Populated before the resource pool is copied.
+     */
+    private final Map<String, byte[]> instrumented = new ConcurrentHashMap<>();
+
     @Override
     public String getName() {
         return "instrument";
@@ -18,13 +34,76 @@ public class InstrumentJLinkPlugin extends GaletteJLinkPlugin {
         return Category.MODULEINFO_TRANSFORMER;
     }
 
+    @Override
+    public ResourcePool transform(ResourcePool pool, ResourcePoolBuilder out) {
+        // Instrument class files in parallel, then copy the pool in its original order to keep the output
+        // deterministic
+        instrumentAll(pool);
+        try {
+            return super.transform(pool, out);
+        } finally {
+            instrumented.clear();
+        }
+    }
+
     @Override
     protected ResourcePoolEntry transform(ResourcePoolEntry entry) {
-        if (entry.type().equals(ResourcePoolEntry.Type.CLASS_OR_RESOURCE)
-                && entry.path().endsWith(".class")) {
-            byte[] instrumented = instrumentation.apply(entry.contentBytes());
-            return instrumented == null ? entry : entry.copyWithContent(instrumented);
+        if (shouldInstrument(entry)) {
+            byte[] result = instrumented.get(entry.path());
+            return result == null ? entry : entry.copyWithContent(result);
         }
         return entry;
     }
+
+    private void instrumentAll(ResourcePool pool) {
+        List<ResourcePoolEntry> entries =
+                pool.entries().filter(InstrumentJLinkPlugin::shouldInstrument).collect(Collectors.toList());
+        Map<String, LongAdder> moduleTimes = new ConcurrentHashMap<>();
+        ForkJoinPool forkJoinPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        long startTime = System.currentTimeMillis();
+        try {
+            forkJoinPool
+                    .submit(() -> entries.parallelStream().forEach(entry -> instrument(entry, moduleTimes)))
+                    .get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while instrumenting runtime image", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to instrument runtime image", e.getCause());
+        } finally {
+            forkJoinPool.shutdown();
+        }
+        System.out.printf(
+                "Instrumented %d classes in %dms using %d threads%n",
+                entries.size(), System.currentTimeMillis() - startTime, forkJoinPool.getParallelism());
+        if (cache != null) {
+            System.out.printf(
+                    "Reused %d cached classes from %s; instrumented %d classes%n",
+                    cache.getHits(), cache.getDirectory(), cache.getMisses());
+        }
+        System.out.println("Instrumentation time per module (summed across threads):");
+        for (Map.Entry<String, LongAdder> e : new TreeMap<>(moduleTimes).entrySet()) {
+            System.out.printf("  %-40s %8dms%n", e.getKey(), e.getValue().sum() / 1_000_000);
+        }
+    }
+
+    private void instrument(ResourcePoolEntry entry, Map<String, LongAdder> moduleTimes) {
+        long start = System.nanoTime();
+        byte[] result;
+        try {
+            byte[] original = entry.contentBytes();
+            result = cache == null ? instrumentation.apply(original) : cache.apply(instrumentation, original);
+        } catch (RuntimeException e) {
+            throw new RuntimeException("Failed to instrument: " + entry.path(), e);
+        }
+        if (result != null) {
+            instrumented.put(entry.path(), result);
+        }
+        moduleTimes.computeIfAbsent(entry.moduleName(), k -> new LongAdder()).add(System.nanoTime() - start);
+    }
+
+    private static boolean shouldInstrument(ResourcePoolEntry entry) {
+        return entry.type().equals(ResourcePoolEntry.Type.CLASS_OR_RESOURCE)
+                && entry.path().endsWith(".class");
+    }
 }
@@ -14,6 +14,12 @@ public final class JLinkInvoker {
 
     public static void invoke(File javaHome, File outputDirectory, Instrumentation instrumentation, String modules)
             throws InterruptedException, IOException {
+        invoke(javaHome, outputDirectory, instrumentation, modules, null);
+    }
+
+    public static void invoke(
+            File javaHome, File outputDirectory, Instrumentation instrumentation, String modules, File cacheDirectory)
+            throws InterruptedException, IOException {
         String jlinkAgentJar =
                 InstrumentUtil.getClassPathElement(JLinkRegistrationAgent.class).getAbsolutePath();
         List<String> command = new ArrayList<>();
@@ -25,7 +31,11 @@ public final class JLinkInvoker {
         command.add("-J--module-path=" + jlinkAgentJar);
         command.add("-J--add-modules=" + JLinkRegistrationAgent.MODULE_NAME);
         command.add(getPluginOption("pack", instrumentation));
-        command.add(getPluginOption("instrument", instrumentation));
+        String instrumentOption = getPluginOption("instrument", instrumentation);
+        if (cacheDirectory != null) {
+            instrumentOption += ":cache=" + cacheDirectory.getAbsolutePath();
+        }
+        command.add(instrumentOption);
         command.add("--output=" + outputDirectory.getAbsolutePath());
         command.add("--add-modules");
         command.add(processModules(instrumentation, modules));
@@ -0,0 +1,56 @@
+package edu.neu.ccs.prl.galette;
+
+import static edu.neu.ccs.prl.galette.TagAssertions.assertTagEquals;
+
+import edu.neu.ccs.prl.galette.internal.runtime.Tag;
+import edu.neu.ccs.prl.galette.internal.runtime.TagSampler;
+import edu.neu.ccs.prl.galette.internal.runtime.Tainter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+/**
+ * Checks that no thread is tracked when the sampling rate is zero.
+ * Only runs when the system property {@code galette.sample} is set to zero.
+ */
+@EnabledIfSystemProperty(named = "galette.sample", matches = "0(\\.0*)?")
+public class SamplingITCase {
+    @Test
+    void currentThreadNotSampled() {
+        Assertions.assertFalse(TagSampler.isSampled());
+    }
+
+    @Test
+    void tagsDiscarded() {
+        int value = Tainter.setTag(7, Tag.of("label"));
+        assertTagEquals(identity(value));
+        String s = Tainter.setTag("value", Tag.of("label"));
+        assertTagEquals(identity(s), new Object[0]);
+    }
+
+    @Test
+    void tagsDiscardedOnNewThread() throws InterruptedException {
+        boolean[] sampled = new boolean[] {true};
+        long[] result = new long[1];
+        Thread thread = new Thread(() -> {
+            sampled[0] = TagSampler.isSampled();
+            result[0] = identity(Tainter.setTag(9L, Tag.of("label")));
+        });
+        thread.start();
+        thread.join();
+        Assertions.assertFalse(sampled[0]);
+        assertTagEquals(result[0]);
+    }
+
+    private static int identity(int value) {
+        return value;
+    }
+
+    private static long identity(long value) {
+        return value;
+    }
+
+    private static <T> T identity(T value) {
+        return value;
+    }
+}
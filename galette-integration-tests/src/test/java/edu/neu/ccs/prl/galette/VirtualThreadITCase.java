@@ -0,0 +1,92 @@
+package edu.neu.ccs.prl.galette;
+
+import edu.neu.ccs.prl.galette.internal.runtime.Tag;
+import edu.neu.ccs.prl.galette.internal.runtime.Tainter;
+import java.lang.reflect.Method;
+import java.util.concurrent.CountDownLatch;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+
+/**
+ * Checks that tags are retained by virtual threads that are unmounted from and remounted on carrier threads.
+ * Virtual threads are started reflectively so that this class can be compiled against Java 8.
+ * The number of threads can be raised with the system property {@code galette.virtualThreads}.
+ */
+@EnabledForJreRange(min = JRE.JAVA_21)
+public class VirtualThreadITCase {
+    private static final int THREADS = Integer.getInteger("galette.virtualThreads", 10_000);
+    /**
+     * Number of virtual threads that are alive at the same time.
+     * Every thread in a batch waits for the other threads in the batch to start and then yields, which forces threads
+     * to be unmounted from their carriers and later remounted, possibly on different carriers.
+     */
+    private static final int BATCH_SIZE = Math.min(THREADS, 1_000);
+
+    @Test
+    void tagsRetainedAcrossRemounts() throws ReflectiveOperationException, InterruptedException {
+        Method start = Thread.class.getMethod("startVirtualThread", Runnable.class);
+        Tag[] valueTags = new Tag[BATCH_SIZE];
+        Tag[] exceptionTags = new Tag[BATCH_SIZE];
+        boolean[] finished = new boolean[BATCH_SIZE];
+        Thread[] threads = new Thread[BATCH_SIZE];
+        for (int offset = 0; offset < THREADS; offset += BATCH_SIZE) {
+            CountDownLatch started = new CountDownLatch(BATCH_SIZE);
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                int index = i;
+                // Interleave tainted and untainted threads so that tags leaked between threads would be detected
+                boolean taint = i % 2 == 0;
+                Runnable task = () -> {
+                    int value = taint ? Tainter.setTag(index, Tag.of("value")) : index;
+                    RuntimeException e = new RuntimeException();
+                    if (taint) {
+                        e = Tainter.setTag(e, Tag.of("exception"));
+                    }
+                    awaitOthers(started);
+                    valueTags[index] = Tainter.getTag(identity(value));
+                    try {
+                        throwAfterYielding(e);
+                    } catch (RuntimeException e2) {
+                        exceptionTags[index] = Tainter.getTag(e2);
+                    }
+                    finished[index] = true;
+                };
+                threads[i] = (Thread) start.invoke(null, task);
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                Assertions.assertTrue(finished[i]);
+                if (i % 2 == 0) {
+                    Assertions.assertArrayEquals(new Object[] {"value"}, Tag.getLabels(valueTags[i]));
+                    Assertions.assertArrayEquals(new Object[] {"exception"}, Tag.getLabels(exceptionTags[i]));
+                } else {
+                    Assertions.assertTrue(Tag.isEmpty(valueTags[i]));
+                    Assertions.assertTrue(Tag.isEmpty(exceptionTags[i]));
+                }
+            }
+        }
+    }
+
+    private static int identity(int value) {
+        // Yielding unmounts the calling virtual thread if other virtual threads are waiting to run
+        Thread.yield();
+        return value;
+    }
+
+    private static void throwAfterYielding(RuntimeException e) {
+        Thread.yield();
+        throw e;
+    }
+
+    private static void awaitOthers(CountDownLatch latch) {
+        latch.countDown();
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
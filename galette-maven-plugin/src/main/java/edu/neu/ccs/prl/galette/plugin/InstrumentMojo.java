@@ -3,6 +3,7 @@ package edu.neu.ccs.prl.galette.plugin;
 import edu.neu.ccs.prl.galette.instrument.*;
 import edu.neu.ccs.prl.galette.internal.transform.FileUtil;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.Arrays;
 import java.util.LinkedList;
@@ -28,6 +29,13 @@ import org.apache.maven.plugins.annotations.Parameter;
  * Otherwise, this plugin will delete the existing Java installation and any
  * {@link InstrumentMojo#linkedCaches linked files or directories}.
  * Then, this plugin will create a new instrumented Java installation.
+ * If {@link InstrumentMojo#classCache} is set, class files instrumented by previous runs are reused when
+ * the original class file and the instrumentation are unchanged, so recreating the installation after an
+ * upgrade only re-instruments the classes that changed.
+ * If {@link InstrumentMojo#classDataSharing} is {@code true}, class data sharing archives are created for the
+ * instrumented Java installation to reduce the startup time of JVMs launched from it.
+ * The archives are recreated if they are missing or were created for a different instrumentation or
+ * {@link InstrumentMojo#trainingArguments training run}, even if the Java installation itself is reused.
  * <p>
  * The instrumented Java installation is created by instrumenting the Java installation located in the directory
  * {@link InstrumentMojo#javaHome} or the Java installation used to run the Maven process if
@@ -71,6 +79,31 @@ public class InstrumentMojo extends AbstractMojo {
      */
     @Parameter(property = "galette.modules", defaultValue = "ALL-MODULE-PATH")
     private String modules;
+    /**
+     * Directory in which instrumented class files are cached across runs, keyed by the content of the original class
+     * file and the version of the instrumentation.
+     * This cache is not deleted when an existing instrumented Java installation is deleted.
+     * If not specified, every class is instrumented whenever the Java installation is created.
+     */
+    @Parameter(property = "galette.classCache")
+    private File classCache;
+    /**
+     * True if class data sharing archives should be created for the instrumented Java installation.
+     *
+     * @see ClassDataSharing
+     */
+    @Parameter(property = "galette.classDataSharing", defaultValue = "false")
+    private boolean classDataSharing;
+    /**
+     * Arguments passed to the instrumented Java installation for the training run used to create a dynamic class
+     * data sharing archive, for example, the Galette agent and a main class.
+     * If empty, only the default archive is created.
+     * Used only if {@link InstrumentMojo#classDataSharing} is {@code true}.
+     *
+     * @see ClassDataSharing#getDynamicArchive(File)
+     */
+    @Parameter(property = "galette.trainingArguments")
+    private List<String> trainingArguments = new LinkedList<>();
     /**
      * True is information about instrumentation progress should be logged.
      */
@@ -91,12 +124,16 @@ public class InstrumentMojo extends AbstractMojo {
         instrumentation.configure(options);
         byte[] checksum = computeChecksum(instrumentation);
         String info = javaHome.getAbsolutePath();
-        MatchInfo match = new MatchInfo(outputDirectory);
+        MatchInfo match = new MatchInfo(outputDirectory, !trainingArguments.isEmpty());
         if (InstrumentUtil.isJavaHome(outputDirectory) && match.exists()) {
             if (!forceCreation && match.check(checksum, info, options)) {
                 getLog().info("Existing instrumented Java installation with correct settings found: "
                         + outputDirectory);
                 getLog().info("Skipping creation.");
+                if (classDataSharing && !match.checkArchives(computeArchiveChecksum(checksum))) {
+                    getLog().info("Class data sharing archives are missing or out of date.");
+                    createArchives(checksum, match);
+                }
             } else {
                 if (!forceCreation) {
                     getLog().info("Existing Java installation did not have correct settings.");
@@ -132,12 +169,42 @@ public class InstrumentMojo extends AbstractMojo {
             throws MojoExecutionException {
         getLog().info("Creating Java installation: " + outputDirectory);
         try {
-            long elapsedTime = GaletteInstrumenter.instrument(javaHome, outputDirectory, instance, verbose, modules);
+            if (classCache != null) {
+                getLog().info("Using instrumented class cache: " + classCache);
+            }
+            long elapsedTime =
+                    GaletteInstrumenter.instrument(javaHome, outputDirectory, instance, verbose, modules, classCache);
             getLog().info(String.format("Finished creating instrumented Java installation after %d ms", elapsedTime));
         } catch (IOException e) {
             throw new MojoExecutionException("Failed to create instrumented Java instrumentation.", e);
         }
         match.write(checksum, info, options);
+        if (classDataSharing) {
+            createArchives(checksum, match);
+        }
+    }
+
+    private void createArchives(byte[] checksum, MatchInfo match) throws MojoExecutionException {
+        getLog().info("Creating class data sharing archives: " + outputDirectory);
+        try {
+            long elapsedTime = ClassDataSharing.createArchives(outputDirectory, trainingArguments);
+            getLog().info(String.format("Finished creating class data sharing archives after %d ms", elapsedTime));
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to create class data sharing archives.", e);
+        }
+        match.writeArchives(computeArchiveChecksum(checksum));
+    }
+
+    private byte[] computeArchiveChecksum(byte[] checksum) {
+        // Archives are only valid for the instrumentation and training run used to create them
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        buffer.write(checksum, 0, checksum.length);
+        for (String argument : trainingArguments) {
+            byte[] bytes = argument.getBytes(StandardCharsets.UTF_8);
+            buffer.write(bytes, 0, bytes.length);
+            buffer.write(0);
+        }
+        return FileUtil.checksum(buffer.toByteArray());
     }
 
     private static byte[] computeChecksum(Instrumentation instrumentation) throws MojoExecutionException {
@@ -173,12 +240,25 @@ public class InstrumentMojo extends AbstractMojo {
          * File used to store the path of the source location instrumented.
          */
         private final File infoFile;
+        /**
+         * File used to store the checksum for the instrumentation and training run used to create the class data
+         * sharing archives of a location.
+         * <p>
+         * Non-null.
+         */
+        private final File archivesFile;
+        /**
+         * Location of the dynamic class data sharing archive or {@code null} if no dynamic archive is expected.
+         */
+        private final File dynamicArchive;
 
-        public MatchInfo(File directory) {
+        public MatchInfo(File directory, boolean dynamicArchive) {
             File parent = new File(directory, "galette-instrument-match");
             this.optionsFile = new File(parent, "options.properties");
             this.checksumFile = new File(parent, "class-path.md5");
             this.infoFile = new File(parent, "info.txt");
+            this.archivesFile = new File(parent, "archives.md5");
+            this.dynamicArchive = dynamicArchive ? ClassDataSharing.getDynamicArchive(directory) : null;
         }
 
         public boolean exists() {
@@ -199,6 +279,25 @@ public class InstrumentMojo extends AbstractMojo {
             }
         }
 
+        private boolean checkArchives(byte[] checksum) throws MojoExecutionException {
+            if (!archivesFile.isFile() || (dynamicArchive != null && !dynamicArchive.isFile())) {
+                return false;
+            }
+            try {
+                return Arrays.equals(checksum, Files.readAllBytes(archivesFile.toPath()));
+            } catch (IOException e) {
+                throw new MojoExecutionException("Failed to read match info", e);
+            }
+        }
+
+        public void writeArchives(byte[] checksum) throws MojoExecutionException {
+            try {
+                Files.write(archivesFile.toPath(), checksum);
+            } catch (IOException e) {
+                throw new MojoExecutionException("Failed to write match info", e);
+            }
+        }
+
         public void write(byte[] checksum, String info, Properties options) throws MojoExecutionException {
             try {
                 Files.createDirectories(optionsFile.getParentFile().toPath());
@@ -0,0 +1,31 @@
+package edu.neu.ccs.prl.galette.concolic.knarr.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonically increasing count.
+ * Updates are striped across cells so that concurrent increments do not contend.
+ *
+ * @author [Anne Koziolek](https://github.com/AnneKoziolek)
+ */
+public final class Counter {
+    private final LongAdder count = new LongAdder();
+
+    Counter() {}
+
+    public void increment() {
+        count.increment();
+    }
+
+    public void add(long delta) {
+        count.add(delta);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    void reset() {
+        count.reset();
+    }
+}
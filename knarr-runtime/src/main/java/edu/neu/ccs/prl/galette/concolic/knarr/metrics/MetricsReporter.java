@@ -0,0 +1,133 @@
+package edu.neu.ccs.prl.galette.concolic.knarr.metrics;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically writes snapshots of a {@link MetricsRegistry} to a file.
+ * <p>
+ * If the file name ends with {@code .json}, the file is replaced on every flush with a JSON object holding the latest
+ * snapshot. Otherwise, {@code timestamp,name,value} rows are appended to the file in CSV format. In addition to the
+ * registry's attributes, every flush reports a {@code .rate} attribute for each count: the number of events per
+ * second since the previous flush.
+ *
+ * @author [Anne Koziolek](https://github.com/AnneKoziolek)
+ */
+public final class MetricsReporter implements Closeable {
+    private final MetricsRegistry registry;
+    private final File file;
+    private final boolean json;
+    private final ScheduledExecutorService executor;
+    private final Map<String, Number> previous = new HashMap<>();
+    private long previousTime = System.nanoTime();
+
+    /**
+     * Starts flushing snapshots of the specified registry to the specified file.
+     *
+     * @param registry the registry to be reported
+     * @param file the file to which snapshots should be written
+     * @param periodMillis the number of milliseconds between flushes
+     * @throws NullPointerException if {@code registry} or {@code file} is {@code null}
+     * @throws IllegalArgumentException if {@code periodMillis} is not positive
+     */
+    public MetricsReporter(MetricsRegistry registry, File file, long periodMillis) {
+        if (registry == null || file == null) {
+            throw new NullPointerException();
+        }
+        this.registry = registry;
+        this.file = file;
+        this.json = file.getName().endsWith(".json");
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "galette-metrics-reporter");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.scheduleAtFixedRate(this::flushQuietly, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Writes a snapshot of the registry to the file.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public synchronized void flush() throws IOException {
+        long now = System.nanoTime();
+        Map<String, Number> values = new TreeMap<>(registry.snapshot());
+        double seconds = Math.max(1e-9, (now - previousTime) / 1e9);
+        for (Map.Entry<String, Number> entry : new TreeMap<>(values).entrySet()) {
+            String name = entry.getKey();
+            if (name.endsWith(".count")) {
+                long delta = entry.getValue().longValue()
+                        - previous.getOrDefault(name, 0L).longValue();
+                values.put(name.substring(0, name.length() - ".count".length()) + ".rate", delta / seconds);
+                previous.put(name, entry.getValue());
+            }
+        }
+        previousTime = now;
+        long timestamp = System.currentTimeMillis();
+        if (json) {
+            writeJson(timestamp, values);
+        } else {
+            writeCsv(timestamp, values);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        executor.shutdownNow();
+        flush();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException e) {
+            System.err.println("Failed to write metrics to " + file + ": " + e.getMessage());
+        }
+    }
+
+    private void writeCsv(long timestamp, Map<String, Number> values) throws IOException {
+        boolean header = !file.exists() || file.length() == 0;
+        try (Writer out = Files.newBufferedWriter(
+                file.toPath(), StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            if (header) {
+                out.write("timestamp,name,value\n");
+            }
+            for (Map.Entry<String, Number> entry : values.entrySet()) {
+                out.write(timestamp + "," + entry.getKey() + "," + entry.getValue() + "\n");
+            }
+        }
+    }
+
+    private void writeJson(long timestamp, Map<String, Number> values) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(temp.toPath(), StandardCharsets.UTF_8)) {
+            out.write("{\"timestamp\":" + timestamp + ",\"metrics\":{");
+            boolean first = true;
+            for (Map.Entry<String, Number> entry : values.entrySet()) {
+                if (!first) {
+                    out.write(',');
+                }
+                first = false;
+                double value = entry.getValue().doubleValue();
+                out.write("\"" + entry.getKey() + "\":"
+                        + (Double.isFinite(value) ? entry.getValue().toString() : "null"));
+            }
+            out.write("}}\n");
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -0,0 +1,88 @@
+package edu.neu.ccs.prl.galette.concolic.knarr.metrics;
+
+import java.io.File;
+import java.io.IOException;
+import javax.management.JMException;
+
+/**
+ * Metrics recorded by the concolic execution runtime.
+ * <p>
+ * Recording is always enabled; every update is a striped, uncontended increment. Metrics can be published by setting
+ * the following system properties:
+ * <ul>
+ *     <li>{@code knarr.metrics.jmx=true} registers the {@link #REGISTRY registry} as the MBean {@value #OBJECT_NAME}.
+ *     <li>{@code knarr.metrics.file=<path>} periodically writes snapshots to the specified file (see
+ *     {@link MetricsReporter}); {@code knarr.metrics.period=<millis>} sets the flush period (default 10 seconds).
+ * </ul>
+ *
+ * @author [Anne Koziolek](https://github.com/AnneKoziolek)
+ */
+public final class SymbolicMetrics {
+    public static final String OBJECT_NAME = "edu.neu.ccs.prl.galette.concolic.knarr:type=SymbolicMetrics";
+    public static final MetricsRegistry REGISTRY = new MetricsRegistry();
+
+    /**
+     * Number of constraints added to path conditions.
+     */
+    public static final Counter CONSTRAINTS_ADDED = REGISTRY.counter("pc.constraints");
+
+    /**
+     * Length of the path condition after each constraint is added.
+     */
+    public static final Histogram PATH_CONDITION_LENGTH = REGISTRY.histogram("pc.length");
+
+    /**
+     * Time in microseconds taken to solve a path condition, locally or by the solving server.
+     */
+    public static final Histogram SOLVER_LATENCY = REGISTRY.histogram("solver.latency.micros");
+
+    /**
+     * Number of tag unions performed by the runtime.
+     */
+    public static final Counter TAG_UNIONS = REGISTRY.counter("tag.unions");
+
+    /**
+     * Number of array reads that were tracked symbolically.
+     */
+    public static final Counter ARRAY_READS = REGISTRY.counter("array.reads");
+
+    /**
+     * Number of array writes that were tracked symbolically.
+     */
+    public static final Counter ARRAY_WRITES = REGISTRY.counter("array.writes");
+
+    /**
+     * Number of string operations that produced a symbolic result.
+     */
+    public static final Counter STRING_OPERATIONS = REGISTRY.counter("string.operations");
+
+    static {
+        publish();
+    }
+
+    private SymbolicMetrics() {
+        throw new AssertionError(getClass().getSimpleName() + " is a static utility class");
+    }
+
+    private static void publish() {
+        if (Boolean.getBoolean("knarr.metrics.jmx")) {
+            try {
+                REGISTRY.registerMBean(OBJECT_NAME);
+            } catch (JMException e) {
+                System.err.println("Failed to register metrics MBean: " + e.getMessage());
+            }
+        }
+        String path = System.getProperty("knarr.metrics.file");
+        if (path != null && !path.isEmpty()) {
+            long period = Long.getLong("knarr.metrics.period", 10_000L);
+            MetricsReporter reporter = new MetricsReporter(REGISTRY, new File(path), period);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    reporter.close();
+                } catch (IOException e) {
+                    System.err.println("Failed to write metrics to " + path + ": " + e.getMessage());
+                }
+            }));
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package edu.neu.ccs.prl.galette.concolic.knarr.runtime;
 
 import edu.neu.ccs.prl.galette.concolic.knarr.green.GaletteGreenBridge;
+import edu.neu.ccs.prl.galette.concolic.knarr.metrics.SymbolicMetrics;
 import edu.neu.ccs.prl.galette.internal.runtime.Tag;
 import java.lang.reflect.Array;
 import java.util.IdentityHashMap;
@@ -177,6 +178,7 @@ public class ArraySymbolicTracker {
         if (shouldIgnoreRead(arr, indexTag, index, arrayTags)) {
             return null;
         }
+        SymbolicMetrics.ARRAY_READS.increment();
 
         boolean taintedArray = (arrayTags != null && arrayTags[index] != null && !arrayTags[index].isEmpty());
         boolean taintedIndex = (indexTag != null && !indexTag.isEmpty());
@@ -250,6 +252,7 @@ public class ArraySymbolicTracker {
         if (shouldIgnoreWrite(arr, indexTag, index, valueTag, arrayTags)) {
             return null;
         }
+        SymbolicMetrics.ARRAY_WRITES.increment();
 
         boolean taintedArray = (arrayTags != null && arrayTags[index] != null && !arrayTags[index].isEmpty());
         boolean taintedIndex = (indexTag != null && !indexTag.isEmpty());
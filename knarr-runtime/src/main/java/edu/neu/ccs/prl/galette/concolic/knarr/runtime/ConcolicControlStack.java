@@ -1,7 +1,10 @@
 package edu.neu.ccs.prl.galette.concolic.knarr.runtime;
 
+import edu.neu.ccs.prl.galette.concolic.knarr.metrics.SymbolicMetrics;
+import edu.neu.ccs.prl.galette.internal.runtime.ContextPropagator;
 import edu.neu.ccs.prl.galette.internal.runtime.Tag;
-import java.util.Stack;
+import edu.neu.ccs.prl.galette.internal.runtime.TaskContext;
+import java.util.Arrays;
 
 /**
  * Galette-compatible replacement for Phosphor's ControlTaintTagStack.
@@ -14,14 +17,14 @@ import java.util.Stack;
 public class ConcolicControlStack {
 
     /**
-     * Thread-local stack to track control flow tags per thread.
+     * Thread-local control flow state. Each thread only accesses its own state, so no synchronization is needed.
      */
-    private static final ThreadLocal<Stack<Tag>> controlStack = ThreadLocal.withInitial(Stack::new);
+    private static final ThreadLocal<State> controlStack = ThreadLocal.withInitial(State::new);
 
-    /**
-     * Thread-local stack to track depth of control flow nesting.
-     */
-    private static final ThreadLocal<Stack<Integer>> depthStack = ThreadLocal.withInitial(Stack::new);
+    static {
+        // Carry the submitting thread's control flow context over to tasks run by executors
+        TaskContext.register(new Propagator());
+    }
 
     /**
      * Push a control flow tag onto the stack.
@@ -30,11 +33,7 @@ public class ConcolicControlStack {
      * @param tag The tag associated with the control condition
      */
     public static void pushControl(Tag tag) {
-        Stack<Tag> stack = controlStack.get();
-        stack.push(tag);
-
-        Stack<Integer> depth = depthStack.get();
-        depth.push(stack.size());
+        controlStack.get().push(tag);
     }
 
     /**
@@ -44,14 +43,7 @@ public class ConcolicControlStack {
      * @return The tag that was popped, or null if stack was empty
      */
     public static Tag popControl() {
-        Stack<Tag> stack = controlStack.get();
-        Stack<Integer> depth = depthStack.get();
-
-        if (!stack.isEmpty() && !depth.isEmpty()) {
-            depth.pop();
-            return stack.pop();
-        }
-        return null;
+        return controlStack.get().pop();
     }
 
     /**
@@ -60,36 +52,20 @@ public class ConcolicControlStack {
      * @return The top tag, or null if stack is empty
      */
     public static Tag peekControl() {
-        Stack<Tag> stack = controlStack.get();
-        return stack.isEmpty() ? null : stack.peek();
+        State state = controlStack.get();
+        return state.size == 0 ? null : state.tags[state.size - 1];
     }
 
     /**
      * Get the current control flow tag that affects this execution.
      * This combines all active control flow conditions.
+     * The combination is maintained incrementally as tags are pushed, so this is a constant time operation.
      *
      * @return Combined tag representing current control flow context
      */
     public static Tag getCurrentControlTag() {
-        Stack<Tag> stack = controlStack.get();
-
-        if (stack.isEmpty()) {
-            return null;
-        }
-
-        // Combine all control tags in the stack
-        Tag result = null;
-        for (Tag tag : stack) {
-            if (tag != null) {
-                if (result == null) {
-                    result = tag;
-                } else {
-                    result = Tag.union(result, tag);
-                }
-            }
-        }
-
-        return result;
+        State state = controlStack.get();
+        return state.size == 0 ? null : state.unions[state.size - 1];
     }
 
     /**
@@ -98,7 +74,7 @@ public class ConcolicControlStack {
      * @return The depth of nested control structures
      */
     public static int getControlDepth() {
-        return controlStack.get().size();
+        return controlStack.get().size;
     }
 
     /**
@@ -107,7 +83,6 @@ public class ConcolicControlStack {
      */
     public static void clearControl() {
         controlStack.get().clear();
-        depthStack.get().clear();
     }
 
     /**
@@ -116,6 +91,86 @@ public class ConcolicControlStack {
      * @return true if inside a conditional block, false otherwise
      */
     public static boolean hasControlFlow() {
-        return !controlStack.get().isEmpty();
+        return controlStack.get().size > 0;
+    }
+
+    /**
+     * Propagates the combined control flow tag of a thread that submits a task to the worker thread that runs it.
+     * While the task runs, the tag is the bottom-most entry of the task's control flow context.
+     * Entries that the task leaves on the stack are removed along with the tag when the task finishes.
+     */
+    private static final class Propagator implements ContextPropagator {
+        @Override
+        public Object capture() {
+            return getCurrentControlTag();
+        }
+
+        @Override
+        public Object restore(Object snapshot) {
+            State state = controlStack.get();
+            int depth = state.size;
+            state.push((Tag) snapshot);
+            return depth;
+        }
+
+        @Override
+        public void reset(Object token) {
+            controlStack.get().truncate((Integer) token);
+        }
+    }
+
+    /**
+     * Array-backed stack of control flow tags along with the union of each tag and the tags below it.
+     */
+    private static final class State {
+        private Tag[] tags = new Tag[16];
+        private Tag[] unions = new Tag[16];
+        private int size;
+
+        void push(Tag tag) {
+            if (size == tags.length) {
+                tags = Arrays.copyOf(tags, size * 2);
+                unions = Arrays.copyOf(unions, size * 2);
+            }
+            Tag below = size == 0 ? null : unions[size - 1];
+            Tag union = below;
+            if (tag != null) {
+                if (below == null) {
+                    union = tag;
+                } else {
+                    union = Tag.union(below, tag);
+                    SymbolicMetrics.TAG_UNIONS.increment();
+                }
+            }
+            tags[size] = tag;
+            unions[size] = union;
+            size++;
+        }
+
+        Tag pop() {
+            if (size == 0) {
+                return null;
+            }
+            size--;
+            Tag tag = tags[size];
+            tags[size] = null;
+            unions[size] = null;
+            return tag;
+        }
+
+        void clear() {
+            truncate(0);
+        }
+
+        /**
+         * Removes the entries above the specified depth.
+         */
+        void truncate(int depth) {
+            if (depth < size) {
+                Arrays.fill(tags, depth, size, null);
+                Arrays.fill(unions, depth, size, null);
+                size = depth;
+            }
+        }
     }
 }
@@ -1,12 +1,16 @@
 package edu.neu.ccs.prl.galette.concolic.knarr.runtime;
 
 import edu.neu.ccs.prl.galette.concolic.knarr.green.GaletteGreenBridge;
+import edu.neu.ccs.prl.galette.concolic.knarr.metrics.SymbolicMetrics;
+import edu.neu.ccs.prl.galette.concolic.knarr.solver.SolverClient;
 import edu.neu.ccs.prl.galette.internal.runtime.Tag;
 import java.io.*;
-import java.net.Socket;
 import java.net.UnknownHostException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 import za.ac.sun.cs.green.expr.*;
 
@@ -21,9 +25,9 @@ import za.ac.sun.cs.green.expr.*;
 public class GaletteSymbolicator {
 
     /**
-     * Server connection for constraint solving.
+     * Client used to send constraints to the solving server.
      */
-    static Socket serverConnection;
+    static SolverClient serverConnection;
 
     /**
      * Server configuration.
@@ -32,6 +36,16 @@ public class GaletteSymbolicator {
 
     static int SERVER_PORT = Integer.valueOf(System.getProperty("SATPort", "9090"));
 
+    /**
+     * Maximum number of constraints sent to the server in a single request frame.
+     */
+    static int SERVER_BATCH_SIZE = Integer.valueOf(System.getProperty("SATBatchSize", "64"));
+
+    /**
+     * Maximum number of milliseconds to wait for the server to solve a constraint.
+     */
+    static long SERVER_TIMEOUT_MILLIS = Long.valueOf(System.getProperty("SATTimeout", "30000"));
+
     /**
      * Current solution from constraint solver.
      */
@@ -268,7 +282,9 @@ public class GaletteSymbolicator {
             InputSolution solution = new InputSolution();
 
             // Extract variable assignments from constraints
+            long start = System.nanoTime();
             extractSolutionFromConstraint(constraint, solution);
+            SymbolicMetrics.SOLVER_LATENCY.record((System.nanoTime() - start) / 1000);
 
             if (DEBUG) {
                 System.out.println("Generated solution: " + solution);
@@ -490,13 +506,13 @@ public class GaletteSymbolicator {
      *
      * @return True if connection successful, false otherwise
      */
-    public static boolean connectToServer() {
+    public static synchronized boolean connectToServer() {
         try {
-            if (serverConnection != null && !serverConnection.isClosed()) {
+            if (serverConnection != null && serverConnection.isConnected()) {
                 return true; // Already connected
             }
 
-            serverConnection = new Socket(SERVER_HOST, SERVER_PORT);
+            serverConnection = new SolverClient(SERVER_HOST, SERVER_PORT, SERVER_BATCH_SIZE);
 
             if (DEBUG) {
                 System.out.println("Connected to constraint server: " + SERVER_HOST + ":" + SERVER_PORT);
@@ -518,31 +534,27 @@ public class GaletteSymbolicator {
      * Send constraint to server for solving.
      *
      * @param constraint The constraint to solve
-     * @return Solution from server, or null if failed
+     * @return Solution from server, or null if failed or the server did not respond in time
      */
     public static InputSolution sendConstraintToServer(Expression constraint) {
+        CompletableFuture<InputSolution> future = sendConstraintToServerAsync(constraint);
         try {
-            if (!connectToServer()) {
-                return null;
-            }
-
-            ObjectOutputStream out = new ObjectOutputStream(serverConnection.getOutputStream());
-            ObjectInputStream in = new ObjectInputStream(serverConnection.getInputStream());
+            InputSolution solution = future.get(SERVER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
 
-            // Send constraint
-            out.writeObject(constraint.toString());
-            out.flush();
-
-            // Read response
-            Object response = in.readObject();
-            if (response instanceof InputSolution) {
-                return (InputSolution) response;
+            if (DEBUG) {
+                System.out.println("Server response: " + solution);
             }
 
+            return solution;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (TimeoutException e) {
+            // Stop the client from waiting for the answer
+            future.cancel(false);
             if (DEBUG) {
-                System.out.println("Server response: " + response);
+                System.err.println("Server did not respond within " + SERVER_TIMEOUT_MILLIS + "ms");
             }
-
             return null;
         } catch (Exception e) {
             System.err.println("Error communicating with server: " + e.getMessage());
@@ -550,6 +562,32 @@ public class GaletteSymbolicator {
         }
     }
 
+    /**
+     * Queue a constraint to be solved by the server without waiting for the result.
+     * Constraints submitted concurrently are batched into shared request frames.
+     *
+     * @param constraint The constraint to solve
+     * @return Future for the solution from the server; completes with null if the constraint is unsatisfiable.
+     *         Cancelling the future cancels the query.
+     */
+    public static CompletableFuture<InputSolution> sendConstraintToServerAsync(Expression constraint) {
+        if (!connectToServer()) {
+            CompletableFuture<InputSolution> future = new CompletableFuture<>();
+            future.completeExceptionally(
+                    new IOException("Could not connect to server: " + SERVER_HOST + ":" + SERVER_PORT));
+            return future;
+        }
+        long start = System.nanoTime();
+        CompletableFuture<InputSolution> future = serverConnection.submit(constraint);
+        // Return the client's future itself so that cancelling it reaches the client
+        future.whenComplete((solution, error) -> {
+            if (!future.isCancelled()) {
+                SymbolicMetrics.SOLVER_LATENCY.record((System.nanoTime() - start) / 1000);
+            }
+        });
+        return future;
+    }
+
     /**
      * Reset the symbolicator state.
      */
@@ -570,8 +608,9 @@ public class GaletteSymbolicator {
      */
     public static void cleanup() {
         try {
-            if (serverConnection != null && !serverConnection.isClosed()) {
+            if (serverConnection != null) {
                 serverConnection.close();
+                serverConnection = null;
             }
             reset();
         } catch (IOException e) {
@@ -591,7 +630,15 @@ public class GaletteSymbolicator {
         sb.append("  Green expressions: ").append(tagToExpression.size()).append("\n");
         sb.append("  Path constraints: ").append(PathUtils.getCurPC().size()).append("\n");
         sb.append("  Server connected: ")
-                .append(serverConnection != null && !serverConnection.isClosed())
+                .append(serverConnection != null && serverConnection.isConnected())
+                .append("\n");
+        sb.append("  Constraints added: ")
+                .append(SymbolicMetrics.CONSTRAINTS_ADDED.getCount())
+                .append("\n");
+        sb.append("  Solver latency p50/p99 (us): ")
+                .append(SymbolicMetrics.SOLVER_LATENCY.getQuantile(0.5))
+                .append("/")
+                .append(SymbolicMetrics.SOLVER_LATENCY.getQuantile(0.99))
                 .append("\n");
         return sb.toString();
     }
@@ -1,5 +1,6 @@
 package edu.neu.ccs.prl.galette.concolic.knarr.runtime;
 
+import edu.neu.ccs.prl.galette.concolic.knarr.metrics.SymbolicMetrics;
 import java.util.ArrayList;
 import java.util.List;
 import za.ac.sun.cs.green.expr.BinaryOperation;
@@ -51,6 +52,8 @@ public class PathConditionWrapper {
     public void addConstraint(Expression constraint) {
         if (constraint != null) {
             constraints.add(constraint);
+            SymbolicMetrics.CONSTRAINTS_ADDED.increment();
+            SymbolicMetrics.PATH_CONDITION_LENGTH.record(constraints.size());
         }
     }
 
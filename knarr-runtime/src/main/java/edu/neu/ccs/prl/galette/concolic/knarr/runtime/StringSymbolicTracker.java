@@ -1,6 +1,7 @@
 package edu.neu.ccs.prl.galette.concolic.knarr.runtime;
 
 import edu.neu.ccs.prl.galette.concolic.knarr.green.GaletteGreenBridge;
+import edu.neu.ccs.prl.galette.concolic.knarr.metrics.SymbolicMetrics;
 import edu.neu.ccs.prl.galette.internal.runtime.Tag;
 import java.util.*;
 import java.util.concurrent.ConcurrentLinkedQueue;
@@ -143,7 +144,7 @@ public class StringSymbolicTracker {
             // Add metadata for constraint solving
             addStringComparisonMetadata(equalsExpr, StringComparisonType.EQUALS, s2);
 
-            return GaletteGreenBridge.greenExpressionToTag(equalsExpr, "string_equals");
+            return symbolicResult(equalsExpr, "string_equals");
         }
 
         return null; // Both strings are concrete
@@ -178,7 +179,7 @@ public class StringSymbolicTracker {
             // Add metadata for constraint solving
             addStringComparisonMetadata(strExpr, StringComparisonType.INDEXOF, searchStr);
 
-            return GaletteGreenBridge.greenExpressionToTag(indexOfExpr, "string_indexOf");
+            return symbolicResult(indexOfExpr, "string_indexOf");
         }
 
         return null; // Both strings are concrete
@@ -212,7 +213,7 @@ public class StringSymbolicTracker {
             // Add metadata for constraint solving
             addStringComparisonMetadata(strExpr, StringComparisonType.STARTSWITH, prefix);
 
-            return GaletteGreenBridge.greenExpressionToTag(startsWithExpr, "string_startsWith");
+            return symbolicResult(startsWithExpr, "string_startsWith");
         }
 
         return null; // Both strings are concrete
@@ -245,7 +246,7 @@ public class StringSymbolicTracker {
             // Add metadata for constraint solving
             addStringComparisonMetadata(strExpr, StringComparisonType.ENDSWITH, suffix);
 
-            return GaletteGreenBridge.greenExpressionToTag(endsWithExpr, "string_endsWith");
+            return symbolicResult(endsWithExpr, "string_endsWith");
         }
 
         return null; // Both strings are concrete
@@ -290,7 +291,7 @@ public class StringSymbolicTracker {
 
             // Create new symbolic character
             Expression charAtExpr = new BinaryOperation(Operator.CHARAT, strExpr, indexExpr);
-            return GaletteGreenBridge.greenExpressionToTag(charAtExpr, "string_charAt");
+            return symbolicResult(charAtExpr, "string_charAt");
         }
 
         return null; // String is concrete
@@ -312,7 +313,7 @@ public class StringSymbolicTracker {
 
         if (strExpr != null) {
             Expression lengthExpr = new UnaryOperation(Operator.I2BV, 32, new UnaryOperation(Operator.LENGTH, strExpr));
-            return GaletteGreenBridge.greenExpressionToTag(lengthExpr, "string_length");
+            return symbolicResult(lengthExpr, "string_length");
         }
 
         return null; // String is concrete
@@ -338,7 +339,7 @@ public class StringSymbolicTracker {
             // Add metadata for constraint solving
             addStringComparisonMetadata(isEmptyExpr, StringComparisonType.ISEMPTY, "");
 
-            return GaletteGreenBridge.greenExpressionToTag(isEmptyExpr, "string_isEmpty");
+            return symbolicResult(isEmptyExpr, "string_isEmpty");
         }
 
         return null; // String is concrete
@@ -405,12 +406,20 @@ public class StringSymbolicTracker {
             stringToCharTags.put(result, newCharTags);
             symbolizedStrings.add(result);
 
-            return GaletteGreenBridge.greenExpressionToTag(newExpr, "string_case_conv");
+            return symbolicResult(newExpr, "string_case_conv");
         }
 
         return null; // Source string is concrete
     }
 
+    /**
+     * Create the tag for the symbolic result of a string operation.
+     */
+    private Tag symbolicResult(Expression expression, String labelPrefix) {
+        SymbolicMetrics.STRING_OPERATIONS.increment();
+        return GaletteGreenBridge.greenExpressionToTag(expression, labelPrefix);
+    }
+
     /**
      * Get symbolic expression for a string, creating one if it has a tag.
      */
@@ -0,0 +1,231 @@
+package edu.neu.ccs.prl.galette.concolic.knarr.solver;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import za.ac.sun.cs.green.expr.BVConstant;
+import za.ac.sun.cs.green.expr.BinaryOperation;
+import za.ac.sun.cs.green.expr.BoolConstant;
+import za.ac.sun.cs.green.expr.Expression;
+import za.ac.sun.cs.green.expr.IntConstant;
+import za.ac.sun.cs.green.expr.IntVariable;
+import za.ac.sun.cs.green.expr.NaryOperation;
+import za.ac.sun.cs.green.expr.Operation;
+import za.ac.sun.cs.green.expr.Operation.Operator;
+import za.ac.sun.cs.green.expr.RealConstant;
+import za.ac.sun.cs.green.expr.RealVariable;
+import za.ac.sun.cs.green.expr.StringConstant;
+import za.ac.sun.cs.green.expr.StringVariable;
+import za.ac.sun.cs.green.expr.UnaryOperation;
+
+/**
+ * Compact binary encoding of Green expressions used by the solver wire protocol.
+ * <p>
+ * Expressions are written in prefix order. Operator names, variable names and string constants are interned in a
+ * string table that is scoped to a single codec instance (i.e., to a single frame); repeated occurrences are written
+ * as back-references. Strings are written as length-prefixed UTF-8, so they are not limited in length. Constants are
+ * read back with the same type and width with which they were written; expressions of other types cannot be encoded.
+ * <p>
+ * Instances are not thread-safe.
+ *
+ * @author [Anne Koziolek](https://github.com/AnneKoziolek)
+ */
+public final class ExpressionCodec {
+    private static final byte OPERATION = 0;
+    private static final byte INT_CONSTANT = 1;
+    private static final byte REAL_CONSTANT = 2;
+    private static final byte INT_VARIABLE = 3;
+    private static final byte REAL_VARIABLE = 4;
+    private static final byte STRING_VARIABLE = 5;
+    private static final byte STRING_CONSTANT = 6;
+    private static final byte BOOL_CONSTANT = 7;
+    private static final byte BV_CONSTANT = 8;
+
+    /**
+     * Indices of strings already written by this codec.
+     */
+    private final Map<String, Integer> written = new HashMap<>();
+
+    /**
+     * Strings read by this codec in order of first appearance.
+     */
+    private final List<String> read = new ArrayList<>();
+
+    /**
+     * Writes the specified expression to the specified stream.
+     *
+     * @param expression the expression to be written
+     * @param out the stream to which the expression should be written
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalArgumentException if the expression contains a subexpression of an unsupported type
+     * @throws NullPointerException if {@code expression} or {@code out} is {@code null}
+     */
+    public void write(Expression expression, DataOutputStream out) throws IOException {
+        if (expression instanceof Operation) {
+            Operation operation = (Operation) expression;
+            out.writeByte(OPERATION);
+            writeString(operation.getOperator().name(), out);
+            int arity = operation.getArity();
+            writeVarInt(arity, out);
+            for (int i = 0; i < arity; i++) {
+                write(operation.getOperand(i), out);
+            }
+        } else if (expression instanceof IntConstant) {
+            out.writeByte(INT_CONSTANT);
+            out.writeLong(((IntConstant) expression).getValueLong());
+        } else if (expression instanceof RealConstant) {
+            out.writeByte(REAL_CONSTANT);
+            out.writeDouble(((RealConstant) expression).getValue());
+        } else if (expression instanceof IntVariable) {
+            out.writeByte(INT_VARIABLE);
+            writeString(((IntVariable) expression).getName(), out);
+        } else if (expression instanceof RealVariable) {
+            out.writeByte(REAL_VARIABLE);
+            writeString(((RealVariable) expression).getName(), out);
+        } else if (expression instanceof StringVariable) {
+            out.writeByte(STRING_VARIABLE);
+            writeString(((StringVariable) expression).getName(), out);
+        } else if (expression instanceof StringConstant) {
+            out.writeByte(STRING_CONSTANT);
+            writeString(((StringConstant) expression).getValue(), out);
+        } else if (expression instanceof BoolConstant) {
+            out.writeByte(BOOL_CONSTANT);
+            out.writeBoolean(((BoolConstant) expression).value);
+        } else if (expression instanceof BVConstant) {
+            BVConstant constant = (BVConstant) expression;
+            out.writeByte(BV_CONSTANT);
+            out.writeLong(constant.value);
+            writeVarInt(constant.size, out);
+        } else {
+            throw new IllegalArgumentException("Unsupported expression type: " + expression.getClass());
+        }
+    }
+
+    /**
+     * Reads an expression from the specified stream.
+     *
+     * @param in the stream from which the expression should be read
+     * @return the expression that was read
+     * @throws IOException if an I/O error occurs or the stream is malformed
+     * @throws NullPointerException if {@code in} is {@code null}
+     */
+    public Expression read(DataInputStream in) throws IOException {
+        byte kind = in.readByte();
+        switch (kind) {
+            case OPERATION:
+                Operator operator = readOperator(in);
+                Expression[] operands = new Expression[readVarInt(in)];
+                for (int i = 0; i < operands.length; i++) {
+                    operands[i] = read(in);
+                }
+                return createOperation(operator, operands);
+            case INT_CONSTANT:
+                return new IntConstant(in.readLong());
+            case REAL_CONSTANT:
+                return new RealConstant(in.readDouble());
+            case INT_VARIABLE:
+                return new IntVariable(readString(in), null, null);
+            case REAL_VARIABLE:
+                return new RealVariable(readString(in), null, null);
+            case STRING_VARIABLE:
+                return new StringVariable(readString(in));
+            case STRING_CONSTANT:
+                return new StringConstant(readString(in));
+            case BOOL_CONSTANT:
+                return new BoolConstant(in.readBoolean());
+            case BV_CONSTANT:
+                long value = in.readLong();
+                return new BVConstant(value, readVarInt(in));
+            default:
+                throw new IOException("Unknown expression kind: " + kind);
+        }
+    }
+
+    private Operator readOperator(DataInputStream in) throws IOException {
+        String name = readString(in);
+        try {
+            return Operator.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Unknown operator: " + name, e);
+        }
+    }
+
+    private void writeString(String value, DataOutputStream out) throws IOException {
+        Integer index = written.get(value);
+        if (index == null) {
+            // Zero marks a new entry; back-references are shifted by one
+            writeVarInt(0, out);
+            writeUtf8(value, out);
+            written.put(value, written.size());
+        } else {
+            writeVarInt(index + 1, out);
+        }
+    }
+
+    private String readString(DataInputStream in) throws IOException {
+        int reference = readVarInt(in);
+        if (reference == 0) {
+            String value = readUtf8(in);
+            read.add(value);
+            return value;
+        } else if (reference > read.size()) {
+            throw new IOException("Invalid string back-reference: " + reference);
+        }
+        return read.get(reference - 1);
+    }
+
+    private static Expression createOperation(Operator operator, Expression[] operands) {
+        switch (operands.length) {
+            case 1:
+                return new UnaryOperation(operator, operands[0]);
+            case 2:
+                return new BinaryOperation(operator, operands[0], operands[1]);
+            default:
+                return new NaryOperation(operator, operands);
+        }
+    }
+
+    /**
+     * Writes the specified string as its length in bytes followed by its UTF-8 encoding.
+     * Unlike {@link DataOutputStream#writeUTF(String)}, this encoding does not limit the length of the string.
+     */
+    static void writeUtf8(String value, DataOutputStream out) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(bytes.length, out);
+        out.write(bytes);
+    }
+
+    static String readUtf8(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[readVarInt(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeVarInt(int value, DataOutputStream out) throws IOException {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative value: " + value);
+        }
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable-length integer");
+    }
+}
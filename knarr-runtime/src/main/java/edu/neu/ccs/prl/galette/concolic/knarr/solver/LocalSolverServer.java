@@ -0,0 +1,137 @@
+package edu.neu.ccs.prl.galette.concolic.knarr.solver;
+
+import edu.neu.ccs.prl.galette.concolic.knarr.runtime.GaletteSymbolicator.InputSolution;
+import edu.neu.ccs.prl.galette.concolic.knarr.solver.SolverFrames.Query;
+import edu.neu.ccs.prl.galette.concolic.knarr.solver.SolverFrames.Response;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import za.ac.sun.cs.green.expr.Expression;
+
+/**
+ * In-process stand-in for a remote constraint solving server that speaks the {@link SolverFrames batched protocol}.
+ * <p>
+ * Each query is handed to the supplied solver function on a worker pool, so responses may be returned out of order.
+ * A {@code null} result from the solver function is reported as unsatisfiable and an exception thrown by it is
+ * reported as a solver error.
+ *
+ * @author [Anne Koziolek](https://github.com/AnneKoziolek)
+ */
+public final class LocalSolverServer implements Closeable {
+    private final ServerSocket serverSocket;
+    private final Function<Expression, InputSolution> solver;
+    private final ExecutorService workers;
+    private final AtomicLong framesReceived = new AtomicLong();
+    private final AtomicLong queriesReceived = new AtomicLong();
+
+    /**
+     * Starts a server on an ephemeral loopback port.
+     *
+     * @param solver function used to solve received constraints
+     * @param threads number of worker threads used to solve constraints
+     * @throws IOException if the server socket could not be opened
+     * @throws NullPointerException if {@code solver} is {@code null}
+     * @throws IllegalArgumentException if {@code threads} is not positive
+     */
+    public LocalSolverServer(Function<Expression, InputSolution> solver, int threads) throws IOException {
+        if (solver == null) {
+            throw new NullPointerException();
+        }
+        this.solver = solver;
+        this.workers = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "galette-solver-server-worker");
+            t.setDaemon(true);
+            return t;
+        });
+        this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::accept, "galette-solver-server");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public String getHost() {
+        return serverSocket.getInetAddress().getHostAddress();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public long getFramesReceived() {
+        return framesReceived.get();
+    }
+
+    public long getQueriesReceived() {
+        return queriesReceived.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        workers.shutdownNow();
+        serverSocket.close();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread handler = new Thread(() -> serve(socket), "galette-solver-server-connection");
+                handler.setDaemon(true);
+                handler.start();
+            } catch (IOException e) {
+                // Server socket was closed
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (Socket s = socket) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+            while (!serverSocket.isClosed()) {
+                List<Query> queries = SolverFrames.readRequests(in);
+                framesReceived.incrementAndGet();
+                queriesReceived.addAndGet(queries.size());
+                for (Query query : queries) {
+                    workers.execute(() -> respond(solve(query), out));
+                }
+            }
+        } catch (IOException e) {
+            // Connection was closed
+        }
+    }
+
+    private Response solve(Query query) {
+        try {
+            InputSolution solution = solver.apply(query.constraint);
+            return solution == null
+                    ? new Response(query.id, SolverFrames.UNSATISFIABLE, null, null)
+                    : new Response(query.id, SolverFrames.SATISFIABLE, solution, null);
+        } catch (RuntimeException e) {
+            return new Response(query.id, SolverFrames.ERROR, null, String.valueOf(e.getMessage()));
+        }
+    }
+
+    private static void respond(Response response, DataOutputStream out) {
+        synchronized (out) {
+            try {
+                SolverFrames.writeResponses(Collections.singletonList(response), out);
+                out.flush();
+            } catch (IOException e) {
+                // Connection was closed
+            }
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package edu.neu.ccs.prl.galette.concolic.knarr.solver;
+
+import edu.neu.ccs.prl.galette.concolic.knarr.runtime.GaletteSymbolicator.InputSolution;
+import edu.neu.ccs.prl.galette.concolic.knarr.solver.SolverFrames.Query;
+import edu.neu.ccs.prl.galette.concolic.knarr.solver.SolverFrames.Response;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import za.ac.sun.cs.green.expr.Expression;
+
+/**
+ * Asynchronous client for a remote constraint solving server.
+ * <p>
+ * Submitted constraints are placed on a request queue. A writer thread drains the queue, packs up to
+ * {@code maxBatchSize} queries into a single {@link SolverFrames request frame} and sends it without waiting for
+ * earlier frames to be answered. A reader thread completes the corresponding futures as responses arrive. A single
+ * connection and a single pair of streams is used for the lifetime of the client.
+ * <p>
+ * A future completes with {@code null} if the server reports the constraint as unsatisfiable and completes
+ * exceptionally if the constraint could not be encoded, the server reports an error, or the connection is lost.
+ *
+ * @author [Anne Koziolek](https://github.com/AnneKoziolek)
+ */
+public final class SolverClient implements Closeable {
+    private final Socket socket;
+    private final DataOutputStream out;
+    private final DataInputStream in;
+    private final int maxBatchSize;
+    private final BlockingQueue<Query> queue = new LinkedBlockingQueue<>();
+    private final ConcurrentHashMap<Long, CompletableFuture<InputSolution>> pending = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+    private final AtomicLong framesSent = new AtomicLong();
+    private final Thread writer;
+    private final Thread reader;
+    private volatile IOException failure;
+
+    /**
+     * Connects to the constraint solving server at the specified address.
+     *
+     * @param host the host name of the server
+     * @param port the port of the server
+     * @param maxBatchSize the maximum number of queries packed into a single request frame
+     * @throws IOException if the connection could not be established
+     * @throws IllegalArgumentException if {@code maxBatchSize} is not positive
+     */
+    public SolverClient(String host, int port, int maxBatchSize) throws IOException {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Invalid batch size: " + maxBatchSize);
+        }
+        this.maxBatchSize = maxBatchSize;
+        this.socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.writer = new Thread(this::writeFrames, "galette-solver-writer");
+        this.reader = new Thread(this::readFrames, "galette-solver-reader");
+        writer.setDaemon(true);
+        reader.setDaemon(true);
+        writer.start();
+        reader.start();
+    }
+
+    /**
+     * Queues the specified constraint to be solved by the server.
+     * Cancelling the returned future removes the query from the pending queries.
+     *
+     * @param constraint the constraint to be solved
+     * @return a future for the server's solution
+     * @throws NullPointerException if {@code constraint} is {@code null}
+     */
+    public CompletableFuture<InputSolution> submit(Expression constraint) {
+        if (constraint == null) {
+            throw new NullPointerException();
+        }
+        CompletableFuture<InputSolution> future = new CompletableFuture<>();
+        IOException cause = failure;
+        if (cause != null) {
+            future.completeExceptionally(cause);
+            return future;
+        }
+        long id = nextId.getAndIncrement();
+        pending.put(id, future);
+        future.whenComplete((solution, error) -> {
+            if (future.isCancelled()) {
+                cancel(id);
+            }
+        });
+        queue.add(new Query(id, constraint));
+        // Re-check in case the connection failed while the query was being queued
+        cause = failure;
+        if (cause != null) {
+            failPending(cause);
+        }
+        return future;
+    }
+
+    /**
+     * Stops waiting for the answer to the query with the specified identifier.
+     * The query is removed from the request queue if it has not been sent yet; otherwise, the server's response to it
+     * is ignored.
+     */
+    private void cancel(long id) {
+        pending.remove(id);
+        queue.removeIf(query -> query.id == id);
+    }
+
+    /**
+     * Returns the number of submitted queries which have not been answered.
+     *
+     * @return the number of submitted queries which have not been answered
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Returns the number of request frames sent to the server.
+     *
+     * @return the number of request frames sent to the server
+     */
+    public long getFramesSent() {
+        return framesSent.get();
+    }
+
+    /**
+     * Returns {@code true} if this client can still submit queries to the server.
+     *
+     * @return {@code true} if this client can still submit queries to the server
+     */
+    public boolean isConnected() {
+        return failure == null && !socket.isClosed();
+    }
+
+    @Override
+    public void close() throws IOException {
+        fail(new IOException("Solver client closed"));
+    }
+
+    private void writeFrames() {
+        List<Query> batch = new ArrayList<>(maxBatchSize);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try {
+            while (failure == null) {
+                batch.add(queue.take());
+                queue.drainTo(batch, maxBatchSize - 1);
+                if (encode(batch, buffer)) {
+                    buffer.writeTo(out);
+                    out.flush();
+                    framesSent.incrementAndGet();
+                }
+                batch.clear();
+                buffer.reset();
+            }
+        } catch (InterruptedException e) {
+            fail(new IOException("Solver writer interrupted", e));
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Encodes the specified queries into a single frame.
+     * Queries that cannot be encoded are failed and left out of the frame; {@code false} is returned if no query could
+     * be encoded.
+     */
+    private boolean encode(List<Query> batch, ByteArrayOutputStream buffer) {
+        try {
+            SolverFrames.writeRequests(batch, new DataOutputStream(buffer));
+            return true;
+        } catch (IOException | RuntimeException e) {
+            buffer.reset();
+        }
+        // Find the queries that cannot be encoded on their own so that only they are failed
+        List<Query> encodable = new ArrayList<>(batch.size());
+        for (Query query : batch) {
+            try {
+                SolverFrames.writeRequests(Collections.singletonList(query), new DataOutputStream(buffer));
+                encodable.add(query);
+            } catch (IOException | RuntimeException e) {
+                complete(query.id, null, e);
+            }
+            buffer.reset();
+        }
+        if (encodable.isEmpty()) {
+            return false;
+        }
+        try {
+            SolverFrames.writeRequests(encodable, new DataOutputStream(buffer));
+            return true;
+        } catch (IOException | RuntimeException e) {
+            for (Query query : encodable) {
+                complete(query.id, null, e);
+            }
+            return false;
+        }
+    }
+
+    private void readFrames() {
+        try {
+            while (failure == null) {
+                for (Response response : SolverFrames.readResponses(in)) {
+                    switch (response.status) {
+                        case SolverFrames.SATISFIABLE:
+                            complete(response.id, response.solution, null);
+                            break;
+                        case SolverFrames.UNSATISFIABLE:
+                            complete(response.id, null, null);
+                            break;
+                        default:
+                            complete(response.id, null, new IOException("Solver error: " + response.message));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private void complete(long id, InputSolution solution, Throwable cause) {
+        CompletableFuture<InputSolution> future = pending.remove(id);
+        if (future != null) {
+            if (cause == null) {
+                future.complete(solution);
+            } else {
+                future.completeExceptionally(cause);
+            }
+        }
+    }
+
+    private synchronized void fail(IOException cause) {
+        if (failure == null) {
+            failure = cause;
+            writer.interrupt();
+            try {
+                socket.close();
+            } catch (IOException e) {
+                cause.addSuppressed(e);
+            }
+        }
+        failPending(failure);
+    }
+
+    private void failPending(IOException cause) {
+        queue.clear();
+        for (Long id : pending.keySet()) {
+            complete(id, null, cause);
+        }
+    }
+}
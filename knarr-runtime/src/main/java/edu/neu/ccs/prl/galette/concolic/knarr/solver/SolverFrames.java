@@ -0,0 +1,166 @@
+package edu.neu.ccs.prl.galette.concolic.knarr.solver;
+
+import edu.neu.ccs.prl.galette.concolic.knarr.runtime.GaletteSymbolicator.InputSolution;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import za.ac.sun.cs.green.expr.Expression;
+
+/**
+ * Frame layout of the batched solver protocol.
+ * <p>
+ * A request frame consists of the number of queries followed by, for each query, its identifier and its
+ * {@link ExpressionCodec encoded} constraint. All queries in a frame share one string table. A response frame consists
+ * of the number of responses followed by, for each response, the identifier of the query it answers, a status byte,
+ * and either the satisfying assignment or an error message. Responses may arrive in any order and may be split
+ * across frames differently than their queries.
+ */
+final class SolverFrames {
+    static final byte SATISFIABLE = 0;
+    static final byte UNSATISFIABLE = 1;
+    static final byte ERROR = 2;
+    private static final byte INT_VALUE = 0;
+    private static final byte LONG_VALUE = 1;
+    private static final byte DOUBLE_VALUE = 2;
+    private static final byte BOOLEAN_VALUE = 3;
+    private static final byte STRING_VALUE = 4;
+
+    private SolverFrames() {
+        throw new AssertionError(getClass().getSimpleName() + " is a static utility class");
+    }
+
+    static void writeRequests(List<Query> queries, DataOutputStream out) throws IOException {
+        ExpressionCodec codec = new ExpressionCodec();
+        ExpressionCodec.writeVarInt(queries.size(), out);
+        for (Query query : queries) {
+            out.writeLong(query.id);
+            codec.write(query.constraint, out);
+        }
+    }
+
+    static List<Query> readRequests(DataInputStream in) throws IOException {
+        ExpressionCodec codec = new ExpressionCodec();
+        int size = ExpressionCodec.readVarInt(in);
+        List<Query> queries = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            long id = in.readLong();
+            queries.add(new Query(id, codec.read(in)));
+        }
+        return queries;
+    }
+
+    static void writeResponses(List<Response> responses, DataOutputStream out) throws IOException {
+        ExpressionCodec.writeVarInt(responses.size(), out);
+        for (Response response : responses) {
+            out.writeLong(response.id);
+            out.writeByte(response.status);
+            if (response.status == SATISFIABLE) {
+                writeSolution(response.solution, out);
+            } else if (response.status == ERROR) {
+                ExpressionCodec.writeUtf8(response.message, out);
+            }
+        }
+    }
+
+    static List<Response> readResponses(DataInputStream in) throws IOException {
+        int size = ExpressionCodec.readVarInt(in);
+        List<Response> responses = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            long id = in.readLong();
+            byte status = in.readByte();
+            switch (status) {
+                case SATISFIABLE:
+                    responses.add(new Response(id, status, readSolution(in), null));
+                    break;
+                case UNSATISFIABLE:
+                    responses.add(new Response(id, status, null, null));
+                    break;
+                case ERROR:
+                    responses.add(new Response(id, status, null, ExpressionCodec.readUtf8(in)));
+                    break;
+                default:
+                    throw new IOException("Unknown response status: " + status);
+            }
+        }
+        return responses;
+    }
+
+    private static void writeSolution(InputSolution solution, DataOutputStream out) throws IOException {
+        ExpressionCodec.writeVarInt(solution.getLabels().size(), out);
+        for (String label : solution.getLabels()) {
+            ExpressionCodec.writeUtf8(label, out);
+            Object value = solution.getValue(label);
+            if (value instanceof Integer) {
+                out.writeByte(INT_VALUE);
+                out.writeInt((Integer) value);
+            } else if (value instanceof Long) {
+                out.writeByte(LONG_VALUE);
+                out.writeLong((Long) value);
+            } else if (value instanceof Number) {
+                out.writeByte(DOUBLE_VALUE);
+                out.writeDouble(((Number) value).doubleValue());
+            } else if (value instanceof Boolean) {
+                out.writeByte(BOOLEAN_VALUE);
+                out.writeBoolean((Boolean) value);
+            } else {
+                out.writeByte(STRING_VALUE);
+                ExpressionCodec.writeUtf8(String.valueOf(value), out);
+            }
+        }
+    }
+
+    private static InputSolution readSolution(DataInputStream in) throws IOException {
+        InputSolution solution = new InputSolution();
+        int size = ExpressionCodec.readVarInt(in);
+        for (int i = 0; i < size; i++) {
+            String label = ExpressionCodec.readUtf8(in);
+            byte type = in.readByte();
+            switch (type) {
+                case INT_VALUE:
+                    solution.setValue(label, in.readInt());
+                    break;
+                case LONG_VALUE:
+                    solution.setValue(label, in.readLong());
+                    break;
+                case DOUBLE_VALUE:
+                    solution.setValue(label, in.readDouble());
+                    break;
+                case BOOLEAN_VALUE:
+                    solution.setValue(label, in.readBoolean());
+                    break;
+                case STRING_VALUE:
+                    solution.setValue(label, ExpressionCodec.readUtf8(in));
+                    break;
+                default:
+                    throw new IOException("Unknown value type: " + type);
+            }
+        }
+        return solution;
+    }
+
+    static final class Query {
+        final long id;
+        final Expression constraint;
+
+        Query(long id, Expression constraint) {
+            this.id = id;
+            this.constraint = constraint;
+        }
+    }
+
+    static final class Response {
+        final long id;
+        final byte status;
+        final InputSolution solution;
+        final String message;
+
+        Response(long id, byte status, InputSolution solution, String message) {
+            this.id = id;
+            this.status = status;
+            this.solution = solution;
+            this.message = message;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package edu.neu.ccs.prl.galette.concolic.knarr;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import edu.neu.ccs.prl.galette.concolic.knarr.runtime.GaletteSymbolicator.InputSolution;
+import edu.neu.ccs.prl.galette.concolic.knarr.solver.ExpressionCodec;
+import edu.neu.ccs.prl.galette.concolic.knarr.solver.LocalSolverServer;
+import edu.neu.ccs.prl.galette.concolic.knarr.solver.SolverClient;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.jupiter.api.Test;
+import za.ac.sun.cs.green.expr.BVConstant;
+import za.ac.sun.cs.green.expr.BinaryOperation;
+import za.ac.sun.cs.green.expr.BoolConstant;
+import za.ac.sun.cs.green.expr.Expression;
+import za.ac.sun.cs.green.expr.IntConstant;
+import za.ac.sun.cs.green.expr.IntVariable;
+import za.ac.sun.cs.green.expr.NaryOperation;
+import za.ac.sun.cs.green.expr.Operation;
+import za.ac.sun.cs.green.expr.Operation.Operator;
+import za.ac.sun.cs.green.expr.RealConstant;
+import za.ac.sun.cs.green.expr.RealVariable;
+import za.ac.sun.cs.green.expr.StringConstant;
+
+/**
+ * Tests for the batched, pipelined solver client.
+ *
+ * @author [Anne Koziolek](https://github.com/AnneKoziolek)
+ */
+public class SolverClientTest {
+
+    @Test
+    public void testCodecRoundTrip() throws Exception {
+        Expression x = new IntVariable("x", null, null);
+        Expression y = new RealVariable("y", null, null);
+        Expression constraint = new BinaryOperation(
+                Operator.AND,
+                new BinaryOperation(Operator.GT, x, new IntConstant(5)),
+                new BinaryOperation(Operator.LE, y, new RealConstant(2.5)));
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        new ExpressionCodec().write(constraint, new DataOutputStream(buffer));
+        Expression result =
+                new ExpressionCodec().read(new DataInputStream(new ByteArrayInputStream(buffer.toByteArray())));
+        assertEquals(constraint.toString(), result.toString());
+    }
+
+    @Test
+    public void testConstantsKeepTypeAndWidth() throws Exception {
+        Expression constraint = new NaryOperation(
+                Operator.AND,
+                new IntConstant(Long.MAX_VALUE),
+                new StringConstant("value"),
+                new BoolConstant(true),
+                new BVConstant(-1L, 64));
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        new ExpressionCodec().write(constraint, new DataOutputStream(buffer));
+        Operation result = (Operation)
+                new ExpressionCodec().read(new DataInputStream(new ByteArrayInputStream(buffer.toByteArray())));
+        assertEquals(Long.MAX_VALUE, ((IntConstant) result.getOperand(0)).getValueLong());
+        assertEquals("value", ((StringConstant) result.getOperand(1)).getValue());
+        assertTrue(((BoolConstant) result.getOperand(2)).value);
+        assertEquals(-1L, ((BVConstant) result.getOperand(3)).value);
+        assertEquals(64, ((BVConstant) result.getOperand(3)).size);
+    }
+
+    @Test
+    public void testRepeatedNamesAreInterned() throws Exception {
+        Expression x = new IntVariable("a_rather_long_variable_name", null, null);
+        ByteArrayOutputStream once = new ByteArrayOutputStream();
+        new ExpressionCodec().write(x, new DataOutputStream(once));
+        ByteArrayOutputStream twice = new ByteArrayOutputStream();
+        new ExpressionCodec().write(new BinaryOperation(Operator.ADD, x, x), new DataOutputStream(twice));
+        // The second occurrence of the name is written as a back-reference
+        assertTrue(twice.size() < 2 * once.size());
+    }
+
+    @Test
+    public void testPipelinedQueriesAreAnswered() throws Exception {
+        try (LocalSolverServer server = new LocalSolverServer(SolverClientTest::solve, 4);
+                SolverClient client = new SolverClient(server.getHost(), server.getPort(), 16)) {
+            List<CompletableFuture<InputSolution>> futures = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                Expression x = new IntVariable("x" + i, null, null);
+                futures.add(client.submit(new BinaryOperation(Operator.EQ, x, new IntConstant(i))));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                InputSolution solution = futures.get(i).get(10, TimeUnit.SECONDS);
+                assertEquals(i, solution.getValue("x" + i));
+            }
+            assertEquals(200, server.getQueriesReceived());
+            assertEquals(0, client.getPendingCount());
+            assertTrue(client.getFramesSent() <= server.getFramesReceived());
+        }
+    }
+
+    @Test
+    public void testLongNamesAreSent() throws Exception {
+        try (LocalSolverServer server = new LocalSolverServer(SolverClientTest::solve, 1);
+                SolverClient client = new SolverClient(server.getHost(), server.getPort(), 4)) {
+            char[] name = new char[100_000];
+            Arrays.fill(name, 'x');
+            Expression x = new IntVariable(new String(name), null, null);
+            InputSolution solution = client.submit(new BinaryOperation(Operator.EQ, x, new IntConstant(7)))
+                    .get(10, TimeUnit.SECONDS);
+            assertEquals(7, solution.getValue(new String(name)));
+            assertTrue(client.isConnected());
+        }
+    }
+
+    @Test
+    public void testUnsatisfiableAndErrorResponses() throws Exception {
+        try (LocalSolverServer server = new LocalSolverServer(SolverClientTest::solve, 1);
+                SolverClient client = new SolverClient(server.getHost(), server.getPort(), 4)) {
+            Expression x = new IntVariable("x", null, null);
+            assertNull(client.submit(new BinaryOperation(Operator.NE, x, x)).get(10, TimeUnit.SECONDS));
+            CompletableFuture<InputSolution> error = client.submit(new BinaryOperation(Operator.LT, x, x));
+            assertThrows(ExecutionException.class, () -> error.get(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testPendingQueriesFailOnClose() throws Exception {
+        LocalSolverServer server = new LocalSolverServer(
+                c -> {
+                    try {
+                        Thread.sleep(10_000);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return null;
+                },
+                1);
+        try {
+            SolverClient client = new SolverClient(server.getHost(), server.getPort(), 4);
+            Expression x = new IntVariable("x", null, null);
+            CompletableFuture<InputSolution> future = client.submit(new BinaryOperation(Operator.EQ, x, x));
+            client.close();
+            assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+            assertFalse(client.isConnected());
+        } finally {
+            server.close();
+        }
+    }
+
+    @Test
+    public void testCancelledQueriesAreNotPending() throws Exception {
+        try (LocalSolverServer server = new LocalSolverServer(
+                        c -> {
+                            try {
+                                Thread.sleep(1_000);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                            return solve(c);
+                        },
+                        1);
+                SolverClient client = new SolverClient(server.getHost(), server.getPort(), 4)) {
+            Expression x = new IntVariable("x", null, null);
+            CompletableFuture<InputSolution> future =
+                    client.submit(new BinaryOperation(Operator.EQ, x, new IntConstant(1)));
+            assertThrows(TimeoutException.class, () -> future.get(10, TimeUnit.MILLISECONDS));
+            future.cancel(false);
+            assertEquals(0, client.getPendingCount());
+            // The response to the cancelled query is ignored
+            Expression y = new IntVariable("y", null, null);
+            InputSolution solution = client.submit(new BinaryOperation(Operator.EQ, y, new IntConstant(3)))
+                    .get(10, TimeUnit.SECONDS);
+            assertEquals(3, solution.getValue("y"));
+            assertTrue(client.isConnected());
+        }
+    }
+
+    /**
+     * Solves constraints of the form {@code x == c}, reports {@code x != x} as unsatisfiable, and rejects everything
+     * else.
+     */
+    private static InputSolution solve(Expression constraint) {
+        Operation operation = (Operation) constraint;
+        if (operation.getOperator() == Operator.NE) {
+            return null;
+        } else if (operation.getOperator() != Operator.EQ) {
+            throw new IllegalArgumentException("Unsupported constraint: " + constraint);
+        }
+        InputSolution solution = new InputSolution();
+        IntVariable variable = (IntVariable) operation.getOperand(0);
+        solution.setValue(variable.getName(), (int) ((IntConstant) operation.getOperand(1)).getValueLong());
+        return solution;
+    }
+}
@@ -0,0 +1,100 @@
+package edu.neu.ccs.prl.galette.concolic.knarr;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import edu.neu.ccs.prl.galette.concolic.knarr.metrics.Counter;
+import edu.neu.ccs.prl.galette.concolic.knarr.metrics.Histogram;
+import edu.neu.ccs.prl.galette.concolic.knarr.metrics.MetricsRegistry;
+import edu.neu.ccs.prl.galette.concolic.knarr.metrics.MetricsReporter;
+import edu.neu.ccs.prl.galette.concolic.knarr.metrics.SymbolicMetrics;
+import edu.neu.ccs.prl.galette.concolic.knarr.runtime.PathConditionWrapper;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import javax.management.ObjectName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import za.ac.sun.cs.green.expr.IntConstant;
+
+/**
+ * Tests for the symbolic execution metrics registry.
+ *
+ * @author [Anne Koziolek](https://github.com/AnneKoziolek)
+ */
+public class SymbolicMetricsTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testHistogramQuantiles() {
+        Histogram histogram = new MetricsRegistry().histogram("h");
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(100, histogram.getMax());
+        assertEquals(50.5, histogram.getMean(), 1e-9);
+        long median = histogram.getQuantile(0.5);
+        assertTrue(median >= 50 && median < 100, "Median bound: " + median);
+        assertEquals(100, histogram.getQuantile(1));
+    }
+
+    @Test
+    public void testSnapshotContainsAllMetrics() {
+        MetricsRegistry registry = new MetricsRegistry();
+        Counter counter = registry.counter("c");
+        counter.add(3);
+        registry.histogram("h").record(7);
+        Map<String, Number> snapshot = registry.snapshot();
+        assertEquals(3L, snapshot.get("c.count"));
+        assertEquals(1L, snapshot.get("h.count"));
+        assertEquals(7L, snapshot.get("h.max"));
+        registry.reset();
+        assertEquals(0L, registry.snapshot().get("c.count"));
+    }
+
+    @Test
+    public void testPathConditionRecordsConstraints() {
+        long before = SymbolicMetrics.CONSTRAINTS_ADDED.getCount();
+        PathConditionWrapper pc = new PathConditionWrapper();
+        pc.addConstraint(new IntConstant(1));
+        pc.addConstraint(new IntConstant(2));
+        assertEquals(before + 2, SymbolicMetrics.CONSTRAINTS_ADDED.getCount());
+        assertTrue(SymbolicMetrics.PATH_CONDITION_LENGTH.getMax() >= 2);
+    }
+
+    @Test
+    public void testReporterWritesCsvAndJson() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("c").add(5);
+        File csv = tempDir.resolve("metrics.csv").toFile();
+        File json = tempDir.resolve("metrics.json").toFile();
+        try (MetricsReporter reporter = new MetricsReporter(registry, csv, 60_000)) {
+            reporter.flush();
+        }
+        try (MetricsReporter reporter = new MetricsReporter(registry, json, 60_000)) {
+            reporter.flush();
+        }
+        List<String> lines = Files.readAllLines(csv.toPath(), StandardCharsets.UTF_8);
+        assertEquals("timestamp,name,value", lines.get(0));
+        assertTrue(lines.stream().anyMatch(l -> l.endsWith(",c.count,5")));
+        assertTrue(lines.stream().anyMatch(l -> l.contains(",c.rate,")));
+        String content = new String(Files.readAllBytes(json.toPath()), StandardCharsets.UTF_8);
+        assertTrue(content.contains("\"c.count\":5"), content);
+    }
+
+    @Test
+    public void testRegistryExposedOverJmx() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("c").add(2);
+        String name = "edu.neu.ccs.prl.galette.concolic.knarr:type=SymbolicMetricsTest";
+        registry.registerMBean(name);
+        Object value = ManagementFactory.getPlatformMBeanServer().getAttribute(new ObjectName(name), "c.count");
+        assertEquals(2L, value);
+    }
+}